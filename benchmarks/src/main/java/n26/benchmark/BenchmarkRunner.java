@@ -0,0 +1,38 @@
+package n26.benchmark;
+
+import java.io.File;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once for every number of threads from 1 up to 64
+ *
+ * Every run writes its results as JSON to 'jmh-result-<threads>-threads.json' in the given directory (the current
+ * directory by default), so numbers of different builds can be compared. Any other argument is passed on to JMH, e.g.
+ * a regular expression to select the benchmarks.
+ */
+public class BenchmarkRunner {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        final String resultDirectory = System.getProperty("n26.benchmark.results", ".");
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        for (final int threads : THREADS) {
+            final Options options = new OptionsBuilder()
+                    .parent(commandLineOptions)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDirectory, "jmh-result-" + threads + "-threads.json").getPath())
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package n26.benchmark;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock which only moves when told to, so benchmarks control which buckets are current, committed or expired
+ */
+public class ManualClock extends Clock {
+
+    // Shared with the clocks of other zones derived from this one, so they all move together
+    private final AtomicLong millis;
+
+    private final ZoneId zone;
+
+    public ManualClock(long millis) {
+        this(new AtomicLong(millis), ZoneOffset.UTC);
+    }
+
+    private ManualClock(AtomicLong millis, ZoneId zone) {
+        this.millis = millis;
+        this.zone = zone;
+    }
+
+    public void advance(long amount) {
+        millis.addAndGet(amount);
+    }
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis.get());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * The clock of another zone shows the same time and moves along with this one
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new ManualClock(millis, zone);
+    }
+}
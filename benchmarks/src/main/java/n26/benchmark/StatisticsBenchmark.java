@@ -0,0 +1,75 @@
+package n26.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the per bucket aggregation in {@link Statistics}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class StatisticsBenchmark {
+
+    private static final int BUCKETS = 60;
+
+    Statistics statistics;
+
+    Transaction transaction;
+
+    Statistics[] buckets;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(42);
+        statistics = new Statistics();
+        transaction = new Transaction(1_500_000_000_000L, 12.34);
+        buckets = new Statistics[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new Statistics();
+            for (int k = 0; k < 10; k++) {
+                buckets[i].addTransaction(new Transaction(1_500_000_000_000L + i * 1000, random.nextDouble()));
+            }
+        }
+    }
+
+    @Benchmark
+    public Statistics addTransaction() {
+        statistics.addTransaction(transaction);
+        return statistics;
+    }
+
+    @Benchmark
+    public Statistics addStatistics() {
+        statistics.addStatistics(buckets[0]);
+        return statistics;
+    }
+
+    /**
+     * Merges a full window of buckets, like the statistics of the window are computed from the buckets
+     */
+    @Benchmark
+    public Statistics addStatisticsOfWindow() {
+        final Statistics total = new Statistics();
+        for (final Statistics bucket : buckets) {
+            total.addStatistics(bucket);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,52 @@
+package n26.benchmark;
+
+import java.util.Random;
+
+/**
+ * Distributions of transaction timestamps relative to the current time
+ */
+public enum TimestampDistribution {
+
+    /**
+     * Timestamps spread evenly over the whole statistics window
+     */
+    UNIFORM {
+        @Override
+        long next(Random random, long now) {
+            return now - random.nextInt(WINDOW_MS);
+        }
+    },
+
+    /**
+     * Most transactions arrive in bursts within the current second, the rest is spread over the window
+     */
+    BURSTY {
+        @Override
+        long next(Random random, long now) {
+            if (random.nextInt(10) > 0) {
+                return now - random.nextInt((int) (now % 1000) + 1);
+            }
+            return now - random.nextInt(WINDOW_MS);
+        }
+    },
+
+    /**
+     * All transactions arrive late, i.e. for buckets which have already been committed
+     */
+    LATE {
+        @Override
+        long next(Random random, long now) {
+            final long currentSecond = now - now % 1000;
+            return currentSecond - 1 - random.nextInt(WINDOW_MS - 1000);
+        }
+    };
+
+    private static final int WINDOW_MS = 60_000;
+
+    /**
+     * @param random the source of randomness
+     * @param now the current time in milliseconds
+     * @return a timestamp within the statistics window
+     */
+    abstract long next(Random random, long now);
+}
@@ -0,0 +1,71 @@
+package n26.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import n26.model.Transaction;
+import n26.model.TransactionDecoder;
+import n26.service.TransactionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of reading a POST /transactions body and adding it to the store
+ *
+ * Compares the regular JSON binding into a {@link Transaction} with the {@link TransactionDecoder}, which reads the
+ * primitives straight from the bytes. Run with '-prof gc' to see the allocations per transaction.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TransactionDecodingBenchmark {
+
+    private static final long START_MILLIS = 1_500_000_000_500L;
+
+    @State(Scope.Thread)
+    public static class DecodingState {
+
+        final ObjectReader reader = new ObjectMapper().readerFor(Transaction.class);
+
+        final TransactionDecoder decoder = new TransactionDecoder();
+
+        byte[] body;
+
+        ManualClock clock;
+
+        TransactionStore store;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            body = ("{\"timestamp\":" + (START_MILLIS - 1_000) + ",\"amount\":123.45}").getBytes(StandardCharsets.UTF_8);
+            clock = new ManualClock(START_MILLIS);
+            store = new TransactionStore(clock);
+        }
+    }
+
+    @Benchmark
+    public void jsonBinding(DecodingState state) throws IOException {
+        state.store.addTransaction(state.reader.<Transaction>readValue(state.body));
+    }
+
+    @Benchmark
+    public void decoder(DecodingState state) {
+        final TransactionDecoder decoder = state.decoder;
+        if (decoder.decode(state.body, 0, state.body.length)) {
+            state.store.addTransaction(decoder.getTimestamp(), decoder.getAmount());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package n26.benchmark;
+
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import n26.service.AggregationMode;
+import n26.service.StoreSettings;
+import n26.service.TransactionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the {@link TransactionStore} hot paths
+ *
+ * The time is driven through a {@link ManualClock}, which stays fixed while transactions are added, so all generated
+ * timestamps stay valid for the whole measurement. Run with '-t' (or through {@link BenchmarkRunner}) to vary the
+ * number of writer threads.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TransactionStoreBenchmark {
+
+    // Start of the benchmark time, fixed so every run sees the same bucket layout
+    private static final long START_MILLIS = 1_500_000_000_500L;
+
+    private static final int PREGENERATED_TRANSACTIONS = 4096;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({"SCAN", "INCREMENTAL"})
+        AggregationMode aggregation;
+
+        @Param({"UNIFORM", "BURSTY", "LATE"})
+        TimestampDistribution distribution;
+
+        ManualClock clock;
+
+        TransactionStore store;
+
+        // Hands out a different seed to every thread, so runs are reproducible
+        final AtomicInteger seeds = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            clock = new ManualClock(START_MILLIS);
+            store = new TransactionStore(clock, aggregation);
+            // Commits all buckets before the current one, so transactions for them arrive late
+            store.getStatistics(clock.instant());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TransactionState {
+
+        final Transaction[] transactions = new Transaction[PREGENERATED_TRANSACTIONS];
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void setup(StoreState storeState) {
+            final Random random = new Random(42 + storeState.seeds.getAndIncrement());
+            for (int i = 0; i < transactions.length; i++) {
+                transactions[i] = new Transaction(storeState.distribution.next(random, START_MILLIS),
+                        random.nextInt(100_000) / 100.0);
+            }
+        }
+
+        Transaction next() {
+            next = (next + 1) & (PREGENERATED_TRANSACTIONS - 1);
+            return transactions[next];
+        }
+    }
+
+    /**
+     * Transactions with idempotency keys, which are new on the first pass and duplicates on every further one
+     */
+    @State(Scope.Benchmark)
+    public static class IdempotentState {
+
+        ManualClock clock;
+
+        TransactionStore store;
+
+        final Transaction[] transactions = new Transaction[PREGENERATED_TRANSACTIONS];
+
+        final AtomicInteger next = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            clock = new ManualClock(START_MILLIS);
+            store = new TransactionStore(clock, StoreSettings.builder().idempotencyKeysPerBucket(100_000).build());
+            final Random random = new Random(42);
+            for (int i = 0; i < transactions.length; i++) {
+                transactions[i] = new Transaction(TimestampDistribution.UNIFORM.next(random, START_MILLIS),
+                        random.nextInt(100_000) / 100.0, null, new UUID(random.nextLong(), random.nextLong()).toString());
+            }
+        }
+
+        Transaction next() {
+            return transactions[next.getAndIncrement() & (PREGENERATED_TRANSACTIONS - 1)];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RolloverState {
+
+        @Param({"SCAN", "INCREMENTAL"})
+        AggregationMode aggregation;
+
+        ManualClock clock;
+
+        TransactionStore store;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            clock = new ManualClock(START_MILLIS);
+            store = new TransactionStore(clock, aggregation);
+        }
+    }
+
+    @Benchmark
+    public void addTransaction(StoreState storeState, TransactionState transactionState) {
+        storeState.store.addTransaction(transactionState.next());
+    }
+
+    @Benchmark
+    public int addTransactionWithIdempotencyKey(IdempotentState state) {
+        return state.store.tryAddTransaction(state.next());
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public void writeWhileReading(StoreState storeState, TransactionState transactionState) {
+        storeState.store.addTransaction(transactionState.next());
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Statistics readWhileWriting(StoreState storeState) {
+        return storeState.store.getStatistics(storeState.clock.instant());
+    }
+
+    /**
+     * Every invocation moves to the next second, adds a transaction to it and requests the statistics, which commits
+     * the previous bucket and expires the oldest one
+     */
+    @Benchmark
+    @Threads(1)
+    public Statistics rollover(RolloverState state) {
+        state.clock.advance(1000);
+        final Instant now = state.clock.instant();
+        state.store.addTransaction(new Transaction(now.toEpochMilli(), 1.0));
+        return state.store.getStatistics(now);
+    }
+}
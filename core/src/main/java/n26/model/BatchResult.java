@@ -0,0 +1,12 @@
+package n26.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Getter
+public class BatchResult {
+
+    private final long accepted;
+    private final long rejected;
+}
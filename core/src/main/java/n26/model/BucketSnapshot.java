@@ -0,0 +1,32 @@
+package n26.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The statistics of every non-empty bucket of the statistics window of a node, as parallel arrays
+ */
+@RequiredArgsConstructor
+@Getter
+public class BucketSnapshot {
+
+    // The time the snapshot was taken at by the node
+    private final long takenAt;
+
+    private final long bucketSizeMs;
+
+    private final long[] buckets;
+    private final long[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+    private final long[] lastTimestamps;
+
+    /**
+     * @param index the position of a bucket in the snapshot
+     * @return the statistics of the bucket
+     */
+    public Statistics getStatistics(int index) {
+        return new Statistics(maxs[index], mins[index], sums[index], counts[index], lastTimestamps[index], null);
+    }
+}
@@ -0,0 +1,18 @@
+package n26.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The statistics merged from the snapshots of several nodes
+ */
+@RequiredArgsConstructor
+@Getter
+public class ClusterStatistics {
+
+    private final Statistics statistics;
+
+    // The number of nodes with a recent enough snapshot and the number of all nodes
+    private final int mergedNodes;
+    private final int nodes;
+}
@@ -0,0 +1,22 @@
+package n26.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The statistics of the statistics window, encoded once and shared by all requests of the same version
+ */
+@RequiredArgsConstructor
+@Getter
+public class EncodedStatistics {
+
+    private final long version;
+
+    // The number of transactions, so empty statistics can be told apart without decoding
+    private final long count;
+
+    private final byte[] body;
+
+    // The quoted entity tag of the version
+    private final String etag;
+}
@@ -0,0 +1,18 @@
+package n26.model;
+
+import lombok.Getter;
+
+/**
+ * Thrown if a transaction can't be taken, since the tenant registry is full
+ */
+@Getter
+public class IngestUnavailableException extends RuntimeException {
+
+    // Whether it is only full for the moment, otherwise it doesn't take transactions anymore
+    private final boolean full;
+
+    public IngestUnavailableException(String message, boolean full) {
+        super(message);
+        this.full = full;
+    }
+}
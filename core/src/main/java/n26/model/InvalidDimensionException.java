@@ -0,0 +1,8 @@
+package n26.model;
+
+public class InvalidDimensionException extends RuntimeException {
+
+    public InvalidDimensionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package n26.model;
+
+public class InvalidRuleException extends RuntimeException {
+
+    public InvalidRuleException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package n26.model;
+
+public class InvalidTenantException extends RuntimeException {
+
+    public InvalidTenantException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package n26.model;
+
+/**
+ * Thrown for a transaction from the future or older than the statistics window
+ * Outdated transactions are common with producers replaying their backlog, so this skips capturing the stack trace
+ */
+public class InvalidTimestampException extends RuntimeException {
+
+    public InvalidTimestampException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,8 @@
+package n26.model;
+
+public class InvalidWindowException extends RuntimeException {
+
+    public InvalidWindowException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package n26.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Count and sum of the transactions of a single key of a dimension
+ */
+@RequiredArgsConstructor
+@Getter
+public class KeyStatistics {
+
+    private final String key;
+    private final long count;
+    private final double sum;
+
+    // False if the key isn't tracked individually, the figures then leave out its transactions before it got monitored
+    private final boolean exact;
+}
@@ -0,0 +1,11 @@
+package n26.model;
+
+/**
+ * Thrown if a request body is larger than the maximum size, before it is read to its end
+ */
+public class PayloadTooLargeException extends RuntimeException {
+
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
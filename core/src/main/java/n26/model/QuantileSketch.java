@@ -0,0 +1,191 @@
+package n26.model;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable quantile sketch of transaction amounts with a fixed memory footprint
+ *
+ * Amounts are counted in logarithmically sized bins, like in DDSketch: every bin covers the amounts between
+ * {@code MIN_AMOUNT * GAMMA^(i-1)} and {@code MIN_AMOUNT * GAMMA^i}, so every quantile is accurate within
+ * {@link QuantileSketch#RELATIVE_ACCURACY} of the actual amount. Negative amounts get mirrored bins, amounts closer to
+ * zero than {@link QuantileSketch#MIN_AMOUNT} share a single bin. All bins are kept in one array ordered by amount, so
+ * merging two sketches is adding up their counts.
+ */
+public class QuantileSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    // Smallest absolute amount which gets its own bin
+    public static final double MIN_AMOUNT = 0.01;
+
+    // Largest absolute amount which gets its own bin, larger amounts are counted in the outermost bins
+    public static final double MAX_AMOUNT = 1e12;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // Number of bins for each sign
+    private static final int BINS = (int) Math.ceil(Math.log(MAX_AMOUNT / MIN_AMOUNT) / LOG_GAMMA) + 1;
+
+    private static final int ZERO_INDEX = BINS;
+
+    /**
+     * Number of bins of a sketch, negative amounts first, followed by the zero bin and positive amounts
+     */
+    public static final int SIZE = 2 * BINS + 1;
+
+    private final long[] counts;
+
+    // The range of bins which may be non-empty, so merging doesn't need to touch the whole array
+    private int lowIndex;
+    private int highIndex;
+
+    private long count;
+
+    public QuantileSketch() {
+        counts = new long[SIZE];
+        lowIndex = SIZE;
+        highIndex = -1;
+    }
+
+    /**
+     * @param amount a transaction amount
+     * @return the index of the bin the amount belongs to
+     */
+    public static int index(double amount) {
+        if (Math.abs(amount) < MIN_AMOUNT) {
+            return ZERO_INDEX;
+        }
+
+        final int bin = (int) Math.min(BINS - 1, Math.ceil(Math.log(Math.abs(amount) / MIN_AMOUNT) / LOG_GAMMA));
+        return amount > 0 ? ZERO_INDEX + 1 + bin : ZERO_INDEX - 1 - bin;
+    }
+
+    /**
+     * @param index the index of a bin
+     * @return the amount representing all amounts of the bin
+     */
+    public static double amount(int index) {
+        if (index == ZERO_INDEX) {
+            return 0;
+        }
+
+        final int bin = index > ZERO_INDEX ? index - ZERO_INDEX - 1 : ZERO_INDEX - 1 - index;
+        final double amount = MIN_AMOUNT * Math.pow(GAMMA, bin) * 2 / (1 + GAMMA);
+        return index > ZERO_INDEX ? amount : -amount;
+    }
+
+    public void add(double amount) {
+        add(index(amount), 1);
+    }
+
+    /**
+     * Adds a number of amounts to a bin
+     * @param index the index of the bin
+     * @param binCount the number of amounts
+     */
+    public void add(int index, long binCount) {
+        counts[index] += binCount;
+        count += binCount;
+        lowIndex = Integer.min(lowIndex, index);
+        highIndex = Integer.max(highIndex, index);
+    }
+
+    public void merge(QuantileSketch other) {
+        for (int i = other.lowIndex; i <= other.highIndex; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        lowIndex = Integer.min(lowIndex, other.lowIndex);
+        highIndex = Integer.max(highIndex, other.highIndex);
+    }
+
+    /**
+     * Removes the amounts of another sketch, which must have been merged into this one before
+     * @param other the sketch to remove
+     */
+    public void subtract(QuantileSketch other) {
+        for (int i = other.lowIndex; i <= other.highIndex; i++) {
+            counts[i] -= other.counts[i];
+        }
+        count -= other.count;
+
+        if (count == 0) {
+            clear();
+        }
+    }
+
+    public QuantileSketch copy() {
+        final QuantileSketch copy = new QuantileSketch();
+        copy.merge(this);
+        return copy;
+    }
+
+    public void clear() {
+        if (highIndex >= lowIndex) {
+            Arrays.fill(counts, lowIndex, highIndex + 1, 0);
+        }
+        count = 0;
+        lowIndex = SIZE;
+        highIndex = -1;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the lowest bin which may be non-empty
+     */
+    public int getLowIndex() {
+        return lowIndex;
+    }
+
+    /**
+     * @return the highest bin which may be non-empty
+     */
+    public int getHighIndex() {
+        return highIndex;
+    }
+
+    public long getBinCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * @param quantile the quantile between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return the approximated amount at the quantile, or NaN if the sketch is empty
+     */
+    public double quantile(double quantile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        final long rank = (long) (quantile * (count - 1));
+        long seen = 0;
+        for (int i = lowIndex; i <= highIndex; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return amount(i);
+            }
+        }
+        return amount(highIndex);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QuantileSketch)) {
+            return false;
+        }
+        final QuantileSketch other = (QuantileSketch) o;
+        return count == other.count && Arrays.equals(counts, other.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+}
@@ -0,0 +1,28 @@
+package n26.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The rate of transactions and of their amount, and their exponentially weighted moving averages
+ *
+ * The rates are per second of the newest committed bucket. The moving averages decay with time constants of 1, 10
+ * and 60 seconds, so a bucket's weight drops to 1/e after that time.
+ */
+@RequiredArgsConstructor
+@Getter
+@EqualsAndHashCode
+public class Rates {
+
+    private final double countPerSecond;
+    private final double amountPerSecond;
+
+    private final double countEwma1s;
+    private final double countEwma10s;
+    private final double countEwma60s;
+
+    private final double amountEwma1s;
+    private final double amountEwma10s;
+    private final double amountEwma60s;
+}
@@ -0,0 +1,163 @@
+package n26.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter(AccessLevel.PROTECTED) // protected for unit testing, shouldn't be used otherwise
+@EqualsAndHashCode
+public class Statistics {
+
+    private double max;
+    private double min;
+    private double sum;
+    private long count;
+    private long lastTimestamp;
+
+    // The rounding error of sum, which is carried along so adding many small amounts doesn't drift (Neumaier summation)
+    @Getter(AccessLevel.NONE)
+    private double compensation;
+
+    // Distribution of the amounts, only kept if quantiles are enabled
+    private QuantileSketch sketch;
+
+    // Rates of the transactions and their moving averages, only added to the statistics window if rates are enabled
+    private Rates rates;
+
+    public Statistics() {
+        init();
+    }
+
+    @Builder(toBuilder = true)
+    public Statistics(double max, double min, double sum, long count, long lastTimestamp, QuantileSketch sketch) {
+        this.max = max;
+        this.min = min;
+        this.sum = sum;
+        this.count = count;
+        this.lastTimestamp = lastTimestamp;
+        this.sketch = sketch;
+    }
+
+    /**
+     * @return empty statistics, which keep track of the quantiles of the amounts
+     */
+    public static Statistics withSketch() {
+        final Statistics statistics = new Statistics();
+        statistics.sketch = new QuantileSketch();
+        return statistics;
+    }
+
+    /**
+     * @param rates the rates to add
+     * @return a copy of the statistics with the given rates
+     */
+    public Statistics withRates(Rates rates) {
+        final Statistics statistics = new Statistics(max, min, getSum(), count, lastTimestamp, sketch);
+        statistics.rates = rates;
+        return statistics;
+    }
+
+    private void init() {
+        max = Double.MIN_VALUE;
+        min = Double.MAX_VALUE;
+        sum = 0;
+        compensation = 0;
+        count = 0;
+        lastTimestamp = 0;
+    }
+
+    public void reset() {
+        init();
+        if (sketch != null) {
+            sketch.clear();
+        }
+    }
+
+    public void addTransaction(Transaction transaction) {
+        addTransaction(transaction.getTimestamp(), transaction.getAmount());
+    }
+
+    public void addTransaction(long timestamp, double amount) {
+        lastTimestamp = Long.max(timestamp, lastTimestamp);
+
+        if (count == 0) {
+            min = amount;
+            max = amount;
+        } else {
+            min = Double.min(min, amount);
+            max = Double.max(max, amount);
+        }
+
+        count++;
+        addToSum(amount);
+
+        if (sketch != null) {
+            sketch.add(amount);
+        }
+    }
+
+    public void addStatistics(Statistics other) {
+        if (other.getCount() <= 0) {
+            return;
+        }
+
+        lastTimestamp = Long.max(other.getLastTimestamp(), lastTimestamp);
+        if (count == 0) {
+            min = other.getMin();
+            max = other.getMax();
+        } else {
+            min = Double.min(min, other.getMin());
+            max = Double.max(max, other.getMax());
+        }
+
+        addToSum(other.getSum());
+        count += other.getCount();
+
+        if (other.getSketch() != null) {
+            if (sketch == null) {
+                sketch = new QuantileSketch();
+            }
+            sketch.merge(other.getSketch());
+        }
+    }
+
+    public double getSum() {
+        return sum + compensation;
+    }
+
+    /**
+     * The average is only derived when it is read, so adding transactions doesn't need any division
+     * @return the average amount or 0 if there are no transactions
+     */
+    public double getAvg() {
+        return count == 0 ? 0 : getSum() / count;
+    }
+
+    /**
+     * @return the approximated p50, p95, p99 and p999 of the amounts, or null if no quantiles are kept
+     */
+    public Map<String, Double> getQuantiles() {
+        if (sketch == null || sketch.getCount() == 0) {
+            return null;
+        }
+
+        final Map<String, Double> quantiles = new LinkedHashMap<>();
+        quantiles.put("p50", sketch.quantile(0.5));
+        quantiles.put("p95", sketch.quantile(0.95));
+        quantiles.put("p99", sketch.quantile(0.99));
+        quantiles.put("p999", sketch.quantile(0.999));
+        return quantiles;
+    }
+
+    private void addToSum(final double value) {
+        final double newSum = sum + value;
+        compensation += Summation.roundingError(sum, value, newSum);
+        sum = newSum;
+    }
+
+}
@@ -0,0 +1,23 @@
+package n26.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The statistics pushed to subscribers whenever the statistics window moved or changed
+ * An update is a full snapshot rather than a delta to the previous one, since subscribers only keep their newest
+ * unsent update and skip the others, which a delta couldn't be applied without
+ */
+@RequiredArgsConstructor
+@Getter
+public class StatisticsUpdate {
+
+    // The version of the statistics window, see TransactionStore#getStatisticsVersion
+    private final long version;
+
+    // The statistics of the statistics window, like /statistics
+    private final Statistics statistics;
+
+    // The transactions of the current bucket so far, which are only part of the statistics with the next commit
+    private final Statistics currentBucket;
+}
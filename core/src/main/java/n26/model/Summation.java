@@ -0,0 +1,26 @@
+package n26.model;
+
+/**
+ * Helpers for compensated (Kahan-Babuska-Neumaier) summation of doubles
+ *
+ * Instead of a single double, a sum is kept as a pair of the rounded sum and its accumulated rounding error. Adding the
+ * error back when the sum is read makes the result independent of how many small amounts got added.
+ */
+public final class Summation {
+
+    private Summation() {
+    }
+
+    /**
+     * @param sum the sum before adding the value
+     * @param value the value which got added
+     * @param newSum the rounded result of {@code sum + value}
+     * @return the rounding error of the addition, which has to be added to the compensation of the sum
+     */
+    public static double roundingError(double sum, double value, double newSum) {
+        if (!Double.isFinite(newSum)) {
+            return 0;
+        }
+        return Math.abs(sum) >= Math.abs(value) ? (sum - newSum) + value : (value - newSum) + sum;
+    }
+}
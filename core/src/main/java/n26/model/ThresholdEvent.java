@@ -0,0 +1,23 @@
+package n26.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A threshold rule, which started or stopped to hold with a new version of the statistics
+ */
+@RequiredArgsConstructor
+@Getter
+public class ThresholdEvent {
+
+    // The rule like 'sum>1000.0'
+    private final String rule;
+
+    // Whether the rule holds since this version, otherwise it stopped to hold
+    private final boolean active;
+
+    // The value of the field of the rule
+    private final double value;
+
+    private final long version;
+}
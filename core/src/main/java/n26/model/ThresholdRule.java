@@ -0,0 +1,128 @@
+package n26.model;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * A condition on the statistics of the statistics window like 'sum>1000' or 'max>=250.5'
+ * Rules on anything but the count never hold for empty statistics, which have no meaningful min, max or average.
+ */
+@Getter
+@EqualsAndHashCode
+public class ThresholdRule {
+
+    public enum Field {
+        COUNT, SUM, AVG, MIN, MAX
+    }
+
+    public enum Operator {
+        GREATER(">"), GREATER_OR_EQUAL(">="), LESS("<"), LESS_OR_EQUAL("<=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Operator of(String symbol) {
+            for (final Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            throw new IllegalArgumentException(symbol);
+        }
+    }
+
+    private static final Pattern RULE = Pattern.compile("\\s*([a-zA-Z]+)\\s*(>=|<=|>|<)\\s*(\\S+)\\s*");
+
+    private final Field field;
+    private final Operator operator;
+    private final double threshold;
+
+    public ThresholdRule(Field field, Operator operator, double threshold) {
+        this.field = field;
+        this.operator = operator;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param rule a rule like 'sum>1000' on count, sum, avg, min or max with &gt;, &gt;=, &lt; or &lt;=
+     * @return the parsed rule
+     * @throws InvalidRuleException if the rule can't be parsed
+     */
+    public static ThresholdRule parse(String rule) {
+        final Matcher matcher = RULE.matcher(rule);
+        if (!matcher.matches()) {
+            throw new InvalidRuleException("Rule '" + rule + "' is not like 'sum>1000'.");
+        }
+
+        final Field field;
+        try {
+            field = Field.valueOf(matcher.group(1).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRuleException("Rule '" + rule + "' must be on count, sum, avg, min or max.");
+        }
+
+        final double threshold;
+        try {
+            threshold = Double.parseDouble(matcher.group(3));
+        } catch (NumberFormatException e) {
+            throw new InvalidRuleException("Rule '" + rule + "' has no numeric threshold.");
+        }
+        if (Double.isNaN(threshold)) {
+            throw new InvalidRuleException("Rule '" + rule + "' has no numeric threshold.");
+        }
+
+        return new ThresholdRule(field, Operator.of(matcher.group(2)), threshold);
+    }
+
+    /**
+     * @param statistics the statistics of the statistics window
+     * @return the value of the field of the rule
+     */
+    public double valueOf(Statistics statistics) {
+        switch (field) {
+            case COUNT:
+                return statistics.getCount();
+            case SUM:
+                return statistics.getSum();
+            case AVG:
+                return statistics.getAvg();
+            case MIN:
+                return statistics.getMin();
+            default:
+                return statistics.getMax();
+        }
+    }
+
+    /**
+     * @param statistics the statistics of the statistics window
+     * @return whether the statistics meet the rule
+     */
+    public boolean matches(Statistics statistics) {
+        if (field != Field.COUNT && statistics.getCount() == 0) {
+            return false;
+        }
+
+        final double value = valueOf(statistics);
+        switch (operator) {
+            case GREATER:
+                return value > threshold;
+            case GREATER_OR_EQUAL:
+                return value >= threshold;
+            case LESS:
+                return value < threshold;
+            default:
+                return value <= threshold;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return field.name().toLowerCase(Locale.ROOT) + operator.symbol + threshold;
+    }
+}
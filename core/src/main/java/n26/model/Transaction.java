@@ -0,0 +1,32 @@
+package n26.model;
+
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.Getter;
+
+@RequiredArgsConstructor
+@Getter
+public class Transaction {
+
+    private final long timestamp;
+    private final double amount;
+
+    // Optional keys of the transaction per dimension, like {"merchant": "m-42", "country": "DE"}
+    private final Map<String, String> dimensions;
+
+    // Optional key, which a producer sends again when it retries the transaction, so it is only counted once
+    private final String idempotencyKey;
+
+    public Transaction(long timestamp, double amount) {
+        this(timestamp, amount, null);
+    }
+
+    public Transaction(long timestamp, double amount, Map<String, String> dimensions) {
+        this(timestamp, amount, dimensions, null);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{'amount':{},'timestamp':{}}", amount, timestamp);
+    }
+}
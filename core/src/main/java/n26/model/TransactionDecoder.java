@@ -0,0 +1,325 @@
+package n26.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads a transaction like {"timestamp":1478192204000,"amount":12.3} straight from its JSON bytes into primitives
+ *
+ * Only the plain form is decoded: an object with just an integer timestamp, a numeric amount, which converts to a
+ * double with a single rounding, and at most null dimensions. Anything else, like actual dimensions, further fields,
+ * escapes or very long numbers, is left to the regular JSON binding. A decoder keeps its buffer and its result, so it
+ * is meant to be reused by a single thread. Bodies above the maximum size aren't read to their end, and a buffer which
+ * grew for an unusually large body is dropped by {@link #release()}, so a long-lived decoder stays small.
+ */
+public class TransactionDecoder {
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    // Buffers up to this size are kept for the next body, larger ones are dropped once the body got handled
+    private static final int RETAINED_BUFFER_SIZE = 4096;
+
+    public static final int DEFAULT_MAX_BODY_BYTES = 64 * 1024;
+
+    private static final byte[] TIMESTAMP = "timestamp".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AMOUNT = "amount".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DIMENSIONS = "dimensions".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int NO_FIELD = 0;
+    private static final int TIMESTAMP_FIELD = 1;
+    private static final int AMOUNT_FIELD = 2;
+    private static final int DIMENSIONS_FIELD = 3;
+
+    // Mantissas up to 2^53 and powers of ten up to 10^22 are exact doubles, so their product or quotient is rounded once
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    // Keeps the digits of a number within a long
+    private static final long MAX_DIGITS_VALUE = 100_000_000_000_000_000L;
+
+    private static final int MAX_EXPONENT = 1000;
+
+    // The largest body decode(InputStream) reads
+    private final int maxBodyBytes;
+
+    // The body read by the last call of decode(InputStream)
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+
+    private long timestamp;
+    private double amount;
+
+    // The input while decoding
+    private byte[] bytes;
+    private int position;
+    private int end;
+
+    // The last number read: its digits, power of ten and sign, and whether it was a plain integer
+    private long digits;
+    private int exponent;
+    private boolean negative;
+    private boolean integer;
+
+    public TransactionDecoder() {
+        this(DEFAULT_MAX_BODY_BYTES);
+    }
+
+    /**
+     * @param maxBodyBytes the largest body {@link #decode(InputStream)} reads
+     */
+    public TransactionDecoder(int maxBodyBytes) {
+        if (maxBodyBytes <= 0) {
+            throw new IllegalArgumentException("The maximum body size must be positive");
+        }
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * Reads the whole body into the buffer of the decoder and decodes it
+     * @param body the request body
+     * @return whether the body is a plain transaction, otherwise it is left in the buffer for the regular JSON binding
+     * @throws IOException if the body can't be read
+     * @throws PayloadTooLargeException if the body is larger than the maximum size, it is only read up to there
+     */
+    public boolean decode(InputStream body) throws IOException {
+        length = 0;
+        int read;
+        while ((read = body.read(buffer, length, buffer.length - length)) >= 0) {
+            length += read;
+            if (length > maxBodyBytes) {
+                throw new PayloadTooLargeException("The body is larger than " + maxBodyBytes + " bytes.");
+            }
+            if (length == buffer.length) {
+                // One byte more than the maximum tells a body of exactly the maximum size from a larger one
+                buffer = Arrays.copyOf(buffer, (int) Long.min(buffer.length * 2L, maxBodyBytes + 1L));
+            }
+        }
+        return decode(buffer, 0, length);
+    }
+
+    /**
+     * Drops the body read by the last call of {@link #decode(InputStream)} if its buffer grew past the size of usual
+     * transactions, the next body starts with a small buffer again
+     */
+    public void release() {
+        if (buffer.length > RETAINED_BUFFER_SIZE) {
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+            length = 0;
+        }
+    }
+
+    /**
+     * @param input the JSON bytes
+     * @param offset the start of the transaction
+     * @param count the number of bytes of the transaction
+     * @return whether the bytes are a plain transaction, whose timestamp and amount are available afterwards
+     */
+    public boolean decode(byte[] input, int offset, int count) {
+        bytes = input;
+        position = offset;
+        end = offset + count;
+        try {
+            return decodeObject();
+        } finally {
+            bytes = null;
+        }
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    /**
+     * @return the buffer holding the body read by {@link #decode(InputStream)}
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the length of the body read by {@link #decode(InputStream)}
+     */
+    public int getLength() {
+        return length;
+    }
+
+    private boolean decodeObject() {
+        boolean hasTimestamp = false;
+        boolean hasAmount = false;
+
+        skipWhitespace();
+        if (!consume('{')) {
+            return false;
+        }
+
+        do {
+            skipWhitespace();
+            final int field = readField();
+            skipWhitespace();
+            if (field == NO_FIELD || !consume(':')) {
+                return false;
+            }
+            skipWhitespace();
+            if (field == DIMENSIONS_FIELD) {
+                if (!matches(position, Integer.min(position + NULL.length, end), NULL)) {
+                    return false;
+                }
+                position += NULL.length;
+            } else if (!readNumber()) {
+                return false;
+            } else if (field == TIMESTAMP_FIELD) {
+                if (hasTimestamp || !integer) {
+                    return false;
+                }
+                timestamp = negative ? -digits : digits;
+                hasTimestamp = true;
+            } else {
+                if (hasAmount || digits > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+                    return false;
+                }
+                final double value = exponent >= 0
+                        ? digits * POWERS_OF_TEN[exponent]
+                        : digits / POWERS_OF_TEN[-exponent];
+                amount = negative ? -value : value;
+                hasAmount = true;
+            }
+            skipWhitespace();
+        } while (consume(','));
+
+        if (!consume('}')) {
+            return false;
+        }
+        skipWhitespace();
+        return position == end && hasTimestamp && hasAmount;
+    }
+
+    private int readField() {
+        if (!consume('"')) {
+            return NO_FIELD;
+        }
+
+        final int start = position;
+        while (position < end && bytes[position] != '"') {
+            if (bytes[position] == '\\') {
+                return NO_FIELD;
+            }
+            position++;
+        }
+        if (position == end) {
+            return NO_FIELD;
+        }
+
+        final int fieldEnd = position++;
+        if (matches(start, fieldEnd, TIMESTAMP)) {
+            return TIMESTAMP_FIELD;
+        }
+        if (matches(start, fieldEnd, AMOUNT)) {
+            return AMOUNT_FIELD;
+        }
+        if (matches(start, fieldEnd, DIMENSIONS)) {
+            return DIMENSIONS_FIELD;
+        }
+        return NO_FIELD;
+    }
+
+    private boolean readNumber() {
+        negative = consume('-');
+        digits = 0;
+        exponent = 0;
+        integer = true;
+
+        if (!isDigit()) {
+            return false;
+        }
+        if (bytes[position] == '0' && position + 1 < end && bytes[position + 1] >= '0' && bytes[position + 1] <= '9') {
+            // JSON doesn't allow leading zeros
+            return false;
+        }
+        while (isDigit()) {
+            if (!addDigit()) {
+                return false;
+            }
+        }
+
+        if (consume('.')) {
+            integer = false;
+            if (!isDigit()) {
+                return false;
+            }
+            while (isDigit()) {
+                if (!addDigit()) {
+                    return false;
+                }
+                exponent--;
+            }
+        }
+
+        if (consume('e') || consume('E')) {
+            integer = false;
+            final boolean negativeExponent = consume('-');
+            if (!negativeExponent) {
+                consume('+');
+            }
+            if (!isDigit()) {
+                return false;
+            }
+            int value = 0;
+            while (isDigit()) {
+                value = value * 10 + bytes[position++] - '0';
+                if (value > MAX_EXPONENT) {
+                    return false;
+                }
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        return true;
+    }
+
+    private boolean addDigit() {
+        if (digits >= MAX_DIGITS_VALUE) {
+            return false;
+        }
+        digits = digits * 10 + bytes[position++] - '0';
+        return true;
+    }
+
+    private boolean isDigit() {
+        return position < end && bytes[position] >= '0' && bytes[position] <= '9';
+    }
+
+    private boolean consume(final char expected) {
+        if (position < end && bytes[position] == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < end && (bytes[position] == ' ' || bytes[position] == '\t' || bytes[position] == '\n'
+                || bytes[position] == '\r')) {
+            position++;
+        }
+    }
+
+    private boolean matches(final int from, final int to, final byte[] expected) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes[from + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,411 @@
+package n26.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+import n26.service.StoreProbe;
+import n26.service.TransactionStore;
+
+/**
+ * Accepts batches of transactions in a compact binary format over TCP and optionally UDP
+ *
+ * A batch is the number of its records as a 32 bit integer followed by the records, each a 64 bit timestamp in
+ * epoch millis and a 64 bit IEEE 754 amount, all in network byte order. Every batch is answered with the number of
+ * accepted and rejected records as two 32 bit integers. Over TCP the batches follow each other on the connection and
+ * are acknowledged in order; over UDP every datagram holds one batch and gets its acknowledgement as a datagram.
+ *
+ * Records are read from direct buffers into primitive arrays of their connection on the event loops, and every batch
+ * is merged into the store at once, so each bucket is only updated once per batch. The buffer and the arrays of a
+ * connection start at 64 records and only grow when a larger batch arrives, so idle and small producers don't hold
+ * them for the largest batch. A connection is only read from again once its acknowledgements are written, so a
+ * producer which doesn't read them is slowed down instead of piling them up.
+ */
+@Log
+public class BinaryIngestServer implements AutoCloseable {
+
+    public static final int COUNT_BYTES = 4;
+    public static final int RECORD_BYTES = 16;
+    public static final int ACK_BYTES = 8;
+
+    // The largest payload of a UDP datagram
+    private static final int MAX_DATAGRAM_BYTES = 65_507;
+
+    // The records a connection buffers at first, its buffer only grows once a larger batch arrives
+    private static final int INITIAL_BATCH_RECORDS = 64;
+
+    private final TransactionStore transactionStore;
+
+    // Measures how long ingesting a batch takes
+    private final StoreProbe storeProbe;
+
+    // The maximum number of records of a batch
+    private final int maxBatchRecords;
+
+    private final ServerSocketChannel serverChannel;
+
+    // Null if batches are only accepted over TCP
+    private final DatagramChannel datagramChannel;
+
+    private final EventLoop[] loops;
+
+    private final Thread acceptor;
+
+    private volatile boolean running = true;
+
+    /**
+     * Binds the server and starts its threads
+     * @param tcpAddress the address to listen on for TCP connections, port 0 picks a free port
+     * @param udpAddress the address to receive datagrams on or null to accept TCP only
+     * @param threads the number of event loops
+     * @param maxBatchRecords the maximum number of records of a batch, which is also limited by the datagram size
+     * @param transactionStore the store the records are added to
+     * @param storeProbe measures how long ingesting a batch takes
+     * @throws IOException if an address can't be bound
+     */
+    public BinaryIngestServer(InetSocketAddress tcpAddress, InetSocketAddress udpAddress, int threads,
+            int maxBatchRecords, TransactionStore transactionStore, StoreProbe storeProbe) throws IOException {
+        if (threads <= 0 || maxBatchRecords <= 0) {
+            throw new IllegalArgumentException("The server needs at least one thread and a positive batch size.");
+        }
+
+        this.transactionStore = transactionStore;
+        this.storeProbe = storeProbe;
+        this.maxBatchRecords = maxBatchRecords;
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(tcpAddress);
+
+        if (udpAddress != null) {
+            datagramChannel = DatagramChannel.open();
+            datagramChannel.bind(udpAddress);
+            datagramChannel.configureBlocking(false);
+        } else {
+            datagramChannel = null;
+        }
+
+        loops = new EventLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new EventLoop(Selector.open());
+        }
+        if (datagramChannel != null) {
+            datagramChannel.register(loops[0].selector, SelectionKey.OP_READ, new Datagrams());
+        }
+        for (int i = 0; i < threads; i++) {
+            final Thread thread = new Thread(loops[i], "binary-ingest-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        acceptor = new Thread(this::accept, "binary-ingest-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info(() -> "Binary ingest server listening on TCP port " + getPort()
+                + (datagramChannel == null ? "" : " and UDP port " + getUdpPort()));
+    }
+
+    /**
+     * @return the TCP port the server listens on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return the UDP port the server receives datagrams on, or -1 if it doesn't
+     */
+    public int getUdpPort() {
+        return datagramChannel == null ? -1 : datagramChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverChannel.close();
+            if (datagramChannel != null) {
+                datagramChannel.close();
+            }
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Could not close the server channels", e);
+        }
+        for (final EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                final SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Could not accept a connection", e);
+            }
+        }
+    }
+
+    /**
+     * Adds the records of a batch to the store at once and writes its acknowledgement
+     * @param records the records, which are consumed
+     * @param count the number of records
+     * @param batch the arrays the records are decoded into
+     * @param ack the buffer the acknowledgement is put into
+     */
+    private void ingest(final ByteBuffer records, final int count, final Batch batch, final ByteBuffer ack) {
+        final long startNanos = System.nanoTime();
+        batch.ensureCapacity(count);
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            final long timestamp = records.getLong();
+            final double amount = records.getDouble();
+            if (Double.isFinite(amount)) {
+                batch.timestamps[valid] = timestamp;
+                batch.amounts[valid] = amount;
+                valid++;
+            }
+        }
+        final int accepted = valid > 0 ? transactionStore.addTransactions(batch.timestamps, batch.amounts, valid) : 0;
+        ack.putInt(accepted).putInt(count - accepted);
+        storeProbe.ingested(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * The decoded records of a batch, reused for every batch of a connection
+     */
+    private static final class Batch {
+
+        private long[] timestamps;
+        private double[] amounts;
+
+        private Batch(final int records) {
+            timestamps = new long[records];
+            amounts = new double[records];
+        }
+
+        // Makes room for a larger batch than any before, at least doubling the arrays
+        private void ensureCapacity(final int records) {
+            if (records > timestamps.length) {
+                final int capacity = Integer.max(records, timestamps.length * 2);
+                timestamps = new long[capacity];
+                amounts = new double[capacity];
+            }
+        }
+    }
+
+    private final class Connection {
+
+        private final SocketChannel channel;
+
+        private SelectionKey key;
+
+        // The received bytes, which aren't ingested yet, in write mode
+        private ByteBuffer in = ByteBuffer.allocateDirect(
+                COUNT_BYTES + Integer.min(INITIAL_BATCH_RECORDS, maxBatchRecords) * RECORD_BYTES);
+
+        // The acknowledgements, which aren't written yet, in write mode
+        private final ByteBuffer out = ByteBuffer.allocateDirect(64 * ACK_BYTES);
+
+        private final Batch batch = new Batch(Integer.min(INITIAL_BATCH_RECORDS, maxBatchRecords));
+
+        private Connection(final SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            ingestBatches();
+            write();
+        }
+
+        // Ingests all complete batches in the buffer, as long as their acknowledgements fit
+        private void ingestBatches() throws IOException {
+            in.flip();
+            int required = 0;
+            while (in.remaining() >= COUNT_BYTES && out.remaining() >= ACK_BYTES) {
+                final int count = in.getInt(in.position());
+                if (count < 0 || count > maxBatchRecords) {
+                    throw new IOException("Batch of " + count + " records exceeds the limit of " + maxBatchRecords);
+                }
+                if (in.remaining() < COUNT_BYTES + count * RECORD_BYTES) {
+                    required = COUNT_BYTES + count * RECORD_BYTES;
+                    break;
+                }
+                in.position(in.position() + COUNT_BYTES);
+                ingest(in, count, batch, out);
+            }
+            in.compact();
+            if (required > in.capacity()) {
+                grow(required);
+            }
+        }
+
+        // Makes room for a larger batch than any before, at least doubling the buffer up to the largest batch
+        private void grow(final int required) {
+            final int capacity = Integer.min(COUNT_BYTES + maxBatchRecords * RECORD_BYTES,
+                    Integer.max(required, in.capacity() * 2));
+            final ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            in.flip();
+            grown.put(in);
+            in = grown;
+        }
+
+        // Writes the acknowledgements, and only reads again once they are all written
+        private void write() throws IOException {
+            while (true) {
+                out.flip();
+                channel.write(out);
+                final boolean pending = out.hasRemaining();
+                out.compact();
+
+                if (pending) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                if (!hasCompleteBatch()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+                // Batches which were held back, since their acknowledgements didn't fit anymore
+                ingestBatches();
+            }
+        }
+
+        private boolean hasCompleteBatch() {
+            return in.position() >= COUNT_BYTES
+                    && in.position() >= COUNT_BYTES + (long) in.getInt(0) * RECORD_BYTES;
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.log(Level.FINE, "Could not close connection", e);
+            }
+        }
+    }
+
+    private final class Datagrams {
+
+        private final ByteBuffer in = ByteBuffer.allocateDirect(MAX_DATAGRAM_BYTES);
+
+        private final ByteBuffer ack = ByteBuffer.allocateDirect(ACK_BYTES);
+
+        private final Batch batch = new Batch(Integer.min(INITIAL_BATCH_RECORDS, maxBatchRecords));
+
+        // Receives all waiting datagrams, a datagram which isn't a well-formed batch is dropped
+        private void receive() throws IOException {
+            SocketAddress sender;
+            while ((sender = datagramChannel.receive(in)) != null) {
+                in.flip();
+                final int count = in.remaining() >= COUNT_BYTES ? in.getInt() : -1;
+                if (count >= 0 && count <= maxBatchRecords && in.remaining() == count * RECORD_BYTES) {
+                    ack.clear();
+                    ingest(in, count, batch, ack);
+                    ack.flip();
+                    // Acknowledgements are best effort like the datagrams themselves
+                    datagramChannel.send(ack, sender);
+                } else if (log.isLoggable(Level.FINE)) {
+                    log.fine("Dropping malformed datagram of " + in.limit() + " bytes from " + sender);
+                }
+                in.clear();
+            }
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+
+        private final Selector selector;
+
+        private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+
+        private EventLoop(final Selector selector) {
+            this.selector = selector;
+        }
+
+        private void register(final SocketChannel channel) {
+            registrations.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    log.log(Level.SEVERE, "Binary ingest loop failed", e);
+                    break;
+                }
+
+                SocketChannel channel;
+                while ((channel = registrations.poll()) != null) {
+                    final Connection connection = new Connection(channel);
+                    try {
+                        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    } catch (ClosedChannelException e) {
+                        // The producer is gone already
+                    }
+                }
+
+                for (final SelectionKey key : selector.selectedKeys()) {
+                    handle(key);
+                }
+                selector.selectedKeys().clear();
+            }
+
+            for (final SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Could not close the selector", e);
+            }
+        }
+
+        private void handle(final SelectionKey key) {
+            if (key.attachment() instanceof Datagrams) {
+                try {
+                    ((Datagrams) key.attachment()).receive();
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Could not receive datagrams", e);
+                }
+                return;
+            }
+
+            final Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    connection.read();
+                } else if (key.isValid() && key.isWritable()) {
+                    connection.write();
+                }
+            } catch (IOException e) {
+                log.fine(() -> "Closing connection after " + e.getMessage());
+                connection.close();
+            }
+        }
+    }
+}
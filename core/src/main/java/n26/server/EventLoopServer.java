@@ -0,0 +1,412 @@
+package n26.server;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+
+/**
+ * A small non-blocking HTTP/1.1 server on plain NIO selectors
+ *
+ * An acceptor thread hands new connections to a fixed number of event loops, each of which multiplexes its
+ * connections with a selector. Requests are parsed from the bytes as they arrive and handled right on the event loop,
+ * so a connection only costs its buffers instead of a thread. Keep-alive and pipelining are supported, chunked request
+ * bodies are not.
+ */
+@Log
+public class EventLoopServer implements AutoCloseable {
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private static final Map<Integer, String> REASONS = new HashMap<>();
+
+    static {
+        REASONS.put(200, "OK");
+        REASONS.put(201, "Created");
+        REASONS.put(204, "No Content");
+        REASONS.put(304, "Not Modified");
+        REASONS.put(400, "Bad Request");
+        REASONS.put(404, "Not Found");
+        REASONS.put(405, "Method Not Allowed");
+        REASONS.put(411, "Length Required");
+        REASONS.put(413, "Payload Too Large");
+        REASONS.put(415, "Unsupported Media Type");
+        REASONS.put(431, "Request Header Fields Too Large");
+        REASONS.put(500, "Internal Server Error");
+    }
+
+    private final ServerSocketChannel serverChannel;
+
+    private final RequestHandler handler;
+
+    // The maximum size of a request body
+    private final int maxRequestBytes;
+
+    private final EventLoop[] loops;
+
+    private final Thread acceptor;
+
+    private volatile boolean running = true;
+
+    /**
+     * Binds the server and starts its threads
+     * @param address the address to listen on, port 0 picks a free port
+     * @param threads the number of event loops
+     * @param maxRequestBytes the maximum size of a request body
+     * @param handler the handler of all requests
+     * @throws IOException if the address can't be bound
+     */
+    public EventLoopServer(InetSocketAddress address, int threads, int maxRequestBytes, RequestHandler handler)
+            throws IOException {
+        if (threads <= 0 || maxRequestBytes <= 0) {
+            throw new IllegalArgumentException("The server needs at least one thread and a positive request size.");
+        }
+
+        this.handler = handler;
+        this.maxRequestBytes = maxRequestBytes;
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+
+        loops = new EventLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new EventLoop(Selector.open());
+            final Thread thread = new Thread(loops[i], "event-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        acceptor = new Thread(this::accept, "event-loop-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info(() -> "Event loop server listening on port " + getPort());
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Could not close the server channel", e);
+        }
+        for (final EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                final SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Could not accept a connection", e);
+            }
+        }
+    }
+
+    private static final class Connection {
+
+        private final SocketChannel channel;
+
+        private SelectionKey key;
+
+        // The received bytes, which aren't handled yet, in write mode
+        private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+        // Where to continue looking for the end of the headers
+        private int scanned;
+
+        private final Queue<ByteBuffer> out = new ArrayDeque<>();
+
+        // Whether the connection gets closed once all responses are written
+        private boolean closing;
+
+        private Connection(final SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+
+        private final Selector selector;
+
+        private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+
+        private EventLoop(final Selector selector) {
+            this.selector = selector;
+        }
+
+        private void register(final SocketChannel channel) {
+            registrations.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    log.log(Level.SEVERE, "Event loop failed", e);
+                    break;
+                }
+
+                SocketChannel channel;
+                while ((channel = registrations.poll()) != null) {
+                    final Connection connection = new Connection(channel);
+                    try {
+                        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    } catch (ClosedChannelException e) {
+                        // The client is gone already
+                    }
+                }
+
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    final Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(connection);
+                        }
+                    } catch (IOException e) {
+                        log.fine(() -> "Closing connection after " + e.getMessage());
+                        closeConnection(connection);
+                    }
+                }
+            }
+
+            for (final SelectionKey key : selector.keys()) {
+                closeConnection((Connection) key.attachment());
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Could not close the selector", e);
+            }
+        }
+    }
+
+    private void read(final Connection connection) throws IOException {
+        if (connection.channel.read(connection.in) < 0) {
+            closeConnection(connection);
+            return;
+        }
+
+        handleRequests(connection);
+        write(connection);
+    }
+
+    // Handles all complete requests in the buffer and queues their responses
+    private void handleRequests(final Connection connection) {
+        while (!connection.closing) {
+            final ByteBuffer in = connection.in;
+            final int headerEnd = indexOf(in.array(), connection.scanned, in.position(), HEADER_END);
+            if (headerEnd < 0) {
+                if (in.position() > MAX_HEADER_BYTES) {
+                    respond(connection, HttpResponse.of(431), true);
+                } else {
+                    connection.scanned = Integer.max(0, in.position() - HEADER_END.length + 1);
+                    ensureCapacity(connection, in.position() + 1);
+                }
+                return;
+            }
+
+            final String[] lines = new String(in.array(), 0, headerEnd, StandardCharsets.ISO_8859_1).split("\r\n");
+            final String[] requestLine = lines[0].split(" ");
+            final Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                final int colon = lines[i].indexOf(':');
+                if (colon > 0) {
+                    headers.put(lines[i].substring(0, colon).trim().toLowerCase(),
+                            lines[i].substring(colon + 1).trim());
+                }
+            }
+
+            if (requestLine.length != 3) {
+                respond(connection, HttpResponse.of(400), true);
+                return;
+            }
+            if (headers.containsKey("transfer-encoding")) {
+                respond(connection, HttpResponse.of(411), true);
+                return;
+            }
+
+            final int contentLength;
+            try {
+                contentLength = Integer.parseInt(headers.getOrDefault("content-length", "0"));
+            } catch (NumberFormatException e) {
+                respond(connection, HttpResponse.of(400), true);
+                return;
+            }
+            if (contentLength < 0 || contentLength > maxRequestBytes) {
+                respond(connection, HttpResponse.of(contentLength < 0 ? 400 : 413), true);
+                return;
+            }
+
+            final int requestEnd = headerEnd + HEADER_END.length + contentLength;
+            if (in.position() < requestEnd) {
+                ensureCapacity(connection, requestEnd);
+                return;
+            }
+
+            final byte[] body = new byte[contentLength];
+            System.arraycopy(in.array(), headerEnd + HEADER_END.length, body, 0, contentLength);
+            in.flip();
+            in.position(requestEnd);
+            in.compact();
+            connection.scanned = 0;
+
+            final String connectionHeader = headers.getOrDefault("connection", "");
+            final boolean keepAlive = "HTTP/1.1".equals(requestLine[2])
+                    ? !"close".equalsIgnoreCase(connectionHeader)
+                    : "keep-alive".equalsIgnoreCase(connectionHeader);
+            respond(connection, handle(requestLine[0], requestLine[1], headers, body), !keepAlive);
+        }
+    }
+
+    private HttpResponse handle(final String method, final String target, final Map<String, String> headers,
+            final byte[] body) {
+        final int query = target.indexOf('?');
+        final String path = query < 0 ? target : target.substring(0, query);
+        final Map<String, String> parameters = new HashMap<>();
+        try {
+            if (query >= 0) {
+                for (final String parameter : target.substring(query + 1).split("&")) {
+                    final int equals = parameter.indexOf('=');
+                    final String name = equals < 0 ? parameter : parameter.substring(0, equals);
+                    final String value = equals < 0 ? "" : parameter.substring(equals + 1);
+                    parameters.putIfAbsent(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return HttpResponse.of(400);
+        }
+
+        try {
+            return handler.handle(new HttpRequest(method, path, Collections.unmodifiableMap(parameters),
+                    Collections.unmodifiableMap(headers), body));
+        } catch (RuntimeException e) {
+            log.log(Level.SEVERE, e, () -> "Could not handle " + method + " " + target);
+            return HttpResponse.of(500);
+        }
+    }
+
+    private void respond(final Connection connection, final HttpResponse response, final boolean close) {
+        final StringBuilder head = new StringBuilder(128)
+                .append("HTTP/1.1 ").append(response.getStatus()).append(' ')
+                .append(REASONS.getOrDefault(response.getStatus(), "Unknown")).append("\r\n");
+        for (final Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        if (hasBody(response.getStatus())) {
+            if (response.getContentType() != null) {
+                head.append("Content-Type: ").append(response.getContentType()).append("\r\n");
+            }
+            head.append("Content-Length: ").append(response.getBody().length).append("\r\n");
+        }
+        if (close) {
+            head.append("Connection: close\r\n");
+        }
+        head.append("\r\n");
+
+        connection.out.add(ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1)));
+        if (hasBody(response.getStatus()) && response.getBody().length > 0) {
+            connection.out.add(ByteBuffer.wrap(response.getBody()));
+        }
+        connection.closing |= close;
+    }
+
+    private static boolean hasBody(final int status) {
+        return status != 204 && status != 304;
+    }
+
+    // Writes as many responses as the socket takes, and waits for it to become writable again otherwise
+    private void write(final Connection connection) throws IOException {
+        while (!connection.out.isEmpty()) {
+            final ByteBuffer buffer = connection.out.peek();
+            connection.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                connection.key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            connection.out.poll();
+        }
+
+        if (connection.closing) {
+            closeConnection(connection);
+        } else if (connection.key.isValid()) {
+            connection.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void ensureCapacity(final Connection connection, final int capacity) {
+        if (connection.in.capacity() >= capacity) {
+            return;
+        }
+
+        final ByteBuffer larger = ByteBuffer.allocate(Integer.max(capacity, connection.in.capacity() * 2));
+        connection.in.flip();
+        larger.put(connection.in);
+        connection.in = larger;
+    }
+
+    private void closeConnection(final Connection connection) {
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            log.log(Level.FINE, "Could not close connection", e);
+        }
+    }
+
+    private static int indexOf(final byte[] bytes, final int from, final int to, final byte[] pattern) {
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,34 @@
+package n26.server;
+
+import java.util.Map;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A request received by the {@link EventLoopServer}, with the body read completely
+ */
+@RequiredArgsConstructor
+@Getter
+public class HttpRequest {
+
+    private final String method;
+
+    // The path without the query string
+    private final String path;
+
+    // The decoded query parameters, the first value wins if a parameter is repeated
+    private final Map<String, String> parameters;
+
+    // The headers with lower case names
+    private final Map<String, String> headers;
+
+    private final byte[] body;
+
+    public String getParameter(String name) {
+        return parameters.get(name);
+    }
+
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase());
+    }
+}
@@ -0,0 +1,60 @@
+package n26.server;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A response to be written by the {@link EventLoopServer}
+ */
+@RequiredArgsConstructor
+@Getter
+public class HttpResponse {
+
+    public static final String APPLICATION_JSON = "application/json;charset=UTF-8";
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int status;
+
+    private final String contentType;
+
+    private final byte[] body;
+
+    // Further headers like the ETag
+    private final Map<String, String> headers;
+
+    public HttpResponse(int status, String contentType, byte[] body) {
+        this(status, contentType, body, Collections.emptyMap());
+    }
+
+    /**
+     * @param name the name of the header
+     * @param value the value of the header
+     * @return a copy of the response with the header added
+     */
+    public HttpResponse withHeader(String name, String value) {
+        final Map<String, String> withHeader = new LinkedHashMap<>(headers);
+        withHeader.put(name, value);
+        return new HttpResponse(status, contentType, body, withHeader);
+    }
+
+    /**
+     * @param status the status code
+     * @return a response without a body
+     */
+    public static HttpResponse of(int status) {
+        return new HttpResponse(status, null, EMPTY);
+    }
+
+    /**
+     * @param status the status code
+     * @param body the serialized JSON
+     * @return a response with a JSON body
+     */
+    public static HttpResponse json(int status, byte[] body) {
+        return new HttpResponse(status, APPLICATION_JSON, body);
+    }
+}
@@ -0,0 +1,25 @@
+package n26.server;
+
+import java.io.IOException;
+import n26.model.Statistics;
+import n26.model.Transaction;
+
+/**
+ * Writes statistics and reads transactions as JSON for the {@link StoreRequestHandler}
+ * Plain transactions never get here, they are read by the {@link n26.model.TransactionDecoder}
+ */
+public interface JsonCodec {
+
+    /**
+     * @param statistics the statistics
+     * @return the statistics as JSON, with the same fields as the responses of the MVC controllers
+     */
+    byte[] writeStatistics(Statistics statistics);
+
+    /**
+     * @param body the JSON body of a request
+     * @return the transaction
+     * @throws IOException if the body isn't a transaction
+     */
+    Transaction readTransaction(byte[] body) throws IOException;
+}
@@ -0,0 +1,11 @@
+package n26.server;
+
+/**
+ * Handles the requests of the {@link EventLoopServer}
+ * Handlers run on the event loop threads, so they must never block
+ */
+@FunctionalInterface
+public interface RequestHandler {
+
+    HttpResponse handle(HttpRequest request);
+}
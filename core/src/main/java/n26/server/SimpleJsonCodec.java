@@ -0,0 +1,311 @@
+package n26.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import n26.model.Rates;
+import n26.model.Statistics;
+import n26.model.Transaction;
+
+/**
+ * A JSON codec without any dependencies, which only knows statistics and transactions
+ *
+ * Statistics are written field by field in the order and number format of the JSON binding of the service. Reading
+ * follows the binding as well: unknown fields are skipped, missing or null numbers are 0, numbers may be given as
+ * strings and the keys of dimensions and the idempotency key may be any scalar. Anything else is rejected.
+ */
+public class SimpleJsonCodec implements JsonCodec {
+
+    @Override
+    public byte[] writeStatistics(Statistics statistics) {
+        final StringBuilder json = new StringBuilder(160);
+        json.append("{\"max\":");
+        appendDouble(json, statistics.getMax());
+        json.append(",\"min\":");
+        appendDouble(json, statistics.getMin());
+        json.append(",\"avg\":");
+        appendDouble(json, statistics.getAvg());
+        json.append(",\"sum\":");
+        appendDouble(json, statistics.getSum());
+        json.append(",\"count\":").append(statistics.getCount());
+        json.append(",\"lastTimestamp\":").append(statistics.getLastTimestamp());
+
+        final Map<String, Double> quantiles = statistics.getQuantiles();
+        if (quantiles != null) {
+            json.append(",\"quantiles\":{");
+            String separator = "\"";
+            for (final Map.Entry<String, Double> quantile : quantiles.entrySet()) {
+                json.append(separator).append(quantile.getKey()).append("\":");
+                appendDouble(json, quantile.getValue());
+                separator = ",\"";
+            }
+            json.append('}');
+        }
+
+        final Rates rates = statistics.getRates();
+        if (rates != null) {
+            json.append(",\"rates\":{\"countPerSecond\":");
+            appendDouble(json, rates.getCountPerSecond());
+            json.append(",\"amountPerSecond\":");
+            appendDouble(json, rates.getAmountPerSecond());
+            json.append(",\"countEwma1s\":");
+            appendDouble(json, rates.getCountEwma1s());
+            json.append(",\"countEwma10s\":");
+            appendDouble(json, rates.getCountEwma10s());
+            json.append(",\"countEwma60s\":");
+            appendDouble(json, rates.getCountEwma60s());
+            json.append(",\"amountEwma1s\":");
+            appendDouble(json, rates.getAmountEwma1s());
+            json.append(",\"amountEwma10s\":");
+            appendDouble(json, rates.getAmountEwma10s());
+            json.append(",\"amountEwma60s\":");
+            appendDouble(json, rates.getAmountEwma60s());
+            json.append('}');
+        }
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Transaction readTransaction(byte[] body) throws IOException {
+        final Reader reader = new Reader(new String(body, StandardCharsets.UTF_8));
+        long timestamp = 0;
+        double amount = 0;
+        Map<String, String> dimensions = null;
+        String idempotencyKey = null;
+
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                final String field = reader.readString();
+                reader.expect(':');
+                switch (field) {
+                    case "timestamp":
+                        timestamp = (long) reader.readNumber();
+                        break;
+                    case "amount":
+                        amount = reader.readNumber();
+                        break;
+                    case "dimensions":
+                        dimensions = reader.readDimensions();
+                        break;
+                    case "idempotencyKey":
+                        idempotencyKey = reader.readScalar();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            } while (reader.consume(','));
+            reader.expect('}');
+        }
+        reader.expectEnd();
+        return new Transaction(timestamp, amount, dimensions, idempotencyKey);
+    }
+
+    // Doubles like the JSON binding writes them, quoted if they aren't finite
+    private static void appendDouble(final StringBuilder json, final double value) {
+        if (Double.isFinite(value)) {
+            json.append(value);
+        } else {
+            json.append('"').append(value).append('"');
+        }
+    }
+
+    /**
+     * Reads JSON values from a string, skipping whitespace between them
+     */
+    private static final class Reader {
+
+        private final String json;
+
+        private int position;
+
+        private Reader(final String json) {
+            this.json = json;
+        }
+
+        private void expect(final char c) throws IOException {
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        private void expectEnd() throws IOException {
+            skipWhitespace();
+            if (position < json.length()) {
+                throw error("Unexpected content");
+            }
+        }
+
+        private boolean consume(final char c) {
+            skipWhitespace();
+            if (position < json.length() && json.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        // A number, a string holding a number or null, which is read as 0
+        private double readNumber() throws IOException {
+            skipWhitespace();
+            if (peek() == '"') {
+                final String text = readString();
+                try {
+                    return Double.parseDouble(text.trim());
+                } catch (NumberFormatException e) {
+                    throw error("Not a number: " + text);
+                }
+            }
+            if (readLiteral("null")) {
+                return 0;
+            }
+            final int start = position;
+            while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) {
+                position++;
+            }
+            try {
+                return Double.parseDouble(json.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw error("Expected a number");
+            }
+        }
+
+        private Map<String, String> readDimensions() throws IOException {
+            skipWhitespace();
+            if (readLiteral("null")) {
+                return null;
+            }
+            final Map<String, String> dimensions = new HashMap<>();
+            expect('{');
+            if (consume('}')) {
+                return dimensions;
+            }
+            do {
+                final String dimension = readString();
+                expect(':');
+                dimensions.put(dimension, readScalar());
+            } while (consume(','));
+            expect('}');
+            return dimensions;
+        }
+
+        // A string, number or literal as text, null for null
+        private String readScalar() throws IOException {
+            skipWhitespace();
+            if (peek() == '"') {
+                return readString();
+            }
+            if (readLiteral("null")) {
+                return null;
+            }
+            if (peek() == '{' || peek() == '[') {
+                throw error("Expected a scalar");
+            }
+            final int start = position;
+            while (position < json.length() && ",:{}[] \t\r\n".indexOf(json.charAt(position)) < 0) {
+                position++;
+            }
+            if (start == position) {
+                throw error("Expected a scalar");
+            }
+            return json.substring(start, position);
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            final StringBuilder text = new StringBuilder();
+            while (true) {
+                if (position >= json.length()) {
+                    throw error("Unterminated string");
+                }
+                final char c = json.charAt(position++);
+                if (c == '"') {
+                    return text.toString();
+                }
+                if (c != '\\') {
+                    text.append(c);
+                    continue;
+                }
+                if (position >= json.length()) {
+                    throw error("Unterminated string");
+                }
+                final char escaped = json.charAt(position++);
+                switch (escaped) {
+                    case 'b':
+                        text.append('\b');
+                        break;
+                    case 'f':
+                        text.append('\f');
+                        break;
+                    case 'n':
+                        text.append('\n');
+                        break;
+                    case 'r':
+                        text.append('\r');
+                        break;
+                    case 't':
+                        text.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > json.length()) {
+                            throw error("Unterminated escape");
+                        }
+                        try {
+                            text.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        text.append(escaped);
+                }
+            }
+        }
+
+        private void skipValue() throws IOException {
+            skipWhitespace();
+            final char c = peek();
+            if (c == '{' || c == '[') {
+                final char close = c == '{' ? '}' : ']';
+                position++;
+                if (consume(close)) {
+                    return;
+                }
+                do {
+                    if (c == '{') {
+                        readString();
+                        expect(':');
+                    }
+                    skipValue();
+                } while (consume(','));
+                expect(close);
+            } else {
+                readScalar();
+            }
+        }
+
+        private boolean readLiteral(final String literal) {
+            if (json.startsWith(literal, position)) {
+                position += literal.length();
+                return true;
+            }
+            return false;
+        }
+
+        private char peek() {
+            return position < json.length() ? json.charAt(position) : 0;
+        }
+
+        private void skipWhitespace() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IOException error(final String message) {
+            return new IOException(message + " at position " + position);
+        }
+    }
+}
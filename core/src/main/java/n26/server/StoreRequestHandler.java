@@ -0,0 +1,142 @@
+package n26.server;
+
+import java.io.IOException;
+import java.time.Instant;
+import n26.model.EncodedStatistics;
+import n26.model.InvalidWindowException;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import n26.model.TransactionDecoder;
+import n26.service.ClusterAggregator;
+import n26.service.StatisticsCache;
+import n26.service.StoreProbe;
+import n26.service.TransactionStore;
+import n26.service.Windows;
+
+/**
+ * Serves /transactions and /statistics from the event loop, with the same responses as the MVC controllers
+ * Adding a transaction and reading the statistics never block, so they run right on the event loop threads
+ */
+public class StoreRequestHandler implements RequestHandler {
+
+    private static final HttpResponse CREATED = HttpResponse.of(201);
+    private static final HttpResponse NO_CONTENT = HttpResponse.of(204);
+
+    // Decoders of plain transactions, one per event loop
+    private static final ThreadLocal<TransactionDecoder> DECODERS = ThreadLocal.withInitial(TransactionDecoder::new);
+
+    private final TransactionStore transactionStore;
+
+    // Merges the statistics of all nodes for /statistics, null if no nodes are configured
+    private final ClusterAggregator clusterAggregator;
+
+    // Writes the statistics and reads the transactions, which aren't plain
+    private final JsonCodec jsonCodec;
+
+    // The encoded statistics of the statistics window, shared by all requests until they change
+    private final StatisticsCache statisticsCache;
+
+    // Measures how long adding transactions and answering requests for statistics takes
+    private final StoreProbe storeProbe;
+
+    public StoreRequestHandler(TransactionStore transactionStore, ClusterAggregator clusterAggregator,
+            JsonCodec jsonCodec) {
+        this(transactionStore, clusterAggregator, jsonCodec, StoreProbe.NONE);
+    }
+
+    public StoreRequestHandler(TransactionStore transactionStore, ClusterAggregator clusterAggregator,
+            JsonCodec jsonCodec, StoreProbe storeProbe) {
+        this.transactionStore = transactionStore;
+        this.storeProbe = storeProbe;
+        this.clusterAggregator = clusterAggregator;
+        this.jsonCodec = jsonCodec;
+        statisticsCache = new StatisticsCache(transactionStore, jsonCodec::writeStatistics);
+    }
+
+    @Override
+    public HttpResponse handle(HttpRequest request) {
+        switch (request.getPath()) {
+            case "/transactions":
+                if (!"POST".equals(request.getMethod())) {
+                    return HttpResponse.of(405);
+                }
+                final long ingestStartNanos = System.nanoTime();
+                try {
+                    return postTransaction(request);
+                } finally {
+                    storeProbe.ingested(System.nanoTime() - ingestStartNanos);
+                }
+            case "/statistics":
+                if (!"GET".equals(request.getMethod())) {
+                    return HttpResponse.of(405);
+                }
+                final long queryStartNanos = System.nanoTime();
+                try {
+                    return getStatistics(request);
+                } finally {
+                    storeProbe.queried(System.nanoTime() - queryStartNanos);
+                }
+            default:
+                return HttpResponse.of(404);
+        }
+    }
+
+    private HttpResponse postTransaction(final HttpRequest request) {
+        final TransactionDecoder decoder = DECODERS.get();
+        final byte[] body = request.getBody();
+        final int result;
+        if (decoder.decode(body, 0, body.length)) {
+            result = transactionStore.tryAddTransaction(decoder.getTimestamp(), decoder.getAmount());
+        } else {
+            final Transaction transaction;
+            try {
+                transaction = jsonCodec.readTransaction(body);
+            } catch (IOException e) {
+                return HttpResponse.of(400);
+            }
+            result = transactionStore.tryAddTransaction(transaction);
+        }
+        return result == TransactionStore.ACCEPTED || result == TransactionStore.DUPLICATE ? CREATED : NO_CONTENT;
+    }
+
+    private HttpResponse getStatistics(final HttpRequest request) {
+        final String window = request.getParameter("window");
+        final String from = request.getParameter("from");
+        final String to = request.getParameter("to");
+        final boolean range = window == null && from != null && to != null;
+        if (clusterAggregator == null && window == null && !range) {
+            return getCachedStatistics(request);
+        }
+
+        final Statistics result;
+        try {
+            if (range) {
+                result = transactionStore.getStatistics(Instant.now(), Windows.parseTime(from), Windows.parseTime(to));
+            } else {
+                result = window == null
+                        ? clusterAggregator.getStatistics(Instant.now()).getStatistics()
+                        : transactionStore.getStatistics(Instant.now(), Windows.parse(window));
+            }
+        } catch (InvalidWindowException e) {
+            return HttpResponse.of(400);
+        }
+
+        if (result.getCount() == 0) {
+            return HttpResponse.of(204);
+        }
+        return HttpResponse.json(200, jsonCodec.writeStatistics(result));
+    }
+
+    private HttpResponse getCachedStatistics(final HttpRequest request) {
+        final EncodedStatistics statistics = statisticsCache.get(Instant.now());
+        if (statistics.getCount() == 0) {
+            return HttpResponse.of(204);
+        }
+
+        final String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.contains(statistics.getEtag()) || ifNoneMatch.trim().equals("*"))) {
+            return HttpResponse.of(304).withHeader("ETag", statistics.getEtag());
+        }
+        return HttpResponse.json(200, statistics.getBody()).withHeader("ETag", statistics.getEtag());
+    }
+}
@@ -0,0 +1,150 @@
+package n26.service;
+
+/**
+ * Decides which ingest requests are taken, before they reach the store
+ *
+ * Every client gets a token bucket of requests per second, shared with the other clients hashing to the same of a
+ * fixed number of stripes, so the memory doesn't grow with the clients. Requests doing more work, like batches, are
+ * charged for it while they run, see {@link #tryCharge(String, int, long)}. Admitted requests are further bounded by a
+ * {@link ConcurrencyLimit}, which shrinks as soon as the ingest latency rises. Its highest limit leaves the remaining
+ * request threads of the server to the statistics, which are never limited.
+ */
+public class AdmissionControl {
+
+    // Results of admitting a request
+    public static final int ADMITTED = 0;
+    public static final int RATE_LIMITED = 1;
+    public static final int OVERLOADED = 2;
+
+    // The token buckets of the clients, null if clients aren't limited
+    private final TokenBucket[] stripes;
+
+    private final ConcurrencyLimit concurrencyLimit;
+
+    /**
+     * @param clientRequestsPerSecond the requests per second of each client, 0 to leave the clients unlimited
+     * @param clientBurst the requests a client may send at once
+     * @param stripes the number of token buckets, rounded up to a power of two
+     * @param maxConcurrency the highest number of concurrent requests
+     * @param latencyTolerance how many times the lowest latency a latency may be, before fewer requests are admitted
+     */
+    public AdmissionControl(double clientRequestsPerSecond, int clientBurst, int stripes, int maxConcurrency,
+            double latencyTolerance) {
+        if (maxConcurrency < 1 || stripes < 1 || latencyTolerance <= 1) {
+            throw new IllegalArgumentException("At least one concurrent request and one stripe, and a latency "
+                    + "tolerance above 1 are needed.");
+        }
+        if (clientRequestsPerSecond > 0) {
+            this.stripes = new TokenBucket[Integer.highestOneBit(Integer.max(1, stripes - 1) * 2)];
+            for (int i = 0; i < this.stripes.length; i++) {
+                this.stripes[i] = new TokenBucket(clientRequestsPerSecond / 1e9, Integer.max(1, clientBurst));
+            }
+        } else {
+            this.stripes = null;
+        }
+        concurrencyLimit = new ConcurrencyLimit(Integer.max(1, maxConcurrency / 4), maxConcurrency, latencyTolerance);
+    }
+
+    /**
+     * Admits a request of a client, which must be released or cancelled when done if it got admitted
+     * The concurrency limit is checked first, so an overloaded server doesn't use up the tokens of the clients
+     * @param client the identity of the client
+     * @param nowNanos the current time, like {@link System#nanoTime()}
+     * @return {@link #ADMITTED}, or {@link #RATE_LIMITED} or {@link #OVERLOADED} if it got rejected
+     */
+    public int tryAdmit(String client, long nowNanos) {
+        if (!concurrencyLimit.tryAcquire()) {
+            return OVERLOADED;
+        }
+        if (stripes != null && !stripe(client).tryTake(1, nowNanos)) {
+            concurrencyLimit.cancel();
+            return RATE_LIMITED;
+        }
+        return ADMITTED;
+    }
+
+    /**
+     * Charges an admitted request of a client for further work, like every transaction of a chunk of a batch
+     * The charge is taken as long as the client has a token left, and may leave it in debt by up to the charge, which
+     * it pays off before any further request of it is admitted
+     * @param client the identity of the client
+     * @param requests the number of requests the work counts as
+     * @param nowNanos the current time, like {@link System#nanoTime()}
+     * @return false if the client is out of tokens, so the request should stop
+     */
+    public boolean tryCharge(String client, int requests, long nowNanos) {
+        return stripes == null || stripe(client).tryTake(requests, nowNanos);
+    }
+
+    /**
+     * Releases an admitted request and adapts the concurrency limit to its latency
+     * @param latencyNanos how long the request took once its body was read, so slow uploads don't count
+     * @param nowNanos the current time
+     */
+    public void release(long latencyNanos, long nowNanos) {
+        concurrencyLimit.release(latencyNanos, nowNanos);
+    }
+
+    /**
+     * Releases an admitted request without a latency, like one whose body couldn't be read
+     */
+    public void cancel() {
+        concurrencyLimit.cancel();
+    }
+
+    /**
+     * @return the number of concurrent requests, which are admitted at most right now
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit.getLimit();
+    }
+
+    /**
+     * @return the number of admitted requests, which aren't released yet
+     */
+    public int getInFlight() {
+        return concurrencyLimit.getInFlight();
+    }
+
+    private TokenBucket stripe(final String client) {
+        // Spreads similar identities like neighbouring addresses over the stripes
+        final int hash = client.hashCode() * 0x9e3779b9;
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * Tokens refilled at a fixed rate up to the burst, guarded by its own lock
+     */
+    private static final class TokenBucket {
+
+        private final double tokensPerNano;
+        private final double burst;
+
+        // Below zero while the client pays off the work its requests got charged for
+        private double tokens;
+        private long refilledAtNanos;
+        private boolean started;
+
+        private TokenBucket(final double tokensPerNano, final double burst) {
+            this.tokensPerNano = tokensPerNano;
+            this.burst = burst;
+            tokens = burst;
+        }
+
+        private synchronized boolean tryTake(final int count, final long nowNanos) {
+            // Threads may pass their times out of order, an earlier one doesn't refill anything
+            if (!started || nowNanos - refilledAtNanos > 0) {
+                if (started) {
+                    tokens = Math.min(burst, tokens + (nowNanos - refilledAtNanos) * tokensPerNano);
+                }
+                started = true;
+                refilledAtNanos = nowNanos;
+            }
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= count;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package n26.service;
+
+/**
+ * Defines how {@link TransactionStore} computes the statistics of its window
+ */
+public enum AggregationMode {
+
+    /**
+     * Sums up all buckets of the window whenever the statistics are requested
+     */
+    SCAN,
+
+    /**
+     * Keeps running statistics of the window, which are updated as buckets get committed or expire
+     * Requesting the statistics is a constant time read, but late transactions are added under a lock
+     */
+    INCREMENTAL
+}
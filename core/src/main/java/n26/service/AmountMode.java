@@ -0,0 +1,18 @@
+package n26.service;
+
+/**
+ * How the amounts of the buckets are stored
+ */
+public enum AmountMode {
+
+    /**
+     * Amounts are kept as doubles, sums over several buckets use compensated summation
+     */
+    DOUBLE,
+
+    /**
+     * Amounts are rounded to minor units (e.g. cents) and kept as longs, so sums are exact and updated with a single
+     * atomic add
+     */
+    FIXED_POINT
+}
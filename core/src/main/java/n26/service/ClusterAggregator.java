@@ -0,0 +1,133 @@
+package n26.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.java.Log;
+import n26.model.BucketSnapshot;
+import n26.model.ClusterStatistics;
+import n26.model.Statistics;
+
+/**
+ * Global statistics of several nodes, each of which only receives a part of the transactions
+ *
+ * The snapshots of the nodes are fetched in the background and merged by bucket on request, which is exact since the
+ * statistics of a bucket are mergeable. Snapshots taken longer ago than the staleness bound are left out, so a missing
+ * node, or one which keeps serving an old snapshot, only makes the statistics partial instead of failing them. The age
+ * of a snapshot is measured from the time the node took it at, so the clocks of the nodes have to be in sync.
+ */
+@Log
+public class ClusterAggregator implements AutoCloseable {
+
+    private final long bucketSizeMs;
+
+    private final int windowBuckets;
+
+    // How long ago a snapshot may have been taken before its node is left out of the statistics
+    private final long stalenessMs;
+
+    private final Map<String, SnapshotSource> nodes;
+
+    // The newest snapshot of every node
+    private final Map<String, BucketSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    // Fetches the snapshots in the background, null until started
+    private ScheduledExecutorService poller;
+
+    /**
+     * @param bucketSizeMs the bucket size of all nodes
+     * @param windowBuckets the number of buckets of the statistics window
+     * @param stalenessMs how long ago a snapshot may have been taken before its node is left out
+     * @param nodes the nodes by their name
+     */
+    public ClusterAggregator(long bucketSizeMs, int windowBuckets, long stalenessMs, Map<String, SnapshotSource> nodes) {
+        this.bucketSizeMs = bucketSizeMs;
+        this.windowBuckets = windowBuckets;
+        this.stalenessMs = stalenessMs;
+        this.nodes = new LinkedHashMap<>(nodes);
+    }
+
+    /**
+     * Fetches the snapshots of all nodes in the given interval, every node on its own thread so a node which doesn't
+     * respond doesn't hold up the others
+     * @param pollIntervalMs the interval between two snapshots of a node
+     */
+    public synchronized void start(long pollIntervalMs) {
+        if (poller != null) {
+            return;
+        }
+
+        poller = Executors.newScheduledThreadPool(Integer.max(1, nodes.size()), runnable -> {
+            final Thread thread = new Thread(runnable, "cluster-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (final String node : nodes.keySet()) {
+            poller.scheduleWithFixedDelay(() -> refresh(node), 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Fetches the snapshots of all nodes right away
+     */
+    public void refresh() {
+        for (final String node : nodes.keySet()) {
+            refresh(node);
+        }
+    }
+
+    /**
+     * Merges the snapshots of all nodes for the statistics window
+     * @param now the time when the statistics got requested
+     * @return the statistics of all nodes with a recent enough snapshot
+     */
+    public ClusterStatistics getStatistics(Instant now) {
+        final long nowMs = now.toEpochMilli();
+        final long currentBucketIndex = nowMs / bucketSizeMs;
+        final long fromBucket = currentBucketIndex - windowBuckets;
+
+        final Statistics total = new Statistics();
+        int merged = 0;
+        for (final String node : nodes.keySet()) {
+            final BucketSnapshot snapshot = snapshots.get(node);
+            if (snapshot == null || nowMs - snapshot.getTakenAt() > stalenessMs) {
+                continue;
+            }
+
+            for (int i = 0; i < snapshot.getBuckets().length; i++) {
+                final long bucket = snapshot.getBuckets()[i];
+                if (bucket >= fromBucket && bucket < currentBucketIndex) {
+                    total.addStatistics(snapshot.getStatistics(i));
+                }
+            }
+            merged++;
+        }
+
+        return new ClusterStatistics(total, merged, nodes.size());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    private void refresh(final String node) {
+        try {
+            final BucketSnapshot snapshot = nodes.get(node).fetch();
+            if (snapshot.getBucketSizeMs() != bucketSizeMs) {
+                log.warning(() -> "Node " + node + " uses buckets of " + snapshot.getBucketSizeMs() + " ms instead of "
+                        + bucketSizeMs + " ms, it is left out");
+                return;
+            }
+            snapshots.put(node, snapshot);
+        } catch (RuntimeException e) {
+            log.warning(() -> "Could not fetch the snapshot of node " + node + ": " + e.getMessage());
+        }
+    }
+}
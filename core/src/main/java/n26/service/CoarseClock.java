@@ -0,0 +1,79 @@
+package n26.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock, whose time is read from another clock once per tick by a background thread
+ * Reading the time is a plain volatile read, so validating a transaction doesn't even pay for a clock call. This only
+ * pays off where the clock call is slow, like with a virtual clock source, and at a resolution of some milliseconds,
+ * since the ticker wakes up once per tick. The time lags behind the source clock by up to one tick, so a store reading
+ * it should tolerate timestamps up to one tick in the future (see {@link StoreSettings#getFutureToleranceMs()}).
+ */
+public class CoarseClock extends Clock implements AutoCloseable {
+
+    private final Clock source;
+
+    private final long tickNanos;
+
+    // The time of the source at the last tick
+    private volatile long millis;
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates the clock and starts its ticker
+     * @param source the clock the time is read from
+     * @param resolutionMs the time between two ticks
+     */
+    public CoarseClock(Clock source, long resolutionMs) {
+        if (resolutionMs <= 0) {
+            throw new IllegalArgumentException("The resolution of the clock must be positive.");
+        }
+        this.source = source;
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(resolutionMs);
+        millis = source.millis();
+
+        final Thread ticker = new Thread(this::tick, "coarse-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return source.getZone();
+    }
+
+    /**
+     * The clock can't be moved to another zone without a ticker of its own, so this falls back to the source clock
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(getZone()) ? this : source.withZone(zone);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+    }
+
+    private void tick() {
+        while (running) {
+            millis = source.millis();
+            LockSupport.parkNanos(this, tickNanos);
+        }
+    }
+}
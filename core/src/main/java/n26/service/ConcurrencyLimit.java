@@ -0,0 +1,121 @@
+package n26.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A limit of the concurrent requests, which adapts to their latency (additive increase, multiplicative decrease)
+ *
+ * The baseline is the lowest latency seen since it got last reset. Requests within the tolerance of the baseline
+ * raise the limit by one per limit requests, as long as at least half of it is used. A request slower than that
+ * lowers the limit by 10%, at most once per its own latency, so a burst of slow requests only counts once. Both only
+ * take CAS operations, so releasing a request neither blocks nor allocates.
+ */
+class ConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    // How often the baseline is measured anew, so it follows a latency which rose for good
+    private static final long BASELINE_RESET_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    // The limit is kept in thousandths, so increases of less than one add up
+    private static final long SCALE = 1000;
+
+    private final long maxLimit;
+
+    // How many times the baseline a latency may be, before it lowers the limit
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong limit;
+
+    private final AtomicLong baselineNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong baselineSinceNanos = new AtomicLong();
+
+    // When the limit got lowered last, Long.MIN_VALUE if it never did
+    private final AtomicLong decreasedAtNanos = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param initialLimit the limit to start with
+     * @param maxLimit the highest limit, whatever the latency
+     * @param tolerance how many times the lowest latency a latency may be, before it lowers the limit
+     */
+    ConcurrencyLimit(int initialLimit, int maxLimit, double tolerance) {
+        this.maxLimit = maxLimit * SCALE;
+        this.tolerance = tolerance;
+        limit = new AtomicLong(Integer.max(1, Integer.min(initialLimit, maxLimit)) * SCALE);
+    }
+
+    /**
+     * @return whether the request may start, then it must be released when done
+     */
+    boolean tryAcquire() {
+        final long current = limit.get() / SCALE;
+        while (true) {
+            final int requests = inFlight.get();
+            if (requests >= current) {
+                return false;
+            }
+            if (inFlight.compareAndSet(requests, requests + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends a request and adapts the limit to its latency
+     * @param latencyNanos how long the request took
+     * @param nowNanos the current time
+     */
+    void release(long latencyNanos, long nowNanos) {
+        final int requests = inFlight.getAndDecrement();
+
+        final long since = baselineSinceNanos.get();
+        if ((baselineNanos.get() == Long.MAX_VALUE || nowNanos - since >= BASELINE_RESET_NANOS)
+                && baselineSinceNanos.compareAndSet(since, nowNanos)) {
+            baselineNanos.set(latencyNanos);
+        } else {
+            long baseline;
+            while (latencyNanos < (baseline = baselineNanos.get())
+                    && !baselineNanos.compareAndSet(baseline, latencyNanos)) {
+                // Lowered concurrently, compare again
+            }
+        }
+
+        if (latencyNanos > baselineNanos.get() * tolerance) {
+            final long decreasedAt = decreasedAtNanos.get();
+            if ((decreasedAt == Long.MIN_VALUE || nowNanos - decreasedAt >= latencyNanos)
+                    && decreasedAtNanos.compareAndSet(decreasedAt, nowNanos)) {
+                long current;
+                do {
+                    current = limit.get();
+                } while (!limit.compareAndSet(current, Long.max(SCALE, (long) (current * BACKOFF_RATIO))));
+            }
+        } else {
+            long current;
+            do {
+                current = limit.get();
+                if (requests * 2L * SCALE < current || current >= maxLimit) {
+                    return;
+                }
+            } while (!limit.compareAndSet(current, Long.min(maxLimit, current + SCALE * SCALE / current)));
+        }
+    }
+
+    /**
+     * Ends a request without adapting the limit, like one which never really started
+     */
+    void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    int getLimit() {
+        return (int) (limit.get() / SCALE);
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,220 @@
+package n26.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import n26.model.KeyStatistics;
+import n26.model.Statistics;
+
+/**
+ * Windowed statistics per key of a single dimension, like the merchant or the country of a transaction
+ *
+ * Keys are tracked exactly in open addressing tables of a fixed size, which are split into shards with a lock each, so
+ * writers of different keys rarely contend. Once the tables are full, further keys are only counted in Space-Saving
+ * summaries, which keep the heavy hitters of the long tail with a fixed number of counters. The summaries are striped
+ * by the key hash with a lock each as well, since the long tail is most of the traffic once the tables are full. So the
+ * memory of a dimension stays the same, no matter how many different keys arrive.
+ */
+public class DimensionStatistics {
+
+    private static final int SHARD_BITS = 4;
+    private static final int SHARDS = 1 << SHARD_BITS;
+
+    // The fewest counters of an overflow stripe, fewer would hardly find the heavy hitters among its keys
+    private static final int MIN_STRIPE_KEYS = 8;
+
+    // Rough memory of a key besides its buckets: the table slots, the key reference and its newest bucket
+    private static final int KEY_OVERHEAD_BYTES = 48;
+
+    private final String name;
+
+    private final int windowBuckets;
+
+    private final KeyedStatisticsTable[] shards;
+
+    private final int maxKeys;
+
+    // Stripes of the summaries of the keys, which didn't fit into the tables
+    private final OverflowStripe[] overflow;
+    private final int overflowStripeBits;
+
+    /**
+     * @param name the name of the dimension
+     * @param memoryBytes the memory available for tracking keys exactly
+     * @param windowBuckets the number of buckets of the statistics window
+     * @param overflowKeys the number of keys, which are monitored once the tables are full
+     */
+    public DimensionStatistics(String name, long memoryBytes, int windowBuckets, int overflowKeys) {
+        this.name = name;
+        this.windowBuckets = windowBuckets;
+
+        final long keyBytes = (long) (windowBuckets + 1) * KeyedStatisticsTable.BUCKET_BYTES + KEY_OVERHEAD_BYTES;
+        final int shardKeys = (int) Long.max(1, Long.min(Integer.MAX_VALUE / (windowBuckets + 1),
+                memoryBytes / SHARDS / keyBytes));
+        maxKeys = shardKeys * SHARDS;
+        shards = new KeyedStatisticsTable[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new KeyedStatisticsTable(shardKeys, windowBuckets);
+        }
+
+        final int stripes = Integer.min(SHARDS, Integer.highestOneBit(Integer.max(1, overflowKeys / MIN_STRIPE_KEYS)));
+        overflowStripeBits = Integer.numberOfTrailingZeros(stripes);
+        overflow = new OverflowStripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            // Spreads the counters over the stripes, so there are as many as requested in total
+            overflow[i] = new OverflowStripe(overflowKeys / stripes + (i < overflowKeys % stripes ? 1 : 0));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of keys, which can be tracked exactly at the same time
+     */
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    /**
+     * Adds a transaction to the statistics of its key
+     * @param key the key of the transaction in this dimension
+     * @param bucket the bucket of the transaction
+     * @param timestamp the timestamp of the transaction
+     * @param amount the amount of the transaction
+     */
+    public void add(String key, long bucket, long timestamp, double amount) {
+        final long hash = hash(key);
+        final KeyedStatisticsTable shard = shard(hash);
+
+        final boolean tracked;
+        synchronized (shard) {
+            tracked = shard.add(hash, key, bucket, timestamp, amount);
+        }
+
+        if (!tracked) {
+            final OverflowStripe stripe = overflowStripe(hash);
+            synchronized (stripe) {
+                stripe.rotate(bucket);
+                stripe.current.add(hash, key, amount);
+            }
+        }
+    }
+
+    /**
+     * @param key the key
+     * @param fromBucket the first bucket of the window
+     * @param toBucket the last bucket of the window
+     * @return the statistics of the key in the window, which are empty if the key isn't tracked exactly
+     */
+    public Statistics getStatistics(String key, long fromBucket, long toBucket) {
+        final long hash = hash(key);
+        final KeyedStatisticsTable shard = shard(hash);
+
+        final Statistics statistics = new Statistics();
+        synchronized (shard) {
+            shard.addTo(hash, key, fromBucket, toBucket, statistics);
+        }
+        return statistics;
+    }
+
+    /**
+     * Gets the keys with the most transactions in the window
+     * Keys which aren't tracked exactly are included with their transactions during the last one or two window lengths
+     * since they got monitored by the overflow summary, which may leave out some of their transactions
+     * @param limit the maximum number of keys
+     * @param fromBucket the first bucket of the window
+     * @param toBucket the last bucket of the window
+     * @return the keys ordered by their number of transactions
+     */
+    public List<KeyStatistics> getTopKeys(int limit, long fromBucket, long toBucket) {
+        final List<KeyStatistics> keys = new ArrayList<>();
+        for (final KeyedStatisticsTable shard : shards) {
+            synchronized (shard) {
+                shard.forEach(fromBucket, toBucket, keys::add);
+            }
+        }
+
+        final Map<String, KeyStatistics> overflowKeys = new HashMap<>();
+        for (final OverflowStripe stripe : overflow) {
+            synchronized (stripe) {
+                stripe.rotate(toBucket + 1);
+                stripe.previous.forEach(key -> overflowKeys.merge(key.getKey(), key, DimensionStatistics::combine));
+                stripe.current.forEach(key -> overflowKeys.merge(key.getKey(), key, DimensionStatistics::combine));
+            }
+        }
+        for (final KeyStatistics key : keys) {
+            overflowKeys.remove(key.getKey());
+        }
+        keys.addAll(overflowKeys.values());
+
+        return keys.stream()
+                .sorted(Comparator.comparingLong(KeyStatistics::getCount).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private KeyedStatisticsTable shard(final long hash) {
+        return shards[(int) (hash >>> (64 - SHARD_BITS))];
+    }
+
+    private OverflowStripe overflowStripe(final long hash) {
+        // The bits below the shard bits, since all keys of a full shard land in the overflow
+        return overflow[(int) (hash >>> (64 - SHARD_BITS - overflowStripeBits)) & (overflow.length - 1)];
+    }
+
+    private static KeyStatistics combine(final KeyStatistics first, final KeyStatistics second) {
+        return new KeyStatistics(first.getKey(), first.getCount() + second.getCount(), first.getSum() + second.getSum(),
+                false);
+    }
+
+    /**
+     * The summaries of a stripe of the keys, which didn't fit into the tables, during the current and the previous
+     * window length, guarded by the lock of the stripe
+     */
+    private final class OverflowStripe {
+
+        private SpaceSaving current;
+        private SpaceSaving previous;
+        private long epoch = Long.MIN_VALUE;
+
+        private OverflowStripe(final int keys) {
+            current = new SpaceSaving(keys);
+            previous = new SpaceSaving(keys);
+        }
+
+        // Starts a new summary once per window length, so the long tail doesn't keep keys which are long gone
+        private void rotate(final long bucket) {
+            final long bucketEpoch = Math.floorDiv(bucket, (long) windowBuckets);
+            if (bucketEpoch <= epoch) {
+                return;
+            }
+
+            final SpaceSaving expired = previous;
+            if (bucketEpoch > epoch + 1) {
+                current.clear();
+            }
+            previous = current;
+            expired.clear();
+            current = expired;
+            epoch = bucketEpoch;
+        }
+    }
+
+    // 64 bit FNV-1a with a final avalanche, so both the shard bits and the slot bits are well distributed
+    static long hash(final String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,127 @@
+package n26.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers the idempotency keys of the accepted transactions per bucket, in one Bloom filter for every bucket which
+ * still accepts transactions
+ *
+ * The filters are blocked to a single word: all bits of a key are set in one long, so checking a key reads one word
+ * and adding it takes one CAS. That also decides concurrent retries of the same key exactly, only the first one finds
+ * a bit missing. A filter takes 4 bytes per expected key, which leaves about 0.03% false positives when it is full.
+ * There is one filter per slot of the ring, allocated up front: once its bucket is older than the statistics window it
+ * is cleared and handed to the next bucket of its slot. Filters of buckets which are too old to accept transactions
+ * anyway don't answer for them. An add racing with the expiry of its bucket may leave a bit in the cleared filter,
+ * which at worst makes a later key a false duplicate, just like any other false positive.
+ */
+class DuplicateFilter {
+
+    // The number of bits set for each key
+    private static final int BITS_PER_KEY = 8;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // The bucket of a slot, which no key got added to yet, and of one while it is cleared
+    private static final long UNASSIGNED = Long.MIN_VALUE;
+    private static final long CLEARING = Long.MIN_VALUE + 1;
+
+    // The number of words of a filter, a power of two, and the shift of a hash which leaves the index of a word
+    private final int words;
+    private final int wordShift;
+
+    // The bucket and the filter of every slot, indexed by bucket modulo the number of slots
+    private final AtomicLongArray buckets;
+    private final AtomicLongArray[] filters;
+
+    /**
+     * @param buckets the number of buckets, which may accept transactions at the same time
+     * @param keysPerBucket the number of keys a bucket is expected to get at most
+     */
+    DuplicateFilter(int buckets, int keysPerBucket) {
+        // Two keys per word, rounded up to a power of two
+        words = Integer.highestOneBit(Integer.max(1, (keysPerBucket + 1) / 2 - 1) * 2);
+        wordShift = 64 - Integer.numberOfTrailingZeros(words);
+        this.buckets = new AtomicLongArray(buckets);
+        filters = new AtomicLongArray[buckets];
+        for (int slot = 0; slot < buckets; slot++) {
+            this.buckets.set(slot, UNASSIGNED);
+            filters[slot] = new AtomicLongArray(words);
+        }
+    }
+
+    /**
+     * Adds the key of a transaction to the filter of its bucket
+     * @param bucket the index of the bucket
+     * @param key the idempotency key
+     * @return whether the key is new to the bucket, false if it is (most likely) a duplicate
+     */
+    boolean add(long bucket, String key) {
+        final AtomicLongArray bits = getFilter(bucket);
+        if (bits == null) {
+            return true;
+        }
+
+        final long hash = hash(key);
+        long mask = 0;
+        for (int i = 0; i < BITS_PER_KEY; i++) {
+            mask |= 1L << (hash >>> (i * 6));
+        }
+        // The bits within the word come from the low bits of the hash, the word from the high bits of its product
+        final int index = (int) ((hash * GOLDEN_GAMMA) >>> wordShift);
+
+        while (true) {
+            final long word = bits.get(index);
+            if ((word & mask) == mask) {
+                return false;
+            }
+            if (bits.compareAndSet(index, word, word | mask)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Clears the filters of the buckets, which don't accept transactions anymore, for the next buckets of their slots
+     * Must not be called concurrently
+     * @param oldestBucket the index of the oldest bucket, which still accepts transactions
+     */
+    void expire(long oldestBucket) {
+        final int slots = filters.length;
+        for (int slot = 0; slot < slots; slot++) {
+            final long bucket = buckets.get(slot);
+            if (bucket == UNASSIGNED || bucket >= oldestBucket) {
+                continue;
+            }
+
+            buckets.set(slot, CLEARING);
+            final AtomicLongArray bits = filters[slot];
+            for (int i = 0; i < words; i++) {
+                bits.lazySet(i, 0);
+            }
+            // The volatile store publishes the cleared bits along with the bucket
+            buckets.set(slot, oldestBucket + Math.floorMod(slot - oldestBucket, (long) slots));
+        }
+    }
+
+    // Gets the filter of a bucket, claiming its slot if it was never used, null if the slot belongs to another bucket
+    private AtomicLongArray getFilter(final long bucket) {
+        final int slot = (int) Math.floorMod(bucket, (long) filters.length);
+        if (buckets.get(slot) == UNASSIGNED) {
+            buckets.compareAndSet(slot, UNASSIGNED, bucket);
+        }
+        return buckets.get(slot) == bucket ? filters[slot] : null;
+    }
+
+    // FNV-1a over the chars, finished like SplitMix64 so all bits depend on every char
+    private static long hash(final String key) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
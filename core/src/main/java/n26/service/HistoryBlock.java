@@ -0,0 +1,296 @@
+package n26.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import n26.model.Statistics;
+
+/**
+ * The statistics of a run of consecutive slots of a history tier, compressed column by column
+ *
+ * Only non-empty slots are stored. The slot numbers, counts and last timestamps are written as variable length
+ * deltas, the sums, minimums and maximums with the XOR encoding of Gorilla, which only keeps the bits that differ from
+ * the previous value of the column. Similar neighbouring slots take a few bytes each. The encoded bytes are kept
+ * off-heap in a direct buffer and only decoded while a query reads them.
+ */
+final class HistoryBlock {
+
+    private static final int SLOTS = 0;
+    private static final int COUNTS = 1;
+    private static final int SUMS = 2;
+    private static final int MINS = 3;
+    private static final int MAXS = 4;
+    private static final int LAST_TIMESTAMPS = 5;
+    private static final int COLUMNS = 6;
+
+    private final long slotSizeMs;
+
+    // The first and the last slot the block may hold
+    private final long firstSlot;
+    private final long lastSlot;
+
+    private final int entries;
+
+    // The position of every column in the encoded bits
+    private final long[] columnBits;
+
+    private final ByteBuffer data;
+
+    private HistoryBlock(long slotSizeMs, long firstSlot, long lastSlot, int entries, long[] columnBits,
+            ByteBuffer data) {
+        this.slotSizeMs = slotSizeMs;
+        this.firstSlot = firstSlot;
+        this.lastSlot = lastSlot;
+        this.entries = entries;
+        this.columnBits = columnBits;
+        this.data = data;
+    }
+
+    /**
+     * Compresses the statistics of non-empty slots, given as parallel arrays in the order of their slots
+     * @param slotSizeMs the length of a slot
+     * @param firstSlot the first slot the block may hold
+     * @param lastSlot the last slot the block may hold
+     * @param size the number of slots, which are taken from the start of the arrays
+     * @return the block
+     */
+    static HistoryBlock encode(long slotSizeMs, long firstSlot, long lastSlot, long[] slots, long[] counts,
+            double[] sums, double[] mins, double[] maxs, long[] lastTimestamps, int size) {
+        final BitWriter writer = new BitWriter(size * 16 + 8);
+        final long[] columnBits = new long[COLUMNS];
+
+        columnBits[SLOTS] = writer.position();
+        long previousSlot = firstSlot;
+        for (int i = 0; i < size; i++) {
+            writer.writeVarLong(slots[i] - previousSlot);
+            previousSlot = slots[i];
+        }
+
+        columnBits[COUNTS] = writer.position();
+        long previousCount = 0;
+        for (int i = 0; i < size; i++) {
+            writer.writeVarLong(zigZag(counts[i] - previousCount));
+            previousCount = counts[i];
+        }
+
+        columnBits[SUMS] = writer.position();
+        writeDoubles(writer, sums, size);
+        columnBits[MINS] = writer.position();
+        writeDoubles(writer, mins, size);
+        columnBits[MAXS] = writer.position();
+        writeDoubles(writer, maxs, size);
+
+        // The last timestamp is always within its slot, so only its offset is kept
+        columnBits[LAST_TIMESTAMPS] = writer.position();
+        for (int i = 0; i < size; i++) {
+            writer.writeVarLong(zigZag(lastTimestamps[i] - slots[i] * slotSizeMs));
+        }
+
+        return new HistoryBlock(slotSizeMs, firstSlot, lastSlot, size, columnBits, writer.toDirectBuffer());
+    }
+
+    long getFirstSlot() {
+        return firstSlot;
+    }
+
+    long getLastSlot() {
+        return lastSlot;
+    }
+
+    /**
+     * @return the number of bytes the block takes off-heap
+     */
+    long getBytes() {
+        return data.capacity();
+    }
+
+    /**
+     * Adds the statistics of all slots in the given range
+     * @param fromSlot the first slot
+     * @param toSlot the end of the range (exclusive)
+     * @param total the statistics to add the slots to
+     */
+    void addTo(long fromSlot, long toSlot, Statistics total) {
+        if (toSlot <= firstSlot || fromSlot > lastSlot) {
+            return;
+        }
+
+        final BitReader slotReader = new BitReader(data, columnBits[SLOTS]);
+        final BitReader countReader = new BitReader(data, columnBits[COUNTS]);
+        final DoubleReader sumReader = new DoubleReader(new BitReader(data, columnBits[SUMS]));
+        final DoubleReader minReader = new DoubleReader(new BitReader(data, columnBits[MINS]));
+        final DoubleReader maxReader = new DoubleReader(new BitReader(data, columnBits[MAXS]));
+        final BitReader lastTimestampReader = new BitReader(data, columnBits[LAST_TIMESTAMPS]);
+
+        long slot = firstSlot;
+        long count = 0;
+        for (int i = 0; i < entries; i++) {
+            slot += slotReader.readVarLong();
+            count += unZigZag(countReader.readVarLong());
+            final double sum = sumReader.read();
+            final double min = minReader.read();
+            final double max = maxReader.read();
+            final long lastTimestamp = slot * slotSizeMs + unZigZag(lastTimestampReader.readVarLong());
+
+            if (slot >= toSlot) {
+                return;
+            }
+            if (slot >= fromSlot) {
+                total.addStatistics(new Statistics(max, min, sum, count, lastTimestamp, null));
+            }
+        }
+    }
+
+    private static void writeDoubles(final BitWriter writer, final double[] values, final int size) {
+        long previous = 0;
+        int previousLeading = Integer.MAX_VALUE;
+        int previousTrailing = 0;
+        for (int i = 0; i < size; i++) {
+            final long bits = Double.doubleToRawLongBits(values[i]);
+            final long xor = bits ^ previous;
+            previous = bits;
+
+            if (xor == 0) {
+                writer.writeBits(0, 1);
+                continue;
+            }
+            writer.writeBits(1, 1);
+
+            final int leading = Long.numberOfLeadingZeros(xor);
+            final int trailing = Long.numberOfTrailingZeros(xor);
+            if (leading >= previousLeading && trailing >= previousTrailing) {
+                // The differing bits fit into the window of the previous value
+                writer.writeBits(0, 1);
+                writer.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                final int significant = 64 - leading - trailing;
+                writer.writeBits(1, 1);
+                writer.writeBits(leading, 6);
+                writer.writeBits(significant - 1, 6);
+                writer.writeBits(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+    }
+
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Decodes a column of XOR encoded doubles
+     */
+    private static final class DoubleReader {
+
+        private final BitReader reader;
+
+        private long previous;
+        private int leading;
+        private int trailing;
+
+        private DoubleReader(final BitReader reader) {
+            this.reader = reader;
+        }
+
+        private double read() {
+            if (reader.readBits(1) == 1) {
+                if (reader.readBits(1) == 1) {
+                    leading = (int) reader.readBits(6);
+                    trailing = 64 - leading - (int) reader.readBits(6) - 1;
+                }
+                previous ^= reader.readBits(64 - leading - trailing) << trailing;
+            }
+            return Double.longBitsToDouble(previous);
+        }
+    }
+
+    /**
+     * Appends bits to a growing array, most significant bit first
+     */
+    private static final class BitWriter {
+
+        private byte[] bytes;
+
+        private long position;
+
+        private BitWriter(final int initialBytes) {
+            bytes = new byte[Integer.max(initialBytes, 8)];
+        }
+
+        private long position() {
+            return position;
+        }
+
+        // Writes the lowest bits of the value
+        private void writeBits(final long value, final int bits) {
+            for (int bit = bits - 1; bit >= 0; bit--) {
+                final int index = (int) (position >>> 3);
+                if (index == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                if (((value >>> bit) & 1) != 0) {
+                    bytes[index] |= (byte) (0x80 >>> (position & 7));
+                }
+                position++;
+            }
+        }
+
+        // Writes 7 bits at a time, each group with a flag whether another one follows
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeBits((value & 0x7F) | 0x80, 8);
+                value >>>= 7;
+            }
+            writeBits(value, 8);
+        }
+
+        private ByteBuffer toDirectBuffer() {
+            final int length = (int) ((position + 7) >>> 3);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+            buffer.put(bytes, 0, length);
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Reads bits from a buffer, starting at a given bit
+     */
+    private static final class BitReader {
+
+        private final ByteBuffer data;
+
+        private long position;
+
+        private BitReader(final ByteBuffer data, final long position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private long readBits(final int bits) {
+            long value = 0;
+            for (int bit = 0; bit < bits; bit++) {
+                final int current = data.get((int) (position >>> 3)) >>> (7 - (position & 7));
+                value = (value << 1) | (current & 1);
+                position++;
+            }
+            return value;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            long group;
+            do {
+                group = readBits(8);
+                value |= (group & 0x7F) << shift;
+                shift += 7;
+            } while ((group & 0x80) != 0);
+            return value;
+        }
+    }
+}
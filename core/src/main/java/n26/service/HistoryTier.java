@@ -0,0 +1,144 @@
+package n26.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import n26.model.Statistics;
+
+/**
+ * The statistics of past buckets at one resolution, like one slot per minute kept for a day
+ *
+ * Buckets are summed up into the open slot until a bucket of a later slot arrives. Finished slots are collected
+ * uncompressed until their block of {@link #BLOCK_SLOTS} slots is complete, then the block gets compressed. Blocks are
+ * dropped once all of their slots are older than the retention.
+ */
+class HistoryTier {
+
+    // The number of slots per compressed block
+    static final int BLOCK_SLOTS = 64;
+
+    private final long slotSizeMs;
+
+    private final long retentionMs;
+
+    private final Deque<HistoryBlock> blocks = new ArrayDeque<>();
+
+    // The slot being filled, which is only final once a bucket of a later slot arrives
+    private long openSlot = Long.MIN_VALUE;
+    private final Statistics open = new Statistics();
+
+    // The finished slots of the block being filled, as parallel arrays
+    private long pendingBlock = Long.MIN_VALUE;
+    private final long[] slots = new long[BLOCK_SLOTS];
+    private final long[] counts = new long[BLOCK_SLOTS];
+    private final double[] sums = new double[BLOCK_SLOTS];
+    private final double[] mins = new double[BLOCK_SLOTS];
+    private final double[] maxs = new double[BLOCK_SLOTS];
+    private final long[] lastTimestamps = new long[BLOCK_SLOTS];
+    private int pending;
+
+    // The compressed size of the blocks
+    private long blockBytes;
+
+    HistoryTier(long slotSizeMs, long retentionMs) {
+        this.slotSizeMs = slotSizeMs;
+        this.retentionMs = retentionMs;
+    }
+
+    long getSlotSizeMs() {
+        return slotSizeMs;
+    }
+
+    /**
+     * @param nowMs the current time
+     * @return the start of the oldest slot, which is still within the retention
+     */
+    long getRetainedFromMs(long nowMs) {
+        return Math.floorDiv(nowMs - retentionMs + slotSizeMs - 1, slotSizeMs) * slotSizeMs;
+    }
+
+    /**
+     * Adds the final statistics of a bucket, buckets have to be added in order
+     * @param bucketStartMs the start of the bucket, which lies within a single slot
+     * @param bucketStatistics the statistics of the bucket
+     */
+    void add(long bucketStartMs, Statistics bucketStatistics) {
+        final long slot = Math.floorDiv(bucketStartMs, slotSizeMs);
+        if (slot != openSlot) {
+            finishOpenSlot();
+            openSlot = slot;
+        }
+        open.addStatistics(bucketStatistics);
+    }
+
+    /**
+     * Drops the blocks, whose slots are all older than the retention
+     * @param nowMs the current time
+     */
+    void expire(long nowMs) {
+        final long oldestSlot = getRetainedFromMs(nowMs) / slotSizeMs;
+        while (!blocks.isEmpty() && blocks.peekFirst().getLastSlot() < oldestSlot) {
+            blockBytes -= blocks.removeFirst().getBytes();
+        }
+    }
+
+    /**
+     * Adds the statistics of all slots within the given time range
+     * @param fromMs the start of the range, which is the start of a slot
+     * @param toMs the end of the range (exclusive), which is the start of a slot
+     * @param total the statistics to add the slots to
+     */
+    void addTo(long fromMs, long toMs, Statistics total) {
+        final long fromSlot = fromMs / slotSizeMs;
+        final long toSlot = toMs / slotSizeMs;
+
+        for (final HistoryBlock block : blocks) {
+            block.addTo(fromSlot, toSlot, total);
+        }
+        for (int i = 0; i < pending; i++) {
+            if (slots[i] >= fromSlot && slots[i] < toSlot) {
+                total.addStatistics(new Statistics(maxs[i], mins[i], sums[i], counts[i], lastTimestamps[i], null));
+            }
+        }
+        if (openSlot >= fromSlot && openSlot < toSlot) {
+            total.addStatistics(open);
+        }
+    }
+
+    /**
+     * @return the number of bytes of the compressed blocks
+     */
+    long getBytes() {
+        return blockBytes;
+    }
+
+    private void finishOpenSlot() {
+        if (open.getCount() == 0) {
+            return;
+        }
+
+        final long block = Math.floorDiv(openSlot, (long) BLOCK_SLOTS);
+        if (block != pendingBlock) {
+            compressPending();
+            pendingBlock = block;
+        }
+        slots[pending] = openSlot;
+        counts[pending] = open.getCount();
+        sums[pending] = open.getSum();
+        mins[pending] = open.getMin();
+        maxs[pending] = open.getMax();
+        lastTimestamps[pending] = open.getLastTimestamp();
+        pending++;
+        open.reset();
+    }
+
+    private void compressPending() {
+        if (pending == 0) {
+            return;
+        }
+        final HistoryBlock block = HistoryBlock.encode(slotSizeMs, pendingBlock * BLOCK_SLOTS,
+                pendingBlock * BLOCK_SLOTS + BLOCK_SLOTS - 1, slots, counts, sums, mins, maxs, lastTimestamps, pending);
+        blocks.addLast(block);
+        blockBytes += block.getBytes();
+        pending = 0;
+    }
+}
@@ -0,0 +1,249 @@
+package n26.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+
+/**
+ * A bounded queue of transactions in front of a {@link TransactionStore}, which a single writer adds in chunks
+ *
+ * Producers claim a slot of a preallocated ring with a CAS on the claim sequence, write the primitive timestamp and
+ * amount into it and publish it by storing the sequence of the slot. The writer drains all published slots in order,
+ * up to a batch at a time, and adds them with {@link TransactionStore#addTransactions(long[], double[], int)}, so every
+ * bucket is updated once per batch instead of once per transaction. A full ring rejects further transactions instead
+ * of growing, so the caller can tell the producer to back off.
+ */
+@Log
+public class IngestQueue implements AutoCloseable {
+
+    private static final long UNPUBLISHED = -1;
+
+    // How long the writer parks while the ring is empty, unless a producer wakes it up
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final TransactionStore transactionStore;
+
+    private final int mask;
+
+    private final long[] timestamps;
+    private final double[] amounts;
+
+    // The sequence number stored in every slot once it is published
+    private final AtomicLongArray published;
+
+    // The next sequence number to claim
+    private final AtomicLong claimed = new AtomicLong();
+
+    // The next sequence number the writer takes, everything before has been added to the store
+    private volatile long consumed;
+
+    // The chunk the writer adds to the store, reused for every batch
+    private final long[] batchTimestamps;
+    private final double[] batchAmounts;
+
+    private final ReadConsistency consistency;
+
+    // How long a read waits for the queued transactions with READ_YOUR_WRITES
+    private final long readTimeoutNanos;
+
+    private final Thread writer;
+
+    // Whether the writer is parked for lack of transactions
+    private volatile boolean idle;
+
+    // Reads waiting for the writer to catch up, which it notifies on this monitor only while there are any
+    private final AtomicInteger waitingReads = new AtomicInteger();
+    private final Object progress = new Object();
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates the queue and starts its writer
+     * @param transactionStore the store the transactions are added to
+     * @param capacity the number of transactions the queue can hold, a power of two
+     * @param batchSize the maximum number of transactions the writer adds at once
+     * @param consistency how fresh the statistics are with queued transactions
+     * @param readTimeoutMs how long a read waits for the queued transactions with READ_YOUR_WRITES
+     */
+    public IngestQueue(TransactionStore transactionStore, int capacity, int batchSize, ReadConsistency consistency,
+            long readTimeoutMs) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1 || batchSize <= 0) {
+            throw new IllegalArgumentException("The capacity of the queue must be a power of two and the batch size "
+                    + "positive.");
+        }
+
+        this.transactionStore = transactionStore;
+        this.consistency = consistency;
+        readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readTimeoutMs);
+        mask = capacity - 1;
+        timestamps = new long[capacity];
+        amounts = new double[capacity];
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, UNPUBLISHED);
+        }
+        batchTimestamps = new long[Integer.min(batchSize, capacity)];
+        batchAmounts = new double[batchTimestamps.length];
+
+        writer = new Thread(this::drainUntilClosed, "ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a transaction for the writer
+     * The timestamp is checked again when the transaction is added, so it may still be rejected if it got too old
+     * while it was queued
+     * @param timestamp the timestamp of the transaction
+     * @param amount the amount of the transaction
+     * @return whether the transaction got queued, false if the queue is full or closed
+     */
+    public boolean offer(long timestamp, double amount) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (!running || sequence - consumed > mask) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        final int slot = (int) (sequence & mask);
+        timestamps[slot] = timestamp;
+        amounts[slot] = amount;
+        // The ordered store makes the timestamp and amount visible to the writer before the slot is published
+        published.lazySet(slot, sequence);
+
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until every transaction queued so far has been added to the store, if reads are READ_YOUR_WRITES
+     * Gives up after the read timeout, so a slow writer makes the statistics stale instead of the reads hang
+     * The read waits until the writer notifies it about the next batch added to the store
+     */
+    public void awaitQueued() {
+        if (consistency != ReadConsistency.READ_YOUR_WRITES) {
+            return;
+        }
+
+        final long target = claimed.get();
+        if (consumed >= target) {
+            return;
+        }
+        final long deadline = System.nanoTime() + readTimeoutNanos;
+        // Announced before consumed is checked again, so the writer either sees the read or the read sees its batch
+        waitingReads.incrementAndGet();
+        try {
+            LockSupport.unpark(writer);
+            synchronized (progress) {
+                long remaining;
+                while (consumed < target && running && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(progress, remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waitingReads.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return whether the writer is still adding transactions
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of transactions waiting for the writer
+     */
+    public long size() {
+        return claimed.get() - consumed;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Stops taking transactions, adds the ones which are queued already and stops the writer
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds the next batch of published transactions to the store
+     * @return the number of transactions added
+     */
+    private int drain() {
+        final long from = consumed;
+        int count = 0;
+        while (count < batchTimestamps.length) {
+            final long sequence = from + count;
+            final int slot = (int) (sequence & mask);
+            if (published.get(slot) != sequence) {
+                break;
+            }
+            batchTimestamps[count] = timestamps[slot];
+            batchAmounts[count] = amounts[slot];
+            count++;
+        }
+
+        if (count > 0) {
+            try {
+                transactionStore.addTransactions(batchTimestamps, batchAmounts, count);
+            } catch (RuntimeException e) {
+                log.log(Level.SEVERE, "Could not add " + count + " queued transactions", e);
+            }
+            // Frees the slots for the producers
+            consumed = from + count;
+            notifyReads();
+        }
+        return count;
+    }
+
+    // Wakes up the reads waiting for the writer, which costs a volatile read as long as there are none
+    private void notifyReads() {
+        if (waitingReads.get() > 0) {
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    private void drainUntilClosed() {
+        while (true) {
+            // Producers which claimed a slot before the queue got closed still publish it
+            final boolean closing = !running;
+            if (drain() > 0) {
+                continue;
+            }
+            if (closing && consumed == claimed.get()) {
+                notifyReads();
+                return;
+            }
+
+            idle = true;
+            if (published.get((int) (consumed & mask)) != consumed) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle = false;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package n26.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A memory mapped file of fixed width transaction records
+ *
+ * The file starts with a header of a magic number and the time the segment was started at, followed by records of the
+ * timestamp and the raw bits of the amount. Writers reserve their record with an atomic counter, so appending doesn't
+ * need any lock. Unused records are all zero, which is never a valid timestamp. A segment is cleared ahead of time,
+ * so starting it over only writes its header.
+ */
+class JournalSegment {
+
+    private static final long MAGIC = 0x4e32364a4f55524eL;
+
+    private static final int HEADER_SIZE = 16;
+
+    static final int RECORD_SIZE = 16;
+
+    // Start time of a segment, which doesn't hold any records of the current instance
+    static final long UNUSED = Long.MIN_VALUE;
+
+    private final Path path;
+
+    private final int capacity;
+
+    private final MappedByteBuffer buffer;
+
+    private final AtomicInteger nextRecord = new AtomicInteger();
+
+    // Whether records got appended since the last flush
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private volatile long startMs;
+
+    // Whether all records are zero and the segment can be started right away
+    private volatile boolean cleared;
+
+    /**
+     * Opens a segment file, creating it if it doesn't exist
+     * A file which isn't a valid segment of the given capacity is treated as unused
+     * @param path the segment file
+     * @param capacity the number of records of the segment
+     */
+    JournalSegment(Path path, int capacity) {
+        this.path = path;
+        this.capacity = capacity;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            final long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+            final boolean created = channel.size() == 0;
+            final boolean valid = channel.size() == size;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            startMs = valid && buffer.getLong(0) == MAGIC ? buffer.getLong(8) : UNUSED;
+            // A new file is all zero, a valid one without a start time got cleared before
+            cleared = created || (valid && buffer.getLong(0) == MAGIC && startMs == UNUSED);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal segment " + path, e);
+        }
+
+        // Records of a previous instance are only replayed, new records always go to recycled segments
+        nextRecord.set(capacity);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getStartMs() {
+        return startMs;
+    }
+
+    boolean isCleared() {
+        return cleared;
+    }
+
+    /**
+     * Appends a record to the segment
+     * @param timestamp the timestamp of the transaction
+     * @param amount the amount of the transaction
+     * @return false if the segment is full
+     */
+    boolean append(long timestamp, double amount) {
+        final int record = nextRecord.getAndIncrement();
+        if (record >= capacity) {
+            return false;
+        }
+
+        // The timestamp goes last, so a torn record is skipped on replay
+        final int position = HEADER_SIZE + record * RECORD_SIZE;
+        buffer.putLong(position + 8, Double.doubleToRawLongBits(amount));
+        buffer.putLong(position, timestamp);
+        dirty.set(true);
+        return true;
+    }
+
+    /**
+     * Passes all records of the segment to the given consumer
+     * @param consumer the consumer of the records
+     * @return the number of records
+     */
+    int replay(TransactionJournal.RecordConsumer consumer) {
+        int records = 0;
+        for (int record = 0; record < capacity; record++) {
+            final int position = HEADER_SIZE + record * RECORD_SIZE;
+            final long timestamp = buffer.getLong(position);
+            if (timestamp != 0) {
+                consumer.accept(timestamp, Double.longBitsToDouble(buffer.getLong(position + 8)));
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Clears all records and writes them to the disk, before the header marks the segment as cleared
+     * Must not be called while records are appended to the segment, it takes a while for a large segment
+     */
+    void clear() {
+        for (int position = HEADER_SIZE; position < HEADER_SIZE + capacity * RECORD_SIZE; position += 8) {
+            buffer.putLong(position, 0);
+        }
+        buffer.force();
+        buffer.putLong(0, MAGIC);
+        buffer.putLong(8, UNUSED);
+        buffer.force();
+
+        startMs = UNUSED;
+        cleared = true;
+    }
+
+    /**
+     * Starts a cleared segment for new records, which only writes the header
+     * The header goes to the disk with the next flush
+     * @param newStartMs the time the segment gets started at
+     */
+    void start(long newStartMs) {
+        buffer.putLong(0, MAGIC);
+        buffer.putLong(8, newStartMs);
+
+        cleared = false;
+        startMs = newStartMs;
+        nextRecord.set(0);
+        dirty.set(true);
+    }
+
+    /**
+     * Writes the appended records to the disk, if there are any
+     */
+    void flush() {
+        if (dirty.getAndSet(false)) {
+            buffer.force();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package n26.service;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import n26.model.KeyStatistics;
+import n26.model.Statistics;
+
+/**
+ * A fixed size open addressing table of per-key bucket statistics
+ *
+ * Keys are looked up by a 64 bit hash with linear probing, the table slots only hold the hash and the index of an
+ * entry. Every entry owns a small ring of buckets in flat primitive arrays, so the table doesn't allocate anything
+ * after it got created. Entries without any transaction in the window are reclaimed when the table runs full.
+ * The table isn't thread safe, {@link DimensionStatistics} guards every table with its own lock.
+ */
+class KeyedStatisticsTable {
+
+    // Bytes per bucket of an entry: bucket index, count, sum, min, max and last timestamp
+    static final int BUCKET_BYTES = 6 * 8;
+
+    private static final int NO_ENTRY = -1;
+
+    private final int windowBuckets;
+
+    // Buckets of the window plus the current one
+    private final int bucketsPerEntry;
+
+    private final long[] slotHashes;
+    private final int[] slotEntries;
+    private final int slotMask;
+
+    private final String[] keys;
+    private final long[] newestBuckets;
+
+    private final long[] bucketIndices;
+    private final long[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+    private final long[] lastTimestamps;
+
+    // Stack of unused entries
+    private final int[] freeEntries;
+    private int freeCount;
+
+    // Scratch space for rebuilding the table
+    private final long[] liveHashes;
+    private final int[] liveEntries;
+
+    // The last bucket the table got cleaned up in, so a table full of active keys isn't cleaned up on every insert
+    private long cleanedUpBucket = Long.MIN_VALUE;
+
+    /**
+     * @param maxKeys the maximum number of keys
+     * @param windowBuckets the number of buckets of the statistics window
+     */
+    KeyedStatisticsTable(int maxKeys, int windowBuckets) {
+        this.windowBuckets = windowBuckets;
+        bucketsPerEntry = windowBuckets + 1;
+
+        // Keeps the load factor of the table at or below 0.5
+        final int slots = Integer.highestOneBit(Integer.max(2, maxKeys) * 2 - 1) * 2;
+        slotHashes = new long[slots];
+        slotEntries = new int[slots];
+        slotMask = slots - 1;
+        Arrays.fill(slotEntries, NO_ENTRY);
+
+        keys = new String[maxKeys];
+        newestBuckets = new long[maxKeys];
+        bucketIndices = new long[maxKeys * bucketsPerEntry];
+        counts = new long[maxKeys * bucketsPerEntry];
+        sums = new double[maxKeys * bucketsPerEntry];
+        mins = new double[maxKeys * bucketsPerEntry];
+        maxs = new double[maxKeys * bucketsPerEntry];
+        lastTimestamps = new long[maxKeys * bucketsPerEntry];
+        Arrays.fill(bucketIndices, Long.MIN_VALUE);
+
+        freeEntries = new int[maxKeys];
+        for (int i = 0; i < maxKeys; i++) {
+            freeEntries[i] = maxKeys - 1 - i;
+        }
+        freeCount = maxKeys;
+
+        liveHashes = new long[maxKeys];
+        liveEntries = new int[maxKeys];
+    }
+
+    /**
+     * Adds a transaction to the bucket of a key
+     * @return false if the key isn't in the table and there is no room for it
+     */
+    boolean add(long hash, String key, long bucket, long timestamp, double amount) {
+        int entry = find(hash, key);
+        if (entry == NO_ENTRY) {
+            if (freeCount == 0 && cleanedUpBucket != bucket) {
+                cleanedUpBucket = bucket;
+                cleanUp(bucket);
+            }
+            if (freeCount == 0) {
+                return false;
+            }
+            entry = insert(hash, key);
+        }
+
+        final int position = entry * bucketsPerEntry + (int) Math.floorMod(bucket, (long) bucketsPerEntry);
+        if (bucketIndices[position] > bucket) {
+            // The bucket has already left the window
+            return true;
+        }
+        if (bucketIndices[position] != bucket) {
+            bucketIndices[position] = bucket;
+            counts[position] = 0;
+            sums[position] = 0;
+            mins[position] = amount;
+            maxs[position] = amount;
+            lastTimestamps[position] = timestamp;
+        }
+        counts[position]++;
+        sums[position] += amount;
+        mins[position] = Double.min(mins[position], amount);
+        maxs[position] = Double.max(maxs[position], amount);
+        lastTimestamps[position] = Long.max(lastTimestamps[position], timestamp);
+        newestBuckets[entry] = Long.max(newestBuckets[entry], bucket);
+        return true;
+    }
+
+    /**
+     * Adds the buckets of a key in the given range to the statistics
+     * @return false if the key isn't in the table
+     */
+    boolean addTo(long hash, String key, long fromBucket, long toBucket, Statistics total) {
+        final int entry = find(hash, key);
+        if (entry == NO_ENTRY) {
+            return false;
+        }
+        addTo(entry, fromBucket, toBucket, total);
+        return true;
+    }
+
+    /**
+     * Passes the statistics of every key with transactions in the given range to the consumer
+     */
+    void forEach(long fromBucket, long toBucket, Consumer<KeyStatistics> consumer) {
+        for (int slot = 0; slot <= slotMask; slot++) {
+            final int entry = slotEntries[slot];
+            if (entry == NO_ENTRY || newestBuckets[entry] < fromBucket) {
+                continue;
+            }
+
+            final Statistics statistics = new Statistics();
+            addTo(entry, fromBucket, toBucket, statistics);
+            if (statistics.getCount() > 0) {
+                consumer.accept(new KeyStatistics(keys[entry], statistics.getCount(), statistics.getSum(), true));
+            }
+        }
+    }
+
+    private void addTo(final int entry, final long fromBucket, final long toBucket, final Statistics total) {
+        final int base = entry * bucketsPerEntry;
+        for (int i = 0; i < bucketsPerEntry; i++) {
+            final long bucket = bucketIndices[base + i];
+            if (bucket >= fromBucket && bucket <= toBucket && counts[base + i] > 0) {
+                total.addStatistics(new Statistics(maxs[base + i], mins[base + i], sums[base + i], counts[base + i],
+                        lastTimestamps[base + i], null));
+            }
+        }
+    }
+
+    private int find(final long hash, final String key) {
+        for (int slot = (int) hash & slotMask; slotEntries[slot] != NO_ENTRY; slot = (slot + 1) & slotMask) {
+            if (slotHashes[slot] == hash && keys[slotEntries[slot]].equals(key)) {
+                return slotEntries[slot];
+            }
+        }
+        return NO_ENTRY;
+    }
+
+    private int insert(final long hash, final String key) {
+        final int entry = freeEntries[--freeCount];
+        keys[entry] = key;
+        newestBuckets[entry] = Long.MIN_VALUE;
+        final int base = entry * bucketsPerEntry;
+        Arrays.fill(bucketIndices, base, base + bucketsPerEntry, Long.MIN_VALUE);
+
+        int slot = (int) hash & slotMask;
+        while (slotEntries[slot] != NO_ENTRY) {
+            slot = (slot + 1) & slotMask;
+        }
+        slotHashes[slot] = hash;
+        slotEntries[slot] = entry;
+        return entry;
+    }
+
+    // Frees the entries of all keys without transactions in the window and rebuilds the probe sequences
+    private void cleanUp(final long currentBucket) {
+        int live = 0;
+
+        for (int slot = 0; slot <= slotMask; slot++) {
+            final int entry = slotEntries[slot];
+            if (entry == NO_ENTRY) {
+                continue;
+            }
+
+            if (newestBuckets[entry] < currentBucket - windowBuckets) {
+                keys[entry] = null;
+                freeEntries[freeCount++] = entry;
+            } else {
+                liveHashes[live] = slotHashes[slot];
+                liveEntries[live] = entry;
+                live++;
+            }
+            slotEntries[slot] = NO_ENTRY;
+        }
+
+        for (int i = 0; i < live; i++) {
+            int slot = (int) liveHashes[i] & slotMask;
+            while (slotEntries[slot] != NO_ENTRY) {
+                slot = (slot + 1) & slotMask;
+            }
+            slotHashes[slot] = liveHashes[i];
+            slotEntries[slot] = liveEntries[i];
+        }
+    }
+}
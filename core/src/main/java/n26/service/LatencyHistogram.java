@@ -0,0 +1,61 @@
+package n26.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations in fixed buckets from 1 µs to 10 s, which can be recorded concurrently without allocating
+ */
+public class LatencyHistogram {
+
+    // The upper bounds of the buckets in nanos, a last bucket takes everything longer
+    private static final long[] BOUNDS = {
+            1_000L, 2_500L, 5_000L, 10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L, 100_000_000L, 250_000_000L,
+            500_000_000L, 1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L};
+
+    private final LongAdder[] counts = new LongAdder[BOUNDS.length + 1];
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && nanos > BOUNDS[bucket]) {
+            bucket++;
+        }
+        counts[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    public void recordMillis(long millis) {
+        record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Appends the histogram in the Prometheus text format, with the durations in seconds
+     * @param name the name of the metric
+     * @param help the description of the metric
+     * @param out the output
+     */
+    public void writeTo(String name, String help, StringBuilder out) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+
+        // The total is summed up from the buckets, so it matches them even while durations are recorded
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i].sum();
+            out.append(name).append("_bucket{le=\"")
+                    .append(i < BOUNDS.length ? Double.toString(BOUNDS[i] / 1e9) : "+Inf")
+                    .append("\"} ").append(total).append('\n');
+        }
+        out.append(name).append("_sum ").append(sumNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count ").append(total).append('\n');
+    }
+}
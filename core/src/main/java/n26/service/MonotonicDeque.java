@@ -0,0 +1,117 @@
+package n26.service;
+
+/**
+ * A deque of bucket extrema, which keeps only the buckets that can still become the maximum (or minimum) of the
+ * window. Buckets are ordered from oldest to newest with strictly decreasing values, so the extremum of the window is
+ * always at the front and pushing a new bucket is amortized O(1).
+ */
+class MonotonicDeque {
+
+    private final long[] buckets;
+    private final double[] values;
+
+    // Minimums are kept as negated values, so both directions share the same logic
+    private final double sign;
+
+    private int head;
+    private int size;
+
+    MonotonicDeque(int capacity, boolean minimum) {
+        buckets = new long[capacity];
+        values = new double[capacity];
+        sign = minimum ? -1 : 1;
+    }
+
+    /**
+     * Records the extremum of a bucket, which may be older than buckets already in the deque
+     * @param bucket the bucket the value belongs to
+     * @param value the (new) extremum of the bucket
+     */
+    void update(long bucket, double value) {
+        final double v = sign * value;
+
+        // Find the first entry which is not older than the bucket, usually this is the end of the deque
+        int position = size;
+        while (position > 0 && bucketAt(position - 1) >= bucket) {
+            position--;
+        }
+
+        if (position < size && bucketAt(position) == bucket) {
+            if (valueAt(position) >= v) {
+                return;
+            }
+            values[index(position)] = v;
+        } else if (position < size && valueAt(position) >= v) {
+            // A newer bucket dominates this value for as long as it stays in the window
+            return;
+        } else {
+            insertAt(position, bucket, v);
+        }
+
+        // Older entries which are not greater than the value can never become the extremum again
+        int dominated = position;
+        while (dominated > 0 && valueAt(dominated - 1) <= v) {
+            dominated--;
+        }
+        removeRange(dominated, position);
+    }
+
+    /**
+     * Drops all entries of buckets older than the given one
+     * @param oldestBucket the oldest bucket which is still part of the window
+     */
+    void expire(long oldestBucket) {
+        while (size > 0 && buckets[head] < oldestBucket) {
+            head = (head + 1) % buckets.length;
+            size--;
+        }
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    double peek() {
+        return sign * values[head];
+    }
+
+    private void insertAt(final int position, final long bucket, final double value) {
+        for (int i = size; i > position; i--) {
+            buckets[index(i)] = bucketAt(i - 1);
+            values[index(i)] = valueAt(i - 1);
+        }
+        buckets[index(position)] = bucket;
+        values[index(position)] = value;
+        size++;
+    }
+
+    private void removeRange(final int from, final int to) {
+        final int removed = to - from;
+        if (removed == 0) {
+            return;
+        }
+
+        for (int i = from; i + removed < size; i++) {
+            buckets[index(i)] = bucketAt(i + removed);
+            values[index(i)] = valueAt(i + removed);
+        }
+        size -= removed;
+    }
+
+    private long bucketAt(final int position) {
+        return buckets[index(position)];
+    }
+
+    private double valueAt(final int position) {
+        return values[index(position)];
+    }
+
+    private int index(final int position) {
+        return (head + position) % buckets.length;
+    }
+}
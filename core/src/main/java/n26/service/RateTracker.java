@@ -0,0 +1,82 @@
+package n26.service;
+
+import n26.model.Rates;
+
+/**
+ * Keeps the rates of transactions and amount of the committed buckets, and their moving averages
+ *
+ * Every committed bucket updates each average in O(1), runs of empty buckets decay them at once, so nothing is left
+ * to compute when reading. Transactions arriving for a bucket after its commit aren't counted. Only written under the
+ * commit lock of the store, readers get an immutable snapshot.
+ */
+class RateTracker {
+
+    // The time constants of the moving averages
+    private static final long[] DECAY_MS = {1_000, 10_000, 60_000};
+
+    private final double bucketSeconds;
+
+    // The weight of the previous average at every bucket, per time constant
+    private final double[] retained = new double[DECAY_MS.length];
+
+    private final double[] countAverages = new double[DECAY_MS.length];
+    private final double[] amountAverages = new double[DECAY_MS.length];
+
+    private double countPerSecond;
+    private double amountPerSecond;
+
+    private volatile Rates rates = new Rates(0, 0, 0, 0, 0, 0, 0, 0);
+
+    /**
+     * @param bucketSizeMs the size of a bucket
+     */
+    RateTracker(long bucketSizeMs) {
+        bucketSeconds = bucketSizeMs / 1000.0;
+        for (int i = 0; i < DECAY_MS.length; i++) {
+            retained[i] = Math.exp(-(double) bucketSizeMs / DECAY_MS[i]);
+        }
+    }
+
+    /**
+     * Adds the next committed bucket
+     * @param count the number of transactions of the bucket
+     * @param amount the sum of their amounts
+     */
+    void add(long count, double amount) {
+        countPerSecond = count / bucketSeconds;
+        amountPerSecond = amount / bucketSeconds;
+        for (int i = 0; i < DECAY_MS.length; i++) {
+            countAverages[i] = countPerSecond + retained[i] * (countAverages[i] - countPerSecond);
+            amountAverages[i] = amountPerSecond + retained[i] * (amountAverages[i] - amountPerSecond);
+        }
+    }
+
+    /**
+     * Adds a run of empty committed buckets
+     * @param buckets the number of buckets
+     */
+    void skip(long buckets) {
+        if (buckets <= 0) {
+            return;
+        }
+        countPerSecond = 0;
+        amountPerSecond = 0;
+        for (int i = 0; i < DECAY_MS.length; i++) {
+            final double decay = Math.pow(retained[i], buckets);
+            countAverages[i] *= decay;
+            amountAverages[i] *= decay;
+        }
+    }
+
+    /**
+     * Makes the rates of the buckets added so far visible to readers
+     */
+    void publish() {
+        rates = new Rates(countPerSecond, amountPerSecond, countAverages[0], countAverages[1], countAverages[2],
+                amountAverages[0], amountAverages[1], amountAverages[2]);
+    }
+
+    Rates getRates() {
+        return rates;
+    }
+}
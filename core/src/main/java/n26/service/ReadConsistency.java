@@ -0,0 +1,17 @@
+package n26.service;
+
+/**
+ * How fresh the statistics are with transactions, which are queued by an {@link IngestQueue}
+ */
+public enum ReadConsistency {
+
+    /**
+     * Statistics are read right away and may miss transactions, which are still queued
+     */
+    EVENTUAL,
+
+    /**
+     * Reading the statistics waits up to a timeout until every transaction queued before has been added
+     */
+    READ_YOUR_WRITES
+}
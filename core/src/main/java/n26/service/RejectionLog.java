@@ -0,0 +1,48 @@
+package n26.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+
+/**
+ * Logs rejected transactions at most once per interval
+ * Every entry has the number of rejections since the previous one and the latest rejection as a sample, so a flood
+ * of outdated transactions doesn't turn into a flood of log lines
+ */
+@Log
+class RejectionLog {
+
+    private final long intervalMs;
+
+    // The rejections since the last entry
+    private final LongAdder future = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+
+    // The earliest time of the next entry
+    private final AtomicLong nextEntryMs = new AtomicLong(Long.MIN_VALUE);
+
+    RejectionLog(long intervalMs) {
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * Counts a rejected transaction and logs it, if the interval since the previous entry passed
+     * @param fromFuture whether the transaction was from the future rather than outdated
+     * @param timestamp the timestamp of the transaction
+     * @param now the current time in epoch millis
+     */
+    void rejected(final boolean fromFuture, final long timestamp, final long now) {
+        if (!log.isLoggable(Level.INFO)) {
+            return;
+        }
+        (fromFuture ? future : stale).increment();
+
+        final long next = nextEntryMs.get();
+        if (now < next || !nextEntryMs.compareAndSet(next, now + intervalMs)) {
+            return;
+        }
+        log.info("Discarded " + future.sumThenReset() + " transactions from the future and " + stale.sumThenReset()
+                + " outdated ones, the latest timestamp was " + timestamp + " and now is " + now);
+    }
+}
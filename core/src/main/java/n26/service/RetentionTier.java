@@ -0,0 +1,38 @@
+package n26.service;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import n26.model.InvalidWindowException;
+
+/**
+ * A resolution of the statistics history and how long it is kept, like '1m:1d' for minutes kept for a day
+ */
+@Getter
+@RequiredArgsConstructor
+public class RetentionTier {
+
+    private final Duration resolution;
+
+    private final Duration retention;
+
+    /**
+     * @param tier the resolution and the retention separated by a colon, like '1h:30d'
+     * @return the tier
+     * @throws InvalidWindowException if either length can't be parsed
+     */
+    public static RetentionTier parse(String tier) {
+        final int separator = tier.indexOf(':');
+        if (separator < 0) {
+            throw new InvalidWindowException("History tier '" + tier + "' is not a resolution and a retention like "
+                    + "'1m:1d'.");
+        }
+        return new RetentionTier(Windows.parse(tier.substring(0, separator)),
+                Windows.parse(tier.substring(separator + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return Windows.format(resolution) + ":" + Windows.format(retention);
+    }
+}
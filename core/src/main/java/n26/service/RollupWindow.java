@@ -0,0 +1,79 @@
+package n26.service;
+
+import n26.model.Statistics;
+
+/**
+ * A coarse grained window, which is fed with the final statistics of the buckets leaving the statistics window
+ *
+ * The buckets of the statistics window are merged into coarser buckets with {@link Statistics#addStatistics}, so
+ * adding a window doesn't add any work per transaction, only per committed bucket. The coarse buckets only cover the
+ * part of the window which is older than the statistics window, the recent part is taken from the statistics window
+ * itself.
+ */
+class RollupWindow {
+
+    private final long windowMs;
+
+    private final long bucketSizeMs;
+
+    private final Statistics[] buckets;
+
+    private final long[] bucketIndices;
+
+    /**
+     * @param windowMs the length of the window
+     * @param bucketSizeMs the size of the coarse buckets
+     * @param recentMs the length of the recent part of the window, which isn't covered by the coarse buckets
+     */
+    RollupWindow(long windowMs, long bucketSizeMs, long recentMs) {
+        this.windowMs = windowMs;
+        this.bucketSizeMs = bucketSizeMs;
+
+        // One more bucket for the partially filled newest one and one for the partially expired oldest one
+        final int size = (int) ((windowMs - recentMs + bucketSizeMs - 1) / bucketSizeMs) + 2;
+        buckets = new Statistics[size];
+        bucketIndices = new long[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Statistics();
+            bucketIndices[i] = Long.MIN_VALUE;
+        }
+    }
+
+    long getWindowMs() {
+        return windowMs;
+    }
+
+    /**
+     * Rolls up the final statistics of a fine grained bucket
+     * @param bucketStartMs the start of the fine grained bucket
+     * @param bucketStatistics the statistics of the bucket
+     */
+    void add(long bucketStartMs, Statistics bucketStatistics) {
+        final long index = bucketStartMs / bucketSizeMs;
+        final int slot = (int) Math.floorMod(index, (long) buckets.length);
+
+        if (bucketIndices[slot] != index) {
+            bucketIndices[slot] = index;
+            buckets[slot].reset();
+        }
+        buckets[slot].addStatistics(bucketStatistics);
+    }
+
+    /**
+     * Sums up the coarse buckets starting in the given time range
+     * @param fromMs the start of the time range
+     * @param toMs the end of the time range (exclusive)
+     * @param total the statistics to add the coarse buckets to
+     */
+    void addTo(long fromMs, long toMs, Statistics total) {
+        final long fromIndex = (fromMs + bucketSizeMs - 1) / bucketSizeMs;
+        final long toIndex = (toMs - 1) / bucketSizeMs;
+
+        for (long index = Long.max(fromIndex, toIndex - buckets.length + 1); index <= toIndex; index++) {
+            final int slot = (int) Math.floorMod(index, (long) buckets.length);
+            if (bucketIndices[slot] == index) {
+                total.addStatistics(buckets[slot]);
+            }
+        }
+    }
+}
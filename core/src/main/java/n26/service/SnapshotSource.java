@@ -0,0 +1,16 @@
+package n26.service;
+
+import n26.model.BucketSnapshot;
+
+/**
+ * A node of the cluster, whose bucket statistics are merged by the {@link ClusterAggregator}
+ */
+@FunctionalInterface
+public interface SnapshotSource {
+
+    /**
+     * @return the current snapshot of the statistics window of the node
+     * @throws RuntimeException if the node isn't reachable
+     */
+    BucketSnapshot fetch();
+}
@@ -0,0 +1,179 @@
+package n26.service;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import n26.model.KeyStatistics;
+
+/**
+ * The Space-Saving summary of the most frequent keys of a stream with a fixed number of counters
+ *
+ * A key which isn't monitored yet replaces the key with the smallest count and inherits its count as its error, so the
+ * count of every monitored key is an upper bound, which exceeds its actual count by at most the error. Every key
+ * occurring more often than {@code total / capacity} times is guaranteed to be monitored. The sum of a key starts over
+ * when it replaces another key, so the reported figures only cover the transactions since the key got monitored: the
+ * count less the error, which is a lower bound of its count, and the sum of exactly these transactions.
+ *
+ * The counters are kept in a min-heap ordered by their count, which finds the key to replace right away, and are
+ * looked up in an open addressing index of key hashes, so adding a key neither allocates nor scans all counters.
+ * The summary isn't thread safe.
+ */
+class SpaceSaving {
+
+    private static final int NO_COUNTER = -1;
+
+    private final String[] keys;
+    private final long[] hashes;
+    private final long[] counts;
+    private final long[] errors;
+    private final double[] sums;
+
+    // The counters ordered as a min-heap by their count, and the position of every counter in the heap
+    private final int[] heap;
+    private final int[] heapPositions;
+
+    // Linear probing index of the key hashes, the slots only hold the counter of a key
+    private final int[] slotCounters;
+    private final int slotMask;
+
+    private int size;
+
+    SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The number of counters must be positive");
+        }
+        keys = new String[capacity];
+        hashes = new long[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        sums = new double[capacity];
+        heap = new int[capacity];
+        heapPositions = new int[capacity];
+
+        // Keeps the load factor of the index at or below 0.5
+        final int slots = Integer.highestOneBit(Integer.max(2, capacity) * 2 - 1) * 2;
+        slotCounters = new int[slots];
+        slotMask = slots - 1;
+        Arrays.fill(slotCounters, NO_COUNTER);
+    }
+
+    /**
+     * @param hash the 64 bit hash of the key
+     * @param key the key
+     * @param amount the amount of the transaction
+     */
+    void add(long hash, String key, double amount) {
+        int counter = find(hash, key);
+        if (counter == NO_COUNTER) {
+            if (size < keys.length) {
+                counter = size;
+                counts[counter] = 0;
+                errors[counter] = 0;
+                heap[size] = counter;
+                heapPositions[counter] = size;
+                size++;
+                siftUp(heapPositions[counter]);
+            } else {
+                counter = heap[0];
+                remove(hashes[counter], counter);
+                errors[counter] = counts[counter];
+            }
+            keys[counter] = key;
+            hashes[counter] = hash;
+            sums[counter] = 0;
+            insert(hash, counter);
+        }
+
+        counts[counter]++;
+        sums[counter] += amount;
+        siftDown(heapPositions[counter]);
+    }
+
+    /**
+     * Passes the figures of every monitored key since it got monitored to the consumer
+     */
+    void forEach(Consumer<KeyStatistics> consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(new KeyStatistics(keys[i], counts[i] - errors[i], sums[i], false));
+        }
+    }
+
+    void clear() {
+        Arrays.fill(slotCounters, NO_COUNTER);
+        Arrays.fill(keys, 0, size, null);
+        size = 0;
+    }
+
+    private int find(final long hash, final String key) {
+        for (int slot = (int) hash & slotMask; slotCounters[slot] != NO_COUNTER; slot = (slot + 1) & slotMask) {
+            final int counter = slotCounters[slot];
+            if (hashes[counter] == hash && keys[counter].equals(key)) {
+                return counter;
+            }
+        }
+        return NO_COUNTER;
+    }
+
+    private void insert(final long hash, final int counter) {
+        int slot = (int) hash & slotMask;
+        while (slotCounters[slot] != NO_COUNTER) {
+            slot = (slot + 1) & slotMask;
+        }
+        slotCounters[slot] = counter;
+    }
+
+    // Removes the counter from the index and moves the following counters of its probe sequence back into the gap
+    private void remove(final long hash, final int counter) {
+        int slot = (int) hash & slotMask;
+        while (slotCounters[slot] != counter) {
+            slot = (slot + 1) & slotMask;
+        }
+
+        int gap = slot;
+        for (int next = (gap + 1) & slotMask; slotCounters[next] != NO_COUNTER; next = (next + 1) & slotMask) {
+            final int home = (int) hashes[slotCounters[next]] & slotMask;
+            // A counter can fill the gap if its home slot doesn't lie cyclically between the gap and its slot
+            if (((next - home) & slotMask) >= ((next - gap) & slotMask)) {
+                slotCounters[gap] = slotCounters[next];
+                gap = next;
+            }
+        }
+        slotCounters[gap] = NO_COUNTER;
+    }
+
+    private void siftUp(int position) {
+        final int counter = heap[position];
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[counter]) {
+                break;
+            }
+            move(heap[parent], position);
+            position = parent;
+        }
+        move(counter, position);
+    }
+
+    private void siftDown(int position) {
+        final int counter = heap[position];
+        while (true) {
+            int child = position * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[counter] <= counts[heap[child]]) {
+                break;
+            }
+            move(heap[child], position);
+            position = child;
+        }
+        move(counter, position);
+    }
+
+    private void move(final int counter, final int position) {
+        heap[position] = counter;
+        heapPositions[counter] = position;
+    }
+}
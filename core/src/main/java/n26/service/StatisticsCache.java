@@ -0,0 +1,62 @@
+package n26.service;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import n26.model.EncodedStatistics;
+import n26.model.Statistics;
+
+/**
+ * The encoded statistics of the statistics window, which are only computed and encoded again once they changed
+ *
+ * Pollers of unchanged statistics get the same buffer, so they don't cost more than reading the version of the store.
+ */
+public class StatisticsCache {
+
+    /**
+     * Encodes the statistics for the response
+     */
+    @FunctionalInterface
+    public interface Encoder {
+        byte[] encode(Statistics statistics);
+    }
+
+    private final TransactionStore transactionStore;
+
+    private final Encoder encoder;
+
+    // Tells the versions of different runs apart, since every run of the store starts counting at 0
+    private final String instance = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private volatile EncodedStatistics current;
+
+    public StatisticsCache(TransactionStore transactionStore, Encoder encoder) {
+        this.transactionStore = transactionStore;
+        this.encoder = encoder;
+    }
+
+    /**
+     * @param now the time when the statistics got requested
+     * @return the encoded statistics of the current version
+     */
+    public EncodedStatistics get(Instant now) {
+        final long version = transactionStore.getStatisticsVersion(now);
+        EncodedStatistics cached = current;
+        if (cached != null && cached.getVersion() >= version) {
+            return cached;
+        }
+
+        // Only one request encodes a new version, the others wait for it instead of doing the same
+        synchronized (this) {
+            cached = current;
+            if (cached != null && cached.getVersion() >= version) {
+                return cached;
+            }
+
+            final Statistics statistics = transactionStore.getStatistics(now);
+            cached = new EncodedStatistics(version, statistics.getCount(), encoder.encode(statistics),
+                    "\"" + instance + "-" + version + "\"");
+            current = cached;
+            return cached;
+        }
+    }
+}
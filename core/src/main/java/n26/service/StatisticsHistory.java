@@ -0,0 +1,128 @@
+package n26.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import n26.model.Statistics;
+
+/**
+ * Keeps the statistics of the buckets, which left the statistics window, in tiers of decreasing resolution
+ *
+ * Every tier sums the buckets up into slots of its resolution, like minutes kept for a day and hours kept for a month,
+ * and compresses them in blocks (see {@link HistoryBlock}). A time range is answered from the coarsest tier whose
+ * slots fit into it, and the parts at its edges from the finer tiers, so a query only reads a few slots per tier.
+ * Not thread safe, the store guards it with its commit lock.
+ */
+public class StatisticsHistory {
+
+    // Ordered from the finest to the coarsest resolution
+    private final List<HistoryTier> tiers;
+
+    // The start of the newest bucket added so far
+    private long newestBucketMs = Long.MIN_VALUE;
+
+    /**
+     * @param tiers the resolutions and retentions of the tiers, every resolution a multiple of the finer ones
+     */
+    public StatisticsHistory(List<RetentionTier> tiers) {
+        final List<RetentionTier> sorted = new ArrayList<>(tiers);
+        sorted.sort((a, b) -> a.getResolution().compareTo(b.getResolution()));
+
+        final List<HistoryTier> historyTiers = new ArrayList<>();
+        long previousResolutionMs = 1;
+        for (final RetentionTier tier : sorted) {
+            final long resolutionMs = tier.getResolution().toMillis();
+            if (resolutionMs % previousResolutionMs != 0) {
+                throw new IllegalArgumentException("The history resolution " + Windows.format(tier.getResolution())
+                        + " must be a multiple of the finer resolutions.");
+            }
+            historyTiers.add(new HistoryTier(resolutionMs, tier.getRetention().toMillis()));
+            previousResolutionMs = resolutionMs;
+        }
+        this.tiers = Collections.unmodifiableList(historyTiers);
+    }
+
+    /**
+     * @return the resolutions of the tiers, from the finest to the coarsest one
+     */
+    public List<Duration> getResolutions() {
+        final List<Duration> resolutions = new ArrayList<>();
+        for (final HistoryTier tier : tiers) {
+            resolutions.add(Duration.ofMillis(tier.getSlotSizeMs()));
+        }
+        return resolutions;
+    }
+
+    /**
+     * Adds the final statistics of a bucket to every tier, buckets have to be added in order
+     * Quantile sketches aren't kept in the history
+     * @param bucketStartMs the start of the bucket
+     * @param bucketStatistics the statistics of the bucket
+     */
+    public void add(long bucketStartMs, Statistics bucketStatistics) {
+        final Statistics statistics = bucketStatistics.getSketch() == null ? bucketStatistics
+                : bucketStatistics.toBuilder().sketch(null).build();
+        for (final HistoryTier tier : tiers) {
+            tier.add(bucketStartMs, statistics);
+        }
+        newestBucketMs = bucketStartMs;
+    }
+
+    /**
+     * Drops the blocks of every tier, which are older than its retention
+     * @param nowMs the current time
+     */
+    public void expire(long nowMs) {
+        for (final HistoryTier tier : tiers) {
+            tier.expire(nowMs);
+        }
+    }
+
+    /**
+     * Adds the statistics of the slots within the given time range
+     * Parts of the range, which aren't covered by whole slots of any tier still holding them, are left out. A slot,
+     * which is still being filled, is whole up to the newest bucket, so a range up to the newest bucket is exact.
+     * @param fromMs the start of the range, the start of a bucket
+     * @param toMs the end of the range (exclusive), the start of a bucket
+     * @param nowMs the current time
+     * @param total the statistics to add the slots to
+     */
+    public void addTo(long fromMs, long toMs, long nowMs, Statistics total) {
+        addTo(fromMs, toMs, nowMs, tiers.size() - 1, total);
+    }
+
+    /**
+     * @return the number of bytes of the compressed blocks of all tiers
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (final HistoryTier tier : tiers) {
+            bytes += tier.getBytes();
+        }
+        return bytes;
+    }
+
+    // Takes the whole slots of the coarsest tier fitting into the range, and the edges from the finer tiers
+    private void addTo(final long fromMs, final long toMs, final long nowMs, final int coarsest,
+            final Statistics total) {
+        for (int i = coarsest; i >= 0; i--) {
+            final HistoryTier tier = tiers.get(i);
+            final long slotSizeMs = tier.getSlotSizeMs();
+            final long from = Long.max(Math.floorDiv(fromMs + slotSizeMs - 1, slotSizeMs) * slotSizeMs,
+                    tier.getRetainedFromMs(nowMs));
+            // Nothing after the newest bucket was added, so its slot can be taken if the range covers the bucket
+            final long to = newestBucketMs < toMs ? Math.floorDiv(toMs + slotSizeMs - 1, slotSizeMs) * slotSizeMs
+                    : Math.floorDiv(toMs, slotSizeMs) * slotSizeMs;
+
+            if (from < to) {
+                tier.addTo(from, to, total);
+                addTo(fromMs, from, nowMs, i - 1, total);
+                if (to < toMs) {
+                    addTo(to, toMs, nowMs, i - 1, total);
+                }
+                return;
+            }
+        }
+    }
+}
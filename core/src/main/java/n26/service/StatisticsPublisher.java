@@ -0,0 +1,315 @@
+package n26.service;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+import n26.model.Statistics;
+import n26.model.StatisticsUpdate;
+import n26.model.ThresholdEvent;
+import n26.model.ThresholdRule;
+
+/**
+ * Pushes the statistics to subscribers whenever the statistics window moved on to the next bucket, and optionally
+ * after every given number of accepted transactions
+ *
+ * A single dispatcher wakes up at every bucket boundary, computes the update once and checks the threshold rules of
+ * every subscriber against it. Sending happens on separate threads and every subscriber only keeps its newest pending
+ * update, so a slow subscriber skips updates instead of piling them up or holding up ingestion and other subscribers.
+ */
+@Log
+public class StatisticsPublisher implements AutoCloseable {
+
+    public static final String STATISTICS_EVENT = "statistics";
+    public static final String THRESHOLD_EVENT = "threshold";
+
+    /**
+     * Delivers the events of a subscription, may block until they are written
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void send(String event, Object data) throws IOException;
+    }
+
+    private final TransactionStore transactionStore;
+
+    private final Clock clock;
+
+    // Sends the pending events of the subscriptions
+    private final Executor senders;
+
+    // The senders if they were created by the publisher, so they are shut down with it
+    private final ExecutorService ownSenders;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    // Set by the transaction listener, so the next round pushes even if the statistics window didn't change
+    private final AtomicBoolean transactionsAccepted = new AtomicBoolean();
+
+    // The version of the last update, only used by the dispatcher
+    private long version = -1;
+
+    private volatile Thread dispatcher;
+
+    /**
+     * @param transactionStore the store of the statistics
+     * @param clock the clock used to retrieve the current time
+     * @param senderThreads the number of threads sending to the subscribers
+     */
+    public StatisticsPublisher(TransactionStore transactionStore, Clock clock, int senderThreads) {
+        this(transactionStore, clock, Executors.newFixedThreadPool(senderThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "statistics-sender");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @param transactionStore the store of the statistics
+     * @param clock the clock used to retrieve the current time
+     * @param senders the executor sending to the subscribers
+     */
+    public StatisticsPublisher(TransactionStore transactionStore, Clock clock, Executor senders) {
+        this.transactionStore = transactionStore;
+        this.clock = clock;
+        this.senders = senders;
+        ownSenders = senders instanceof ExecutorService ? (ExecutorService) senders : null;
+    }
+
+    /**
+     * Starts the dispatcher, which pushes the statistics at every bucket boundary
+     * @param everyTransactions the number of accepted transactions after which the statistics are pushed in between,
+     *                          or 0 to push them with the bucket boundaries only
+     */
+    public synchronized void start(int everyTransactions) {
+        if (dispatcher != null) {
+            return;
+        }
+
+        if (everyTransactions > 0) {
+            transactionStore.onTransactions(everyTransactions, () -> {
+                transactionsAccepted.set(true);
+                wakeUp();
+            });
+        }
+
+        final Thread thread = new Thread(this::dispatchUntilClosed, "statistics-dispatcher");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    /**
+     * Subscribes to the statistics, the first update is pushed right away
+     * @param rules the rules, whose changes are pushed as threshold events
+     * @param sink the sink of the events
+     * @return the subscription
+     */
+    public Subscription subscribe(List<ThresholdRule> rules, Sink sink) {
+        final Subscription subscription = new Subscription(rules, sink);
+        subscriptions.add(subscription);
+        wakeUp();
+        return subscription;
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    public int getSubscriptions() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Pushes a new update to the subscriptions, if the statistics changed since the last one
+     * New subscriptions get the update in any case
+     */
+    public void dispatch() {
+        final boolean accepted = transactionsAccepted.getAndSet(false);
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        final Instant now = Instant.now(clock);
+        final long newVersion = transactionStore.getStatisticsVersion(now);
+        final boolean changed = newVersion != version;
+        if (!changed && !accepted && subscriptions.stream().noneMatch(Subscription::isNew)) {
+            return;
+        }
+
+        version = newVersion;
+        final StatisticsUpdate update = new StatisticsUpdate(newVersion, transactionStore.getStatistics(now),
+                transactionStore.getCurrentBucketStatistics(now));
+        for (final Subscription subscription : subscriptions) {
+            if (changed || accepted || subscription.isNew()) {
+                subscription.offer(update);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        final Thread thread;
+        synchronized (this) {
+            thread = dispatcher;
+            dispatcher = null;
+        }
+        if (thread != null) {
+            transactionStore.onTransactions(0, null);
+            thread.interrupt();
+        }
+        if (ownSenders != null) {
+            ownSenders.shutdownNow();
+        }
+        subscriptions.clear();
+    }
+
+    private void wakeUp() {
+        final Thread thread = dispatcher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void dispatchUntilClosed() {
+        final long bucketSizeMs = transactionStore.getBucketSizeMs();
+        while (dispatcher == Thread.currentThread()) {
+            try {
+                dispatch();
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Could not push the statistics", e);
+            }
+
+            // Wakes up at the next bucket boundary, when the current bucket gets committed, or when woken up earlier
+            final long untilBoundaryMs = bucketSizeMs - Math.floorMod(clock.millis(), bucketSizeMs);
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(untilBoundaryMs));
+        }
+    }
+
+    /**
+     * A subscriber of the statistics with its threshold rules and its pending events
+     */
+    public class Subscription {
+
+        private final List<ThresholdRule> rules;
+
+        private final Sink sink;
+
+        // Whether each rule held with the last update, only used by the dispatcher
+        private final boolean[] active;
+
+        // Whether the subscription didn't get any update yet
+        private volatile boolean isNew = true;
+
+        // The newest update and the newest change of every rule, which haven't been sent yet
+        private StatisticsUpdate pendingUpdate;
+        private final Map<ThresholdRule, ThresholdEvent> pendingEvents = new LinkedHashMap<>();
+
+        // Whether a sender is draining the pending events
+        private boolean sending;
+
+        // The number of updates, which got replaced by a newer one before they could be sent
+        private long coalesced;
+
+        Subscription(List<ThresholdRule> rules, Sink sink) {
+            this.rules = new ArrayList<>(rules);
+            this.sink = sink;
+            active = new boolean[rules.size()];
+        }
+
+        public List<ThresholdRule> getRules() {
+            return rules;
+        }
+
+        public synchronized long getCoalesced() {
+            return coalesced;
+        }
+
+        boolean isNew() {
+            return isNew;
+        }
+
+        // Checks the rules and hands the update to a sender, unless one is still busy with this subscription
+        void offer(final StatisticsUpdate update) {
+            final Statistics statistics = update.getStatistics();
+            synchronized (this) {
+                for (int i = 0; i < rules.size(); i++) {
+                    final ThresholdRule rule = rules.get(i);
+                    final boolean matches = rule.matches(statistics);
+                    if (matches != active[i]) {
+                        active[i] = matches;
+                        // A change back before the previous one got sent cancels it out, the subscriber saw neither
+                        if (pendingEvents.remove(rule) == null) {
+                            pendingEvents.put(rule, new ThresholdEvent(rule.toString(), matches,
+                                    rule.valueOf(statistics), update.getVersion()));
+                        }
+                    }
+                }
+
+                if (pendingUpdate != null) {
+                    coalesced++;
+                }
+                pendingUpdate = update;
+                isNew = false;
+
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+
+            try {
+                senders.execute(this::send);
+            } catch (RejectedExecutionException e) {
+                unsubscribe(this);
+            }
+        }
+
+        private void send() {
+            while (true) {
+                final StatisticsUpdate update;
+                final List<ThresholdEvent> events;
+                synchronized (this) {
+                    update = pendingUpdate;
+                    events = new ArrayList<>(pendingEvents.values());
+                    pendingUpdate = null;
+                    pendingEvents.clear();
+                    if (update == null && events.isEmpty()) {
+                        sending = false;
+                        return;
+                    }
+                }
+
+                try {
+                    for (final ThresholdEvent event : events) {
+                        sink.send(THRESHOLD_EVENT, event);
+                    }
+                    if (update != null) {
+                        sink.send(STATISTICS_EVENT, update);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.fine(() -> "Dropping subscriber, which could not be sent to: " + e.getMessage());
+                    unsubscribe(this);
+                    synchronized (this) {
+                        sending = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package n26.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import n26.model.QuantileSketch;
+import n26.model.Statistics;
+import n26.model.Summation;
+
+/**
+ * A fixed size ring of per-bucket statistics, which can be updated concurrently without any locks.
+ *
+ * Every slot consists of primitive cells (bucket tag, count, sum, min, max and last timestamp), which are updated
+ * with CAS. Readers get a consistent snapshot of a slot in a seqlock-like fashion: every write increments a 'begun'
+ * counter before and a 'completed' counter after touching the cells, and a read is only accepted if no write was in
+ * progress or got started while reading.
+ *
+ * The sequence number of a write is handed out as a ticket, so a bucket can be committed: the committed snapshot
+ * contains exactly the writes with a ticket up to the sequence number it was taken at, which tells late writers whether
+ * their transaction made it into the snapshot.
+ *
+ * If quantiles are kept, every slot also has the bins of a {@link QuantileSketch}, which are written and read within
+ * the same begun/completed brackets as the other cells.
+ *
+ * Amounts are either kept as doubles or, with {@link AmountMode#FIXED_POINT}, as longs in minor units, which are
+ * summed up exactly with a single atomic add instead of a CAS loop.
+ */
+public class StatisticsRing {
+
+    // Every slot uses 8 longs, which is roughly one cache line, so writers of different buckets don't interfere
+    private static final int STRIDE = 8;
+
+    private static final int TAG = 0;
+    private static final int BEGUN = 1;
+    private static final int COMPLETED = 2;
+    private static final int COUNT = 3;
+    private static final int SUM = 4;
+    private static final int MIN = 5;
+    private static final int MAX = 6;
+    private static final int LAST_TIMESTAMP = 7;
+
+    // Tag of a slot which is currently reset for a newer bucket
+    private static final long RESETTING = Long.MIN_VALUE;
+
+    // Tag of a slot which never held any bucket
+    private static final long EMPTY = Long.MIN_VALUE + 1;
+
+    // Commit sequence of a slot, while its snapshot is being taken
+    private static final long COMMITTING = -1;
+
+    /**
+     * Returned by {@link StatisticsRing#add(long, long, double)}, if the transaction couldn't be added
+     */
+    public static final long REJECTED = 0;
+
+    private final int slots;
+
+    // Minor units per unit of an amount, or 0 if amounts are kept as doubles
+    private final long unitScale;
+
+    // Encoded min and max of an empty slot
+    private final long noMin;
+    private final long noMax;
+
+    private final AtomicLongArray cells;
+
+    // The last committed bucket of each slot and the write sequence number its snapshot was taken at
+    private final AtomicLongArray commitBuckets;
+    private final AtomicLongArray commitSequences;
+
+    // The sketch bins of every slot, null if no quantiles are kept
+    private final AtomicLongArray sketches;
+
+    // The lowest and highest sketch bin of every slot, which may be non-empty
+    private final AtomicLongArray sketchRanges;
+
+    // The number of CAS operations on the cells of a slot, which had to be retried for a concurrent write
+    private final LongAdder contendedWrites = new LongAdder();
+
+    public StatisticsRing(int slots) {
+        this(slots, false);
+    }
+
+    /**
+     * @param slots the number of buckets the ring can hold
+     * @param quantiles whether a quantile sketch is kept for every bucket
+     */
+    public StatisticsRing(int slots, boolean quantiles) {
+        this(slots, quantiles, 0);
+    }
+
+    /**
+     * @param slots the number of buckets the ring can hold
+     * @param quantiles whether a quantile sketch is kept for every bucket
+     * @param unitScale the number of minor units per unit (e.g. 100 for cents) to keep amounts as fixed point longs,
+     *                  or 0 to keep them as doubles
+     */
+    public StatisticsRing(int slots, boolean quantiles, long unitScale) {
+        this.slots = slots;
+        this.unitScale = unitScale;
+        noMin = unitScale > 0 ? Long.MAX_VALUE : Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        noMax = unitScale > 0 ? Long.MIN_VALUE : Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY);
+        cells = new AtomicLongArray(slots * STRIDE);
+        commitBuckets = new AtomicLongArray(slots);
+        commitSequences = new AtomicLongArray(slots);
+        sketches = quantiles ? new AtomicLongArray(slots * QuantileSketch.SIZE) : null;
+        sketchRanges = quantiles ? new AtomicLongArray(slots * 2) : null;
+        for (int slot = 0; slot < slots; slot++) {
+            cells.set(slot * STRIDE + TAG, EMPTY);
+            commitBuckets.set(slot, EMPTY);
+            if (quantiles) {
+                sketchRanges.set(slot * 2, QuantileSketch.SIZE);
+                sketchRanges.set(slot * 2 + 1, -1);
+            }
+        }
+    }
+
+    /**
+     * Adds a transaction to the slot of the given bucket, taking the slot over if it still holds an older bucket
+     * @param bucket the index of the bucket the transaction belongs to
+     * @param timestamp the timestamp of the transaction
+     * @param amount the amount of the transaction
+     * @return the ticket of the write or {@link StatisticsRing#REJECTED} if the slot is already used by a newer bucket
+     */
+    public long add(long bucket, long timestamp, double amount) {
+        return write(bucket, 1, amount, amount, amount, timestamp, null,
+                sketches == null ? -1 : QuantileSketch.index(amount));
+    }
+
+    /**
+     * Adds the statistics of several transactions to the slot of the given bucket in a single write
+     * @param bucket the index of the bucket the transactions belong to
+     * @param statistics the statistics of the transactions, which must not be empty
+     * @return the ticket of the write or {@link StatisticsRing#REJECTED} if the slot is already used by a newer bucket
+     */
+    public long merge(long bucket, Statistics statistics) {
+        return write(bucket, statistics.getCount(), statistics.getSum(), statistics.getMin(), statistics.getMax(),
+                statistics.getLastTimestamp(), statistics.getSketch(), -1);
+    }
+
+    /**
+     * Sums up the statistics of all buckets in the given range, which are still held by the ring
+     * @param fromBucket the first bucket to include
+     * @param toBucket the last bucket to include
+     * @return the total statistics of the given buckets
+     */
+    public Statistics aggregate(long fromBucket, long toBucket) {
+        long count = 0;
+        long fixedSum = 0;
+        double sum = 0;
+        double compensation = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        long lastTimestamp = 0;
+        final QuantileSketch sketch = sketches == null ? null : new QuantileSketch();
+        final QuantileSketch slotSketch = sketches == null ? null : new QuantileSketch();
+
+        for (long bucket = Long.max(fromBucket, toBucket - slots + 1); bucket <= toBucket; bucket++) {
+            final int slot = slot(bucket);
+            final int base = slot * STRIDE;
+
+            while (true) {
+                final long tag = cells.get(base + TAG);
+                if (tag != bucket) {
+                    break;
+                }
+
+                final long completed = cells.get(base + COMPLETED);
+                final long begun = cells.get(base + BEGUN);
+                if (begun != completed) {
+                    continue;
+                }
+
+                final long slotCount = cells.get(base + COUNT);
+                final long slotSum = cells.get(base + SUM);
+                final double slotMin = decode(cells.get(base + MIN));
+                final double slotMax = decode(cells.get(base + MAX));
+                final long slotLastTimestamp = cells.get(base + LAST_TIMESTAMP);
+                if (slotSketch != null) {
+                    slotSketch.clear();
+                    readSketch(slot, slotSketch);
+                }
+
+                if (cells.get(base + BEGUN) == begun && cells.get(base + TAG) == tag) {
+                    if (slotCount > 0) {
+                        count += slotCount;
+                        if (unitScale > 0) {
+                            fixedSum += slotSum;
+                        } else {
+                            final double value = Double.longBitsToDouble(slotSum);
+                            final double newSum = sum + value;
+                            compensation += Summation.roundingError(sum, value, newSum);
+                            sum = newSum;
+                        }
+                        min = Double.min(min, slotMin);
+                        max = Double.max(max, slotMax);
+                        lastTimestamp = Long.max(lastTimestamp, slotLastTimestamp);
+                        if (sketch != null) {
+                            sketch.merge(slotSketch);
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (count == 0) {
+            return new Statistics();
+        }
+
+        final double total = unitScale > 0 ? (double) fixedSum / unitScale : sum + compensation;
+        return new Statistics(max, min, total, count, lastTimestamp, sketch);
+    }
+
+    /**
+     * Reads the number of transactions of a bucket without a consistent snapshot, which is good enough for a gauge
+     * @param bucket the bucket
+     * @return the number of transactions of the bucket or 0 if the ring doesn't hold it
+     */
+    public long getCount(long bucket) {
+        final int base = slot(bucket) * STRIDE;
+        final long count = cells.get(base + COUNT);
+        return cells.get(base + TAG) == bucket ? count : 0;
+    }
+
+    /**
+     * @return the number of CAS operations, which had to be retried because of a concurrent write to the same bucket
+     */
+    public long getContendedWrites() {
+        return contendedWrites.sum();
+    }
+
+    /**
+     * Commits a bucket by taking a consistent snapshot of it
+     * Writes which get added to the bucket afterwards are reported as late by
+     * {@link StatisticsRing#isLate(long, long)}
+     * @param bucket the bucket to commit
+     * @return the statistics of the bucket, which are empty if no transaction was added to it so far
+     */
+    public Statistics commit(long bucket) {
+        final int slot = slot(bucket);
+        final int base = slot * STRIDE;
+        final QuantileSketch sketch = sketches == null ? null : new QuantileSketch();
+
+        commitSequences.set(slot, COMMITTING);
+        commitBuckets.set(slot, bucket);
+
+        while (true) {
+            final long completed = cells.get(base + COMPLETED);
+            final long begun = cells.get(base + BEGUN);
+            final long tag = cells.get(base + TAG);
+            if (begun != completed || tag == RESETTING) {
+                continue;
+            }
+
+            final long count = cells.get(base + COUNT);
+            final double sum = decode(cells.get(base + SUM));
+            final double min = decode(cells.get(base + MIN));
+            final double max = decode(cells.get(base + MAX));
+            final long lastTimestamp = cells.get(base + LAST_TIMESTAMP);
+            if (sketch != null) {
+                sketch.clear();
+                readSketch(slot, sketch);
+            }
+
+            if (cells.get(base + BEGUN) == begun && cells.get(base + TAG) == tag) {
+                commitSequences.set(slot, begun);
+                if (tag != bucket || count == 0) {
+                    return new Statistics();
+                }
+                return new Statistics(max, min, sum, count, lastTimestamp, sketch);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a write was added to its bucket after the bucket got committed
+     * @param bucket the bucket the transaction was added to
+     * @param ticket the ticket returned by {@link StatisticsRing#add(long, long, double)}
+     * @return true if the write is not part of the committed snapshot of the bucket
+     */
+    public boolean isLate(long bucket, long ticket) {
+        final int slot = slot(bucket);
+
+        while (true) {
+            final long sequence = commitSequences.get(slot);
+            if (sequence == COMMITTING) {
+                continue;
+            }
+
+            final long committedBucket = commitBuckets.get(slot);
+            if (commitSequences.get(slot) == sequence) {
+                return committedBucket == bucket && ticket > sequence;
+            }
+        }
+    }
+
+    private long write(final long bucket, final long count, final double sum, final double min, final double max,
+            final long lastTimestamp, final QuantileSketch sketch, final int sketchIndex) {
+        final int slot = slot(bucket);
+        final int base = slot * STRIDE;
+
+        while (true) {
+            final long ticket = cells.incrementAndGet(base + BEGUN);
+            final long tag = cells.get(base + TAG);
+
+            if (tag == bucket) {
+                cells.addAndGet(base + COUNT, count);
+                if (unitScale > 0) {
+                    cells.addAndGet(base + SUM, encode(sum));
+                    minLong(cells, base + MIN, encode(min));
+                    maxLong(cells, base + MAX, encode(max));
+                } else {
+                    addDouble(base + SUM, sum);
+                    minDouble(base + MIN, min);
+                    maxDouble(base + MAX, max);
+                }
+                maxLong(cells, base + LAST_TIMESTAMP, lastTimestamp);
+                if (sketches != null) {
+                    writeSketch(slot, sketch, sketchIndex);
+                }
+                cells.incrementAndGet(base + COMPLETED);
+                return ticket;
+            }
+
+            cells.incrementAndGet(base + COMPLETED);
+
+            if (tag != RESETTING) {
+                if (tag > bucket) {
+                    return REJECTED;
+                }
+                claim(slot, tag, bucket);
+            }
+        }
+    }
+
+    // Resets the slot for a newer bucket, waiting only for writes to the expired bucket which are still in flight
+    private void claim(final int slot, final long expiredTag, final long bucket) {
+        final int base = slot * STRIDE;
+        if (!cells.compareAndSet(base + TAG, expiredTag, RESETTING)) {
+            return;
+        }
+
+        long completed;
+        do {
+            completed = cells.get(base + COMPLETED);
+        } while (cells.get(base + BEGUN) != completed);
+
+        cells.set(base + COUNT, 0);
+        cells.set(base + SUM, 0);
+        cells.set(base + MIN, noMin);
+        cells.set(base + MAX, noMax);
+        cells.set(base + LAST_TIMESTAMP, 0);
+        if (sketches != null) {
+            clearSketch(slot);
+        }
+        cells.set(base + TAG, bucket);
+    }
+
+    private void writeSketch(final int slot, final QuantileSketch sketch, final int sketchIndex) {
+        final int base = slot * QuantileSketch.SIZE;
+
+        if (sketchIndex >= 0) {
+            widenSketchRange(slot, sketchIndex, sketchIndex);
+            sketches.incrementAndGet(base + sketchIndex);
+        }
+
+        if (sketch != null && sketch.getCount() > 0) {
+            widenSketchRange(slot, sketch.getLowIndex(), sketch.getHighIndex());
+            for (int i = sketch.getLowIndex(); i <= sketch.getHighIndex(); i++) {
+                final long binCount = sketch.getBinCount(i);
+                if (binCount != 0) {
+                    sketches.addAndGet(base + i, binCount);
+                }
+            }
+        }
+    }
+
+    private void readSketch(final int slot, final QuantileSketch target) {
+        final int base = slot * QuantileSketch.SIZE;
+        final int high = (int) sketchRanges.get(slot * 2 + 1);
+
+        for (int i = (int) sketchRanges.get(slot * 2); i <= high; i++) {
+            final long binCount = sketches.get(base + i);
+            if (binCount != 0) {
+                target.add(i, binCount);
+            }
+        }
+    }
+
+    private void clearSketch(final int slot) {
+        final int base = slot * QuantileSketch.SIZE;
+        final int high = (int) sketchRanges.get(slot * 2 + 1);
+
+        for (int i = (int) sketchRanges.get(slot * 2); i <= high; i++) {
+            sketches.set(base + i, 0);
+        }
+        sketchRanges.set(slot * 2, QuantileSketch.SIZE);
+        sketchRanges.set(slot * 2 + 1, -1);
+    }
+
+    private void widenSketchRange(final int slot, final int low, final int high) {
+        minLong(sketchRanges, slot * 2, low);
+        maxLong(sketchRanges, slot * 2 + 1, high);
+    }
+
+    // Only used with fixed point amounts, doubles are CAS-ed as their raw bits
+    private long encode(final double amount) {
+        return Math.round(amount * unitScale);
+    }
+
+    private double decode(final long cell) {
+        return unitScale > 0 ? (double) cell / unitScale : Double.longBitsToDouble(cell);
+    }
+
+    private void addDouble(final int index, final double value) {
+        long current = cells.get(index);
+        while (!cells.compareAndSet(index, current,
+                Double.doubleToRawLongBits(Double.longBitsToDouble(current) + value))) {
+            contendedWrites.increment();
+            current = cells.get(index);
+        }
+    }
+
+    private void minDouble(final int index, final double value) {
+        final long update = Double.doubleToRawLongBits(value);
+        long current = cells.get(index);
+        while (value < Double.longBitsToDouble(current) && !cells.compareAndSet(index, current, update)) {
+            contendedWrites.increment();
+            current = cells.get(index);
+        }
+    }
+
+    private void maxDouble(final int index, final double value) {
+        final long update = Double.doubleToRawLongBits(value);
+        long current = cells.get(index);
+        while (value > Double.longBitsToDouble(current) && !cells.compareAndSet(index, current, update)) {
+            contendedWrites.increment();
+            current = cells.get(index);
+        }
+    }
+
+    private void minLong(final AtomicLongArray array, final int index, final long value) {
+        long current = array.get(index);
+        while (value < current && !array.compareAndSet(index, current, value)) {
+            contendedWrites.increment();
+            current = array.get(index);
+        }
+    }
+
+    private void maxLong(final AtomicLongArray array, final int index, final long value) {
+        long current = array.get(index);
+        while (value > current && !array.compareAndSet(index, current, value)) {
+            contendedWrites.increment();
+            current = array.get(index);
+        }
+    }
+
+    private int slot(final long bucket) {
+        return (int) Math.floorMod(bucket, (long) slots);
+    }
+}
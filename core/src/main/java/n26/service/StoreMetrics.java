@@ -0,0 +1,98 @@
+package n26.service;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of a store, which are written in the Prometheus text format when scraped
+ *
+ * Recording only adds to LongAdders, so it neither allocates nor contends; gauges like the number of live buckets are
+ * read from the store at scrape time.
+ */
+public class StoreMetrics implements StoreProbe {
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedFuture = new LongAdder();
+    private final LongAdder rejectedStale = new LongAdder();
+    private final LongAdder rejectedDuplicate = new LongAdder();
+    private final LongAdder committedBuckets = new LongAdder();
+
+    private final LatencyHistogram rolloverLag = new LatencyHistogram();
+    private final LatencyHistogram ingestLatency = new LatencyHistogram();
+    private final LatencyHistogram queryLatency = new LatencyHistogram();
+
+    @Override
+    public void accepted(int transactions) {
+        accepted.add(transactions);
+    }
+
+    @Override
+    public void rejected(Rejection reason, int transactions) {
+        switch (reason) {
+            case FUTURE:
+                rejectedFuture.add(transactions);
+                break;
+            case STALE:
+                rejectedStale.add(transactions);
+                break;
+            default:
+                rejectedDuplicate.add(transactions);
+        }
+    }
+
+    @Override
+    public void committed(int buckets, long lagMs) {
+        committedBuckets.add(buckets);
+        rolloverLag.recordMillis(lagMs);
+    }
+
+    @Override
+    public void ingested(long nanos) {
+        ingestLatency.record(nanos);
+    }
+
+    @Override
+    public void queried(long nanos) {
+        queryLatency.record(nanos);
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text format
+     * @param transactionStore the store, whose gauges are read
+     * @param now the time of the scrape
+     * @return the metrics
+     */
+    public String scrape(TransactionStore transactionStore, Instant now) {
+        final StringBuilder out = new StringBuilder(4096);
+
+        out.append("# HELP n26_transactions_accepted_total Transactions added to the statistics\n")
+                .append("# TYPE n26_transactions_accepted_total counter\n")
+                .append("n26_transactions_accepted_total ").append(accepted.sum()).append('\n');
+        out.append("# HELP n26_transactions_rejected_total Transactions not counted, by reason\n")
+                .append("# TYPE n26_transactions_rejected_total counter\n")
+                .append("n26_transactions_rejected_total{reason=\"future\"} ").append(rejectedFuture.sum())
+                .append('\n')
+                .append("n26_transactions_rejected_total{reason=\"stale\"} ").append(rejectedStale.sum())
+                .append('\n')
+                .append("n26_transactions_rejected_total{reason=\"duplicate\"} ").append(rejectedDuplicate.sum())
+                .append('\n');
+        out.append("# HELP n26_buckets_committed_total Buckets committed to the statistics window\n")
+                .append("# TYPE n26_buckets_committed_total counter\n")
+                .append("n26_buckets_committed_total ").append(committedBuckets.sum()).append('\n');
+        out.append("# HELP n26_bucket_contended_writes_total Retried CAS operations on the cells of a bucket\n")
+                .append("# TYPE n26_bucket_contended_writes_total counter\n")
+                .append("n26_bucket_contended_writes_total ").append(transactionStore.getContendedWrites())
+                .append('\n');
+        out.append("# HELP n26_buckets_live Buckets of the statistics window with at least one transaction\n")
+                .append("# TYPE n26_buckets_live gauge\n")
+                .append("n26_buckets_live ").append(transactionStore.getLiveBuckets(now)).append('\n');
+        out.append("# HELP n26_history_bytes Compressed size of the statistics history\n")
+                .append("# TYPE n26_history_bytes gauge\n")
+                .append("n26_history_bytes ").append(transactionStore.getHistoryBytes()).append('\n');
+
+        rolloverLag.writeTo("n26_rollover_lag_seconds", "Time from the end of a bucket until it got committed", out);
+        ingestLatency.writeTo("n26_ingest_latency_seconds", "Time to receive and add transactions", out);
+        queryLatency.writeTo("n26_query_latency_seconds", "Time to answer a request for statistics", out);
+        return out.toString();
+    }
+}
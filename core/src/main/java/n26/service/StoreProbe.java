@@ -0,0 +1,52 @@
+package n26.service;
+
+/**
+ * Receives the events of a {@link TransactionStore} and its front ends, which are worth measuring
+ *
+ * The methods are called on the hot paths, so implementations must neither block nor allocate.
+ */
+public interface StoreProbe {
+
+    /**
+     * Ignores all events
+     */
+    StoreProbe NONE = new StoreProbe() {
+    };
+
+    /**
+     * Why a transaction didn't make it into the statistics
+     */
+    enum Rejection {
+        // The timestamp is in the future
+        FUTURE,
+        // The timestamp is older than the statistics window
+        STALE,
+        // The idempotency key was already seen in the bucket of the timestamp
+        DUPLICATE
+    }
+
+    default void accepted(int transactions) {
+    }
+
+    default void rejected(Rejection reason, int transactions) {
+    }
+
+    /**
+     * @param buckets the number of buckets committed at once
+     * @param lagMs how long after the end of the newest of them they got committed
+     */
+    default void committed(int buckets, long lagMs) {
+    }
+
+    /**
+     * @param nanos how long it took to receive and add a transaction or a batch of transactions
+     */
+    default void ingested(long nanos) {
+    }
+
+    /**
+     * @param nanos how long it took to answer a request for statistics
+     */
+    default void queried(long nanos) {
+    }
+}
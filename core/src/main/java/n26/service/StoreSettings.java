@@ -0,0 +1,83 @@
+package n26.service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Settings of a {@link TransactionStore}
+ */
+@Getter
+@Builder(toBuilder = true)
+public class StoreSettings {
+
+    // How the statistics of the window are computed
+    @Builder.Default
+    private final AggregationMode aggregation = AggregationMode.SCAN;
+
+    // The size of a bucket, the window must consist of whole buckets
+    @Builder.Default
+    private final long bucketSizeMs = 1000;
+
+    // The length of the statistics window, which is also the maximum age of accepted transactions
+    @Builder.Default
+    private final int windowSeconds = 60;
+
+    // Further windows, which can be requested in addition to the statistics window
+    @Builder.Default
+    private final List<Duration> windows = Collections.emptyList();
+
+    // Whether quantiles of the amounts are kept, which costs a fixed size sketch per bucket
+    @Builder.Default
+    private final boolean quantiles = false;
+
+    // Whether the statistics window comes with the rates of transactions and amount and their moving averages
+    @Builder.Default
+    private final boolean rates = false;
+
+    // How the amounts of the buckets are stored
+    @Builder.Default
+    private final AmountMode amounts = AmountMode.DOUBLE;
+
+    // The number of decimal places kept with fixed point amounts, e.g. 2 for cents
+    @Builder.Default
+    private final int amountDecimals = 2;
+
+    // Dimensions of the transactions, for which statistics are kept per key
+    @Builder.Default
+    private final List<String> dimensions = Collections.emptyList();
+
+    // The memory of each dimension for tracking keys exactly
+    @Builder.Default
+    private final long dimensionMemoryBytes = 16L * 1024 * 1024;
+
+    // The number of further keys of each dimension, which are monitored once the memory for exact keys is used up
+    @Builder.Default
+    private final int dimensionOverflowKeys = 64;
+
+    // The number of idempotency keys each bucket is expected to get at most, 0 to ignore the keys
+    @Builder.Default
+    private final int idempotencyKeysPerBucket = 0;
+
+    // Receives the accepted and rejected transactions and the commits of the store
+    @Builder.Default
+    private final StoreProbe probe = StoreProbe.NONE;
+
+    // The tiers of the history of the buckets leaving the statistics window, none to keep no history
+    @Builder.Default
+    private final List<RetentionTier> history = Collections.emptyList();
+
+    // The minimum time between two log entries about rejected transactions
+    @Builder.Default
+    private final long rejectionLogIntervalMs = 1000;
+
+    // How far ahead of the clock a timestamp may be, at least the resolution of a coarse clock lagging behind
+    @Builder.Default
+    private final long futureToleranceMs = 0;
+
+    public static StoreSettings defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,221 @@
+package n26.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+import lombok.extern.java.Log;
+import n26.model.IngestUnavailableException;
+import n26.model.InvalidTenantException;
+import n26.model.Statistics;
+import n26.model.Transaction;
+
+/**
+ * A store per tenant, which is created with the first transaction of the tenant and dropped once its window is empty
+ *
+ * Tenant stores only keep the bucket ring of the statistics window, without further windows, dimensions, history or
+ * journal, so an active tenant costs a fixed few kilobytes and an idle one nothing at all. Statistics of a tenant
+ * without a store are empty, so reading doesn't create stores.
+ */
+@Log
+public class TenantRegistry implements AutoCloseable {
+
+    private static final Pattern TENANT_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    // Creates the store of a new tenant
+    private final Supplier<TransactionStore> storeFactory;
+
+    private final Clock clock;
+
+    private final int maxTenants;
+
+    // Drops the idle tenants, null unless started
+    private ScheduledExecutorService evictor;
+
+    /**
+     * @param storeFactory creates the store of a new tenant
+     * @param clock the clock used to retrieve the current time
+     * @param maxTenants the maximum number of tenants with a store at the same time
+     */
+    public TenantRegistry(Supplier<TransactionStore> storeFactory, Clock clock, int maxTenants) {
+        this.storeFactory = storeFactory;
+        this.clock = clock;
+        this.maxTenants = maxTenants;
+    }
+
+    /**
+     * Starts dropping the idle tenants periodically
+     * @param intervalMs the time between two rounds
+     */
+    public synchronized void start(long intervalMs) {
+        if (evictor != null) {
+            return;
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "tenant-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds a transaction to the store of a tenant, which is created if the tenant has none
+     * @param tenantId the tenant
+     * @param transaction the transaction, whose dimensions are ignored
+     * @return the result of {@link TransactionStore#tryAddTransaction(long, double)}
+     * @throws InvalidTenantException if the tenant id is malformed
+     * @throws IngestUnavailableException if the tenant has no store and the registry is full
+     */
+    public int addTransaction(String tenantId, Transaction transaction) {
+        return addTransaction(tenantId, transaction.getTimestamp(), transaction.getAmount());
+    }
+
+    /**
+     * Adds a transaction to the store of a tenant, which is created if the tenant has none
+     * @param tenantId the tenant
+     * @param timestamp the timestamp of the transaction
+     * @param amount the amount of the transaction
+     * @return the result of {@link TransactionStore#tryAddTransaction(long, double)}
+     * @throws InvalidTenantException if the tenant id is malformed
+     * @throws IngestUnavailableException if the tenant has no store and the registry is full
+     */
+    public int addTransaction(String tenantId, long timestamp, double amount) {
+        while (true) {
+            final Tenant tenant = getOrCreate(tenantId);
+            if (!tenant.enter()) {
+                // The evictor is deciding about the tenant, it either drops it or opens it again right away
+                Thread.yield();
+                continue;
+            }
+            try {
+                return tenant.store.tryAddTransaction(timestamp, amount);
+            } finally {
+                tenant.exit();
+            }
+        }
+    }
+
+    /**
+     * @param tenantId the tenant
+     * @param now the time when the statistics got requested
+     * @return the statistics of the tenant, which are empty if the tenant has no store
+     * @throws InvalidTenantException if the tenant id is malformed
+     */
+    public Statistics getStatistics(String tenantId, Instant now) {
+        final Tenant tenant = tenants.get(validate(tenantId));
+        return tenant == null ? new Statistics() : tenant.store.getStatistics(now);
+    }
+
+    /**
+     * @return the number of tenants with a store
+     */
+    public int getTenants() {
+        return tenants.size();
+    }
+
+    /**
+     * Drops the stores of all tenants, whose statistics window and current bucket are empty
+     * A transaction arriving meanwhile either keeps the store or goes to a new one
+     * @return the number of dropped tenants
+     */
+    public int evictIdle() {
+        final Instant now = Instant.now(clock);
+        int evicted = 0;
+        for (final Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+            final Tenant tenant = entry.getValue();
+            if (tenant.store.isIdle(now) && tenant.close()) {
+                // A transaction might have been added before closing, closing only stops the ones after
+                if (tenant.store.isIdle(now)) {
+                    tenants.remove(entry.getKey(), tenant);
+                    evicted++;
+                } else {
+                    tenant.reopen();
+                }
+            }
+        }
+        if (evicted > 0 && log.isLoggable(Level.FINE)) {
+            log.fine("Evicted " + evicted + " idle tenants, " + tenants.size() + " remaining");
+        }
+        return evicted;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+    }
+
+    private Tenant getOrCreate(final String tenantId) {
+        final Tenant tenant = tenants.get(validate(tenantId));
+        if (tenant != null) {
+            return tenant;
+        }
+        if (tenants.size() >= maxTenants) {
+            throw new IngestUnavailableException("The limit of " + maxTenants + " tenants is reached.", true);
+        }
+        return tenants.computeIfAbsent(tenantId, id -> new Tenant(storeFactory.get()));
+    }
+
+    private static String validate(final String tenantId) {
+        if (tenantId == null || !TENANT_PATTERN.matcher(tenantId).matches()) {
+            throw new InvalidTenantException("Tenant '" + tenantId + "' is not 1 to 64 letters, digits, '.', '_' "
+                    + "or '-'.");
+        }
+        return tenantId;
+    }
+
+    /**
+     * The store of a tenant with the number of writers currently adding to it
+     */
+    private static final class Tenant {
+
+        // Set instead of the number of writers once the tenant is closed for eviction
+        private static final int CLOSED = -1;
+
+        private final TransactionStore store;
+
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private Tenant(final TransactionStore store) {
+            this.store = store;
+        }
+
+        // Registers a writer, unless the tenant is closed
+        private boolean enter() {
+            while (true) {
+                final int current = writers.get();
+                if (current == CLOSED) {
+                    return false;
+                }
+                if (writers.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void exit() {
+            writers.decrementAndGet();
+        }
+
+        // Closes the tenant, if no writer is adding to it
+        private boolean close() {
+            return writers.compareAndSet(0, CLOSED);
+        }
+
+        private void reopen() {
+            writers.set(0);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package n26.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.java.Log;
+
+/**
+ * A write-ahead log of accepted transactions in memory mapped segment files
+ *
+ * Every segment takes the transactions arriving during a fixed span of time. Appending is a lock-free write into the
+ * mapped file; a background thread forces all segments with new records to the disk in a fixed interval, so all
+ * transactions arriving in between share a single flush (group commit). Segments are kept as long as they may contain
+ * transactions of the statistics window, afterwards they are cleared and reused for new transactions instead of being
+ * deleted. The same background thread clears the next segment ahead of time, so replacing the active segment only
+ * swaps it for the cleared one; if none is ready in time, a new file is taken, which is empty already.
+ */
+@Log
+public class TransactionJournal implements AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    // Keeps the offsets of all records within an int
+    private static final int MAX_SEGMENT_RECORDS = (Integer.MAX_VALUE - 16) / JournalSegment.RECORD_SIZE;
+
+    /**
+     * Receives the records of the journal when it gets replayed
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(long timestamp, double amount);
+    }
+
+    private final Path directory;
+
+    private final long segmentSpanMs;
+
+    private final int segmentRecords;
+
+    // How long transactions are needed after they arrived, i.e. the length of the statistics window
+    private final long retentionMs;
+
+    private final List<JournalSegment> segments = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService flusher;
+
+    // The segment new transactions are appended to, null until the first transaction arrives
+    private volatile JournalSegment active;
+
+    // A cleared segment, which replaces the active one next, null until the flusher prepared one
+    private volatile JournalSegment standby;
+
+    // When the active segment got replaced last, which tells the flusher the segments expired by now
+    private volatile long rolledAtMs = JournalSegment.UNUSED;
+
+    // Guards preparing the standby segment, which is done by the flusher and by explicit flushes
+    private final Object prepareLock = new Object();
+
+    /**
+     * Opens the journal in the given directory, keeping all existing segments for replay
+     * @param directory the directory of the segment files, which is created if necessary
+     * @param segmentSpanMs the time span of the transactions arriving in one segment
+     * @param segmentRecords the maximum number of records of one segment, a full segment is replaced early
+     * @param retentionMs how long the transactions are needed after they arrived
+     * @param flushIntervalMs the interval of the group commit
+     */
+    public TransactionJournal(Path directory, long segmentSpanMs, int segmentRecords, long retentionMs,
+            long flushIntervalMs) {
+        if (segmentSpanMs <= 0 || segmentRecords <= 0 || segmentRecords > MAX_SEGMENT_RECORDS || flushIntervalMs <= 0) {
+            throw new IllegalArgumentException("Journal segments need a positive span of time, between 1 and "
+                    + MAX_SEGMENT_RECORDS + " records and a positive flush interval.");
+        }
+
+        this.directory = directory;
+        this.segmentSpanMs = segmentSpanMs;
+        this.segmentRecords = segmentRecords;
+        this.retentionMs = retentionMs;
+
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                    SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                for (final Path file : files) {
+                    segments.add(new JournalSegment(file, segmentRecords));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal in " + directory, e);
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends a transaction to the journal
+     * The transaction is written to the disk with the next group commit
+     * @param timestamp the timestamp of the transaction
+     * @param amount the amount of the transaction
+     * @param nowMs the current time, which determines the segment of the transaction
+     */
+    public void append(long timestamp, double amount, long nowMs) {
+        JournalSegment segment = active;
+        while (segment == null || nowMs >= segment.getStartMs() + segmentSpanMs || !segment.append(timestamp, amount)) {
+            segment = roll(segment, nowMs);
+        }
+    }
+
+    /**
+     * Passes all journaled transactions, which arrived after the given time, to the consumer
+     * Whole segments are replayed, so the consumer may also get some transactions which arrived before
+     * @param fromMs the earliest arrival time of the transactions needed
+     * @param consumer the consumer of the transactions
+     * @return the number of replayed transactions
+     */
+    public long replay(long fromMs, RecordConsumer consumer) {
+        final List<JournalSegment> replayed = new ArrayList<>();
+        for (final JournalSegment segment : segments) {
+            if (segment.getStartMs() != JournalSegment.UNUSED && segment.getStartMs() + segmentSpanMs > fromMs) {
+                replayed.add(segment);
+            }
+        }
+        replayed.sort(Comparator.comparingLong(JournalSegment::getStartMs));
+
+        long records = 0;
+        for (final JournalSegment segment : replayed) {
+            records += segment.replay(consumer);
+        }
+        return records;
+    }
+
+    /**
+     * Writes all appended transactions to the disk and prepares the segment, which replaces the active one next
+     */
+    public void flush() {
+        flushSegments();
+        prepareStandby();
+    }
+
+    /**
+     * @return the number of segment files of the journal
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flushSegments();
+    }
+
+    private void flushSegments() {
+        for (final JournalSegment segment : segments) {
+            segment.flush();
+        }
+    }
+
+    // Replaces the active segment with the standby or a new one, unless another writer did so already
+    // Runs on the ingest path, so it neither clears nor forces anything
+    private synchronized JournalSegment roll(final JournalSegment full, final long nowMs) {
+        if (active != full) {
+            return active;
+        }
+
+        // The standby is started and active before it's taken, so the flusher never prepares it again
+        JournalSegment next = standby;
+        if (next != null) {
+            next.start(nowMs);
+        } else {
+            next = createSegment(nowMs);
+        }
+        active = next;
+        standby = null;
+        rolledAtMs = nowMs;
+        return next;
+    }
+
+    // Clears an unused or expired segment for the next roll, unless there is a standby already
+    private void prepareStandby() {
+        synchronized (prepareLock) {
+            if (standby != null) {
+                return;
+            }
+
+            final long nowMs = rolledAtMs;
+            JournalSegment next = null;
+            for (final JournalSegment segment : segments) {
+                final long startMs = segment.getStartMs();
+                if (segment != active && (startMs == JournalSegment.UNUSED
+                        || (nowMs != JournalSegment.UNUSED && startMs + segmentSpanMs + retentionMs <= nowMs))) {
+                    next = segment;
+                    if (segment.isCleared()) {
+                        break;
+                    }
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            if (!next.isCleared()) {
+                next.clear();
+            }
+            standby = next;
+        }
+    }
+
+    // A new segment file, which is all zero already, started before the flusher can see it
+    private JournalSegment createSegment(final long nowMs) {
+        int number = segments.size();
+        while (Files.exists(segmentPath(number))) {
+            number++;
+        }
+        final JournalSegment segment = new JournalSegment(segmentPath(number), segmentRecords);
+        segment.start(nowMs);
+        segments.add(segment);
+        log.fine(() -> "Created journal segment " + segment.getPath());
+        return segment;
+    }
+
+    private Path segmentPath(final int number) {
+        return directory.resolve(String.format("%s%04d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,911 @@
+package n26.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.java.Log;
+import n26.model.BucketSnapshot;
+import n26.model.InvalidDimensionException;
+import n26.model.InvalidTimestampException;
+import n26.model.InvalidWindowException;
+import n26.model.KeyStatistics;
+import n26.model.Statistics;
+import n26.model.Transaction;
+
+@Log
+public class TransactionStore {
+
+    // Results of adding a transaction, returned instead of throwing so rejections stay as cheap as acceptances
+    public static final int ACCEPTED = 0;
+    public static final int REJECTED_FUTURE = 1;
+    public static final int REJECTED_STALE = 2;
+    // The idempotency key was already seen, the transaction counts once and a retry is answered like the original
+    public static final int DUPLICATE = 3;
+
+    // Number of buckets each further window is divided into, if it is longer than the statistics window
+    private static final int ROLLUP_BUCKETS = 60;
+
+    // Keeps sums of fixed point amounts within a long up to 9 billion units
+    private static final int MAX_AMOUNT_DECIMALS = 9;
+
+    // Keeps the filter of a bucket within an array of 2^30 longs
+    private static final int MAX_KEYS_PER_BUCKET = 1 << 30;
+
+    private final long bucketSizeMs;
+    private final int statisticsWindowSeconds;
+    private final int statisticsWindowBuckets;
+
+    // How far ahead of the clock a timestamp may be, before it is rejected as from the future
+    private final long futureToleranceMs;
+
+    // Whether a quantile sketch of the amounts is kept for every bucket
+    private final boolean quantiles;
+
+    // Keeping statistics separate for each bucket
+    // Bucket sizes are defined in MS by {@link TransactionStore#bucketSizeMs}
+    // The ring holds one slot for every bucket of the statistics window, one for the current bucket, which is still
+    // being filled and not yet part of the statistics, and one for the bucket which just left the window until it got
+    // rolled up into the further windows
+    private final StatisticsRing ring;
+
+    // The clock used to retrieve the current time
+    private final Clock clock;
+
+    // Running statistics of the committed buckets, only used with {@link AggregationMode#INCREMENTAL}
+    private final WindowAggregate aggregate;
+
+    // Further windows shorter than the statistics window, which are summed up from the ring
+    private final List<Duration> shortWindows;
+
+    // Further windows longer than the statistics window, which are fed by the buckets leaving the statistics window
+    private final List<RollupWindow> rollupWindows;
+
+    // Statistics of the buckets which left the statistics window in coarser tiers, null if no history is kept
+    private final StatisticsHistory history;
+
+    // The rates of the committed buckets, null if rates aren't kept
+    private final RateTracker rates;
+
+    // The idempotency keys of the buckets accepting transactions, null if the keys are ignored
+    private final DuplicateFilter duplicates;
+
+    // Guards committing buckets and reading the further windows and the history
+    private final Object commitLock = new Object();
+
+    // The index of the newest bucket, which is not current anymore
+    private volatile long committedBucketIndex;
+
+    // When the store got created, buckets before weren't waiting for a commit
+    private final long startedAtMs;
+
+    // Counts the changes of the statistics window: every commit and every transaction added to a committed bucket
+    private final LongAdder statisticsVersion = new LongAdder();
+
+    // Write-ahead log of the accepted transactions, null if the statistics aren't durable
+    private final TransactionJournal journal;
+
+    // Statistics per key of every configured dimension
+    private final Map<String, DimensionStatistics> dimensions;
+
+    // Receives the accepted and rejected transactions and the commits
+    private final StoreProbe probe;
+
+    // Logs the rejected transactions at most once per interval
+    private final RejectionLog rejectionLog;
+
+    // Called after every given number of accepted transactions, null if nobody listens
+    private volatile TransactionListener transactionListener;
+
+    public TransactionStore() {
+        this(Clock.systemUTC());
+    }
+
+    public TransactionStore(Clock clock) {
+        this(clock, AggregationMode.SCAN);
+    }
+
+    public TransactionStore(Clock clock, AggregationMode aggregationMode) {
+        this(clock, StoreSettings.builder().aggregation(aggregationMode).build());
+    }
+
+    public TransactionStore(Clock clock, StoreSettings settings) {
+        this(clock, settings, null);
+    }
+
+    /**
+     * Creates a store, which writes all accepted transactions to the given journal
+     * The transactions of the current window are replayed from the journal right away
+     * @param clock the clock used to retrieve the current time
+     * @param settings the settings of the store
+     * @param journal the journal or null to keep the statistics in memory only
+     */
+    public TransactionStore(Clock clock, StoreSettings settings, TransactionJournal journal) {
+        if (settings.getBucketSizeMs() <= 0 || (settings.getWindowSeconds() * 1000L) % settings.getBucketSizeMs() != 0) {
+            throw new IllegalArgumentException("The statistics window of " + settings.getWindowSeconds()
+                    + " seconds must consist of whole buckets of " + settings.getBucketSizeMs() + " ms.");
+        }
+        if (settings.getAmountDecimals() < 0 || settings.getAmountDecimals() > MAX_AMOUNT_DECIMALS) {
+            throw new IllegalArgumentException("Fixed point amounts can have between 0 and " + MAX_AMOUNT_DECIMALS
+                    + " decimal places.");
+        }
+
+        if (settings.getFutureToleranceMs() < 0) {
+            throw new IllegalArgumentException("The future tolerance must not be negative.");
+        }
+
+        this.clock = clock;
+        probe = settings.getProbe();
+        futureToleranceMs = settings.getFutureToleranceMs();
+        rejectionLog = new RejectionLog(settings.getRejectionLogIntervalMs());
+        bucketSizeMs = settings.getBucketSizeMs();
+        statisticsWindowSeconds = settings.getWindowSeconds();
+        statisticsWindowBuckets = (int) (statisticsWindowSeconds * 1000L / bucketSizeMs);
+        quantiles = settings.isQuantiles();
+        final long unitScale = settings.getAmounts() == AmountMode.FIXED_POINT
+                ? (long) Math.pow(10, settings.getAmountDecimals()) : 0;
+        ring = new StatisticsRing(statisticsWindowBuckets + 2, quantiles, unitScale);
+
+        // Nothing is committed yet, transactions may still arrive for every bucket of the current window
+        startedAtMs = Instant.now(clock).toEpochMilli();
+        committedBucketIndex = getBucketIndex(startedAtMs) - statisticsWindowBuckets - 1;
+
+        if (settings.getAggregation() == AggregationMode.INCREMENTAL) {
+            aggregate = new WindowAggregate(statisticsWindowBuckets, committedBucketIndex, quantiles);
+        } else {
+            aggregate = null;
+        }
+
+        shortWindows = new ArrayList<>();
+        rollupWindows = new ArrayList<>();
+        final long statisticsWindowMs = statisticsWindowSeconds * 1000L;
+        for (final Duration window : settings.getWindows()) {
+            final long windowMs = window.toMillis();
+            if (windowMs % bucketSizeMs != 0) {
+                throw new IllegalArgumentException("The window " + Windows.format(window)
+                        + " must consist of whole buckets of " + bucketSizeMs + " ms.");
+            }
+
+            if (windowMs < statisticsWindowMs) {
+                shortWindows.add(window);
+            } else if (windowMs > statisticsWindowMs) {
+                final long rollupBucketSizeMs = Long.max(bucketSizeMs,
+                        windowMs / ROLLUP_BUCKETS / bucketSizeMs * bucketSizeMs);
+                rollupWindows.add(new RollupWindow(windowMs, rollupBucketSizeMs, statisticsWindowMs));
+            }
+        }
+
+        for (final RetentionTier tier : settings.getHistory()) {
+            if (tier.getResolution().toMillis() % bucketSizeMs != 0) {
+                throw new IllegalArgumentException("The history resolution " + Windows.format(tier.getResolution())
+                        + " must consist of whole buckets of " + bucketSizeMs + " ms.");
+            }
+        }
+        history = settings.getHistory().isEmpty() ? null : new StatisticsHistory(settings.getHistory());
+        rates = settings.isRates() ? new RateTracker(bucketSizeMs) : null;
+        final int keysPerBucket = settings.getIdempotencyKeysPerBucket();
+        if (keysPerBucket < 0 || keysPerBucket > MAX_KEYS_PER_BUCKET) {
+            throw new IllegalArgumentException("Between 0 and " + MAX_KEYS_PER_BUCKET
+                    + " idempotency keys per bucket can be kept.");
+        }
+        duplicates = keysPerBucket == 0 ? null : new DuplicateFilter(statisticsWindowBuckets + 2, keysPerBucket);
+
+        dimensions = new LinkedHashMap<>();
+        for (final String dimension : settings.getDimensions()) {
+            dimensions.put(dimension, new DimensionStatistics(dimension, settings.getDimensionMemoryBytes(),
+                    statisticsWindowBuckets, settings.getDimensionOverflowKeys()));
+        }
+
+        this.journal = journal;
+        if (journal != null) {
+            replay(journal);
+        }
+    }
+
+    /**
+     * Adds a transaction to the current statistics
+     * This never blocks, concurrent transactions are added to their bucket with CAS operations
+     * @param transaction the transaction to add to the statistics
+     * @throws InvalidTimestampException if transaction is from the future or too old
+     */
+    public void addTransaction(Transaction transaction) {
+        throwIfRejected(tryAddTransaction(transaction), transaction.getTimestamp());
+    }
+
+    /**
+     * Adds a transaction to the current statistics, like {@link #addTransaction(Transaction)} without throwing
+     * A transaction with an idempotency key, which was already seen in the bucket of its timestamp, isn't added again
+     * @param transaction the transaction to add to the statistics
+     * @return {@link #ACCEPTED}, {@link #DUPLICATE}, or {@link #REJECTED_FUTURE} or {@link #REJECTED_STALE} if it
+     *         was rejected
+     */
+    public int tryAddTransaction(Transaction transaction) {
+        final int result = add(transaction.getTimestamp(), transaction.getAmount(), transaction.getIdempotencyKey());
+        if (result == ACCEPTED) {
+            addToDimensions(getBucketIndex(transaction.getTimestamp()), transaction);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a transaction without dimensions to the current statistics
+     * Unlike {@link #addTransaction(Transaction)} this doesn't need a transaction object, an accepted transaction
+     * doesn't allocate anything
+     * @param timestamp the timestamp of the transaction
+     * @param amount the amount of the transaction
+     * @throws InvalidTimestampException if transaction is from the future or too old
+     */
+    public void addTransaction(long timestamp, double amount) {
+        throwIfRejected(add(timestamp, amount, null), timestamp);
+    }
+
+    /**
+     * Adds a transaction without dimensions, like {@link #addTransaction(long, double)} without throwing
+     * Neither an accepted nor a rejected transaction allocates anything
+     * @param timestamp the timestamp of the transaction
+     * @param amount the amount of the transaction
+     * @return {@link #ACCEPTED}, or {@link #REJECTED_FUTURE} or {@link #REJECTED_STALE} if it was rejected
+     */
+    public int tryAddTransaction(long timestamp, double amount) {
+        return add(timestamp, amount, null);
+    }
+
+    // Adds a transaction to its bucket and returns the result
+    private int add(final long timestamp, final double amount, final String idempotencyKey) {
+        final long now = clock.millis();
+        final int result = validateTimestamp(timestamp, now);
+        if (result != ACCEPTED) {
+            return result;
+        }
+
+        final long index = getBucketIndex(timestamp);
+        commitPreviousBuckets(index);
+
+        if (idempotencyKey != null && duplicates != null && !duplicates.add(index, idempotencyKey)) {
+            probe.rejected(StoreProbe.Rejection.DUPLICATE, 1);
+            return DUPLICATE;
+        }
+
+        final long ticket = ring.add(index, timestamp, amount);
+        if (ticket == StatisticsRing.REJECTED) {
+            // The bucket got replaced by a newer one while validating, so the transaction is outdated by now
+            reject(REJECTED_STALE, timestamp, now);
+            return REJECTED_STALE;
+        }
+
+        // Only accepted transactions are journaled, so a replay doesn't count the ones rejected by the ring
+        if (journal != null) {
+            journal.append(timestamp, amount, now);
+        }
+
+        if (aggregate != null) {
+            // Transactions which missed the commit of their bucket are added to the running statistics directly
+            if (ring.isLate(index, ticket)) {
+                aggregate.addLate(index, timestamp, amount);
+            }
+        }
+
+        // Transactions for the current bucket only show up in the statistics with the next commit
+        if (index <= committedBucketIndex) {
+            statisticsVersion.increment();
+        }
+
+        probe.accepted(1);
+        final TransactionListener listener = transactionListener;
+        if (listener != null) {
+            listener.accepted(1);
+        }
+        return ACCEPTED;
+    }
+
+    /**
+     * Adds a chunk of transactions to the current statistics
+     * The transactions are aggregated per bucket first, so every bucket is only updated once for the whole chunk
+     * Transactions from the future or older than the statistics window are skipped instead of failing the whole chunk,
+     * just like the duplicates of transactions with an idempotency key
+     * @param transactions the transactions to add to the statistics
+     * @return the number of transactions which got accepted, including duplicates, which are retries of accepted ones
+     *         and only counted once, just like {@link #tryAddTransaction(Transaction)} answers them
+     */
+    public int addTransactions(List<Transaction> transactions) {
+        final long now = Instant.now(clock).toEpochMilli();
+        commitPreviousBuckets(getBucketIndex(now));
+
+        final Chunk chunk = new Chunk(journal != null ? transactions.size() : 0);
+        int future = 0;
+        int duplicate = 0;
+        for (final Transaction transaction : transactions) {
+            if (!isValidTimestamp(transaction.getTimestamp(), now)) {
+                if (transaction.getTimestamp() > now + futureToleranceMs) {
+                    future++;
+                }
+                continue;
+            }
+            if (transaction.getIdempotencyKey() != null && duplicates != null
+                    && !duplicates.add(getBucketIndex(transaction.getTimestamp()), transaction.getIdempotencyKey())) {
+                duplicate++;
+                continue;
+            }
+
+            chunk.add(transaction.getTimestamp(), transaction.getAmount());
+            addToDimensions(getBucketIndex(transaction.getTimestamp()), transaction);
+        }
+
+        return merge(chunk, transactions.size(), future, duplicate, now);
+    }
+
+    /**
+     * Adds a chunk of transactions without dimensions, given as parallel arrays
+     * Like {@link #addTransactions(List)} every bucket is only updated once for the whole chunk, and transactions
+     * from the future or older than the statistics window are skipped
+     * @param timestamps the timestamps of the transactions
+     * @param amounts the amounts of the transactions
+     * @param count the number of transactions, which are taken from the start of the arrays
+     * @return the number of transactions which got accepted
+     */
+    public int addTransactions(long[] timestamps, double[] amounts, int count) {
+        final long now = Instant.now(clock).toEpochMilli();
+        commitPreviousBuckets(getBucketIndex(now));
+
+        final Chunk chunk = new Chunk(journal != null ? count : 0);
+        int future = 0;
+        for (int i = 0; i < count; i++) {
+            if (!isValidTimestamp(timestamps[i], now)) {
+                if (timestamps[i] > now + futureToleranceMs) {
+                    future++;
+                }
+                continue;
+            }
+
+            chunk.add(timestamps[i], amounts[i]);
+        }
+
+        return merge(chunk, count, future, 0, now);
+    }
+
+    /**
+     * Checks the timestamp of a transaction, which is going to be added later
+     * A rejected timestamp is counted and logged like a rejected transaction
+     * @param timestamp the timestamp of the transaction
+     * @return {@link #ACCEPTED}, or {@link #REJECTED_FUTURE} or {@link #REJECTED_STALE} if it would be rejected
+     */
+    public int checkTimestamp(long timestamp) {
+        return validateTimestamp(timestamp, clock.millis());
+    }
+
+    // Merges a chunk of the given number of transactions into the ring, journals the accepted ones and returns their
+    // number, including the duplicates
+    private int merge(final Chunk chunk, final int transactions, final int future, final int duplicate,
+            final long now) {
+        final int accepted = chunk.merge();
+        if (journal != null) {
+            chunk.journal(now);
+        }
+        probe.accepted(accepted);
+        if (future > 0) {
+            probe.rejected(StoreProbe.Rejection.FUTURE, future);
+        }
+        if (duplicate > 0) {
+            probe.rejected(StoreProbe.Rejection.DUPLICATE, duplicate);
+        }
+        // Valid transactions are only rejected by the ring if their bucket got replaced in the meantime
+        final int stale = transactions - future - duplicate - accepted;
+        if (stale > 0) {
+            probe.rejected(StoreProbe.Rejection.STALE, stale);
+        }
+        if (chunk.getOldestBucketIndex() <= committedBucketIndex) {
+            statisticsVersion.increment();
+        }
+
+        final TransactionListener listener = transactionListener;
+        if (listener != null && accepted > 0) {
+            listener.accepted(accepted);
+        }
+        log.fine(() -> "Added " + accepted + " of " + transactions + " transactions");
+        return accepted + duplicate;
+    }
+
+    /**
+     * Gets the total statistics for the statistics window, by default the last 60 seconds
+     * Total statistics exclude the transactions from the current bucket, by default the current second
+     * Only transactions from the statistics window up to the end of the last full bucket (like 13:45:24.000) are
+     * included
+     * @param now the time when the statistics got requested
+     * @return total statistics for all transactions from the statistics window
+     */
+    public Statistics getStatistics(Instant now) {
+        final long currentBucketIndex = getBucketIndex(now.toEpochMilli());
+
+        // Check if we need to add the previous buckets to the statistics
+        commitPreviousBuckets(currentBucketIndex);
+
+        final Statistics statistics = aggregate == null
+                ? ring.aggregate(currentBucketIndex - statisticsWindowBuckets, currentBucketIndex - 1)
+                : aggregate.getStatistics();
+        return rates == null ? statistics : statistics.withRates(rates.getRates());
+    }
+
+    /**
+     * Gets a version of the statistics of the statistics window, which changes whenever they might have changed
+     * Reading the version before the statistics makes sure that a change in between leads to a newer version
+     * @param now the time when the statistics got requested
+     * @return the version of the statistics, which never decreases
+     */
+    public long getStatisticsVersion(Instant now) {
+        commitPreviousBuckets(getBucketIndex(now.toEpochMilli()));
+        return statisticsVersion.sum();
+    }
+
+    /**
+     * Gets the statistics of the current bucket, whose transactions are not yet part of the statistics window
+     * @param now the time when the statistics got requested
+     * @return the statistics of all transactions of the current bucket so far
+     */
+    public Statistics getCurrentBucketStatistics(Instant now) {
+        final long currentBucketIndex = getBucketIndex(now.toEpochMilli());
+        return ring.aggregate(currentBucketIndex, currentBucketIndex);
+    }
+
+    /**
+     * Calls the listener after every given number of accepted transactions, replacing any previous listener
+     * The listener is called on the thread which added the last of them, so it must return right away
+     * @param every the number of accepted transactions between two calls
+     * @param listener the listener or null to remove it
+     */
+    public void onTransactions(int every, Runnable listener) {
+        if (listener != null && every <= 0) {
+            throw new IllegalArgumentException("The listener must be called after at least one transaction.");
+        }
+        transactionListener = listener == null ? null : new TransactionListener(every, listener);
+    }
+
+    /**
+     * @param now the time of the request
+     * @return the number of buckets of the statistics window, which hold at least one transaction
+     */
+    public int getLiveBuckets(Instant now) {
+        final long currentBucketIndex = getBucketIndex(now.toEpochMilli());
+        int live = 0;
+        for (long bucket = currentBucketIndex - statisticsWindowBuckets; bucket < currentBucketIndex; bucket++) {
+            if (ring.getCount(bucket) > 0) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @param now the current time
+     * @return whether neither the statistics window nor the current bucket hold any transaction
+     */
+    public boolean isIdle(Instant now) {
+        return getLiveBuckets(now) == 0 && ring.getCount(getBucketIndex(now.toEpochMilli())) == 0;
+    }
+
+    /**
+     * @return the number of writes to a bucket, which had to be retried because of concurrent writes to it
+     */
+    public long getContendedWrites() {
+        return ring.getContendedWrites();
+    }
+
+    public long getBucketSizeMs() {
+        return bucketSizeMs;
+    }
+
+    public int getStatisticsWindowSeconds() {
+        return statisticsWindowSeconds;
+    }
+
+    /**
+     * Gets the total statistics for any of the configured windows
+     * Like the statistics window, all windows end with the last full bucket; windows longer than the statistics window
+     * start with the first full bucket of their coarser rollup buckets
+     * @param now the time when the statistics got requested
+     * @param window the length of the window
+     * @return total statistics for all transactions from the given window
+     * @throws InvalidWindowException if no window of the given length is kept by the store
+     */
+    public Statistics getStatistics(Instant now, Duration window) {
+        final long windowMs = window.toMillis();
+        if (windowMs == statisticsWindowSeconds * 1000L) {
+            return getStatistics(now);
+        }
+
+        final long currentBucketIndex = getBucketIndex(now.toEpochMilli());
+
+        if (shortWindows.contains(window)) {
+            return ring.aggregate(currentBucketIndex - windowMs / bucketSizeMs, currentBucketIndex - 1);
+        }
+
+        for (final RollupWindow rollupWindow : rollupWindows) {
+            if (rollupWindow.getWindowMs() == windowMs) {
+                synchronized (commitLock) {
+                    final Statistics total = new Statistics();
+                    total.addStatistics(getStatistics(now));
+
+                    // Everything before the statistics window has been rolled up by committing its buckets
+                    final long statisticsWindowStartMs = (currentBucketIndex - statisticsWindowBuckets) * bucketSizeMs;
+                    rollupWindow.addTo(now.toEpochMilli() - windowMs, statisticsWindowStartMs, total);
+                    return total;
+                }
+            }
+        }
+
+        throw new InvalidWindowException("Window '" + Windows.format(window) + "' is not available.");
+    }
+
+    /**
+     * Gets the total statistics of an arbitrary time range
+     * The range is rounded inwards to whole buckets. Its part within the statistics window is summed up bucket by
+     * bucket, the part before from the coarsest history slots which fit, and parts no longer kept are left out.
+     * @param now the time when the statistics got requested
+     * @param from the start of the range
+     * @param to the end of the range (exclusive), which is limited to the last full bucket
+     * @return total statistics for all kept transactions from the given range
+     * @throws InvalidWindowException if the range doesn't contain a single bucket
+     */
+    public Statistics getStatistics(Instant now, Instant from, Instant to) {
+        final long currentBucketIndex = getBucketIndex(now.toEpochMilli());
+        final long fromBucket = Math.floorDiv(from.toEpochMilli() + bucketSizeMs - 1, bucketSizeMs);
+        final long toBucket = Long.min(Math.floorDiv(to.toEpochMilli(), bucketSizeMs), currentBucketIndex);
+        if (fromBucket >= toBucket) {
+            throw new InvalidWindowException("Range from " + from + " to " + to + " doesn't contain a full bucket of "
+                    + bucketSizeMs + " ms.");
+        }
+        commitPreviousBuckets(currentBucketIndex);
+
+        synchronized (commitLock) {
+            final Statistics total = new Statistics();
+            final long windowStartBucket = currentBucketIndex - statisticsWindowBuckets;
+            if (toBucket > windowStartBucket) {
+                total.addStatistics(ring.aggregate(Long.max(fromBucket, windowStartBucket), toBucket - 1));
+            }
+            // Everything before the statistics window has been added to the history by committing its buckets
+            if (history != null && fromBucket < windowStartBucket) {
+                history.addTo(fromBucket * bucketSizeMs, Long.min(toBucket, windowStartBucket) * bucketSizeMs,
+                        now.toEpochMilli(), total);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * @return the number of bytes of the compressed history, 0 if no history is kept
+     */
+    public long getHistoryBytes() {
+        if (history == null) {
+            return 0;
+        }
+        synchronized (commitLock) {
+            return history.getBytes();
+        }
+    }
+
+    /**
+     * Gets the statistics of a single key of a dimension for the statistics window
+     * @param now the time when the statistics got requested
+     * @param dimension the name of the dimension
+     * @param key the key
+     * @return the statistics of the key, which are empty if the key isn't tracked exactly
+     * @throws InvalidDimensionException if no statistics are kept for the dimension
+     */
+    public Statistics getStatistics(Instant now, String dimension, String key) {
+        final long currentBucketIndex = getBucketIndex(now.toEpochMilli());
+        return getDimension(dimension).getStatistics(key, currentBucketIndex - statisticsWindowBuckets,
+                currentBucketIndex - 1);
+    }
+
+    /**
+     * Gets the keys of a dimension with the most transactions in the statistics window
+     * @param now the time when the statistics got requested
+     * @param dimension the name of the dimension
+     * @param limit the maximum number of keys
+     * @return the keys ordered by their number of transactions
+     * @throws InvalidDimensionException if no statistics are kept for the dimension
+     */
+    public List<KeyStatistics> getTopKeys(Instant now, String dimension, int limit) {
+        final long currentBucketIndex = getBucketIndex(now.toEpochMilli());
+        return getDimension(dimension).getTopKeys(limit, currentBucketIndex - statisticsWindowBuckets,
+                currentBucketIndex - 1);
+    }
+
+    /**
+     * Gets the statistics of every bucket of the statistics window, so several stores can be merged by bucket
+     * Quantile sketches are left out to keep the snapshot compact
+     * @param now the time when the snapshot got requested
+     * @return the statistics of all non-empty buckets of the statistics window
+     */
+    public BucketSnapshot getSnapshot(Instant now) {
+        final long currentBucketIndex = getBucketIndex(now.toEpochMilli());
+        commitPreviousBuckets(currentBucketIndex);
+
+        final long[] buckets = new long[statisticsWindowBuckets];
+        final Statistics[] statistics = new Statistics[statisticsWindowBuckets];
+        int size = 0;
+        for (long bucket = currentBucketIndex - statisticsWindowBuckets; bucket < currentBucketIndex; bucket++) {
+            final Statistics bucketStatistics = ring.aggregate(bucket, bucket);
+            if (bucketStatistics.getCount() > 0) {
+                buckets[size] = bucket;
+                statistics[size] = bucketStatistics;
+                size++;
+            }
+        }
+
+        final long[] counts = new long[size];
+        final double[] sums = new double[size];
+        final double[] mins = new double[size];
+        final double[] maxs = new double[size];
+        final long[] lastTimestamps = new long[size];
+        for (int i = 0; i < size; i++) {
+            counts[i] = statistics[i].getCount();
+            sums[i] = statistics[i].getSum();
+            mins[i] = statistics[i].getMin();
+            maxs[i] = statistics[i].getMax();
+            lastTimestamps[i] = statistics[i].getLastTimestamp();
+        }
+
+        return new BucketSnapshot(now.toEpochMilli(), bucketSizeMs, Arrays.copyOf(buckets, size), counts, sums, mins,
+                maxs, lastTimestamps);
+    }
+
+    /**
+     * @return the lengths of all windows, for which statistics are kept
+     */
+    public List<Duration> getWindows() {
+        final List<Duration> windows = new ArrayList<>(shortWindows);
+        windows.add(Duration.ofSeconds(statisticsWindowSeconds));
+        for (final RollupWindow rollupWindow : rollupWindows) {
+            windows.add(Duration.ofMillis(rollupWindow.getWindowMs()));
+        }
+        return windows;
+    }
+
+    private DimensionStatistics getDimension(final String dimension) {
+        final DimensionStatistics dimensionStatistics = dimensions.get(dimension);
+        if (dimensionStatistics == null) {
+            throw new InvalidDimensionException("Dimension '" + dimension + "' is not available.");
+        }
+        return dimensionStatistics;
+    }
+
+    private void addToDimensions(final long index, final Transaction transaction) {
+        if (dimensions.isEmpty() || transaction.getDimensions() == null) {
+            return;
+        }
+
+        for (final Map.Entry<String, String> key : transaction.getDimensions().entrySet()) {
+            final DimensionStatistics dimension = dimensions.get(key.getKey());
+            if (dimension != null && key.getValue() != null) {
+                dimension.add(key.getValue(), index, transaction.getTimestamp(), transaction.getAmount());
+            }
+        }
+    }
+
+    private void commitPreviousBuckets(final long currentBucketIndex) {
+        if (currentBucketIndex - 1 > committedBucketIndex) {
+            commitCurrentBucket(currentBucketIndex - 1);
+        }
+    }
+
+    // Commits all buckets up to the given one, in order
+    // The running statistics get the committed buckets, the rollup windows the ones leaving the statistics window
+    private void commitCurrentBucket(final long index) {
+        synchronized (commitLock) {
+            final long committed = committedBucketIndex;
+            if (index <= committed) {
+                return;
+            }
+
+            if (!rollupWindows.isEmpty() || history != null) {
+                // Buckets leaving the window can't get any more transactions and are still held by the ring
+                final long to = Long.min(index - statisticsWindowBuckets, committed + 1);
+                for (long bucket = committed + 1 - statisticsWindowBuckets; bucket <= to; bucket++) {
+                    final Statistics bucketStatistics = ring.aggregate(bucket, bucket);
+                    if (bucketStatistics.getCount() > 0) {
+                        for (final RollupWindow rollupWindow : rollupWindows) {
+                            rollupWindow.add(bucket * bucketSizeMs, bucketStatistics);
+                        }
+                        if (history != null) {
+                            history.add(bucket * bucketSizeMs, bucketStatistics);
+                        }
+                    }
+                }
+                if (history != null) {
+                    history.expire(clock.millis());
+                }
+            }
+
+            if (duplicates != null) {
+                // Only buckets of the window after the committed one still accept transactions
+                duplicates.expire(index + 1 - statisticsWindowBuckets);
+            }
+
+            if (aggregate != null || rates != null) {
+                // Older buckets are gone from the ring already, so they are empty for the rates
+                final long first = Long.max(committed + 1, index - statisticsWindowBuckets + 1);
+                if (rates != null) {
+                    rates.skip(first - committed - 1);
+                }
+                for (long bucket = first; bucket <= index; bucket++) {
+                    final Statistics bucketStatistics = aggregate != null ? ring.commit(bucket)
+                            : ring.aggregate(bucket, bucket);
+                    if (aggregate != null) {
+                        aggregate.commit(bucket, bucketStatistics);
+                    }
+                    if (rates != null) {
+                        rates.add(bucketStatistics.getCount(), bucketStatistics.getSum());
+                    }
+                }
+                if (rates != null) {
+                    rates.publish();
+                }
+            }
+
+            committedBucketIndex = index;
+            statisticsVersion.increment();
+            // The lag counts from the end of the oldest bucket, which was waiting for the commit
+            probe.committed((int) Long.min(index - committed, Integer.MAX_VALUE),
+                    clock.millis() - Long.max((committed + 2) * bucketSizeMs, startedAtMs));
+        }
+    }
+
+    // Adds the journaled transactions of the current window as a single chunk
+    private void replay(final TransactionJournal journal) {
+        final long startNanos = System.nanoTime();
+        final long now = Instant.now(clock).toEpochMilli();
+
+        final Chunk chunk = new Chunk(0);
+        final long records = journal.replay(now - statisticsWindowSeconds * 1000L, (timestamp, amount) -> {
+            if (isValidTimestamp(timestamp, now)) {
+                chunk.add(timestamp, amount);
+            }
+        });
+        final int accepted = chunk.merge();
+
+        log.info("Replayed " + accepted + " of " + records + " journaled transactions in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms");
+    }
+
+    private long getBucketIndex(final long timestamp) {
+        return timestamp / bucketSizeMs;
+    }
+
+    private boolean isValidTimestamp(final long timestamp, final long now) {
+        return timestamp <= now + futureToleranceMs && timestamp >= now - statisticsWindowSeconds * 1000L;
+    }
+
+    // Compares plain millis, so neither valid nor invalid transactions allocate anything
+    private int validateTimestamp(final long timestamp, final long now) {
+        if (timestamp > now + futureToleranceMs) {
+            reject(REJECTED_FUTURE, timestamp, now);
+            return REJECTED_FUTURE;
+        } else if (timestamp < now - statisticsWindowSeconds * 1000L) {
+            reject(REJECTED_STALE, timestamp, now);
+            return REJECTED_STALE;
+        }
+        return ACCEPTED;
+    }
+
+    private void reject(final int result, final long timestamp, final long now) {
+        final boolean future = result == REJECTED_FUTURE;
+        probe.rejected(future ? StoreProbe.Rejection.FUTURE : StoreProbe.Rejection.STALE, 1);
+        rejectionLog.rejected(future, timestamp, now);
+    }
+
+    // Only callers which ask for an exception pay for it
+    private void throwIfRejected(final int result, final long timestamp) {
+        if (result == REJECTED_FUTURE) {
+            throw new InvalidTimestampException(
+                    "Transaction timestamp '" + Instant.ofEpochMilli(timestamp).toString() + "' is in the future.");
+        } else if (result == REJECTED_STALE) {
+            throw new InvalidTimestampException("Transaction timestamp '" + Instant.ofEpochMilli(timestamp).toString()
+                    + "' is older than " + statisticsWindowSeconds + " seconds.");
+        }
+    }
+
+    /**
+     * Counts the accepted transactions for a listener, only while it is registered
+     */
+    @RequiredArgsConstructor
+    private static class TransactionListener {
+
+        private final int every;
+        private final Runnable listener;
+        private final AtomicLong accepted = new AtomicLong();
+
+        void accepted(final int transactions) {
+            final long total = accepted.addAndGet(transactions);
+            if (total / every != (total - transactions) / every) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * Valid transactions aggregated per bucket, so every bucket of the ring is only updated once for all of them
+     */
+    private class Chunk {
+
+        // All valid transactions fall into the buckets of the window or the current one, so each gets its own slot
+        private final Statistics[] buckets = new Statistics[statisticsWindowBuckets + 1];
+        private final long[] bucketIndices = new long[statisticsWindowBuckets + 1];
+
+        // Whether the bucket of a slot got merged into the ring
+        private final boolean[] merged = new boolean[statisticsWindowBuckets + 1];
+
+        private long oldestBucketIndex = Long.MAX_VALUE;
+
+        // The transactions, which are journaled once it is known whether their bucket got merged
+        private final long[] timestamps;
+        private final double[] amounts;
+        private int size;
+
+        /**
+         * @param journaled the number of transactions to keep for the journal, 0 if they aren't journaled
+         */
+        Chunk(final int journaled) {
+            timestamps = journaled > 0 ? new long[journaled] : null;
+            amounts = journaled > 0 ? new double[journaled] : null;
+        }
+
+        void add(final long timestamp, final double amount) {
+            final long index = getBucketIndex(timestamp);
+            final int slot = (int) Math.floorMod(index, (long) buckets.length);
+            if (buckets[slot] == null) {
+                buckets[slot] = quantiles ? Statistics.withSketch() : new Statistics();
+                bucketIndices[slot] = index;
+                oldestBucketIndex = Long.min(oldestBucketIndex, index);
+            }
+            buckets[slot].addTransaction(timestamp, amount);
+            if (timestamps != null) {
+                timestamps[size] = timestamp;
+                amounts[size] = amount;
+                size++;
+            }
+        }
+
+        long getOldestBucketIndex() {
+            return oldestBucketIndex;
+        }
+
+        // Merges the buckets into the ring and returns the number of accepted transactions
+        int merge() {
+            int accepted = 0;
+            for (int slot = 0; slot < buckets.length; slot++) {
+                if (buckets[slot] == null) {
+                    continue;
+                }
+
+                final long index = bucketIndices[slot];
+                final long ticket = ring.merge(index, buckets[slot]);
+                if (ticket != StatisticsRing.REJECTED) {
+                    merged[slot] = true;
+                    accepted += buckets[slot].getCount();
+                    if (aggregate != null && ring.isLate(index, ticket)) {
+                        aggregate.addLate(index, buckets[slot]);
+                    }
+                }
+            }
+            return accepted;
+        }
+
+        // Journals the transactions of the merged buckets, the others were rejected by the ring
+        void journal(final long now) {
+            for (int i = 0; i < size; i++) {
+                if (merged[(int) Math.floorMod(getBucketIndex(timestamps[i]), (long) buckets.length)]) {
+                    journal.append(timestamps[i], amounts[i], now);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+package n26.service;
+
+import n26.model.QuantileSketch;
+import n26.model.Statistics;
+import n26.model.Summation;
+
+/**
+ * Running statistics of a window of committed buckets
+ *
+ * Count and sum are updated as buckets enter and leave the window, min and max are taken from monotonic deques over the
+ * bucket extrema. Commits and late transactions only mark the published snapshot as outdated, the next read publishes
+ * a new immutable one, so reading the statistics of the window is a single volatile read until they change again, no
+ * matter how many buckets the window has. If quantiles are kept, the sketch of every bucket is merged into a running
+ * sketch and subtracted again when the bucket expires. Its version tells whether the copy in the snapshot is still up
+ * to date, so it is copied once per read which follows a change of the sketch.
+ */
+public class WindowAggregate {
+
+    private final int windowBuckets;
+
+    // Count and sum of every bucket in the window, indexed by bucket modulo the window size
+    private final long[] buckets;
+    private final long[] counts;
+    private final double[] sums;
+
+    private final MonotonicDeque maxima;
+    private final MonotonicDeque minima;
+
+    // Sketch of every bucket in the window and their sum, null if no quantiles are kept
+    private final QuantileSketch[] sketches;
+    private final QuantileSketch sketch;
+
+    // Counts the changes of the running sketch, and the version the published snapshot has a copy of
+    private long sketchVersion;
+    private long publishedSketchVersion;
+
+    private long count;
+    private double sum;
+
+    // Rounding error of the running sum, see {@link Summation}
+    private double compensation;
+    private long lastTimestamp;
+
+    // The running sum is recomputed from the buckets once per window, so floating point errors can't pile up
+    private int commitsSinceRebase;
+
+    private volatile long newestBucket;
+
+    private volatile Statistics statistics = new Statistics();
+
+    // Whether the window changed since the statistics got published
+    private volatile boolean outdated;
+
+    public WindowAggregate(int windowBuckets, long newestBucket) {
+        this(windowBuckets, newestBucket, false);
+    }
+
+    /**
+     * @param windowBuckets the number of buckets in the window
+     * @param newestBucket the newest bucket, which is treated as already committed
+     * @param quantiles whether a quantile sketch of the window is kept
+     */
+    public WindowAggregate(int windowBuckets, long newestBucket, boolean quantiles) {
+        this.windowBuckets = windowBuckets;
+        this.newestBucket = newestBucket;
+        buckets = new long[windowBuckets];
+        counts = new long[windowBuckets];
+        sums = new double[windowBuckets];
+        maxima = new MonotonicDeque(windowBuckets + 1, false);
+        minima = new MonotonicDeque(windowBuckets + 1, true);
+        sketches = quantiles ? new QuantileSketch[windowBuckets] : null;
+        sketch = quantiles ? new QuantileSketch() : null;
+        if (quantiles) {
+            for (int i = 0; i < windowBuckets; i++) {
+                sketches[i] = new QuantileSketch();
+            }
+        }
+        clear();
+    }
+
+    /**
+     * Adds the next bucket to the window and expires the buckets which fall out of it
+     * @param bucket the index of the bucket, which must be newer than all committed buckets
+     * @param bucketStatistics the statistics of the bucket
+     */
+    public synchronized void commit(long bucket, Statistics bucketStatistics) {
+        if (bucket <= newestBucket) {
+            return;
+        }
+
+        final long oldestBucket = bucket - windowBuckets + 1;
+        if (bucket - newestBucket >= windowBuckets) {
+            clear();
+        } else {
+            for (long expired = newestBucket - windowBuckets + 1; expired < oldestBucket; expired++) {
+                expire(expired);
+            }
+            maxima.expire(oldestBucket);
+            minima.expire(oldestBucket);
+        }
+        newestBucket = bucket;
+
+        if (bucketStatistics.getCount() > 0) {
+            final int index = index(bucket);
+            buckets[index] = bucket;
+            counts[index] = bucketStatistics.getCount();
+            sums[index] = bucketStatistics.getSum();
+
+            count += bucketStatistics.getCount();
+            addToSum(bucketStatistics.getSum());
+            lastTimestamp = Long.max(lastTimestamp, bucketStatistics.getLastTimestamp());
+            maxima.update(bucket, bucketStatistics.getMax());
+            minima.update(bucket, bucketStatistics.getMin());
+
+            if (sketch != null) {
+                sketches[index].clear();
+                addSketch(index, bucketStatistics);
+            }
+        }
+
+        if (++commitsSinceRebase >= windowBuckets) {
+            rebase();
+        }
+
+        outdated = true;
+    }
+
+    /**
+     * Adds a transaction to a bucket, which has already been committed
+     * @param bucket the index of the bucket the transaction belongs to
+     * @param timestamp the timestamp of the transaction
+     * @param amount the amount of the transaction
+     */
+    public synchronized void addLate(long bucket, long timestamp, double amount) {
+        if (addLate(bucket, 1, amount, amount, amount, timestamp)) {
+            if (sketch != null) {
+                sketches[index(bucket)].add(amount);
+                sketch.add(amount);
+                sketchVersion++;
+            }
+            outdated = true;
+        }
+    }
+
+    /**
+     * Adds the statistics of several transactions to a bucket, which has already been committed
+     * @param bucket the index of the bucket the transactions belong to
+     * @param statistics the statistics of the transactions
+     */
+    public synchronized void addLate(long bucket, Statistics statistics) {
+        if (statistics.getCount() > 0 && addLate(bucket, statistics.getCount(), statistics.getSum(),
+                statistics.getMin(), statistics.getMax(), statistics.getLastTimestamp())) {
+            if (sketch != null) {
+                addSketch(index(bucket), statistics);
+            }
+            outdated = true;
+        }
+    }
+
+    /**
+     * @return the statistics of all committed buckets in the window
+     */
+    public Statistics getStatistics() {
+        if (outdated) {
+            publish();
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the index of the newest committed bucket
+     */
+    public long getNewestBucket() {
+        return newestBucket;
+    }
+
+    private boolean addLate(final long bucket, final long lateCount, final double lateSum, final double lateMin,
+            final double lateMax, final long lateTimestamp) {
+        if (bucket > newestBucket || bucket <= newestBucket - windowBuckets) {
+            return false;
+        }
+
+        final int index = index(bucket);
+        if (buckets[index] != bucket) {
+            buckets[index] = bucket;
+            counts[index] = 0;
+            sums[index] = 0;
+            if (sketch != null) {
+                sketches[index].clear();
+            }
+        }
+        counts[index] += lateCount;
+        sums[index] += lateSum;
+
+        count += lateCount;
+        addToSum(lateSum);
+        lastTimestamp = Long.max(lastTimestamp, lateTimestamp);
+        maxima.update(bucket, lateMax);
+        minima.update(bucket, lateMin);
+        return true;
+    }
+
+    private void addSketch(final int index, final Statistics statistics) {
+        if (statistics.getSketch() != null) {
+            sketches[index].merge(statistics.getSketch());
+            sketch.merge(statistics.getSketch());
+            sketchVersion++;
+        }
+    }
+
+    private void expire(final long bucket) {
+        final int index = index(bucket);
+        if (buckets[index] != bucket) {
+            return;
+        }
+
+        count -= counts[index];
+        addToSum(-sums[index]);
+        buckets[index] = Long.MIN_VALUE;
+        if (sketch != null) {
+            sketch.subtract(sketches[index]);
+            sketchVersion++;
+        }
+
+        if (count == 0) {
+            sum = 0;
+            compensation = 0;
+            lastTimestamp = 0;
+        }
+    }
+
+    private void clear() {
+        for (int i = 0; i < windowBuckets; i++) {
+            buckets[i] = Long.MIN_VALUE;
+        }
+        maxima.clear();
+        minima.clear();
+        if (sketch != null) {
+            sketch.clear();
+            sketchVersion++;
+        }
+        count = 0;
+        sum = 0;
+        compensation = 0;
+        lastTimestamp = 0;
+    }
+
+    private void rebase() {
+        commitsSinceRebase = 0;
+        sum = 0;
+        compensation = 0;
+        for (int i = 0; i < windowBuckets; i++) {
+            if (buckets[i] > newestBucket - windowBuckets) {
+                addToSum(sums[i]);
+            }
+        }
+    }
+
+    private synchronized void publish() {
+        if (!outdated) {
+            return;
+        }
+        outdated = false;
+        if (count == 0) {
+            statistics = new Statistics();
+            return;
+        }
+
+        // Snapshots share the copy of the sketch until it changes
+        QuantileSketch copy = null;
+        if (sketch != null) {
+            copy = statistics.getSketch();
+            if (copy == null || publishedSketchVersion != sketchVersion) {
+                copy = sketch.copy();
+                publishedSketchVersion = sketchVersion;
+            }
+        }
+        statistics = new Statistics(maxima.peek(), minima.peek(), sum + compensation, count, lastTimestamp, copy);
+    }
+
+    private void addToSum(final double value) {
+        final double newSum = sum + value;
+        compensation += Summation.roundingError(sum, value, newSum);
+        sum = newSum;
+    }
+
+    private int index(final long bucket) {
+        return (int) Math.floorMod(bucket, (long) windowBuckets);
+    }
+}
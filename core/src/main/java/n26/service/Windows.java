@@ -0,0 +1,80 @@
+package n26.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import n26.model.InvalidWindowException;
+
+/**
+ * Parses and formats window lengths like '500ms', '1s', '60s', '5m', '1h' or '1d', and the ends of time ranges
+ */
+public final class Windows {
+
+    private static final Pattern WINDOW_PATTERN = Pattern.compile("(\\d+)(ms|s|m|h|d)");
+
+    private Windows() {
+    }
+
+    /**
+     * @param window the window length, a number followed by one of the units 'ms', 's', 'm', 'h' or 'd'
+     * @return the window length as duration
+     * @throws InvalidWindowException if the window length can't be parsed
+     */
+    public static Duration parse(String window) {
+        final Matcher matcher = WINDOW_PATTERN.matcher(window.trim());
+        if (!matcher.matches() || Long.parseLong(matcher.group(1)) <= 0) {
+            throw new InvalidWindowException("Window '" + window + "' is not a positive length like '5m'.");
+        }
+
+        final long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "ms":
+                return Duration.ofMillis(amount);
+            case "s":
+                return Duration.ofSeconds(amount);
+            case "m":
+                return Duration.ofMinutes(amount);
+            case "d":
+                return Duration.ofDays(amount);
+            default:
+                return Duration.ofHours(amount);
+        }
+    }
+
+    /**
+     * @param time a point in time, either in epoch millis or in ISO-8601 like '2018-03-01T14:00:00Z'
+     * @return the point in time
+     * @throws InvalidWindowException if the point in time can't be parsed
+     */
+    public static Instant parseTime(String time) {
+        final String trimmed = time.trim();
+        try {
+            if (!trimmed.isEmpty() && trimmed.chars().allMatch(Character::isDigit)) {
+                return Instant.ofEpochMilli(Long.parseLong(trimmed));
+            }
+            return Instant.parse(trimmed);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new InvalidWindowException("Time '" + time + "' is neither epoch millis nor ISO-8601.");
+        }
+    }
+
+    /**
+     * @param window the window length
+     * @return the window length in the largest unit which represents it exactly, like '5m'
+     */
+    public static String format(Duration window) {
+        final long millis = window.toMillis();
+        if (millis % 86_400_000 == 0) {
+            return millis / 86_400_000 + "d";
+        } else if (millis % 3_600_000 == 0) {
+            return millis / 3_600_000 + "h";
+        } else if (millis % 60_000 == 0) {
+            return millis / 60_000 + "m";
+        } else if (millis % 1000 == 0) {
+            return millis / 1000 + "s";
+        }
+        return millis + "ms";
+    }
+}
@@ -0,0 +1,80 @@
+package n26.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.Test;
+
+public class QuantileSketchTest {
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+
+    @Test
+    public void testQuantile_emptySketch() {
+        assertThat(new QuantileSketch().quantile(0.5)).isNaN();
+    }
+
+    @Test
+    public void testQuantile_withinRelativeAccuracy() {
+        QuantileSketch sketch = new QuantileSketch();
+        double[] amounts = new double[10_000];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = random.nextDouble(-1_000, 100_000);
+            sketch.add(amounts[i]);
+        }
+        Arrays.sort(amounts);
+
+        for (double quantile : new double[] {0.0, 0.5, 0.95, 0.99, 0.999, 1.0}) {
+            double expected = amounts[(int) (quantile * (amounts.length - 1))];
+            assertThat(sketch.quantile(quantile))
+                    .isCloseTo(expected, within(Math.abs(expected) * QuantileSketch.RELATIVE_ACCURACY + 1e-9));
+        }
+    }
+
+    @Test
+    public void testIndex_orderedByAmount() {
+        assertThat(QuantileSketch.index(-100)).isLessThan(QuantileSketch.index(-1));
+        assertThat(QuantileSketch.index(-1)).isLessThan(QuantileSketch.index(0));
+        assertThat(QuantileSketch.index(0)).isEqualTo(QuantileSketch.index(QuantileSketch.MIN_AMOUNT / 2));
+        assertThat(QuantileSketch.index(0)).isLessThan(QuantileSketch.index(1));
+        assertThat(QuantileSketch.index(1)).isLessThan(QuantileSketch.index(100));
+        assertThat(QuantileSketch.index(Double.MAX_VALUE)).isEqualTo(QuantileSketch.SIZE - 1);
+        assertThat(QuantileSketch.index(-Double.MAX_VALUE)).isZero();
+    }
+
+    @Test
+    public void testMerge_sameAsAddingAllAmounts() {
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        QuantileSketch all = new QuantileSketch();
+        for (int i = 0; i < 1000; i++) {
+            double amount = random.nextDouble(-50, 50);
+            (i % 2 == 0 ? first : second).add(amount);
+            all.add(amount);
+        }
+
+        first.merge(second);
+
+        assertThat(first).isEqualTo(all);
+        assertThat(first.getCount()).isEqualTo(1000);
+    }
+
+    @Test
+    public void testSubtract_removesMergedSketch() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(1.0);
+        QuantileSketch other = new QuantileSketch();
+        other.add(500.0);
+        other.add(-3.0);
+
+        sketch.merge(other);
+        sketch.subtract(other);
+
+        QuantileSketch expected = new QuantileSketch();
+        expected.add(1.0);
+        assertThat(sketch).isEqualTo(expected);
+        assertThat(sketch.quantile(1.0)).isCloseTo(1.0, within(QuantileSketch.RELATIVE_ACCURACY));
+    }
+}
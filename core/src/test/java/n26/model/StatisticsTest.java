@@ -17,7 +17,6 @@ public class StatisticsTest {
 
         expected.setMin(Double.MAX_VALUE);
         expected.setMax(Double.MIN_VALUE);
-        expected.setAvg(0);
         expected.setCount(0);
         expected.setSum(0);
         expected.setLastTimestamp(0);
@@ -113,6 +112,19 @@ public class StatisticsTest {
         verifyTransactionAddition(initialStats, transaction, nonEmptyStats);
     }
 
+    @Test
+    public void testAddTransaction_manySmallAmountsDontDrift() {
+        Statistics statistics = new Statistics();
+        Transaction transaction = new Transaction(Instant.now().toEpochMilli(), 0.1);
+
+        for (int i = 0; i < 1_000_000; i++) {
+            statistics.addTransaction(transaction);
+        }
+
+        assertThat(statistics.getSum()).isEqualTo(100_000.0);
+        assertThat(statistics.getAvg()).isEqualTo(0.1);
+    }
+
     private Transaction createCurrentTransaction() {
         return new Transaction(Instant.now().toEpochMilli(), random.nextDouble());
     }
@@ -122,7 +134,6 @@ public class StatisticsTest {
 
         randomStats.setMin(random.nextDouble());
         randomStats.setMax(random.nextDouble());
-        randomStats.setAvg(random.nextDouble());
         randomStats.setCount(Math.abs(random.nextLong()));
         randomStats.setSum(random.nextDouble());
         randomStats.setLastTimestamp(Math.abs(random.nextLong()));
@@ -137,9 +148,7 @@ public class StatisticsTest {
         assertThat(sum.getMin()).isEqualTo(Double.min(firstStats.getMin(), secondStats.getMin()));
         assertThat(sum.getSum()).isEqualTo(firstStats.getSum() + secondStats.getSum());
         assertThat(sum.getCount()).isEqualTo(firstStats.getCount() + secondStats.getCount());
-        assertThat(sum.getAvg()).isEqualTo(
-                (firstStats.getCount() * firstStats.getAvg() + secondStats.getCount() * secondStats.getAvg()) / (
-                        firstStats.getCount() + secondStats.getCount()));
+        assertThat(sum.getAvg()).isEqualTo(sum.getCount() == 0 ? 0 : sum.getSum() / sum.getCount());
     }
 
     private void verifyTransactionAddition(Statistics originalStats, Transaction transaction, Statistics updatedStats) {
@@ -149,9 +158,7 @@ public class StatisticsTest {
         assertThat(updatedStats.getMin()).isEqualTo(Double.min(originalStats.getMin(), transaction.getAmount()));
         assertThat(updatedStats.getSum()).isEqualTo(originalStats.getSum() + transaction.getAmount());
         assertThat(updatedStats.getCount()).isEqualTo(originalStats.getCount() + 1);
-        assertThat(updatedStats.getAvg()).isEqualTo(
-                (originalStats.getCount() * originalStats.getAvg() + transaction.getAmount()) / (
-                        originalStats.getCount() + 1));
+        assertThat(updatedStats.getAvg()).isEqualTo(updatedStats.getSum() / updatedStats.getCount());
     }
 
 }
@@ -0,0 +1,41 @@
+package n26.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class ThresholdRuleTest {
+
+    @Test
+    public void testParse() {
+        final ThresholdRule rule = ThresholdRule.parse(" max >= 250.5 ");
+
+        assertThat(rule.getField()).isEqualTo(ThresholdRule.Field.MAX);
+        assertThat(rule.getOperator()).isEqualTo(ThresholdRule.Operator.GREATER_OR_EQUAL);
+        assertThat(rule.getThreshold()).isEqualTo(250.5);
+        assertThat(rule.toString()).isEqualTo("max>=250.5");
+    }
+
+    @Test(expected = InvalidRuleException.class)
+    public void testParse_unknownField() {
+        ThresholdRule.parse("median>1");
+    }
+
+    @Test(expected = InvalidRuleException.class)
+    public void testParse_noNumber() {
+        ThresholdRule.parse("sum>lots");
+    }
+
+    @Test
+    public void testMatches() {
+        final Statistics statistics = new Statistics();
+        assertThat(ThresholdRule.parse("count<1").matches(statistics)).isTrue();
+        assertThat(ThresholdRule.parse("min<1").matches(statistics)).isFalse();
+
+        statistics.addTransaction(new Transaction(0, 5.0));
+        statistics.addTransaction(new Transaction(0, 15.0));
+        assertThat(ThresholdRule.parse("avg>9.5").matches(statistics)).isTrue();
+        assertThat(ThresholdRule.parse("sum<=20").matches(statistics)).isTrue();
+        assertThat(ThresholdRule.parse("min<5").matches(statistics)).isFalse();
+    }
+}
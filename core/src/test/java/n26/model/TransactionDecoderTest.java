@@ -0,0 +1,96 @@
+package n26.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class TransactionDecoderTest {
+
+    TransactionDecoder decoder = new TransactionDecoder();
+
+    @Test
+    public void testDecode_plainTransaction() {
+        assertThat(decode("{\"timestamp\":1478192204000,\"amount\":12.3}")).isTrue();
+        assertThat(decoder.getTimestamp()).isEqualTo(1478192204000L);
+        assertThat(decoder.getAmount()).isEqualTo(12.3);
+
+        assertThat(decode(" {\n \"amount\" : -0.5e1 , \"timestamp\" : 7, \"dimensions\": null }\n")).isTrue();
+        assertThat(decoder.getTimestamp()).isEqualTo(7);
+        assertThat(decoder.getAmount()).isEqualTo(-5.0);
+    }
+
+    @Test
+    public void testDecode_sameAmountAsParsing() {
+        final String[] amounts = {"0", "0.1", "0.3", "1.005", "123456.789", "9007199254740993", "4.35e-10", "1E22",
+                "99.99", "0.000001"};
+        for (final String amount : amounts) {
+            final boolean decoded = decode("{\"timestamp\":1,\"amount\":" + amount + "}");
+            if (decoded) {
+                assertThat(decoder.getAmount()).as(amount).isEqualTo(Double.parseDouble(amount));
+            }
+        }
+        assertThat(decode("{\"timestamp\":1,\"amount\":123456.789}")).isTrue();
+    }
+
+    @Test
+    public void testDecode_leftToJsonBinding() {
+        assertThat(decode("{\"timestamp\":1,\"amount\":1.0,\"dimensions\":{\"merchant\":\"m-1\"}}")).isFalse();
+        assertThat(decode("{\"timestamp\":1.5,\"amount\":1.0}")).isFalse();
+        assertThat(decode("{\"timestamp\":1,\"amount\":\"1.0\"}")).isFalse();
+        assertThat(decode("{\"timestamp\":1,\"amount\":1.0,\"currency\":\"EUR\"}")).isFalse();
+        assertThat(decode("{\"timestamp\":1,\"timestamp\":2,\"amount\":1.0}")).isFalse();
+        assertThat(decode("{\"timestamp\":1}")).isFalse();
+        assertThat(decode("{\"timestamp\":01,\"amount\":1.0}")).isFalse();
+        assertThat(decode("{\"timestamp\":1,\"amount\":1.0")).isFalse();
+        assertThat(decode("{\"timestamp\":1,\"amount\":1.0}x")).isFalse();
+        assertThat(decode("{\"timestamp\":1,\"amount\":1e400}")).isFalse();
+        assertThat(decode("")).isFalse();
+    }
+
+    @Test
+    public void testDecode_fromStreamKeepsBody() throws IOException {
+        final StringBuilder body = new StringBuilder("{\"timestamp\":1,\"amount\":2.5");
+        for (int i = 0; i < 100; i++) {
+            body.append(",\"field").append(i).append("\":0");
+        }
+        body.append('}');
+
+        assertThat(decoder.decode(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8))))
+                .isFalse();
+        assertThat(new String(decoder.getBuffer(), 0, decoder.getLength(), StandardCharsets.UTF_8))
+                .isEqualTo(body.toString());
+    }
+
+    @Test
+    public void testDecode_fromStreamLargerThanMaximum() throws IOException {
+        final TransactionDecoder limited = new TransactionDecoder(1000);
+        final byte[] body = new byte[1001];
+        Arrays.fill(body, (byte) ' ');
+
+        assertThatThrownBy(() -> limited.decode(new ByteArrayInputStream(body)))
+                .isInstanceOf(PayloadTooLargeException.class);
+        assertThat(limited.decode(new ByteArrayInputStream(body, 0, 1000))).isFalse();
+        assertThat(limited.getLength()).isEqualTo(1000);
+    }
+
+    @Test
+    public void testRelease_dropsGrownBuffer() throws IOException {
+        final byte[] body = new byte[10_000];
+        Arrays.fill(body, (byte) ' ');
+
+        decoder.decode(new ByteArrayInputStream(body));
+        assertThat(decoder.getBuffer().length).isGreaterThan(body.length);
+        decoder.release();
+        assertThat(decoder.getBuffer().length).isLessThan(body.length);
+    }
+
+    private boolean decode(final String json) {
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return decoder.decode(bytes, 0, bytes.length);
+    }
+}
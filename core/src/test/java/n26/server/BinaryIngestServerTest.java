@@ -0,0 +1,149 @@
+package n26.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import n26.service.StoreProbe;
+import n26.service.TransactionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryIngestServerTest {
+
+    TransactionStore transactionStore;
+
+    BinaryIngestServer server;
+
+    @Before
+    public void setup() throws IOException {
+        transactionStore = new TransactionStore();
+        server = new BinaryIngestServer(new InetSocketAddress("localhost", 0), new InetSocketAddress("localhost", 0),
+                2, 16, transactionStore, StoreProbe.NONE);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testTcpBatches_acknowledgedInOrder() throws IOException {
+        final long timestamp = Instant.now().toEpochMilli() - 2_000;
+        final ByteBuffer batches = ByteBuffer.allocate(100);
+        putBatch(batches, timestamp, 1.5, timestamp, 2.5, 0, 1.0);
+        putBatch(batches, timestamp, Double.NaN);
+
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(batches.array(), 0, batches.position());
+
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertThat(in.readInt()).isEqualTo(2);
+            assertThat(in.readInt()).isEqualTo(1);
+            assertThat(in.readInt()).isEqualTo(0);
+            assertThat(in.readInt()).isEqualTo(1);
+        }
+
+        assertThat(transactionStore.getStatistics(Instant.now()).getSum()).isEqualTo(4.0);
+    }
+
+    @Test
+    public void testTcpBatches_moreAcknowledgementsThanBuffered() throws IOException {
+        final long timestamp = Instant.now().toEpochMilli() - 2_000;
+        final ByteBuffer batches = ByteBuffer.allocate(200 * 20);
+        for (int i = 0; i < 200; i++) {
+            putBatch(batches, timestamp, 1.0);
+        }
+
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(batches.array(), 0, batches.position());
+
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+            for (int i = 0; i < 200; i++) {
+                assertThat(in.readInt()).isEqualTo(1);
+                assertThat(in.readInt()).isEqualTo(0);
+            }
+        }
+
+        assertThat(transactionStore.getStatistics(Instant.now()).getCount()).isEqualTo(200);
+    }
+
+    @Test
+    public void testTcpBatch_largerThanInitialBuffer() throws IOException {
+        server.close();
+        server = new BinaryIngestServer(new InetSocketAddress("localhost", 0), null, 1, 4093, transactionStore,
+                StoreProbe.NONE);
+        final long timestamp = Instant.now().toEpochMilli() - 2_000;
+        final Object[] records = new Object[2 * 1000];
+        for (int i = 0; i < records.length; i += 2) {
+            records[i] = timestamp;
+            records[i + 1] = 1.0;
+        }
+        final ByteBuffer batches = ByteBuffer.allocate(2 * (4 + 1000 * 16));
+        putBatch(batches, records);
+        putBatch(batches, records);
+
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(batches.array(), 0, batches.position());
+
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+            for (int i = 0; i < 2; i++) {
+                assertThat(in.readInt()).isEqualTo(1000);
+                assertThat(in.readInt()).isEqualTo(0);
+            }
+        }
+
+        assertThat(transactionStore.getStatistics(Instant.now()).getCount()).isEqualTo(2000);
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTcpBatch_tooLarge() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(ByteBuffer.allocate(4).putInt(17).array());
+
+            new DataInputStream(socket.getInputStream()).readInt();
+        }
+    }
+
+    @Test
+    public void testUdpBatch_acknowledged() throws IOException {
+        final long timestamp = Instant.now().toEpochMilli() - 2_000;
+        final ByteBuffer batch = ByteBuffer.allocate(36);
+        putBatch(batch, timestamp, 3.0, timestamp + 60_000, 1.0);
+
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setSoTimeout(5_000);
+            socket.send(new DatagramPacket(batch.array(), batch.position(), InetAddress.getByName("localhost"),
+                    server.getUdpPort()));
+
+            final DatagramPacket ack = new DatagramPacket(new byte[8], 8);
+            socket.receive(ack);
+            final ByteBuffer counts = ByteBuffer.wrap(ack.getData());
+            assertThat(counts.getInt()).isEqualTo(1);
+            assertThat(counts.getInt()).isEqualTo(1);
+        }
+
+        assertThat(transactionStore.getStatistics(Instant.now()).getSum()).isEqualTo(3.0);
+    }
+
+    // Puts a batch of alternating timestamps and amounts
+    private static void putBatch(final ByteBuffer buffer, final Object... records) {
+        buffer.putInt(records.length / 2);
+        for (int i = 0; i < records.length; i += 2) {
+            buffer.putLong(((Number) records[i]).longValue()).putDouble(((Number) records[i + 1]).doubleValue());
+        }
+    }
+}
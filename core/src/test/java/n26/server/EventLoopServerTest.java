@@ -0,0 +1,150 @@
+package n26.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import n26.service.TransactionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventLoopServerTest {
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    TransactionStore transactionStore;
+
+    EventLoopServer server;
+
+    @Before
+    public void setup() throws IOException {
+        transactionStore = new TransactionStore();
+        server = new EventLoopServer(new InetSocketAddress("localhost", 0), 2, 1024,
+                new StoreRequestHandler(transactionStore, null, new SimpleJsonCodec()));
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testPostTransaction_addedToStore() throws IOException {
+        final long timestamp = Instant.now().toEpochMilli() - 2_000;
+
+        assertThat(request("POST", "/transactions", "{\"timestamp\":" + timestamp + ",\"amount\":12.5}"))
+                .isEqualTo(201);
+        assertThat(transactionStore.getStatistics(Instant.now()).getSum()).isEqualTo(12.5);
+    }
+
+    @Test
+    public void testPostTransaction_invalid() throws IOException {
+        assertThat(request("POST", "/transactions", "{\"timestamp\":0,\"amount\":1.0}")).isEqualTo(204);
+        assertThat(request("POST", "/transactions", "not json")).isEqualTo(400);
+        assertThat(request("GET", "/transactions", null)).isEqualTo(405);
+        assertThat(request("GET", "/unknown", null)).isEqualTo(404);
+    }
+
+    @Test
+    public void testGetStatistics() throws IOException {
+        assertThat(request("GET", "/statistics", null)).isEqualTo(204);
+        assertThat(request("GET", "/statistics?window=five%20minutes", null)).isEqualTo(400);
+
+        request("POST", "/transactions", "{\"timestamp\":" + (Instant.now().toEpochMilli() - 2_000)
+                + ",\"amount\":3.0}");
+
+        final HttpURLConnection connection = open("GET", "/statistics");
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        final JsonNode statistics = mapper.readTree(connection.getInputStream());
+        assertThat(statistics.get("sum").asDouble()).isEqualTo(3.0);
+        assertThat(statistics.get("count").asLong()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetStatistics_notModified() throws IOException {
+        request("POST", "/transactions", "{\"timestamp\":" + (Instant.now().toEpochMilli() - 2_000)
+                + ",\"amount\":3.0}");
+
+        // The statistics change with every new second, so a second may pass between both requests once
+        int status = 0;
+        for (int attempt = 0; attempt < 3 && status != 304; attempt++) {
+            final String etag = open("GET", "/statistics").getHeaderField("ETag");
+            assertThat(etag).isNotNull();
+
+            final HttpURLConnection connection = open("GET", "/statistics");
+            connection.setRequestProperty("If-None-Match", etag);
+            status = connection.getResponseCode();
+        }
+        assertThat(status).isEqualTo(304);
+    }
+
+    @Test
+    public void testPipelinedRequests_answeredInOrder() throws IOException {
+        final String body = "{\"timestamp\":" + (Instant.now().toEpochMilli() - 2_000) + ",\"amount\":1.0}";
+        final String post = "POST /transactions HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + body.length() + "\r\n\r\n" + body;
+        final String get = "GET /statistics HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+        final String responses = exchange(post + post + get);
+
+        assertThat(responses).startsWith("HTTP/1.1 201 Created\r\n");
+        assertThat(responses.split("HTTP/1.1 ")).hasSize(4);
+        assertThat(responses).contains("HTTP/1.1 200 OK\r\n").endsWith(new String(
+                new SimpleJsonCodec().writeStatistics(transactionStore.getStatistics(Instant.now())),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testTooLargeBody_rejected() throws IOException {
+        final String responses = exchange("POST /transactions HTTP/1.1\r\nContent-Length: 4096\r\n\r\n");
+
+        assertThat(responses).startsWith("HTTP/1.1 413 ");
+    }
+
+    private int request(final String method, final String path, final String body) throws IOException {
+        final HttpURLConnection connection = open(method, path);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return connection.getResponseCode();
+    }
+
+    private HttpURLConnection open(final String method, final String path) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort()
+                + path).openConnection();
+        connection.setRequestMethod(method);
+        return connection;
+    }
+
+    // Writes the raw requests at once and reads until the server closes the connection
+    private String exchange(final String requests) throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.ISO_8859_1));
+
+            final InputStream in = socket.getInputStream();
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                response.write(buffer, 0, read);
+            }
+            return new String(response.toByteArray(), StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package n26.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import n26.model.Rates;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import org.junit.Test;
+
+public class SimpleJsonCodecTest {
+
+    final SimpleJsonCodec codec = new SimpleJsonCodec();
+
+    // The comparison with the JSON binding of the service is in its ModelJsonModuleTest
+    @Test
+    public void testWriteStatistics() {
+        final Statistics statistics = new Statistics();
+        statistics.addTransaction(1478192204000L, 12.5);
+        assertThat(new String(codec.writeStatistics(statistics), StandardCharsets.UTF_8)).isEqualTo("{\"max\":12.5,"
+                + "\"min\":12.5,\"avg\":12.5,\"sum\":12.5,\"count\":1,\"lastTimestamp\":1478192204000}");
+
+        final Statistics withQuantiles = Statistics.withSketch();
+        withQuantiles.addTransaction(1478192204000L, 1.5);
+        assertThat(new String(codec.writeStatistics(withQuantiles), StandardCharsets.UTF_8))
+                .contains("\"quantiles\":{\"p50\":");
+
+        final Statistics withRates = withQuantiles.withRates(new Rates(2, 3.5, 1.9, 1.2, 0.25, 3.25, 2.5, 1e-9));
+        assertThat(new String(codec.writeStatistics(withRates), StandardCharsets.UTF_8))
+                .contains("\"rates\":{\"countPerSecond\":2.0,");
+    }
+
+    @Test
+    public void testReadTransaction() throws IOException {
+        final Transaction transaction = read(" { \"comment\" : {\"tags\":[1, \"a\", null, true]}, \"amount\": -1.25E2,"
+                + "\"timestamp\":\"1478192204000\", \"dimensions\":{\"merchant\":\"m\\u002d42\",\"id\":7} } ");
+
+        assertThat(transaction.getTimestamp()).isEqualTo(1478192204000L);
+        assertThat(transaction.getAmount()).isEqualTo(-125.0);
+        assertThat(transaction.getDimensions()).containsEntry("merchant", "m-42").containsEntry("id", "7");
+        assertThat(read("{\"idempotencyKey\":\"tx-1\"}").getIdempotencyKey()).isEqualTo("tx-1");
+
+        final Transaction empty = read("{\"timestamp\":null,\"dimensions\":null}");
+        assertThat(empty.getTimestamp()).isEqualTo(0);
+        assertThat(empty.getDimensions()).isNull();
+    }
+
+    @Test
+    public void testReadTransaction_malformed() {
+        assertThatThrownBy(() -> read("[]")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> read("{\"amount\":12.3")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> read("{\"amount\":\"twelve\"}")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> read("{\"dimensions\":{\"merchant\":{}}}")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> read("{\"amount\":1} {}")).isInstanceOf(IOException.class);
+    }
+
+    private Transaction read(final String json) throws IOException {
+        return codec.readTransaction(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
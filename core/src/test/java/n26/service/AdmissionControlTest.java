@@ -0,0 +1,116 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AdmissionControlTest {
+
+    static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    long now = TimeUnit.SECONDS.toNanos(1000);
+
+    @Test
+    public void testTryAdmit_rateLimitedPerClient() {
+        final AdmissionControl admissionControl = new AdmissionControl(10, 2, 4096, 100, 2.0);
+
+        assertThat(admitAndRelease(admissionControl, "a")).isEqualTo(AdmissionControl.ADMITTED);
+        assertThat(admitAndRelease(admissionControl, "a")).isEqualTo(AdmissionControl.ADMITTED);
+        assertThat(admitAndRelease(admissionControl, "a")).isEqualTo(AdmissionControl.RATE_LIMITED);
+        assertThat(admitAndRelease(admissionControl, "b")).isEqualTo(AdmissionControl.ADMITTED);
+
+        // 10 requests per second refill a token every 100 ms
+        now += 100 * MILLI;
+        assertThat(admitAndRelease(admissionControl, "a")).isEqualTo(AdmissionControl.ADMITTED);
+        assertThat(admitAndRelease(admissionControl, "a")).isEqualTo(AdmissionControl.RATE_LIMITED);
+    }
+
+    @Test
+    public void testTryCharge_paidOffBeforeNextRequest() {
+        final AdmissionControl admissionControl = new AdmissionControl(10, 2, 4096, 100, 2.0);
+        assertThat(admissionControl.tryAdmit("a", now)).isEqualTo(AdmissionControl.ADMITTED);
+
+        // The batch is charged while a token is left, which leaves the client 9 tokens in debt
+        assertThat(admissionControl.tryCharge("a", 10, now)).isTrue();
+        assertThat(admissionControl.tryCharge("a", 10, now)).isFalse();
+        admissionControl.release(MILLI, now + MILLI);
+
+        now += 900 * MILLI;
+        assertThat(admitAndRelease(admissionControl, "a")).isEqualTo(AdmissionControl.RATE_LIMITED);
+        now += 100 * MILLI;
+        assertThat(admitAndRelease(admissionControl, "a")).isEqualTo(AdmissionControl.ADMITTED);
+    }
+
+    @Test
+    public void testTryAdmit_overloaded() {
+        final AdmissionControl admissionControl = new AdmissionControl(0, 0, 1, 40, 2.0);
+
+        // Starts with a quarter of the highest limit
+        assertThat(fill(admissionControl)).isEqualTo(10);
+        assertThat(admissionControl.tryAdmit("a", now)).isEqualTo(AdmissionControl.OVERLOADED);
+
+        admissionControl.release(MILLI, now + MILLI);
+        assertThat(admissionControl.tryAdmit("a", now)).isEqualTo(AdmissionControl.ADMITTED);
+    }
+
+    @Test
+    public void testTryAdmit_overloadedKeepsTokens() {
+        final AdmissionControl admissionControl = new AdmissionControl(10, 1, 4096, 4, 2.0);
+        assertThat(admissionControl.tryAdmit("a", now)).isEqualTo(AdmissionControl.ADMITTED);
+
+        // The only concurrent request is taken, so "b" is turned away before its token is touched
+        assertThat(admissionControl.tryAdmit("b", now)).isEqualTo(AdmissionControl.OVERLOADED);
+        admissionControl.cancel();
+        assertThat(admissionControl.tryAdmit("b", now)).isEqualTo(AdmissionControl.ADMITTED);
+
+        // A rate limited request doesn't keep its concurrent slot either
+        admissionControl.cancel();
+        assertThat(admissionControl.tryAdmit("b", now)).isEqualTo(AdmissionControl.RATE_LIMITED);
+        assertThat(admissionControl.getInFlight()).isZero();
+    }
+
+    @Test
+    public void testRelease_adaptsLimitToLatency() {
+        final AdmissionControl admissionControl = new AdmissionControl(0, 0, 1, 40, 2.0);
+
+        // Fast requests using the whole limit raise it up to the highest limit, which keeps the reserved threads free
+        for (int round = 0; round < 100; round++) {
+            final int admitted = fill(admissionControl);
+            now += MILLI;
+            for (int i = 0; i < admitted; i++) {
+                admissionControl.release(MILLI, now);
+            }
+        }
+        assertThat(admissionControl.getConcurrencyLimit()).isEqualTo(40);
+        assertThat(admissionControl.getInFlight()).isZero();
+
+        // A slow request lowers it by 10%, the other slow requests of the same time only count once
+        fill(admissionControl);
+        now += 10 * MILLI;
+        admissionControl.release(10 * MILLI, now);
+        assertThat(admissionControl.getConcurrencyLimit()).isEqualTo(36);
+        admissionControl.release(10 * MILLI, now);
+        assertThat(admissionControl.getConcurrencyLimit()).isEqualTo(36);
+
+        now += 10 * MILLI;
+        admissionControl.release(10 * MILLI, now);
+        assertThat(admissionControl.getConcurrencyLimit()).isEqualTo(32);
+    }
+
+    private int admitAndRelease(final AdmissionControl admissionControl, final String client) {
+        final int result = admissionControl.tryAdmit(client, now);
+        if (result == AdmissionControl.ADMITTED) {
+            admissionControl.release(MILLI, now + MILLI);
+        }
+        return result;
+    }
+
+    private int fill(final AdmissionControl admissionControl) {
+        int admitted = 0;
+        while (admissionControl.tryAdmit("a", now) == AdmissionControl.ADMITTED) {
+            admitted++;
+        }
+        return admitted;
+    }
+}
@@ -0,0 +1,168 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import n26.model.BucketSnapshot;
+import n26.model.ClusterStatistics;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ClusterAggregatorTest {
+
+    static final long STALENESS_MS = 2_000;
+
+    Clock mockedClock;
+
+    Instant now;
+
+    TransactionStore[] stores = new TransactionStore[3];
+
+    TransactionStore single;
+
+    // Whether the last node is reachable
+    boolean lastNodeUp = true;
+
+    // Whether the last node keeps serving the snapshot it took last
+    boolean lastNodeFrozen;
+
+    BucketSnapshot lastNodeSnapshot;
+
+    ClusterAggregator aggregator;
+
+    @Before
+    public void setup() {
+        now = Instant.ofEpochMilli(1_000_000_000L);
+        mockedClock = mock(Clock.class);
+        Mockito.doAnswer((invocation) -> now).when(mockedClock).instant();
+        Mockito.doAnswer((invocation) -> now.toEpochMilli()).when(mockedClock).millis();
+
+        final Map<String, SnapshotSource> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < stores.length; i++) {
+            final TransactionStore store = new TransactionStore(mockedClock);
+            stores[i] = store;
+            final boolean last = i == stores.length - 1;
+            nodes.put("node-" + i, () -> {
+                if (last && !lastNodeUp) {
+                    throw new IllegalStateException("Connection refused");
+                }
+                if (last && lastNodeFrozen) {
+                    return lastNodeSnapshot;
+                }
+                final BucketSnapshot snapshot = store.getSnapshot(now);
+                if (last) {
+                    lastNodeSnapshot = snapshot;
+                }
+                return snapshot;
+            });
+        }
+        single = new TransactionStore(mockedClock);
+
+        aggregator = new ClusterAggregator(1000, 60, STALENESS_MS, nodes);
+    }
+
+    @Test
+    public void testGetStatistics_sameAsSingleStore() {
+        for (int i = 0; i < 300; i++) {
+            final Transaction transaction = new Transaction(now.toEpochMilli() - 200 * i, i % 17 - 3.5);
+            stores[i % stores.length].addTransaction(transaction);
+            single.addTransaction(transaction);
+        }
+        advanceTimeByMs(1_000);
+
+        aggregator.refresh();
+        final ClusterStatistics cluster = aggregator.getStatistics(now);
+        final Statistics expected = single.getStatistics(now);
+
+        assertThat(cluster.getMergedNodes()).isEqualTo(3);
+        assertThat(cluster.getNodes()).isEqualTo(3);
+        assertThat(cluster.getStatistics().getCount()).isEqualTo(expected.getCount());
+        assertThat(cluster.getStatistics().getSum()).isCloseTo(expected.getSum(), within(1e-9));
+        assertThat(cluster.getStatistics().getMin()).isEqualTo(expected.getMin());
+        assertThat(cluster.getStatistics().getMax()).isEqualTo(expected.getMax());
+        assertThat(cluster.getStatistics().getLastTimestamp()).isEqualTo(expected.getLastTimestamp());
+    }
+
+    @Test
+    public void testGetStatistics_missingNodeIsLeftOut() {
+        addToEveryStore(2.0);
+        advanceTimeByMs(1_000);
+        lastNodeUp = false;
+
+        aggregator.refresh();
+        final ClusterStatistics cluster = aggregator.getStatistics(now);
+
+        assertThat(cluster.getMergedNodes()).isEqualTo(2);
+        assertThat(cluster.getStatistics().getCount()).isEqualTo(2);
+        assertThat(cluster.getStatistics().getSum()).isEqualTo(4.0);
+    }
+
+    @Test
+    public void testGetStatistics_staleSnapshotIsLeftOut() {
+        addToEveryStore(2.0);
+        advanceTimeByMs(1_000);
+        aggregator.refresh();
+
+        // The last node stops responding, its snapshot is still used until it is older than the staleness bound
+        lastNodeUp = false;
+        advanceTimeByMs(STALENESS_MS);
+        aggregator.refresh();
+        assertThat(aggregator.getStatistics(now).getMergedNodes()).isEqualTo(3);
+
+        advanceTimeByMs(1);
+        assertThat(aggregator.getStatistics(now).getMergedNodes()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGetStatistics_oldSnapshotIsLeftOut() {
+        addToEveryStore(2.0);
+        advanceTimeByMs(1_000);
+        aggregator.refresh();
+
+        // The last node still responds, but keeps serving the same snapshot, which ages although it is fetched again
+        lastNodeFrozen = true;
+        advanceTimeByMs(STALENESS_MS);
+        aggregator.refresh();
+        assertThat(aggregator.getStatistics(now).getMergedNodes()).isEqualTo(3);
+
+        advanceTimeByMs(1);
+        aggregator.refresh();
+        final ClusterStatistics cluster = aggregator.getStatistics(now);
+        assertThat(cluster.getMergedNodes()).isEqualTo(2);
+        assertThat(cluster.getStatistics().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGetStatistics_onlyBucketsOfWindow() {
+        addToEveryStore(2.0);
+        advanceTimeByMs(1_000);
+        aggregator.refresh();
+
+        // The snapshots are recent, but their buckets have left the window of the aggregator meanwhile
+        advanceTimeByMs(60_000);
+        lastNodeUp = false;
+        aggregator.refresh();
+
+        final ClusterStatistics cluster = aggregator.getStatistics(now);
+        assertThat(cluster.getMergedNodes()).isEqualTo(2);
+        assertThat(cluster.getStatistics().getCount()).isZero();
+    }
+
+    private void addToEveryStore(final double amount) {
+        for (final TransactionStore store : stores) {
+            store.addTransaction(new Transaction(now.toEpochMilli(), amount));
+        }
+    }
+
+    private void advanceTimeByMs(final long ms) {
+        now = now.plusMillis(ms);
+    }
+}
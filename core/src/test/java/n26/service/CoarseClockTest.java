@@ -0,0 +1,39 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.Test;
+
+public class CoarseClockTest {
+
+    @Test
+    public void testMillis_followsSourceWithTicks() throws InterruptedException {
+        final Clock source = mock(Clock.class);
+        when(source.millis()).thenReturn(1_000L);
+
+        try (CoarseClock clock = new CoarseClock(source, 1)) {
+            assertThat(clock.millis()).isEqualTo(1_000L);
+
+            when(source.millis()).thenReturn(2_000L);
+            for (int i = 0; i < 500 && clock.millis() != 2_000L; i++) {
+                Thread.sleep(1);
+            }
+
+            assertThat(clock.millis()).isEqualTo(2_000L);
+            assertThat(clock.instant()).isEqualTo(Instant.ofEpochMilli(2_000L));
+        }
+    }
+
+    @Test
+    public void testWithZone() {
+        try (CoarseClock clock = new CoarseClock(Clock.systemUTC(), 10)) {
+            assertThat(clock.withZone(ZoneOffset.UTC)).isSameAs(clock);
+            assertThat(clock.withZone(ZoneOffset.ofHours(2)).getZone()).isEqualTo(ZoneOffset.ofHours(2));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.List;
+import n26.model.KeyStatistics;
+import n26.model.Statistics;
+import org.junit.Test;
+
+public class DimensionStatisticsTest {
+
+    static final int WINDOW_BUCKETS = 60;
+
+    // Room for exactly one key per shard
+    static final long ONE_KEY_PER_SHARD = 16 * ((WINDOW_BUCKETS + 1) * KeyedStatisticsTable.BUCKET_BYTES + 48);
+
+    DimensionStatistics dimension = new DimensionStatistics("merchant", 1024 * 1024, WINDOW_BUCKETS, 8);
+
+    @Test
+    public void testGetStatistics_onlyBucketsOfWindow() {
+        dimension.add("m-1", 100, 100_000, 5.0);
+        dimension.add("m-1", 130, 130_000, 1.0);
+        dimension.add("m-1", 130, 130_500, 9.0);
+        dimension.add("m-2", 130, 130_000, 100.0);
+
+        Statistics statistics = dimension.getStatistics("m-1", 101, 160);
+
+        assertThat(statistics.getCount()).isEqualTo(2);
+        assertThat(statistics.getSum()).isEqualTo(10.0);
+        assertThat(statistics.getMin()).isEqualTo(1.0);
+        assertThat(statistics.getMax()).isEqualTo(9.0);
+        assertThat(statistics.getLastTimestamp()).isEqualTo(130_500);
+        assertThat(dimension.getStatistics("m-3", 101, 160).getCount()).isZero();
+    }
+
+    @Test
+    public void testGetTopKeys_orderedByCount() {
+        for (int i = 1; i <= 5; i++) {
+            for (int j = 0; j < i; j++) {
+                dimension.add("m-" + i, 10, 10_000, 1.0);
+            }
+        }
+
+        List<KeyStatistics> top = dimension.getTopKeys(3, 0, 59);
+
+        assertThat(top).extracting("key", "count", "exact")
+                .containsExactly(tuple("m-5", 5L, true), tuple("m-4", 4L, true), tuple("m-3", 3L, true));
+    }
+
+    @Test
+    public void testAdd_heavyHitterFoundAmongManyKeys() {
+        dimension = new DimensionStatistics("merchant", ONE_KEY_PER_SHARD, WINDOW_BUCKETS, 8);
+
+        for (int i = 0; i < 100_000; i++) {
+            dimension.add("m-" + i, 10, 10_000, 1.0);
+            if (i % 5 == 0) {
+                dimension.add("heavy", 10, 10_000, 1.0);
+            }
+        }
+
+        assertThat(dimension.getMaxKeys()).isEqualTo(16);
+        KeyStatistics top = dimension.getTopKeys(1, 0, 59).get(0);
+        assertThat(top.getKey()).isEqualTo("heavy");
+        assertThat(top.getCount()).isGreaterThanOrEqualTo(20_000);
+    }
+
+    @Test
+    public void testAdd_heavyHittersFoundInStripedOverflow() {
+        dimension = new DimensionStatistics("merchant", ONE_KEY_PER_SHARD, WINDOW_BUCKETS, 64);
+
+        for (int i = 0; i < 100_000; i++) {
+            dimension.add("m-" + i, 10, 10_000, 1.0);
+            if (i % 5 == 0) {
+                dimension.add("heavy-" + i % 4, 10, 10_000, 1.0);
+            }
+        }
+
+        List<KeyStatistics> top = dimension.getTopKeys(4, 0, 59);
+        assertThat(top).extracting("key").containsOnly("heavy-0", "heavy-1", "heavy-2", "heavy-3");
+        assertThat(dimension.getTopKeys(100, 0, 59)).hasSize(16 + 64);
+    }
+
+    @Test
+    public void testAdd_expiredKeysAreReplaced() {
+        dimension = new DimensionStatistics("merchant", ONE_KEY_PER_SHARD, WINDOW_BUCKETS, 8);
+        for (int i = 0; i < 1000; i++) {
+            dimension.add("old-" + i, 10, 10_000, 1.0);
+        }
+
+        // Two windows later all tables have room for new keys again and the old long tail is forgotten
+        for (int i = 0; i < 1000; i++) {
+            dimension.add("new-" + i, 130, 130_000, 2.0);
+        }
+
+        List<KeyStatistics> top = dimension.getTopKeys(100, 71, 130);
+        assertThat(top).hasSize(16 + 8).filteredOn("exact", true).hasSize(16);
+        for (KeyStatistics key : top) {
+            assertThat(key.getKey()).startsWith("new-");
+        }
+    }
+}
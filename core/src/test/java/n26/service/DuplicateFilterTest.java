@@ -0,0 +1,63 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class DuplicateFilterTest {
+
+    @Test
+    public void testAdd_duplicatesPerBucket() {
+        final DuplicateFilter filter = new DuplicateFilter(62, 1000);
+
+        assertThat(filter.add(100, "a")).isTrue();
+        assertThat(filter.add(100, "b")).isTrue();
+        assertThat(filter.add(100, "a")).isFalse();
+        // The same key in another bucket is a different transaction
+        assertThat(filter.add(101, "a")).isTrue();
+        assertThat(filter.add(101, "a")).isFalse();
+    }
+
+    @Test
+    public void testExpire_clearsFilterForNextBucketOfSlot() {
+        final DuplicateFilter filter = new DuplicateFilter(62, 1000);
+        filter.add(100, "a");
+
+        // Bucket 162 gets the cleared slot of bucket 100, which is outdated from then on
+        filter.expire(101);
+
+        assertThat(filter.add(162, "a")).isTrue();
+        assertThat(filter.add(162, "a")).isFalse();
+        assertThat(filter.add(100, "a")).isTrue();
+    }
+
+    @Test
+    public void testExpire() {
+        final DuplicateFilter filter = new DuplicateFilter(62, 1000);
+        filter.add(100, "a");
+        filter.add(101, "a");
+
+        filter.expire(101);
+
+        assertThat(filter.add(100, "a")).isTrue();
+        assertThat(filter.add(101, "a")).isFalse();
+    }
+
+    @Test
+    public void testAdd_falsePositivesWhenFull() {
+        final int keys = 100_000;
+        final DuplicateFilter filter = new DuplicateFilter(62, keys);
+        int falsePositives = 0;
+        for (int i = 0; i < keys; i++) {
+            if (!filter.add(7, "key-" + i)) {
+                falsePositives++;
+            }
+        }
+        for (int i = 0; i < keys; i++) {
+            assertThat(filter.add(7, "key-" + i)).isFalse();
+        }
+
+        // About 0.03% once full, fewer while it fills up
+        assertThat(falsePositives).isLessThan(keys / 1000);
+    }
+}
@@ -0,0 +1,91 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class IngestQueueTest {
+
+    IngestQueue ingestQueue;
+
+    @After
+    public void tearDown() {
+        if (ingestQueue != null) {
+            ingestQueue.close();
+        }
+    }
+
+    @Test
+    public void testOffer_readYourWrites() {
+        final TransactionStore transactionStore = new TransactionStore();
+        ingestQueue = new IngestQueue(transactionStore, 1024, 64, ReadConsistency.READ_YOUR_WRITES, 5_000);
+
+        final long timestamp = Instant.now().toEpochMilli() - 2_000;
+        for (int i = 0; i < 1000; i++) {
+            assertThat(ingestQueue.offer(timestamp, 1.0)).isTrue();
+        }
+        ingestQueue.awaitQueued();
+
+        assertThat(ingestQueue.size()).isEqualTo(0);
+        assertThat(transactionStore.getStatistics(Instant.now()).getCount()).isEqualTo(1000);
+    }
+
+    @Test
+    public void testOffer_fullWhileWriterIsBusy() throws InterruptedException {
+        final TransactionStore transactionStore = mock(TransactionStore.class);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger added = new AtomicInteger();
+        doAnswer(invocation -> {
+            release.await();
+            added.addAndGet(invocation.getArgumentAt(2, Integer.class));
+            return invocation.getArgumentAt(2, Integer.class);
+        }).when(transactionStore).addTransactions(any(long[].class), any(double[].class), anyInt());
+        ingestQueue = new IngestQueue(transactionStore, 4, 2, ReadConsistency.EVENTUAL, 0);
+
+        // The slots are only freed once the writer added their transactions
+        for (int i = 0; i < 4; i++) {
+            assertThat(ingestQueue.offer(i, 1.0)).isTrue();
+        }
+        assertThat(ingestQueue.offer(4, 1.0)).isFalse();
+
+        release.countDown();
+        ingestQueue.close();
+
+        assertThat(added.get()).isEqualTo(4);
+        assertThat(ingestQueue.isRunning()).isFalse();
+        assertThat(ingestQueue.offer(5, 1.0)).isFalse();
+    }
+
+    @Test
+    public void testAwaitQueued_givesUpAfterReadTimeout() {
+        final TransactionStore transactionStore = mock(TransactionStore.class);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return invocation.getArgumentAt(2, Integer.class);
+        }).when(transactionStore).addTransactions(any(long[].class), any(double[].class), anyInt());
+        ingestQueue = new IngestQueue(transactionStore, 4, 2, ReadConsistency.READ_YOUR_WRITES, 50);
+
+        assertThat(ingestQueue.offer(1, 1.0)).isTrue();
+        final long start = System.nanoTime();
+        ingestQueue.awaitQueued();
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(ingestQueue.size()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacity_powerOfTwo() {
+        ingestQueue = new IngestQueue(new TransactionStore(), 1000, 64, ReadConsistency.EVENTUAL, 0);
+    }
+}
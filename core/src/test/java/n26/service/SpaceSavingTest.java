@@ -0,0 +1,66 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import n26.model.KeyStatistics;
+import org.junit.Test;
+
+public class SpaceSavingTest {
+
+    SpaceSaving summary = new SpaceSaving(2);
+
+    @Test
+    public void testAdd_replacedKeyDoesNotPassOnItsSum() {
+        for (int i = 0; i < 3; i++) {
+            summary.add(1, "a", 1.0);
+        }
+        summary.add(2, "b", -5.0);
+        summary.add(3, "c", 10.0);
+
+        // c inherits the count of b as its error, but neither its count nor its negative sum show up
+        assertThat(keys()).extracting("key", "count", "sum")
+                .containsOnly(tuple("a", 3L, 3.0), tuple("c", 1L, 10.0));
+    }
+
+    @Test
+    public void testAdd_heavyHitterMonitoredAmongManyKeys() {
+        summary = new SpaceSaving(8);
+        for (int i = 0; i < 10_000; i++) {
+            summary.add(DimensionStatistics.hash("k-" + i), "k-" + i, 1.0);
+            if (i % 4 == 0) {
+                summary.add(DimensionStatistics.hash("heavy"), "heavy", 2.0);
+            }
+        }
+
+        final KeyStatistics heavy = keys().stream().filter(key -> key.getKey().equals("heavy")).findFirst().get();
+        assertThat(heavy.getCount()).isBetween(2000L, 2500L);
+        assertThat(heavy.getSum()).isEqualTo(heavy.getCount() * 2.0);
+    }
+
+    @Test
+    public void testAdd_keysFoundAfterReplacementsInTheirProbeSequence() {
+        summary = new SpaceSaving(4);
+        // All hashes share their index slot, so every replacement removes a key from the middle of one probe sequence
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 8; i++) {
+                summary.add((long) i << 32, "k-" + i, 1.0);
+            }
+        }
+        for (int i = 0; i < 4; i++) {
+            summary.add(7L << 32, "k-7", 1.0);
+        }
+
+        assertThat(keys()).hasSize(4).extracting("key").doesNotHaveDuplicates().contains("k-7");
+        summary.clear();
+        assertThat(keys()).isEmpty();
+    }
+
+    private List<KeyStatistics> keys() {
+        final List<KeyStatistics> keys = new ArrayList<>();
+        summary.forEach(keys::add);
+        return keys;
+    }
+}
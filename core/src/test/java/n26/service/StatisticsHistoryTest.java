@@ -0,0 +1,122 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import n26.model.Statistics;
+import org.junit.Test;
+
+public class StatisticsHistoryTest {
+
+    // Midnight, so the hours and minutes of the test line up with the slots
+    static final long START_MS = 1_500_000_000_000L / 86_400_000 * 86_400_000;
+
+    Random random = new Random(42);
+
+    @Test
+    public void testAddTo_matchesBucketsOfRange() {
+        final StatisticsHistory history = new StatisticsHistory(Arrays.asList(
+                RetentionTier.parse("1h:30d"), RetentionTier.parse("1m:1d")));
+        final Statistics[] seconds = addSeconds(history, 3 * 3600);
+        final long nowMs = START_MS + seconds.length * 1000L;
+
+        for (int i = 0; i < 200; i++) {
+            final int from = random.nextInt(seconds.length);
+            final int to = from + 1 + random.nextInt(seconds.length - from);
+            final Statistics expected = new Statistics();
+            for (int second = from; second < to; second++) {
+                expected.addStatistics(seconds[second]);
+            }
+
+            final Statistics total = new Statistics();
+            history.addTo(START_MS + from * 1000L, START_MS + to * 1000L, nowMs, total);
+
+            // Only whole minutes are kept, so the range is covered down to its first and last full minute
+            final Statistics covered = new Statistics();
+            final int firstMinute = (from + 59) / 60 * 60;
+            final int end = to == seconds.length ? to : to / 60 * 60;
+            for (int second = firstMinute; second < end; second++) {
+                covered.addStatistics(seconds[second]);
+            }
+            assertThat(total.getCount()).isEqualTo(covered.getCount());
+            assertThat(total.getSum()).isCloseTo(covered.getSum(), within(1e-6));
+            if (covered.getCount() > 0) {
+                assertThat(total.getMin()).isEqualTo(covered.getMin());
+                assertThat(total.getMax()).isEqualTo(covered.getMax());
+                assertThat(total.getLastTimestamp()).isEqualTo(covered.getLastTimestamp());
+            }
+            assertThat(total.getCount()).isLessThanOrEqualTo(expected.getCount());
+        }
+    }
+
+    @Test
+    public void testAddTo_recentRangeExactUpToNewestBucket() {
+        final StatisticsHistory history = new StatisticsHistory(Arrays.asList(
+                RetentionTier.parse("1m:1d"), RetentionTier.parse("1h:30d")));
+        final Statistics[] seconds = addSeconds(history, 90 * 60 + 17);
+
+        final Statistics expected = new Statistics();
+        for (int second = 60; second < seconds.length; second++) {
+            expected.addStatistics(seconds[second]);
+        }
+        final Statistics total = new Statistics();
+        history.addTo(START_MS + 60_000, START_MS + seconds.length * 1000L, START_MS + seconds.length * 1000L, total);
+
+        assertThat(total.getCount()).isEqualTo(expected.getCount());
+        assertThat(total.getMax()).isEqualTo(expected.getMax());
+    }
+
+    @Test
+    public void testExpire_dropsSlotsOlderThanRetention() {
+        final StatisticsHistory history = new StatisticsHistory(Arrays.asList(RetentionTier.parse("1m:1h")));
+        final Statistics[] seconds = addSeconds(history, 3 * 3600);
+        final long nowMs = START_MS + seconds.length * 1000L;
+        final long bytes = history.getBytes();
+
+        history.expire(nowMs);
+
+        final Statistics expected = new Statistics();
+        for (int second = 2 * 3600; second < seconds.length; second++) {
+            expected.addStatistics(seconds[second]);
+        }
+        final Statistics total = new Statistics();
+        history.addTo(START_MS, nowMs, nowMs, total);
+        assertThat(total.getCount()).isEqualTo(expected.getCount());
+        assertThat(history.getBytes()).isLessThan(bytes);
+    }
+
+    @Test
+    public void testBytes_dayOfMinutesAndHours() {
+        final StatisticsHistory history = new StatisticsHistory(Arrays.asList(
+                RetentionTier.parse("1m:1d"), RetentionTier.parse("1h:30d")));
+        addSeconds(history, 86_400);
+
+        assertThat(history.getBytes()).isPositive().isLessThan(64 * 1024);
+        assertThat(history.getResolutions()).containsExactly(Duration.ofMinutes(1), Duration.ofHours(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResolutions_mustBeMultiples() {
+        new StatisticsHistory(Arrays.asList(RetentionTier.parse("40s:1h"), RetentionTier.parse("1m:1d")));
+    }
+
+    // Adds one bucket per second with a few transactions of cent amounts, and leaves some seconds empty
+    private Statistics[] addSeconds(final StatisticsHistory history, final int count) {
+        final Statistics[] seconds = new Statistics[count];
+        for (int second = 0; second < count; second++) {
+            seconds[second] = new Statistics();
+            final long bucketStartMs = START_MS + second * 1000L;
+            final int transactions = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(20);
+            for (int i = 0; i < transactions; i++) {
+                seconds[second].addTransaction(bucketStartMs + random.nextInt(1000), random.nextInt(100_000) / 100.0);
+            }
+            if (transactions > 0) {
+                history.add(bucketStartMs, seconds[second]);
+            }
+        }
+        return seconds;
+    }
+}
@@ -0,0 +1,159 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import n26.model.StatisticsUpdate;
+import n26.model.ThresholdEvent;
+import n26.model.ThresholdRule;
+import n26.model.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class StatisticsPublisherTest {
+
+    Clock mockedClock;
+
+    Instant now;
+
+    TransactionStore transactionStore;
+
+    // Sends are only run when the test says so, like a sender which is busy with a slow subscriber
+    List<Runnable> pendingSends = new ArrayList<>();
+
+    StatisticsPublisher publisher;
+
+    @Before
+    public void setup() {
+        now = Instant.ofEpochMilli(1_500_000_000_000L);
+        mockedClock = mock(Clock.class);
+        Mockito.doAnswer((invocation) -> now).when(mockedClock).instant();
+        Mockito.doAnswer((invocation) -> now.toEpochMilli()).when(mockedClock).millis();
+
+        transactionStore = new TransactionStore(mockedClock);
+        publisher = new StatisticsPublisher(transactionStore, mockedClock, pendingSends::add);
+    }
+
+    @Test
+    public void testSubscribe_firstUpdateRightAway() {
+        final RecordingSink sink = new RecordingSink();
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli() - 1_000, 2.0));
+        publisher.subscribe(Collections.emptyList(), sink);
+
+        publisher.dispatch();
+        sendAll();
+
+        assertThat(sink.events).containsExactly(StatisticsPublisher.STATISTICS_EVENT);
+        assertThat(sink.lastUpdate().getStatistics().getSum()).isEqualTo(2.0);
+    }
+
+    @Test
+    public void testDispatch_onlyWhenStatisticsChanged() {
+        final RecordingSink sink = new RecordingSink();
+        publisher.subscribe(Collections.emptyList(), sink);
+        publisher.dispatch();
+        sendAll();
+
+        // Transactions of the current bucket only show up as part of the next update
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 3.0));
+        publisher.dispatch();
+        sendAll();
+        assertThat(sink.events).hasSize(1);
+
+        now = now.plusSeconds(1);
+        publisher.dispatch();
+        sendAll();
+        assertThat(sink.events).hasSize(2);
+        assertThat(sink.lastUpdate().getStatistics().getSum()).isEqualTo(3.0);
+        assertThat(sink.lastUpdate().getCurrentBucket().getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testThresholdRule_activatedAndCleared() {
+        final RecordingSink sink = new RecordingSink();
+        publisher.subscribe(Collections.singletonList(ThresholdRule.parse("sum>10")), sink);
+        publisher.dispatch();
+
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 15.0));
+        now = now.plusSeconds(1);
+        publisher.dispatch();
+        sendAll();
+
+        assertThat(sink.thresholdEvents).hasSize(1);
+        assertThat(sink.thresholdEvents.get(0).getRule()).isEqualTo("sum>10.0");
+        assertThat(sink.thresholdEvents.get(0).isActive()).isTrue();
+        assertThat(sink.thresholdEvents.get(0).getValue()).isEqualTo(15.0);
+
+        // The transaction leaves the statistics window
+        now = now.plusSeconds(60);
+        publisher.dispatch();
+        sendAll();
+
+        assertThat(sink.thresholdEvents).hasSize(2);
+        assertThat(sink.thresholdEvents.get(1).isActive()).isFalse();
+    }
+
+    @Test
+    public void testSlowSubscriber_coalesced() {
+        final RecordingSink sink = new RecordingSink();
+        final StatisticsPublisher.Subscription subscription = publisher.subscribe(Collections.emptyList(), sink);
+
+        // The subscriber doesn't get anything sent while the next updates arrive
+        for (int i = 1; i <= 5; i++) {
+            transactionStore.addTransaction(new Transaction(now.toEpochMilli(), i));
+            now = now.plusSeconds(1);
+            publisher.dispatch();
+        }
+        assertThat(pendingSends).hasSize(1);
+        sendAll();
+
+        assertThat(sink.events).containsExactly(StatisticsPublisher.STATISTICS_EVENT);
+        assertThat(sink.lastUpdate().getStatistics().getSum()).isEqualTo(15.0);
+        assertThat(subscription.getCoalesced()).isEqualTo(4);
+    }
+
+    @Test
+    public void testFailingSubscriber_unsubscribed() {
+        publisher.subscribe(Collections.emptyList(), (event, data) -> {
+            throw new IOException("Broken pipe");
+        });
+        publisher.dispatch();
+        sendAll();
+
+        assertThat(publisher.getSubscriptions()).isEqualTo(0);
+    }
+
+    private void sendAll() {
+        while (!pendingSends.isEmpty()) {
+            pendingSends.remove(0).run();
+        }
+    }
+
+    private static class RecordingSink implements StatisticsPublisher.Sink {
+
+        final List<String> events = new ArrayList<>();
+        final List<StatisticsUpdate> updates = new ArrayList<>();
+        final List<ThresholdEvent> thresholdEvents = new ArrayList<>();
+
+        @Override
+        public void send(String event, Object data) {
+            events.add(event);
+            if (data instanceof StatisticsUpdate) {
+                updates.add((StatisticsUpdate) data);
+            } else {
+                thresholdEvents.add((ThresholdEvent) data);
+            }
+        }
+
+        StatisticsUpdate lastUpdate() {
+            return updates.get(updates.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import n26.model.QuantileSketch;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import org.junit.Test;
+
+public class StatisticsRingTest {
+
+    StatisticsRing ring = new StatisticsRing(5);
+
+    @Test
+    public void testAggregate_emptyRing() {
+        assertThat(ring.aggregate(0, 100)).isEqualTo(new Statistics());
+    }
+
+    @Test
+    public void testAdd_singleBucket() {
+        ring.add(10, 10_001, 3.0);
+        ring.add(10, 10_500, -1.0);
+        ring.add(10, 10_200, 7.0);
+
+        Statistics statistics = ring.aggregate(10, 10);
+
+        assertThat(statistics.getCount()).isEqualTo(3);
+        assertThat(statistics.getSum()).isEqualTo(9.0);
+        assertThat(statistics.getAvg()).isEqualTo(3.0);
+        assertThat(statistics.getMin()).isEqualTo(-1.0);
+        assertThat(statistics.getMax()).isEqualTo(7.0);
+        assertThat(statistics.getLastTimestamp()).isEqualTo(10_500);
+    }
+
+    @Test
+    public void testAggregate_onlyRequestedBuckets() {
+        for (int bucket = 10; bucket < 15; bucket++) {
+            ring.add(bucket, bucket * 1000, bucket);
+        }
+
+        Statistics statistics = ring.aggregate(11, 13);
+
+        assertThat(statistics.getCount()).isEqualTo(3);
+        assertThat(statistics.getMin()).isEqualTo(11.0);
+        assertThat(statistics.getMax()).isEqualTo(13.0);
+    }
+
+    @Test
+    public void testAdd_fixedPointAmounts() {
+        ring = new StatisticsRing(5, false, 100);
+        Statistics batch = new Statistics();
+        for (int i = 0; i < 1000; i++) {
+            ring.add(10, 10_000, 0.1);
+            batch.addTransaction(new Transaction(11_000, 0.01));
+        }
+        ring.add(10, 10_000, -2.5);
+        ring.merge(11, batch);
+
+        Statistics statistics = ring.aggregate(10, 11);
+
+        assertThat(statistics.getCount()).isEqualTo(2001);
+        assertThat(statistics.getSum()).isEqualTo(107.5);
+        assertThat(statistics.getMin()).isEqualTo(-2.5);
+        assertThat(statistics.getMax()).isEqualTo(0.1);
+        assertThat(ring.commit(11).getSum()).isEqualTo(10.0);
+    }
+
+    @Test
+    public void testAdd_newerBucketReplacesExpiredSlot() {
+        ring.add(10, 10_000, 1.0);
+        ring.add(15, 15_000, 2.0);
+
+        assertThat(ring.aggregate(10, 10).getCount()).isZero();
+        assertThat(ring.aggregate(15, 15).getSum()).isEqualTo(2.0);
+    }
+
+    @Test
+    public void testAggregate_mergesSketches() {
+        ring = new StatisticsRing(5, true);
+        Statistics batch = Statistics.withSketch();
+        batch.addTransaction(new Transaction(11_000, 100.0));
+        batch.addTransaction(new Transaction(11_000, 200.0));
+        ring.add(10, 10_000, 1.0);
+        ring.merge(11, batch);
+        ring.add(15, 15_000, 5.0);
+
+        QuantileSketch expected = new QuantileSketch();
+        expected.add(100.0);
+        expected.add(200.0);
+        expected.add(5.0);
+        assertThat(ring.aggregate(11, 15).getSketch()).isEqualTo(expected);
+        assertThat(ring.commit(15).getSketch().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAdd_olderBucketRejectedIfSlotWasReused() {
+        ring.add(15, 15_000, 2.0);
+
+        assertThat(ring.add(10, 10_000, 1.0)).isEqualTo(StatisticsRing.REJECTED);
+        assertThat(ring.aggregate(10, 15).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCommit_snapshotOfBucket() {
+        ring.add(10, 10_000, 1.0);
+        ring.add(10, 10_100, 3.0);
+
+        Statistics statistics = ring.commit(10);
+
+        assertThat(statistics.getCount()).isEqualTo(2);
+        assertThat(statistics.getSum()).isEqualTo(4.0);
+        assertThat(ring.commit(11).getCount()).isZero();
+    }
+
+    @Test
+    public void testIsLate_onlyWritesAfterCommit() {
+        long early = ring.add(10, 10_000, 1.0);
+        ring.commit(10);
+        long late = ring.add(10, 10_100, 3.0);
+        long uncommitted = ring.add(11, 11_000, 3.0);
+
+        assertThat(ring.isLate(10, early)).isFalse();
+        assertThat(ring.isLate(10, late)).isTrue();
+        assertThat(ring.isLate(11, uncommitted)).isFalse();
+    }
+
+    @Test
+    public void testIsLate_firstWriteToCommittedEmptyBucket() {
+        ring.add(5, 5_000, 1.0);
+        ring.commit(10);
+        long late = ring.add(10, 10_100, 3.0);
+
+        assertThat(ring.isLate(10, late)).isTrue();
+    }
+
+    @Test
+    public void testAdd_concurrentWritersLoseNoUpdates() throws Exception {
+        final int threads = 8;
+        final int transactionsPerThread = 20_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < transactionsPerThread; i++) {
+                    ring.add(i % 3, i, 1.0);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        Statistics statistics = ring.aggregate(0, 2);
+        assertThat(statistics.getCount()).isEqualTo(threads * transactionsPerThread);
+        assertThat(statistics.getSum()).isEqualTo(threads * transactionsPerThread * 1.0);
+    }
+
+}
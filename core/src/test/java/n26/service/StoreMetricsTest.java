@@ -0,0 +1,100 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import n26.model.InvalidTimestampException;
+import n26.model.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class StoreMetricsTest {
+
+    Clock mockedClock;
+
+    Instant now;
+
+    StoreMetrics storeMetrics;
+
+    TransactionStore transactionStore;
+
+    @Before
+    public void setup() {
+        now = Instant.ofEpochMilli(1_500_000_000_000L);
+        mockedClock = mock(Clock.class);
+        Mockito.doAnswer((invocation) -> now).when(mockedClock).instant();
+        Mockito.doAnswer((invocation) -> now.toEpochMilli()).when(mockedClock).millis();
+
+        storeMetrics = new StoreMetrics();
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder().probe(storeMetrics).build());
+    }
+
+    @Test
+    public void testScrape_transactionsByReason() {
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli() - 1_000, 1.0));
+        transactionStore.addTransaction(now.toEpochMilli() - 3_000, 1.0);
+        addInvalid(now.toEpochMilli() + 1_000);
+        addInvalid(now.toEpochMilli() - 61_000);
+        transactionStore.addTransactions(Arrays.asList(new Transaction(now.toEpochMilli(), 1.0),
+                new Transaction(now.toEpochMilli() + 5, 1.0), new Transaction(now.toEpochMilli() - 70_000, 1.0),
+                new Transaction(now.toEpochMilli() - 80_000, 1.0)));
+
+        final String metrics = storeMetrics.scrape(transactionStore, now);
+
+        assertThat(metrics).contains("n26_transactions_accepted_total 3\n")
+                .contains("n26_transactions_rejected_total{reason=\"future\"} 2\n")
+                .contains("n26_transactions_rejected_total{reason=\"stale\"} 3\n")
+                .contains("n26_transactions_rejected_total{reason=\"duplicate\"} 0\n")
+                .contains("n26_buckets_live 2\n");
+    }
+
+    @Test
+    public void testScrape_rolloverLag() {
+        // The whole window gets committed right at the start of the current bucket
+        transactionStore.getStatistics(now);
+
+        // Nobody asked for 3 seconds, so the oldest of the next buckets gets committed 2 seconds after it ended
+        now = now.plusSeconds(3);
+        transactionStore.getStatistics(now);
+
+        final String metrics = storeMetrics.scrape(transactionStore, now);
+
+        assertThat(metrics).contains("n26_buckets_committed_total 63\n")
+                .contains("n26_rollover_lag_seconds_bucket{le=\"1.0\"} 1\n")
+                .contains("n26_rollover_lag_seconds_bucket{le=\"2.5\"} 2\n")
+                .contains("n26_rollover_lag_seconds_count 2\n")
+                .contains("n26_rollover_lag_seconds_sum 2.0\n");
+    }
+
+    @Test
+    public void testLatencyHistogram_cumulativeBuckets() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(800);
+        histogram.record(1_000);
+        histogram.record(40_000);
+        histogram.record(60_000_000_000L);
+
+        final StringBuilder out = new StringBuilder();
+        histogram.writeTo("latency_seconds", "Latency", out);
+
+        assertThat(out.toString()).contains("# TYPE latency_seconds histogram\n")
+                .contains("latency_seconds_bucket{le=\"1.0E-6\"} 2\n")
+                .contains("latency_seconds_bucket{le=\"2.5E-5\"} 2\n")
+                .contains("latency_seconds_bucket{le=\"5.0E-5\"} 3\n")
+                .contains("latency_seconds_bucket{le=\"10.0\"} 3\n")
+                .contains("latency_seconds_bucket{le=\"+Inf\"} 4\n")
+                .contains("latency_seconds_count 4\n");
+    }
+
+    private void addInvalid(final long timestamp) {
+        try {
+            transactionStore.addTransaction(timestamp, 1.0);
+        } catch (InvalidTimestampException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.time.Clock;
+import java.time.Instant;
+import n26.model.IngestUnavailableException;
+import n26.model.InvalidTenantException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TenantRegistryTest {
+
+    Instant now;
+
+    Clock mockedClock;
+
+    TenantRegistry tenantRegistry;
+
+    @Before
+    public void setUp() {
+        now = Instant.parse("2018-01-01T00:00:00Z");
+        mockedClock = mock(Clock.class);
+        Mockito.doAnswer((invocation) -> now).when(mockedClock).instant();
+        Mockito.doAnswer((invocation) -> now.toEpochMilli()).when(mockedClock).millis();
+
+        final StoreSettings settings = StoreSettings.builder().build();
+        tenantRegistry = new TenantRegistry(() -> new TransactionStore(mockedClock, settings), mockedClock, 2);
+    }
+
+    @Test
+    public void testAddTransaction_separateTenants() {
+        assertThat(tenantRegistry.getStatistics("a", now).getCount()).isEqualTo(0);
+        assertThat(tenantRegistry.getTenants()).isEqualTo(0);
+
+        assertThat(tenantRegistry.addTransaction("a", now.toEpochMilli() - 1_000, 10.0))
+                .isEqualTo(TransactionStore.ACCEPTED);
+        assertThat(tenantRegistry.addTransaction("a", now.toEpochMilli() - 2_000, 20.0))
+                .isEqualTo(TransactionStore.ACCEPTED);
+        assertThat(tenantRegistry.addTransaction("b", now.toEpochMilli() + 1_000, 5.0))
+                .isEqualTo(TransactionStore.REJECTED_FUTURE);
+
+        assertThat(tenantRegistry.getTenants()).isEqualTo(2);
+        now = now.plusSeconds(1);
+        assertThat(tenantRegistry.getStatistics("a", now).getSum()).isEqualTo(30.0);
+        assertThat(tenantRegistry.getStatistics("b", now).getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testEvictIdle() {
+        tenantRegistry.addTransaction("a", now.toEpochMilli() - 1_000, 10.0);
+        tenantRegistry.addTransaction("b", now.toEpochMilli() - 59_000, 10.0);
+        assertThat(tenantRegistry.evictIdle()).isEqualTo(0);
+
+        now = now.plusSeconds(30);
+        assertThat(tenantRegistry.evictIdle()).isEqualTo(1);
+        assertThat(tenantRegistry.getTenants()).isEqualTo(1);
+        assertThat(tenantRegistry.getStatistics("a", now).getCount()).isEqualTo(1);
+
+        now = now.plusSeconds(60);
+        assertThat(tenantRegistry.evictIdle()).isEqualTo(1);
+        assertThat(tenantRegistry.getTenants()).isEqualTo(0);
+
+        // An evicted tenant starts over with a new store
+        tenantRegistry.addTransaction("a", now.toEpochMilli() - 1_000, 7.0);
+        now = now.plusSeconds(1);
+        assertThat(tenantRegistry.getStatistics("a", now).getSum()).isEqualTo(7.0);
+    }
+
+    @Test
+    public void testAddTransaction_limitAndInvalidTenant() {
+        tenantRegistry.addTransaction("a", now.toEpochMilli(), 1.0);
+        tenantRegistry.addTransaction("b", now.toEpochMilli(), 1.0);
+
+        assertThatThrownBy(() -> tenantRegistry.addTransaction("c", now.toEpochMilli(), 1.0))
+                .isInstanceOf(IngestUnavailableException.class);
+        assertThat(tenantRegistry.addTransaction("a", now.toEpochMilli(), 1.0)).isEqualTo(TransactionStore.ACCEPTED);
+
+        assertThatThrownBy(() -> tenantRegistry.addTransaction("a/b", now.toEpochMilli(), 1.0))
+                .isInstanceOf(InvalidTenantException.class);
+        assertThatThrownBy(() -> tenantRegistry.getStatistics("", now))
+                .isInstanceOf(InvalidTenantException.class);
+    }
+}
@@ -0,0 +1,104 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import n26.model.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TransactionJournalTest {
+
+    static final long SPAN_MS = 10_000;
+    static final long RETENTION_MS = 60_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Path directory;
+
+    TransactionJournal journal;
+
+    @Before
+    public void setup() {
+        directory = folder.getRoot().toPath();
+        journal = open(100);
+    }
+
+    @After
+    public void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    public void testReplay_afterReopening() {
+        journal.append(1_000, 1.5, 1_000);
+        journal.append(900, -2.0, 1_100);
+        journal.close();
+
+        journal = open(100);
+
+        assertThat(replay(0)).extracting("timestamp", "amount").containsExactly(tuple(1_000L, 1.5), tuple(900L, -2.0));
+    }
+
+    @Test
+    public void testReplay_onlySegmentsAfterGivenTime() {
+        journal.append(1_000, 1.0, 1_000);
+        journal.append(15_000, 2.0, 15_000);
+        journal.append(25_000, 3.0, 25_000);
+
+        assertThat(replay(12_000)).extracting("timestamp", "amount")
+                .containsExactly(tuple(15_000L, 2.0), tuple(25_000L, 3.0));
+    }
+
+    @Test
+    public void testAppend_fullSegmentIsReplaced() {
+        for (int i = 0; i < 250; i++) {
+            journal.append(1_000 + i, i, 1_000);
+        }
+
+        assertThat(journal.getSegmentCount()).isEqualTo(3);
+        assertThat(replay(0)).hasSize(250);
+    }
+
+    @Test
+    public void testAppend_expiredSegmentsAreRecycled() {
+        for (long now = 0; now < 10 * RETENTION_MS; now += 1_000) {
+            journal.append(now, 1.0, now);
+            journal.flush();
+        }
+
+        // The segments of the retention time, the active one and the one prepared to replace it
+        assertThat(journal.getSegmentCount()).isEqualTo((int) (RETENTION_MS / SPAN_MS) + 2);
+        assertThat(replay(10 * RETENTION_MS - RETENTION_MS)).hasSize(60);
+    }
+
+    @Test
+    public void testFlush_preparesExpiredSegment() {
+        journal.append(0, 1.0, 0);
+        journal.append(80_000, 2.0, 80_000);
+        journal.flush();
+
+        journal.append(90_000, 3.0, 90_000);
+
+        assertThat(journal.getSegmentCount()).isEqualTo(2);
+        assertThat(replay(0)).extracting("timestamp", "amount")
+                .containsExactly(tuple(80_000L, 2.0), tuple(90_000L, 3.0));
+    }
+
+    private TransactionJournal open(int segmentRecords) {
+        return new TransactionJournal(directory, SPAN_MS, segmentRecords, RETENTION_MS, 10);
+    }
+
+    private List<Transaction> replay(long fromMs) {
+        final List<Transaction> transactions = new ArrayList<>();
+        journal.replay(fromMs, (timestamp, amount) -> transactions.add(new Transaction(timestamp, amount)));
+        return transactions;
+    }
+}
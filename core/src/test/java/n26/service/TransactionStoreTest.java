@@ -0,0 +1,745 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import n26.model.InvalidDimensionException;
+import n26.model.InvalidTimestampException;
+import n26.model.InvalidWindowException;
+import n26.model.Rates;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.mockito.Mockito;
+
+@RunWith(Parameterized.class)
+public class TransactionStoreTest {
+
+    @Parameters(name = "{0}")
+    public static Collection<AggregationMode> aggregationModes() {
+        return Arrays.asList(AggregationMode.values());
+    }
+
+    @Parameter
+    public AggregationMode aggregationMode;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Clock mockedClock;
+
+    Instant now;
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+
+    TransactionStore transactionStore;
+
+    @Before
+    public void setup() {
+        now = Instant.now();
+        // Create a mocked clock so we can control time by setting now to any timestamp
+        mockedClock = mock(Clock.class);
+        Mockito.doAnswer((invocation) -> now).when(mockedClock).instant();
+        Mockito.doAnswer((invocation) -> now.toEpochMilli()).when(mockedClock).millis();
+
+        transactionStore = new TransactionStore(mockedClock, aggregationMode);
+    }
+
+    @Test
+    public void testGetStatistics_noTransactionsAtAll() {
+        Statistics statistics = transactionStore.getStatistics(Instant.now());
+
+        assertThat(statistics.getCount()).isZero();
+    }
+
+    @Test
+    public void testGetStatistics_noTransactionsInLastMinute() {
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 5.0));
+
+        advanceTimeBySeconds(61);
+        Statistics statistics = transactionStore.getStatistics(now);
+
+        assertThat(statistics.getCount()).isZero();
+    }
+
+    @Test
+    public void testAddTransaction_primitives() {
+        transactionStore.addTransaction(now.toEpochMilli() - 500, 4.0);
+        transactionStore.addTransaction(now.toEpochMilli() - 100, 2.0);
+
+        advanceTimeBySeconds(1);
+        Statistics statistics = transactionStore.getStatistics(now);
+
+        assertThat(statistics.getCount()).isEqualTo(2);
+        assertThat(statistics.getSum()).isEqualTo(6.0);
+        assertThat(statistics.getMin()).isEqualTo(2.0);
+    }
+
+    @Test
+    public void testTryAddTransaction_resultCodes() {
+        assertThat(transactionStore.tryAddTransaction(now.toEpochMilli() + 1, 4.0))
+                .isEqualTo(TransactionStore.REJECTED_FUTURE);
+        assertThat(transactionStore.tryAddTransaction(now.minusSeconds(61).toEpochMilli(), 4.0))
+                .isEqualTo(TransactionStore.REJECTED_STALE);
+        assertThat(transactionStore.tryAddTransaction(new Transaction(now.minusSeconds(61).toEpochMilli(), 4.0)))
+                .isEqualTo(TransactionStore.REJECTED_STALE);
+        assertThat(transactionStore.tryAddTransaction(now.toEpochMilli() - 500, 2.0))
+                .isEqualTo(TransactionStore.ACCEPTED);
+        assertThat(transactionStore.checkTimestamp(now.toEpochMilli() + 1)).isEqualTo(TransactionStore.REJECTED_FUTURE);
+
+        advanceTimeBySeconds(1);
+        verifyStats(1, transactionStore.getStatistics(now), 2.0, 2.0);
+    }
+
+    @Test
+    public void testTryAddTransaction_futureTolerance() {
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder()
+                .aggregation(aggregationMode)
+                .futureToleranceMs(5)
+                .build());
+
+        assertThat(transactionStore.tryAddTransaction(now.toEpochMilli() + 5, 4.0))
+                .isEqualTo(TransactionStore.ACCEPTED);
+        assertThat(transactionStore.tryAddTransaction(now.toEpochMilli() + 6, 4.0))
+                .isEqualTo(TransactionStore.REJECTED_FUTURE);
+        assertThat(transactionStore.addTransactions(Arrays.asList(new Transaction(now.toEpochMilli() + 5, 2.0),
+                new Transaction(now.toEpochMilli() + 6, 2.0)))).isEqualTo(1);
+
+        advanceTimeBySeconds(2);
+        verifyStats(2, transactionStore.getStatistics(now), 2.0, 4.0);
+    }
+
+    @Test(expected = InvalidTimestampException.class)
+    public void testAddTransaction_primitivesFromTheFuture() {
+        transactionStore.addTransaction(now.toEpochMilli() + 1, 4.0);
+    }
+
+    @Test
+    public void testGetStatisticsVersion_changesWithTheStatistics() {
+        long version = transactionStore.getStatisticsVersion(now);
+
+        // Transactions of the current bucket don't change the statistics until it is committed
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 1.0));
+        assertThat(transactionStore.getStatisticsVersion(now)).isEqualTo(version);
+
+        advanceTimeBySeconds(1);
+        assertThat(transactionStore.getStatisticsVersion(now)).isGreaterThan(version);
+        version = transactionStore.getStatisticsVersion(now);
+        assertThat(transactionStore.getStatisticsVersion(now)).isEqualTo(version);
+
+        // Transactions of committed buckets do
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli() - 5_000, 1.0));
+        assertThat(transactionStore.getStatisticsVersion(now)).isGreaterThan(version);
+        version = transactionStore.getStatisticsVersion(now);
+
+        transactionStore.addTransactions(Collections.singletonList(new Transaction(now.toEpochMilli() - 5_000, 1.0)));
+        assertThat(transactionStore.getStatisticsVersion(now)).isGreaterThan(version);
+    }
+
+    @Test
+    public void testOnTransactions_calledEveryGivenNumber() {
+        final List<Long> calls = new ArrayList<>();
+        transactionStore.onTransactions(3, () -> calls.add(now.toEpochMilli()));
+
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 1.0));
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 1.0));
+        assertThat(calls).isEmpty();
+
+        transactionStore.addTransaction(now.toEpochMilli(), 1.0);
+        assertThat(calls).hasSize(1);
+
+        // A chunk calls the listener once, even if it accepted enough transactions for several calls
+        transactionStore.addTransactions(Collections.nCopies(7, new Transaction(now.toEpochMilli(), 1.0)));
+        assertThat(calls).hasSize(2);
+
+        transactionStore.onTransactions(0, null);
+        transactionStore.addTransactions(Collections.nCopies(7, new Transaction(now.toEpochMilli(), 1.0)));
+        assertThat(calls).hasSize(2);
+    }
+
+    @Test
+    public void testGetStatistics_noTransactionsForSomeIntervals() {
+        int addedTransactions = 0;
+
+        for (int i = 0; i < 60; i++) {
+            if (i % 3 > 0) {
+                addTransaction(transactionStore, i);
+                addedTransactions++;
+            }
+
+            advanceTimeBySeconds(1);
+        }
+
+        Statistics statistics = transactionStore.getStatistics(now);
+
+        verifyStats(addedTransactions, statistics, 1.0, 59.0);
+    }
+
+    @Test
+    public void testGetStatistics_staleTransactionsForSomeIntervals() {
+        int addedTransactions = 0;
+
+        for (int i = 0; i < 60; i++) {
+            addTransaction(transactionStore, i);
+            advanceTimeBySeconds(1);
+        }
+
+        for (int i = 0; i < 60; i++) {
+            if (i % 3 > 0) {
+                addTransaction(transactionStore, i);
+                addedTransactions++;
+            }
+
+            advanceTimeBySeconds(1);
+        }
+
+        Statistics statistics = transactionStore.getStatistics(now);
+
+        verifyStats(addedTransactions, statistics, 1.0, 59.0);
+    }
+
+    @Test
+    public void testGetStatistics_transactionsAvailableForAllIntervals() {
+        for (int i = 0; i < 60; i++) {
+            addTransaction(transactionStore, i);
+            advanceTimeBySeconds(1);
+        }
+
+        Statistics statistics = transactionStore.getStatistics(now);
+
+        verifyStats(60, statistics, 0.0, 59.0);
+    }
+
+    @Test
+    public void testGetStatistics_multipleTransactionsPerInterval() {
+        int addedTransactions = 0;
+
+        for (int i = 0; i < 60; i++) {
+            int transactionsThisSecond = random.nextInt(1, 10);
+            for (int k = 0; k < transactionsThisSecond; k++) {
+                addTransaction(transactionStore, i);
+                addedTransactions++;
+            }
+            advanceTimeBySeconds(1);
+        }
+
+        Statistics statistics = transactionStore.getStatistics(now);
+
+        verifyStats(addedTransactions, statistics, 0.0, 59.0);
+    }
+
+    @Test
+    public void testGetStatistics_maxWasOneMinuteAgo() {
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 1000.0));
+
+        for (int i = 1; i < 60; i++) {
+            addTransaction(transactionStore, i);
+
+            advanceTimeBySeconds(1);
+        }
+
+        advanceTimeByMillis(999);
+
+        Statistics statistics = transactionStore.getStatistics(now);
+        verifyStats(60, statistics, 1.0, 1000.0);
+
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 500.0));
+
+        statistics = transactionStore.getStatistics(now);
+        //still in currentBucket
+        verifyStats(60, statistics, 1.0, 1000.0);
+        advanceTimeBySeconds(1);
+        statistics = transactionStore.getStatistics(now);
+        //first two element replaced by currentBucket
+        verifyStats(59, statistics, 2.0, 500);
+    }
+
+    @Test
+    public void testGetStatistics_maxWasInCurrentSecond() {
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 1000.0));
+
+        for (int i = 1; i <= 60; i++) {
+            addTransaction(transactionStore, i);
+
+            advanceTimeBySeconds(1);
+        }
+
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 1500.0));
+
+        Statistics statistics = transactionStore.getStatistics(now);
+        // still in currentBucket
+        verifyStats(61, statistics, 1.0, 1000);
+        advanceTimeBySeconds(1);
+        statistics = transactionStore.getStatistics(now);
+        // currentBucket cleared
+        verifyStats(60, statistics, 2.0, 1500);
+    }
+
+    @Test(expected = InvalidTimestampException.class)
+    public void testAddTransaction_fromTheFuture() {
+        Instant now = Instant.now();
+        transactionStore.addTransaction(new Transaction(now.plus(1, ChronoUnit.SECONDS).toEpochMilli(), 5.0));
+    }
+
+    @Test(expected = InvalidTimestampException.class)
+    public void testAddTransaction_olderThanOneMinute() {
+        transactionStore.addTransaction(new Transaction(now.minus(61, ChronoUnit.SECONDS).toEpochMilli(), 5.0));
+    }
+
+    @Test
+    public void testAddTransaction_correctTimestamp() {
+        transactionStore.addTransaction(new Transaction(now.minus(1, ChronoUnit.SECONDS).toEpochMilli(), 5.0));
+        Statistics statistics = transactionStore.getStatistics(now);
+        verifyStats(1, statistics, 5.0, 5.0);
+    }
+
+    @Test
+    public void testAddTransaction_outofOrderTimestamp() {
+        transactionStore.addTransaction(new Transaction(now.minus(5, ChronoUnit.SECONDS).toEpochMilli(), 5.0));
+        transactionStore.addTransaction(new Transaction(now.minus(1, ChronoUnit.SECONDS).toEpochMilli(), 2.0));
+        advanceTimeBySeconds(5);
+        transactionStore.addTransaction(new Transaction(now.minus(1, ChronoUnit.SECONDS).toEpochMilli(), 17.0));
+        Statistics statistics = transactionStore.getStatistics(now);
+        verifyStats(3, statistics, 2.0, 17.0);
+    }
+
+    @Test
+    public void testAddTransaction_lateTransactionToCommittedBucket() {
+        transactionStore.addTransaction(new Transaction(now.minus(3, ChronoUnit.SECONDS).toEpochMilli(), 5.0));
+        verifyStats(1, transactionStore.getStatistics(now), 5.0, 5.0);
+
+        transactionStore.addTransaction(new Transaction(now.minus(2, ChronoUnit.SECONDS).toEpochMilli(), 9.0));
+        transactionStore.addTransaction(new Transaction(now.minus(3, ChronoUnit.SECONDS).toEpochMilli(), 1.0));
+        verifyStats(3, transactionStore.getStatistics(now), 1.0, 9.0);
+
+        advanceTimeBySeconds(58);
+        verifyStats(1, transactionStore.getStatistics(now), 9.0, 9.0);
+    }
+
+    @Test
+    public void testAddTransactions_invalidTimestampsSkipped() {
+        List<Transaction> transactions = Arrays.asList(
+                new Transaction(now.minus(1, ChronoUnit.SECONDS).toEpochMilli(), 5.0),
+                new Transaction(now.minus(61, ChronoUnit.SECONDS).toEpochMilli(), 100.0),
+                new Transaction(now.minus(1, ChronoUnit.SECONDS).toEpochMilli(), 3.0),
+                new Transaction(now.plus(1, ChronoUnit.SECONDS).toEpochMilli(), 100.0),
+                new Transaction(now.minus(30, ChronoUnit.SECONDS).toEpochMilli(), 7.0));
+
+        assertThat(transactionStore.addTransactions(transactions)).isEqualTo(3);
+
+        Statistics statistics = transactionStore.getStatistics(now);
+        verifyStats(3, statistics, 3.0, 7.0);
+        assertThat(statistics.getSum()).isEqualTo(15.0);
+    }
+
+    @Test
+    public void testAddTransactions_primitiveArrays() {
+        final long[] timestamps = {now.minusSeconds(1).toEpochMilli(), now.minusSeconds(61).toEpochMilli(),
+                now.plusSeconds(1).toEpochMilli(), now.minusSeconds(30).toEpochMilli(), now.toEpochMilli()};
+        final double[] amounts = {5.0, 100.0, 100.0, 7.0, 100.0};
+
+        // Only the first count entries of the arrays are part of the batch
+        assertThat(transactionStore.addTransactions(timestamps, amounts, 4)).isEqualTo(2);
+
+        Statistics statistics = transactionStore.getStatistics(now);
+        verifyStats(2, statistics, 5.0, 7.0);
+        assertThat(statistics.getSum()).isEqualTo(12.0);
+    }
+
+    @Test
+    public void testAddTransactions_lateChunkForCommittedBucket() {
+        transactionStore.addTransaction(new Transaction(now.minus(2, ChronoUnit.SECONDS).toEpochMilli(), 5.0));
+        verifyStats(1, transactionStore.getStatistics(now), 5.0, 5.0);
+
+        transactionStore.addTransactions(Arrays.asList(
+                new Transaction(now.minus(2, ChronoUnit.SECONDS).toEpochMilli(), 1.0),
+                new Transaction(now.minus(2, ChronoUnit.SECONDS).toEpochMilli(), 9.0)));
+
+        verifyStats(3, transactionStore.getStatistics(now), 1.0, 9.0);
+    }
+
+    @Test
+    public void testGetStatistics_furtherWindows() {
+        now = Instant.ofEpochSecond(1_500_000_000L);
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder()
+                .aggregation(aggregationMode)
+                .windows(Arrays.asList(Duration.ofSeconds(10), Duration.ofMinutes(5)))
+                .build());
+
+        for (int i = 0; i < 400; i++) {
+            transactionStore.addTransaction(new Transaction(now.toEpochMilli(), i));
+            advanceTimeBySeconds(1);
+        }
+
+        verifyStats(10, transactionStore.getStatistics(now, Duration.ofSeconds(10)), 390.0, 399.0);
+        verifyStats(60, transactionStore.getStatistics(now, Duration.ofSeconds(60)), 340.0, 399.0);
+
+        Statistics statistics = transactionStore.getStatistics(now, Duration.ofMinutes(5));
+        verifyStats(300, statistics, 100.0, 399.0);
+        assertThat(statistics.getSum()).isEqualTo((100 + 399) * 300 / 2.0);
+
+        // The rollup buckets are 5 seconds long, so the start of the window moves in steps of 5 seconds
+        advanceTimeBySeconds(3);
+        verifyStats(295, transactionStore.getStatistics(now, Duration.ofMinutes(5)), 105.0, 399.0);
+        assertThat(transactionStore.getWindows()).containsExactly(Duration.ofSeconds(10), Duration.ofSeconds(60),
+                Duration.ofMinutes(5));
+    }
+
+    @Test
+    public void testGetStatistics_rangeReachingIntoHistory() {
+        final Instant start = Instant.ofEpochSecond(1_500_000_000L);
+        now = start;
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder()
+                .aggregation(aggregationMode)
+                .history(Arrays.asList(RetentionTier.parse("1m:1d"), RetentionTier.parse("1h:30d")))
+                .build());
+
+        for (int i = 0; i < 60; i++) {
+            transactionStore.addTransaction(new Transaction(now.toEpochMilli(), i));
+            advanceTimeBySeconds(10);
+        }
+
+        // The last minute comes from the statistics window, everything before from the history
+        Statistics statistics = transactionStore.getStatistics(now, start, now);
+        verifyStats(60, statistics, 0.0, 59.0);
+        assertThat(statistics.getSum()).isEqualTo(59 * 60 / 2.0);
+        verifyStats(18, transactionStore.getStatistics(now, start.plusSeconds(120), start.plusSeconds(300)), 12.0,
+                29.0);
+
+        // Older than the statistics window only whole minutes are kept
+        verifyStats(12, transactionStore.getStatistics(now, start.plusSeconds(125), start.plusSeconds(300)), 18.0,
+                29.0);
+        assertThat(transactionStore.getStatistics(now, start.minusSeconds(3600), start).getCount()).isZero();
+    }
+
+    @Test(expected = InvalidWindowException.class)
+    public void testGetStatistics_emptyRange() {
+        transactionStore.getStatistics(now, now.minusMillis(500), now.minusMillis(400));
+    }
+
+    @Test
+    public void testGetStatistics_quantiles() {
+        now = Instant.ofEpochSecond(1_500_000_000L);
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder()
+                .aggregation(aggregationMode)
+                .windows(Collections.singletonList(Duration.ofMinutes(5)))
+                .quantiles(true)
+                .build());
+
+        for (int i = 1; i <= 200; i++) {
+            transactionStore.addTransaction(new Transaction(now.toEpochMilli(), i));
+            advanceTimeBySeconds(1);
+        }
+        // Late transactions to an already committed bucket, one by one and as a batch
+        List<Transaction> late = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            transactionStore.addTransaction(new Transaction(now.minus(30, ChronoUnit.SECONDS).toEpochMilli(), -5.0));
+            late.add(new Transaction(now.minus(20, ChronoUnit.SECONDS).toEpochMilli(), -5.0));
+        }
+        transactionStore.addTransactions(late);
+
+        // 60 late transactions of -5 and the amounts 141 to 200
+        Map<String, Double> quantiles = transactionStore.getStatistics(now).getQuantiles();
+        assertThat(quantiles.keySet()).containsExactly("p50", "p95", "p99", "p999");
+        assertThat(quantiles.get("p50")).isCloseTo(-5.0, within(0.1));
+        assertThat(quantiles.get("p95")).isCloseTo(194.0, within(2.0));
+        assertThat(quantiles.get("p999")).isCloseTo(199.0, within(2.0));
+
+        // 60 late transactions of -5 and the amounts 1 to 200
+        quantiles = transactionStore.getStatistics(now, Duration.ofMinutes(5)).getQuantiles();
+        assertThat(quantiles.get("p50")).isCloseTo(70.0, within(1.0));
+        assertThat(quantiles.get("p95")).isCloseTo(187.0, within(2.0));
+    }
+
+    @Test
+    public void testGetStatistics_noQuantilesByDefault() {
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 5.0));
+        advanceTimeBySeconds(1);
+
+        assertThat(transactionStore.getStatistics(now).getQuantiles()).isNull();
+    }
+
+    @Test
+    public void testGetStatistics_rates() {
+        now = Instant.ofEpochSecond(1_500_000_000L);
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder()
+                .aggregation(aggregationMode)
+                .rates(true)
+                .build());
+
+        for (int i = 0; i < 4; i++) {
+            transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 2.5));
+        }
+        advanceTimeBySeconds(1);
+
+        Rates rates = transactionStore.getStatistics(now).getRates();
+        assertThat(rates.getCountPerSecond()).isEqualTo(4.0);
+        assertThat(rates.getAmountPerSecond()).isEqualTo(10.0);
+        assertThat(rates.getCountEwma1s()).isCloseTo(4.0 * (1 - Math.exp(-1)), within(1e-9));
+        assertThat(rates.getAmountEwma60s()).isCloseTo(10.0 * (1 - Math.exp(-1.0 / 60)), within(1e-9));
+
+        // Idle buckets only decay the moving averages, also when they left the statistics window unseen
+        advanceTimeBySeconds(10);
+        rates = transactionStore.getStatistics(now).getRates();
+        assertThat(rates.getCountPerSecond()).isZero();
+        assertThat(rates.getCountEwma10s()).isCloseTo(4.0 * (1 - Math.exp(-0.1)) * Math.exp(-1), within(1e-9));
+
+        advanceTimeBySeconds(100);
+        rates = transactionStore.getStatistics(now).getRates();
+        assertThat(rates.getCountEwma60s()).isCloseTo(4.0 * (1 - Math.exp(-1.0 / 60)) * Math.exp(-110.0 / 60),
+                within(1e-9));
+    }
+
+    @Test
+    public void testAddTransaction_idempotencyKey() {
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder()
+                .aggregation(aggregationMode)
+                .idempotencyKeysPerBucket(1000)
+                .build());
+        final long timestamp = now.toEpochMilli() - 1500;
+
+        assertThat(transactionStore.tryAddTransaction(new Transaction(timestamp, 5.0, null, "tx-1")))
+                .isEqualTo(TransactionStore.ACCEPTED);
+        assertThat(transactionStore.tryAddTransaction(new Transaction(timestamp, 5.0, null, "tx-1")))
+                .isEqualTo(TransactionStore.DUPLICATE);
+        transactionStore.addTransaction(new Transaction(timestamp, 7.0, null, "tx-2"));
+        // Transactions without a key are never duplicates
+        transactionStore.addTransaction(new Transaction(timestamp, 1.0));
+        transactionStore.addTransaction(new Transaction(timestamp, 1.0));
+        assertThat(transactionStore.addTransactions(Arrays.asList(new Transaction(timestamp, 7.0, null, "tx-2"),
+                new Transaction(timestamp, 3.0, null, "tx-3"), new Transaction(timestamp, 3.0, null, "tx-3"))))
+                .isEqualTo(3);
+
+        final Statistics statistics = transactionStore.getStatistics(now);
+        verifyStats(5, statistics, 1.0, 7.0);
+        assertThat(statistics.getSum()).isEqualTo(17.0);
+    }
+
+    @Test
+    public void testAddTransaction_idempotencyKeysIgnoredByDefault() {
+        final long timestamp = now.toEpochMilli() - 1500;
+        transactionStore.addTransaction(new Transaction(timestamp, 5.0, null, "tx-1"));
+
+        assertThat(transactionStore.tryAddTransaction(new Transaction(timestamp, 5.0, null, "tx-1")))
+                .isEqualTo(TransactionStore.ACCEPTED);
+        assertThat(transactionStore.getStatistics(now).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGetStatistics_noRatesByDefault() {
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 5.0));
+        advanceTimeBySeconds(1);
+
+        assertThat(transactionStore.getStatistics(now).getRates()).isNull();
+    }
+
+    @Test
+    public void testGetStatistics_perDimensionKey() {
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder()
+                .aggregation(aggregationMode)
+                .dimensions(Collections.singletonList("merchant"))
+                .build());
+
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 5.0,
+                Collections.singletonMap("merchant", "m-1")));
+        transactionStore.addTransactions(Arrays.asList(
+                new Transaction(now.toEpochMilli(), 7.0, Collections.singletonMap("merchant", "m-1")),
+                new Transaction(now.toEpochMilli(), 1.0, Collections.singletonMap("merchant", "m-2")),
+                new Transaction(now.toEpochMilli(), 2.0, Collections.singletonMap("country", "DE"))));
+        advanceTimeBySeconds(1);
+
+        verifyStats(2, transactionStore.getStatistics(now, "merchant", "m-1"), 5.0, 7.0);
+        assertThat(transactionStore.getTopKeys(now, "merchant", 10)).extracting("key", "count")
+                .containsExactly(tuple("m-1", 2L), tuple("m-2", 1L));
+        verifyStats(4, transactionStore.getStatistics(now), 1.0, 7.0);
+    }
+
+    @Test(expected = InvalidDimensionException.class)
+    public void testGetStatistics_unknownDimension() {
+        transactionStore.getStatistics(now, "merchant", "m-1");
+    }
+
+    @Test(expected = InvalidWindowException.class)
+    public void testGetStatistics_unknownWindow() {
+        transactionStore.getStatistics(now, Duration.ofMinutes(5));
+    }
+
+    @Test
+    public void testGetStatistics_configuredBucketSizeAndWindow() {
+        now = Instant.ofEpochSecond(1_500_000_000L);
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder()
+                .aggregation(aggregationMode)
+                .bucketSizeMs(100)
+                .windowSeconds(5)
+                .build());
+
+        transactionStore.addTransaction(new Transaction(now.minusMillis(4900).toEpochMilli(), 1.0));
+        transactionStore.addTransaction(new Transaction(now.minusMillis(100).toEpochMilli(), 2.0));
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 3.0));
+
+        verifyStats(2, transactionStore.getStatistics(now), 1.0, 2.0);
+        advanceTimeByMillis(100);
+        verifyStats(3, transactionStore.getStatistics(now), 1.0, 3.0);
+        advanceTimeByMillis(100);
+        verifyStats(2, transactionStore.getStatistics(now), 2.0, 3.0);
+    }
+
+    @Test(expected = InvalidTimestampException.class)
+    public void testAddTransaction_olderThanConfiguredWindow() {
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder()
+                .aggregation(aggregationMode)
+                .windowSeconds(5)
+                .build());
+
+        transactionStore.addTransaction(new Transaction(now.minus(6, ChronoUnit.SECONDS).toEpochMilli(), 1.0));
+    }
+
+    @Test
+    public void testGetStatistics_fixedPointAmounts() {
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder()
+                .aggregation(aggregationMode)
+                .amounts(AmountMode.FIXED_POINT)
+                .build());
+
+        for (int i = 0; i < 10_000; i++) {
+            transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 0.01));
+        }
+        transactionStore.addTransaction(new Transaction(now.toEpochMilli(), 99.99));
+        advanceTimeBySeconds(1);
+
+        Statistics statistics = transactionStore.getStatistics(now);
+        verifyStats(10_001, statistics, 0.01, 99.99);
+        assertThat(statistics.getSum()).isEqualTo(199.99);
+    }
+
+    @Test
+    public void testConstructor_replaysJournaledWindow() {
+        now = Instant.ofEpochSecond(1_500_000_000L);
+        StoreSettings settings = StoreSettings.builder().aggregation(aggregationMode).build();
+        TransactionJournal journal = openJournal();
+        transactionStore = new TransactionStore(mockedClock, settings, journal);
+
+        for (int i = 0; i < 90; i++) {
+            transactionStore.addTransaction(new Transaction(now.toEpochMilli(), i));
+            advanceTimeBySeconds(1);
+        }
+        transactionStore.addTransactions(Collections.singletonList(
+                new Transaction(now.minus(5, ChronoUnit.SECONDS).toEpochMilli(), 100.0)));
+        advanceTimeBySeconds(1);
+        journal.close();
+
+        // Restarting the store with the same journal brings back the whole window
+        journal = openJournal();
+        Statistics statistics = new TransactionStore(mockedClock, settings, journal).getStatistics(now);
+        journal.close();
+
+        verifyStats(60, statistics, 31.0, 100.0);
+        assertThat(statistics.getSum()).isEqualTo((31 + 89) * 59 / 2.0 + 100.0);
+    }
+
+    @Test
+    public void testAddTransaction_onlyAcceptedTransactionsJournaled() {
+        now = Instant.ofEpochSecond(1_500_000_000L);
+        TransactionJournal journal = openJournal();
+        transactionStore = new TransactionStore(mockedClock, StoreSettings.builder().aggregation(aggregationMode)
+                .futureToleranceMs(2000).build(), journal);
+        final long oldest = now.minus(60, ChronoUnit.SECONDS).toEpochMilli();
+
+        // The tolerated future bucket takes over the ring slot of the oldest bucket of the window
+        assertThat(transactionStore.tryAddTransaction(now.toEpochMilli() + 2000, 1.0))
+                .isEqualTo(TransactionStore.ACCEPTED);
+        assertThat(transactionStore.tryAddTransaction(oldest, 2.0)).isEqualTo(TransactionStore.REJECTED_STALE);
+        assertThat(transactionStore.addTransactions(Arrays.asList(new Transaction(oldest, 3.0),
+                new Transaction(now.toEpochMilli(), 4.0)))).isEqualTo(1);
+
+        final List<Double> journaled = new ArrayList<>();
+        journal.replay(0, (timestamp, amount) -> journaled.add(amount));
+        journal.close();
+        assertThat(journaled).containsExactly(1.0, 4.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_tooManyAmountDecimals() {
+        new TransactionStore(mockedClock, StoreSettings.builder().amounts(AmountMode.FIXED_POINT).amountDecimals(12)
+                .build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_windowNotMultipleOfBucketSize() {
+        new TransactionStore(mockedClock, StoreSettings.builder().bucketSizeMs(7000).build());
+    }
+
+    @Test
+    public void testAddTransaction_concurrentTransactionsAreNotLost() throws Exception {
+        final int threads = 8;
+        final int transactionsPerThread = 10_000;
+        final long timestamp = now.minus(1, ChronoUnit.SECONDS).toEpochMilli();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < transactionsPerThread; i++) {
+                    transactionStore.addTransaction(new Transaction(timestamp, 2.0));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Statistics statistics = transactionStore.getStatistics(now);
+        verifyStats(threads * transactionsPerThread, statistics, 2.0, 2.0);
+        assertThat(statistics.getSum()).isEqualTo(threads * transactionsPerThread * 2.0);
+    }
+
+    private void verifyStats(final int expectedCount, final Statistics statistics, final double expectedMin,
+            final double expectedMax) {
+        assertThat(statistics.getCount()).isEqualTo(expectedCount);
+        assertThat(statistics.getMin()).isEqualTo(expectedMin);
+        assertThat(statistics.getMax()).isEqualTo(expectedMax);
+        assertThat(Math.round(statistics.getSum())).isEqualTo(Math.round(statistics.getAvg() * statistics.getCount()));
+    }
+
+    private TransactionJournal openJournal() {
+        return new TransactionJournal(folder.getRoot().toPath(), 10_000, 1_000, 60_000, 10);
+    }
+
+    private void advanceTimeBySeconds(final int amountToAdd) {
+        now = now.plus(amountToAdd, ChronoUnit.SECONDS);
+    }
+
+    private void advanceTimeByMillis(final int amountToAdd) {
+        now = now.plus(amountToAdd, ChronoUnit.MILLIS);
+    }
+
+    private void addTransaction(final TransactionStore transactionStore, final int i) {
+        long randomOffsetMs = random.nextLong((now.toEpochMilli() / 1000) * 1000, now.toEpochMilli());
+        transactionStore.addTransaction(new Transaction(randomOffsetMs, i));
+    }
+
+}
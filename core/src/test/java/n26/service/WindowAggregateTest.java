@@ -0,0 +1,176 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import org.junit.Test;
+
+public class WindowAggregateTest {
+
+    private static final int WINDOW_BUCKETS = 5;
+
+    Random random = new Random();
+
+    WindowAggregate aggregate = new WindowAggregate(WINDOW_BUCKETS, 0);
+
+    @Test
+    public void testGetStatistics_nothingCommitted() {
+        assertThat(aggregate.getStatistics().getCount()).isZero();
+    }
+
+    @Test
+    public void testCommit_bucketsExpire() {
+        for (int bucket = 1; bucket <= 7; bucket++) {
+            aggregate.commit(bucket, bucketStatistics(bucket, bucket));
+        }
+
+        Statistics statistics = aggregate.getStatistics();
+
+        assertThat(statistics.getCount()).isEqualTo(5);
+        assertThat(statistics.getSum()).isEqualTo(3.0 + 4.0 + 5.0 + 6.0 + 7.0);
+        assertThat(statistics.getMin()).isEqualTo(3.0);
+        assertThat(statistics.getMax()).isEqualTo(7.0);
+        assertThat(statistics.getLastTimestamp()).isEqualTo(7);
+    }
+
+    @Test
+    public void testCommit_maximumExpires() {
+        aggregate.commit(1, bucketStatistics(1, 100.0));
+        aggregate.commit(2, bucketStatistics(2, 50.0));
+        aggregate.commit(3, bucketStatistics(3, 70.0));
+
+        assertThat(aggregate.getStatistics().getMax()).isEqualTo(100.0);
+        aggregate.commit(6, bucketStatistics(6, 1.0));
+        assertThat(aggregate.getStatistics().getMax()).isEqualTo(70.0);
+        assertThat(aggregate.getStatistics().getMin()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void testCommit_gapLongerThanWindow() {
+        aggregate.commit(1, bucketStatistics(1, 100.0));
+        aggregate.commit(20, new Statistics());
+
+        assertThat(aggregate.getStatistics().getCount()).isZero();
+    }
+
+    @Test
+    public void testAddLate_updatesExtremaOfOlderBucket() {
+        aggregate.commit(1, bucketStatistics(1, 10.0));
+        aggregate.commit(2, bucketStatistics(2, 20.0));
+        aggregate.commit(3, bucketStatistics(3, 15.0));
+
+        aggregate.addLate(1, 1, 30.0);
+        aggregate.addLate(2, 2, -5.0);
+
+        Statistics statistics = aggregate.getStatistics();
+        assertThat(statistics.getCount()).isEqualTo(5);
+        assertThat(statistics.getMax()).isEqualTo(30.0);
+        assertThat(statistics.getMin()).isEqualTo(-5.0);
+
+        aggregate.commit(6, new Statistics());
+        assertThat(aggregate.getStatistics().getMax()).isEqualTo(20.0);
+        aggregate.commit(7, new Statistics());
+        assertThat(aggregate.getStatistics().getMax()).isEqualTo(15.0);
+        assertThat(aggregate.getStatistics().getMin()).isEqualTo(15.0);
+    }
+
+    @Test
+    public void testAddLate_outsideOfWindowIgnored() {
+        aggregate.commit(10, bucketStatistics(10, 1.0));
+
+        aggregate.addLate(5, 5, 100.0);
+        aggregate.addLate(11, 11, 100.0);
+
+        assertThat(aggregate.getStatistics().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAddLate_publishedOnceOnRead() {
+        aggregate.commit(10, bucketStatistics(10, 1.0));
+        final Statistics committed = aggregate.getStatistics();
+
+        aggregate.addLate(5, 5, 100.0);
+        assertThat(aggregate.getStatistics()).isSameAs(committed);
+
+        aggregate.addLate(9, 9, 2.0);
+        aggregate.addLate(10, 10, 3.0);
+        final Statistics late = aggregate.getStatistics();
+
+        assertThat(late.getCount()).isEqualTo(3);
+        assertThat(aggregate.getStatistics()).isSameAs(late);
+    }
+
+    @Test
+    public void testCommitAndAddLate_matchFullScan() {
+        final double[][] amounts = new double[200][];
+        for (int bucket = 1; bucket < amounts.length; bucket++) {
+            amounts[bucket] = new double[random.nextInt(3)];
+            Statistics bucketStatistics = new Statistics();
+            for (int i = 0; i < amounts[bucket].length; i++) {
+                amounts[bucket][i] = random.nextInt(1000) - 500;
+                bucketStatistics.addTransaction(new Transaction(bucket, amounts[bucket][i]));
+            }
+            aggregate.commit(bucket, bucketStatistics);
+
+            if (random.nextBoolean()) {
+                final int lateBucket = bucket - random.nextInt(WINDOW_BUCKETS);
+                if (lateBucket > 0) {
+                    final double amount = random.nextInt(1000) - 500;
+                    amounts[lateBucket] = append(amounts[lateBucket], amount);
+                    aggregate.addLate(lateBucket, lateBucket, amount);
+                }
+            }
+
+            Statistics expected = new Statistics();
+            for (int b = Math.max(1, bucket - WINDOW_BUCKETS + 1); b <= bucket; b++) {
+                for (double amount : amounts[b]) {
+                    expected.addTransaction(new Transaction(b, amount));
+                }
+            }
+
+            Statistics statistics = aggregate.getStatistics();
+            assertThat(statistics.getCount()).isEqualTo(expected.getCount());
+            if (expected.getCount() > 0) {
+                assertThat(statistics.getSum()).isEqualTo(expected.getSum());
+                assertThat(statistics.getMin()).isEqualTo(expected.getMin());
+                assertThat(statistics.getMax()).isEqualTo(expected.getMax());
+            }
+        }
+    }
+
+    @Test
+    public void testGetStatistics_sketchCopiedOnlyAfterItChanged() {
+        aggregate = new WindowAggregate(WINDOW_BUCKETS, 0, true);
+        final Statistics bucketStatistics = Statistics.withSketch();
+        bucketStatistics.addTransaction(new Transaction(1, 10.0));
+        aggregate.commit(1, bucketStatistics);
+        final Statistics first = aggregate.getStatistics();
+
+        aggregate.commit(2, Statistics.withSketch());
+        final Statistics second = aggregate.getStatistics();
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getSketch()).isSameAs(first.getSketch());
+
+        aggregate.addLate(2, 2, 20.0);
+        final Statistics third = aggregate.getStatistics();
+        assertThat(third.getSketch()).isNotSameAs(first.getSketch());
+        assertThat(third.getSketch().getCount()).isEqualTo(2);
+        assertThat(first.getSketch().getCount()).isEqualTo(1);
+    }
+
+    private Statistics bucketStatistics(final long timestamp, final double amount) {
+        Statistics statistics = new Statistics();
+        statistics.addTransaction(new Transaction(timestamp, amount));
+        return statistics;
+    }
+
+    private double[] append(final double[] values, final double value) {
+        final double[] result = new double[values.length + 1];
+        System.arraycopy(values, 0, result, 0, values.length);
+        result[values.length] = value;
+        return result;
+    }
+
+}
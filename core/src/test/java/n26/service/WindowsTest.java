@@ -0,0 +1,38 @@
+package n26.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import n26.model.InvalidWindowException;
+import org.junit.Test;
+
+public class WindowsTest {
+
+    @Test
+    public void testParse_allUnits() {
+        assertThat(Windows.parse("250ms")).isEqualTo(Duration.ofMillis(250));
+        assertThat(Windows.parse("10s")).isEqualTo(Duration.ofSeconds(10));
+        assertThat(Windows.parse("5m")).isEqualTo(Duration.ofMinutes(5));
+        assertThat(Windows.parse(" 1h ")).isEqualTo(Duration.ofHours(1));
+        assertThat(Windows.parse("30d")).isEqualTo(Duration.ofDays(30));
+    }
+
+    @Test(expected = InvalidWindowException.class)
+    public void testParse_missingUnit() {
+        Windows.parse("60");
+    }
+
+    @Test(expected = InvalidWindowException.class)
+    public void testParse_zeroLength() {
+        Windows.parse("0s");
+    }
+
+    @Test
+    public void testFormat_largestExactUnit() {
+        assertThat(Windows.format(Duration.ofMillis(1500))).isEqualTo("1500ms");
+        assertThat(Windows.format(Duration.ofSeconds(90))).isEqualTo("90s");
+        assertThat(Windows.format(Duration.ofMinutes(5))).isEqualTo("5m");
+        assertThat(Windows.format(Duration.ofHours(2))).isEqualTo("2h");
+        assertThat(Windows.format(Duration.ofHours(48))).isEqualTo("2d");
+    }
+}
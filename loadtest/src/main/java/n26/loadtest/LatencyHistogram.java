@@ -0,0 +1,94 @@
+package n26.loadtest;
+
+/**
+ * Counts latencies in microseconds in buckets of logarithmic width with linear sub-buckets, like HdrHistogram
+ *
+ * Every power of two is split into {@link #SUB_BUCKETS} / 2 sub-buckets, so percentiles are off by less than 1%
+ * at any magnitude, in a fixed array of counts. Not thread safe, every worker records into histograms of its own,
+ * which are merged at the end.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS + HALF_SUB_BUCKETS];
+
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * @param micros the latency, negative latencies are counted as 0
+     */
+    public void record(long micros) {
+        final long value = Long.max(micros, 0);
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        max = Long.max(max, value);
+    }
+
+    /**
+     * Adds the latencies of another histogram
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Long.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile the percentile between 0 and 100
+     * @return the highest latency of the bucket holding the percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Long.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Long.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    // Values below SUB_BUCKETS are exact, above every power of two gets HALF_SUB_BUCKETS sub-buckets
+    private static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long highestValue(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / HALF_SUB_BUCKETS - 1;
+        final long subBucket = index - shift * HALF_SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,92 @@
+package n26.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
+
+/**
+ * The results of a run of a scenario, written as JSON so runs of different releases can be compared
+ */
+@Getter
+public class LoadReport {
+
+    private final Scenario scenario;
+
+    private final String url;
+
+    // The start of the measured part of the run in ISO-8601
+    private final String startedAt;
+
+    // The time from the start of measuring until the last answer
+    private final double durationSeconds;
+
+    // The requests per second the scenario asks for and the answered requests per second
+    private final int targetRate;
+    private final double throughput;
+
+    // The results of "post" and "get" requests
+    private final Map<String, OperationReport> operations = new LinkedHashMap<>();
+
+    LoadReport(Scenario scenario, String url, String startedAt, double durationSeconds, Measurements posts,
+            Measurements gets) {
+        this.scenario = scenario;
+        this.url = url;
+        this.startedAt = startedAt;
+        this.durationSeconds = durationSeconds;
+        this.targetRate = scenario.getRate();
+        operations.put("post", new OperationReport(posts, durationSeconds));
+        operations.put("get", new OperationReport(gets, durationSeconds));
+        this.throughput = (posts.getLatency().getCount() + gets.getLatency().getCount()) / durationSeconds;
+    }
+
+    /**
+     * The results of the requests of one kind
+     */
+    @Getter
+    public static class OperationReport {
+
+        // The number of answered requests and of requests, which failed without an answer
+        private final long requests;
+        private final long errors;
+
+        private final double throughput;
+
+        private final Map<Integer, Long> statuses;
+
+        // Corrected for coordinated omission, measured from when a request was due
+        private final Latencies latency;
+
+        // Measured from when a request was sent
+        private final Latencies serviceTime;
+
+        OperationReport(Measurements measurements, double durationSeconds) {
+            this.requests = measurements.getLatency().getCount();
+            this.errors = measurements.getErrors();
+            this.throughput = requests / durationSeconds;
+            this.statuses = measurements.getStatuses();
+            this.latency = new Latencies(measurements.getLatency());
+            this.serviceTime = new Latencies(measurements.getServiceTime());
+        }
+    }
+
+    /**
+     * Percentiles of a latency histogram in milliseconds
+     */
+    @Getter
+    public static class Latencies {
+
+        private final double p50;
+        private final double p99;
+        private final double p999;
+        private final double max;
+        private final double mean;
+
+        Latencies(LatencyHistogram histogram) {
+            this.p50 = histogram.getValueAtPercentile(50) / 1000.0;
+            this.p99 = histogram.getValueAtPercentile(99) / 1000.0;
+            this.p999 = histogram.getValueAtPercentile(99.9) / 1000.0;
+            this.max = histogram.getMax() / 1000.0;
+            this.mean = histogram.getMean() / 1000.0;
+        }
+    }
+}
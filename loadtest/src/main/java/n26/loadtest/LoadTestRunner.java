@@ -0,0 +1,110 @@
+package n26.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs scenarios against a running instance of the service and writes a report of each
+ *
+ * The arguments are scenario files, or the names of the bundled scenarios like 'mixed'. The service is expected at
+ * the URL of the 'n26.loadtest.url' system property (http://localhost:8080 by default). Every run writes its report as
+ * JSON to 'loadtest-<scenario>.json' in the directory of the 'n26.loadtest.results' property (the current directory
+ * by default).
+ */
+public class LoadTestRunner {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final URL url = new URL(System.getProperty("n26.loadtest.url", "http://localhost:8080"));
+        final String resultDirectory = System.getProperty("n26.loadtest.results", ".");
+        if (args.length == 0) {
+            System.err.println("Usage: java -jar loadtest.jar <scenario file or bundled scenario>...");
+            System.exit(1);
+        }
+
+        for (final String arg : args) {
+            final Scenario scenario = readScenario(arg);
+            checkReachable(url, scenario);
+
+            final LoadReport report = run(scenario, url);
+            final File file = new File(resultDirectory, "loadtest-" + scenario.getName() + ".json");
+            OBJECT_MAPPER.writeValue(file, report);
+            System.out.printf("%s: %.0f requests/s of %d, post latency p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms -> %s%n",
+                    scenario.getName(), report.getThroughput(), report.getTargetRate(),
+                    report.getOperations().get("post").getLatency().getP50(),
+                    report.getOperations().get("post").getLatency().getP99(),
+                    report.getOperations().get("post").getLatency().getP999(), file);
+        }
+    }
+
+    /**
+     * Runs a scenario, blocking until all of its requests are answered
+     * @param scenario the scenario
+     * @param url the URL of the service
+     * @return the report of the run
+     */
+    public static LoadReport run(Scenario scenario, URL url) throws IOException, InterruptedException {
+        scenario.validate();
+
+        final long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        final List<LoadWorker> workers = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < scenario.getThreads(); i++) {
+            final LoadWorker worker = new LoadWorker(scenario, url, i, startNanos);
+            final Thread thread = new Thread(worker, "load-worker-" + i);
+            thread.setDaemon(true);
+            workers.add(worker);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+
+        final long measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(scenario.getWarmupSeconds());
+        final Instant startedAt = Instant.now().plusNanos(measureFromNanos - System.nanoTime());
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final double durationSeconds = (System.nanoTime() - measureFromNanos) / 1e9;
+
+        final Measurements posts = new Measurements();
+        final Measurements gets = new Measurements();
+        for (final LoadWorker worker : workers) {
+            posts.add(worker.getPosts());
+            gets.add(worker.getGets());
+        }
+        return new LoadReport(scenario, url.toString(), startedAt.toString(), durationSeconds, posts, gets);
+    }
+
+    private static Scenario readScenario(final String arg) throws IOException {
+        final File file = new File(arg);
+        if (file.isFile()) {
+            return OBJECT_MAPPER.readValue(file, Scenario.class);
+        }
+        try (InputStream in = LoadTestRunner.class.getResourceAsStream("/scenarios/" + arg + ".json")) {
+            if (in == null) {
+                throw new IllegalArgumentException("Neither a file nor a bundled scenario: " + arg);
+            }
+            return OBJECT_MAPPER.readValue(in, Scenario.class);
+        }
+    }
+
+    private static void checkReachable(final URL url, final Scenario scenario) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url, scenario.getGetPath()).openConnection();
+        try {
+            connection.getResponseCode();
+        } catch (IOException e) {
+            throw new IOException("The service isn't reachable at " + url + ", start it first.", e);
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package n26.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends its share of the requests of a scenario on a fixed schedule, one request at a time
+ *
+ * Every worker is due to send a request every threads / rate seconds, offset from the other workers. A request is
+ * sent when it is due or right after the previous answer if the worker is behind, and never skipped, so the schedule
+ * doesn't slow down with the service as a closed-loop client would.
+ */
+class LoadWorker implements Runnable {
+
+    private final Scenario scenario;
+
+    private final URL postUrl;
+
+    private final URL getUrl;
+
+    // The times are from System.nanoTime
+    private final long firstDueNanos;
+    private final long intervalNanos;
+    private final long measureFromNanos;
+    private final long endNanos;
+
+    private final Random random;
+
+    private final Measurements posts = new Measurements();
+
+    private final Measurements gets = new Measurements();
+
+    private final byte[] buffer = new byte[4096];
+
+    /**
+     * @param scenario the scenario
+     * @param baseUrl the URL of the service
+     * @param worker the number of this worker
+     * @param startNanos the start of the run
+     */
+    LoadWorker(Scenario scenario, URL baseUrl, int worker, long startNanos) throws IOException {
+        this.scenario = scenario;
+        this.postUrl = new URL(baseUrl, scenario.getPostPath());
+        this.getUrl = new URL(baseUrl, scenario.getGetPath());
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(scenario.getThreads()) / scenario.getRate();
+        this.firstDueNanos = startNanos + worker * intervalNanos / scenario.getThreads();
+        this.measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(scenario.getWarmupSeconds());
+        this.endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(scenario.getDurationSeconds());
+        this.random = new Random(worker);
+    }
+
+    Measurements getPosts() {
+        return posts;
+    }
+
+    Measurements getGets() {
+        return gets;
+    }
+
+    @Override
+    public void run() {
+        for (long due = firstDueNanos; due < endNanos; due += intervalNanos) {
+            long now;
+            while ((now = System.nanoTime()) < due) {
+                LockSupport.parkNanos(due - now);
+            }
+
+            final boolean post = random.nextDouble() < scenario.getPostRatio();
+            final Measurements measurements = post ? posts : gets;
+            final long sentNanos = System.nanoTime();
+            try {
+                final int status = post ? post() : get();
+                final long answeredNanos = System.nanoTime();
+                if (due >= measureFromNanos) {
+                    measurements.record(status, (answeredNanos - due) / 1000, (answeredNanos - sentNanos) / 1000);
+                }
+            } catch (IOException e) {
+                if (due >= measureFromNanos) {
+                    measurements.recordError();
+                }
+            }
+        }
+    }
+
+    private int post() throws IOException {
+        final byte[] body = ("{\"timestamp\":" + scenario.nextTimestamp(random, System.currentTimeMillis())
+                + ",\"amount\":" + (1 + random.nextInt(100_000)) / 100.0 + "}").getBytes(StandardCharsets.UTF_8);
+
+        final HttpURLConnection connection = (HttpURLConnection) postUrl.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return readAnswer(connection);
+    }
+
+    private int get() throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) getUrl.openConnection();
+        return readAnswer(connection);
+    }
+
+    // Reads the whole answer, so the connection can be reused for the next request
+    private int readAnswer(final HttpURLConnection connection) throws IOException {
+        final int status = connection.getResponseCode();
+        final InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in != null) {
+            try (InputStream body = in) {
+                while (body.read(buffer) >= 0) {
+                    // Drained
+                }
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,62 @@
+package n26.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The latencies and answers of the requests of one kind
+ *
+ * The latency is taken from the time a request was due by the schedule, so a service which falls behind is charged
+ * for the requests it held up as well (correcting coordinated omission). The service time is taken from the time the
+ * request was actually sent, as a closed-loop client would measure it.
+ */
+public class Measurements {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+    // The number of answers by status code
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+
+    // The number of requests, which failed without an answer
+    private long errors;
+
+    /**
+     * @param status the status code of the answer
+     * @param latencyMicros the time from when the request was due until the answer
+     * @param serviceTimeMicros the time from when the request was sent until the answer
+     */
+    void record(int status, long latencyMicros, long serviceTimeMicros) {
+        latency.record(latencyMicros);
+        serviceTime.record(serviceTimeMicros);
+        statuses.merge(status, 1L, Long::sum);
+    }
+
+    void recordError() {
+        errors++;
+    }
+
+    void add(Measurements other) {
+        latency.add(other.latency);
+        serviceTime.add(other.serviceTime);
+        other.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+        errors += other.errors;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public LatencyHistogram getServiceTime() {
+        return serviceTime;
+    }
+
+    public Map<Integer, Long> getStatuses() {
+        return statuses;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,86 @@
+package n26.loadtest;
+
+import java.util.Random;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A load test read from a JSON file, with the mix of requests, their rate and the skew of the transaction timestamps
+ *
+ * Transactions are current by default. The ratios of late, future and stale transactions take a share of them:
+ * late ones fall into buckets of the window, which are already committed, future ones are ahead of the clock of the
+ * service and stale ones are older than its window, both of which the service rejects.
+ */
+@Getter
+@Setter
+public class Scenario {
+
+    private String name = "default";
+
+    // The length of the measured part of the run
+    private int durationSeconds = 60;
+
+    // The length of the run before measuring, which isn't reported
+    private int warmupSeconds = 10;
+
+    // The total number of requests per second, which is kept up regardless of how fast the service answers
+    private int rate = 1000;
+
+    // The number of threads, each with a connection of its own
+    private int threads = 16;
+
+    // The share of requests, which post a transaction instead of getting the statistics
+    private double postRatio = 0.9;
+
+    private String postPath = "/transactions";
+
+    private String getPath = "/statistics";
+
+    // The shares of late, future and stale transactions
+    private double lateRatio = 0.0;
+    private double futureRatio = 0.0;
+    private double staleRatio = 0.0;
+
+    // The window of the service, which late and stale timestamps are relative to
+    private int windowSeconds = 60;
+
+    // The maximum distance of future timestamps from now
+    private long maxFutureMs = 5_000;
+
+    /**
+     * @throws IllegalArgumentException if the scenario can't be run
+     */
+    public void validate() {
+        if (durationSeconds <= 0 || warmupSeconds < 0 || rate <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Scenario '" + name + "' needs a positive duration, rate and threads.");
+        }
+        if (postRatio < 0 || postRatio > 1 || lateRatio < 0 || futureRatio < 0 || staleRatio < 0
+                || lateRatio + futureRatio + staleRatio > 1) {
+            throw new IllegalArgumentException("Scenario '" + name + "' has ratios outside of 0 to 1.");
+        }
+        if (windowSeconds < 2 || maxFutureMs <= 0) {
+            throw new IllegalArgumentException("Scenario '" + name + "' needs a window of at least 2 seconds.");
+        }
+    }
+
+    /**
+     * @param random the source of randomness
+     * @param nowMs the current time
+     * @return the timestamp of the next transaction
+     */
+    long nextTimestamp(Random random, long nowMs) {
+        final double skew = random.nextDouble();
+        final long windowMs = windowSeconds * 1000L;
+        if (skew < lateRatio) {
+            // Before the current second, but still within the window
+            return nowMs - nowMs % 1000 - 1 - (long) (random.nextDouble() * (windowMs - 2000));
+        }
+        if (skew < lateRatio + futureRatio) {
+            return nowMs + 1 + (long) (random.nextDouble() * maxFutureMs);
+        }
+        if (skew < lateRatio + futureRatio + staleRatio) {
+            return nowMs - windowMs - 1 - (long) (random.nextDouble() * windowMs);
+        }
+        return nowMs;
+    }
+}
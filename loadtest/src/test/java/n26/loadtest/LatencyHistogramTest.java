@@ -0,0 +1,52 @@
+package n26.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testGetValueAtPercentile() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(100_000);
+        assertThat(histogram.getMax()).isEqualTo(100_000);
+        assertThat(histogram.getMean()).isCloseTo(50_000.5, within(0.001));
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(50_000, within(500.0));
+        assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(99_000, within(990.0));
+        assertThat((double) histogram.getValueAtPercentile(99.9)).isCloseTo(99_900, within(999.0));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(100_000);
+    }
+
+    @Test
+    public void testGetValueAtPercentile_exactBelowSubBuckets() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(200);
+        histogram.record(-5);
+
+        assertThat(histogram.getValueAtPercentile(0)).isEqualTo(0);
+        assertThat(histogram.getValueAtPercentile(50)).isEqualTo(3);
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(200);
+        assertThat(new LatencyHistogram().getValueAtPercentile(99)).isEqualTo(0);
+    }
+
+    @Test
+    public void testAdd() {
+        final LatencyHistogram first = new LatencyHistogram();
+        final LatencyHistogram second = new LatencyHistogram();
+        first.record(1_000);
+        second.record(Long.MAX_VALUE / 2);
+
+        first.add(second);
+
+        assertThat(first.getCount()).isEqualTo(2);
+        assertThat(first.getMax()).isEqualTo(Long.MAX_VALUE / 2);
+        assertThat(first.getValueAtPercentile(50)).isBetween(1_000L, 1_008L);
+    }
+}
@@ -0,0 +1,71 @@
+package n26.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoadTestRunnerTest {
+
+    HttpServer server;
+
+    // Whether the next transaction stalls the server
+    final AtomicBoolean stall = new AtomicBoolean(true);
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/transactions", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                while (body.read() >= 0) {
+                    // Drained, so the connection is kept alive
+                }
+            }
+            if (stall.getAndSet(false)) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRun_correctsCoordinatedOmission() throws Exception {
+        final Scenario scenario = new Scenario();
+        scenario.setName("test");
+        scenario.setDurationSeconds(1);
+        scenario.setWarmupSeconds(0);
+        scenario.setRate(200);
+        scenario.setThreads(1);
+        scenario.setPostRatio(1.0);
+
+        final LoadReport report = LoadTestRunner.run(scenario,
+                new URL("http://localhost:" + server.getAddress().getPort()));
+        final LoadReport.OperationReport posts = report.getOperations().get("post");
+
+        assertThat(posts.getErrors()).isEqualTo(0);
+        assertThat(posts.getRequests()).isEqualTo(200);
+        assertThat(posts.getStatuses()).containsEntry(201, 200L);
+        assertThat(report.getOperations().get("get").getRequests()).isEqualTo(0);
+        // The requests due during the stall were held up, which only the corrected latency shows
+        assertThat(posts.getLatency().getMax()).isGreaterThanOrEqualTo(490);
+        assertThat(posts.getLatency().getP99()).isGreaterThan(400);
+        assertThat(posts.getServiceTime().getP99()).isLessThan(400);
+    }
+}
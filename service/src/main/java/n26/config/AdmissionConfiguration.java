@@ -0,0 +1,29 @@
+package n26.config;
+
+import n26.service.AdmissionControl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+@ConditionalOnProperty(name = "n26.admission.enabled", havingValue = "true")
+public class AdmissionConfiguration {
+
+    // The number of request threads of Tomcat, if not configured otherwise
+    private static final int DEFAULT_MAX_THREADS = 200;
+
+    @Bean
+    public AdmissionControl admissionControl(AdmissionProperties properties,
+            @Value("${server.tomcat.max-threads:0}") int maxThreads) {
+        final int threads = maxThreads > 0 ? maxThreads : DEFAULT_MAX_THREADS;
+        if (properties.getReservedThreads() >= threads) {
+            throw new IllegalArgumentException("Reserving " + properties.getReservedThreads() + " of "
+                    + threads + " request threads leaves none for ingest.");
+        }
+        return new AdmissionControl(properties.getClientRequestsPerSecond(), properties.getClientBurst(),
+                properties.getStripes(), threads - properties.getReservedThreads(), properties.getLatencyTolerance());
+    }
+}
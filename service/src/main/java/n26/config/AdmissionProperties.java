@@ -0,0 +1,33 @@
+package n26.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "n26.admission")
+public class AdmissionProperties {
+
+    // Whether POST /transactions and /transactions/batch go through admission control
+    private boolean enabled = false;
+
+    // The header identifying a client, only to be set behind a trusted gateway, empty to use the remote address
+    private String clientHeader = "";
+
+    // The ingest requests per second of each client, where every transaction of a batch counts as well, 0 to leave
+    // the clients unlimited
+    private double clientRequestsPerSecond = 1000;
+
+    // The ingest requests a client may send at once after being idle
+    private int clientBurst = 2000;
+
+    // The number of token buckets the clients are hashed to
+    private int stripes = 4096;
+
+    // The request threads of the server, which are kept for everything but ingest, like GET /statistics
+    private int reservedThreads = 20;
+
+    // How many times the lowest ingest latency an ingest latency may be, before fewer requests are admitted
+    private double latencyTolerance = 2.0;
+}
@@ -0,0 +1,25 @@
+package n26.config;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import n26.server.BinaryIngestServer;
+import n26.service.StoreMetrics;
+import n26.service.TransactionStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(BinaryIngestProperties.class)
+@ConditionalOnProperty(name = "n26.binary.enabled", havingValue = "true")
+public class BinaryIngestConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public BinaryIngestServer binaryIngestServer(BinaryIngestProperties properties, TransactionStore transactionStore,
+            StoreMetrics storeMetrics) throws IOException {
+        return new BinaryIngestServer(new InetSocketAddress(properties.getPort()),
+                properties.isUdp() ? new InetSocketAddress(properties.getPort()) : null, properties.getThreads(),
+                properties.getMaxBatchRecords(), transactionStore, storeMetrics);
+    }
+}
@@ -0,0 +1,26 @@
+package n26.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "n26.binary")
+public class BinaryIngestProperties {
+
+    // Whether batches of binary records are accepted over TCP
+    private boolean enabled = false;
+
+    // The TCP port of the binary listener
+    private int port = 8091;
+
+    // Whether batches are also accepted as UDP datagrams, on the same port number
+    private boolean udp = false;
+
+    // The number of event loop threads
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // The maximum number of records of a batch, 4093 records fill a UDP datagram
+    private int maxBatchRecords = 4093;
+}
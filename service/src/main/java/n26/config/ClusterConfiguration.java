@@ -0,0 +1,30 @@
+package n26.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import n26.service.ClusterAggregator;
+import n26.service.SnapshotSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ClusterProperties.class)
+@ConditionalOnProperty(name = "n26.cluster.nodes")
+public class ClusterConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public ClusterAggregator clusterAggregator(StoreProperties storeProperties, ClusterProperties properties) {
+        final Map<String, SnapshotSource> nodes = new LinkedHashMap<>();
+        for (final String node : properties.getNodes()) {
+            nodes.put(node, new HttpSnapshotSource(node, properties.getTimeoutMs()));
+        }
+
+        final ClusterAggregator aggregator = new ClusterAggregator(storeProperties.getBucketSizeMs(),
+                (int) (storeProperties.getWindowSeconds() * 1000L / storeProperties.getBucketSizeMs()),
+                properties.getStalenessMs(), nodes);
+        aggregator.start(properties.getPollIntervalMs());
+        return aggregator;
+    }
+}
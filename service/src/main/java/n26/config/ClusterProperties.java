@@ -0,0 +1,25 @@
+package n26.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "n26.cluster")
+public class ClusterProperties {
+
+    // Base URLs of the nodes like 'http://localhost:8081', whose statistics are merged for /statistics
+    private List<String> nodes = new ArrayList<>();
+
+    // How long ago the node may have taken its snapshot before the node is left out of the statistics
+    private long stalenessMs = 2000;
+
+    // The interval in which the snapshots of the nodes are fetched
+    private long pollIntervalMs = 250;
+
+    // The connect and read timeout of fetching a snapshot
+    private int timeoutMs = 500;
+}
@@ -0,0 +1,30 @@
+package n26.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import n26.server.EventLoopServer;
+import n26.server.StoreRequestHandler;
+import n26.service.ClusterAggregator;
+import n26.service.StoreMetrics;
+import n26.service.TransactionStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(EventLoopProperties.class)
+@ConditionalOnProperty(name = "n26.event-loop.enabled", havingValue = "true")
+public class EventLoopConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public EventLoopServer eventLoopServer(EventLoopProperties properties, TransactionStore transactionStore,
+            ObjectProvider<ClusterAggregator> clusterAggregator, ObjectMapper objectMapper, StoreMetrics storeMetrics)
+            throws IOException {
+        return new EventLoopServer(new InetSocketAddress(properties.getPort()), properties.getThreads(),
+                properties.getMaxRequestBytes(), new StoreRequestHandler(transactionStore,
+                        clusterAggregator.getIfAvailable(), new JacksonJsonCodec(objectMapper), storeMetrics));
+    }
+}
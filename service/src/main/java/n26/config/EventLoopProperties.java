@@ -0,0 +1,23 @@
+package n26.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "n26.event-loop")
+public class EventLoopProperties {
+
+    // Whether /transactions and /statistics are also served by the non-blocking event loop server
+    private boolean enabled = false;
+
+    // The port of the event loop server, next to the port of the MVC controllers
+    private int port = 8090;
+
+    // The number of event loop threads
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // The maximum size of a request body
+    private int maxRequestBytes = 64 * 1024;
+}
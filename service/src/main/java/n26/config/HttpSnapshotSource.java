@@ -0,0 +1,29 @@
+package n26.config;
+
+import n26.model.BucketSnapshot;
+import n26.service.SnapshotSource;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Fetches the snapshot of a node from its /statistics/buckets endpoint
+ */
+class HttpSnapshotSource implements SnapshotSource {
+
+    private final RestTemplate restTemplate;
+
+    private final String url;
+
+    HttpSnapshotSource(String baseUrl, int timeoutMs) {
+        final SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        restTemplate = new RestTemplate(requestFactory);
+        url = baseUrl.replaceAll("/+$", "") + "/statistics/buckets";
+    }
+
+    @Override
+    public BucketSnapshot fetch() {
+        return restTemplate.getForObject(url, BucketSnapshot.class);
+    }
+}
@@ -0,0 +1,20 @@
+package n26.config;
+
+import n26.service.IngestQueue;
+import n26.service.TransactionStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(IngestProperties.class)
+@ConditionalOnProperty(name = "n26.ingest.mode", havingValue = "queued")
+public class IngestConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public IngestQueue ingestQueue(IngestProperties properties, TransactionStore transactionStore) {
+        return new IngestQueue(transactionStore, properties.getQueueCapacity(), properties.getBatchSize(),
+                properties.getConsistency(), properties.getReadTimeoutMs());
+    }
+}
@@ -0,0 +1,33 @@
+package n26.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import n26.service.ReadConsistency;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "n26.ingest")
+public class IngestProperties {
+
+    // direct: request threads add transactions to the store, queued: a single writer adds them from a bounded queue
+    private String mode = "direct";
+
+    // The number of transactions the queue can hold, a power of two
+    private int queueCapacity = 65536;
+
+    // The maximum number of transactions the writer adds at once
+    private int batchSize = 1024;
+
+    // Whether reading the statistics waits for the queued transactions
+    private ReadConsistency consistency = ReadConsistency.EVENTUAL;
+
+    // How long reading the statistics waits for the queued transactions at most
+    private long readTimeoutMs = 50;
+
+    // The largest body of a single transaction posted to the MVC controllers, larger ones are answered with 413
+    private int maxRequestBytes = 64 * 1024;
+
+    // The Retry-After of the 429 answered while the queue is full
+    private int retryAfterSeconds = 1;
+}
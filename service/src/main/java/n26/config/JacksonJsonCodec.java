@@ -0,0 +1,39 @@
+package n26.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import n26.server.JsonCodec;
+
+/**
+ * The JSON codec of the event loop server within the service, with the same binding as the MVC controllers
+ */
+public class JacksonJsonCodec implements JsonCodec {
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectReader transactionReader;
+
+    public JacksonJsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.transactionReader = objectMapper.readerFor(Transaction.class);
+    }
+
+    @Override
+    public byte[] writeStatistics(Statistics statistics) {
+        try {
+            return objectMapper.writeValueAsBytes(statistics);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Transaction readTransaction(byte[] body) throws IOException {
+        return transactionReader.readValue(body);
+    }
+}
@@ -0,0 +1,26 @@
+package n26.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "n26.journal")
+public class JournalProperties {
+
+    // Whether accepted transactions are written to a journal and replayed on startup
+    private boolean enabled = false;
+
+    // The directory of the journal segment files
+    private String directory = "journal";
+
+    // The time span of the transactions arriving in one segment
+    private long segmentSeconds = 10;
+
+    // The maximum number of transactions in one segment, each takes 16 bytes
+    private int segmentRecords = 262_144;
+
+    // The interval in which all new transactions are written to the disk together
+    private long flushIntervalMs = 10;
+}
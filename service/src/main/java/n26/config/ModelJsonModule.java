@@ -0,0 +1,55 @@
+package n26.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import java.util.Map;
+import n26.model.QuantileSketch;
+import n26.model.Rates;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import org.springframework.boot.jackson.JsonComponent;
+
+/**
+ * The JSON binding of the model, kept out of the core as mixins, so the core doesn't depend on Jackson
+ * It is a JSON component, so the MVC slice tests register it with their object mapper as well
+ */
+@JsonComponent
+public class ModelJsonModule extends SimpleModule {
+
+    public ModelJsonModule() {
+        super("n26-model");
+        setMixInAnnotation(Statistics.class, StatisticsMixin.class);
+        setMixInAnnotation(Rates.class, RatesMixin.class);
+        setMixInAnnotation(Transaction.class, TransactionMixin.class);
+    }
+
+    @JsonPropertyOrder({"max", "min", "avg", "sum", "count", "lastTimestamp", "quantiles", "rates"})
+    abstract static class StatisticsMixin {
+
+        @JsonIgnore
+        private double compensation;
+
+        @JsonIgnore
+        abstract QuantileSketch getSketch();
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        abstract Rates getRates();
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        abstract Map<String, Double> getQuantiles();
+    }
+
+    @JsonPropertyOrder({"countPerSecond", "amountPerSecond", "countEwma1s", "countEwma10s", "countEwma60s",
+            "amountEwma1s", "amountEwma10s", "amountEwma60s"})
+    abstract static class RatesMixin {
+    }
+
+    abstract static class TransactionMixin {
+
+        // Left out when missing, so plain transactions stay on the fast path of the decoder
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        abstract String getIdempotencyKey();
+    }
+}
@@ -0,0 +1,69 @@
+package n26.config;
+
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.stream.Collectors;
+import n26.service.CoarseClock;
+import n26.service.RetentionTier;
+import n26.service.StoreMetrics;
+import n26.service.StoreSettings;
+import n26.service.TransactionJournal;
+import n26.service.TransactionStore;
+import n26.service.Windows;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({StoreProperties.class, JournalProperties.class})
+public class StoreConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "n26.journal.enabled", havingValue = "true")
+    public TransactionJournal transactionJournal(StoreProperties storeProperties, JournalProperties properties) {
+        return new TransactionJournal(Paths.get(properties.getDirectory()), properties.getSegmentSeconds() * 1000L,
+                properties.getSegmentRecords(), storeProperties.getWindowSeconds() * 1000L,
+                properties.getFlushIntervalMs());
+    }
+
+    @Bean
+    public StoreMetrics storeMetrics() {
+        return new StoreMetrics();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("${n26.store.clock-resolution-ms:0} > 0")
+    public CoarseClock coarseClock(StoreProperties properties) {
+        return new CoarseClock(Clock.systemUTC(), properties.getClockResolutionMs());
+    }
+
+    @Bean
+    public TransactionStore transactionStore(StoreProperties properties, ObjectProvider<TransactionJournal> journal,
+            ObjectProvider<CoarseClock> coarseClock, StoreMetrics storeMetrics) {
+        final StoreSettings settings = StoreSettings.builder()
+                .aggregation(properties.getAggregation())
+                .bucketSizeMs(properties.getBucketSizeMs())
+                .windowSeconds(properties.getWindowSeconds())
+                .windows(properties.getWindows().stream().map(Windows::parse).collect(Collectors.toList()))
+                .quantiles(properties.isQuantiles())
+                .rates(properties.isRates())
+                .amounts(properties.getAmounts())
+                .amountDecimals(properties.getAmountDecimals())
+                .dimensions(properties.getDimensions())
+                .dimensionMemoryBytes(properties.getDimensionMemoryMb() * 1024 * 1024)
+                .dimensionOverflowKeys(properties.getDimensionOverflowKeys())
+                .idempotencyKeysPerBucket(properties.getIdempotencyKeysPerBucket())
+                // The coarse clock lags behind by up to its resolution, which mustn't make transactions from the future
+                .futureToleranceMs(Long.max(0, properties.getClockResolutionMs()))
+                .probe(storeMetrics)
+                .history(properties.getHistory().stream().map(RetentionTier::parse).collect(Collectors.toList()))
+                .rejectionLogIntervalMs(properties.getRejectionLogIntervalMs())
+                .build();
+
+        final Clock clock = coarseClock.getIfAvailable();
+        return new TransactionStore(clock != null ? clock : Clock.systemUTC(), settings, journal.getIfAvailable());
+    }
+}
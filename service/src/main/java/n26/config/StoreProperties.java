@@ -0,0 +1,61 @@
+package n26.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import n26.service.AggregationMode;
+import n26.service.AmountMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "n26.store")
+public class StoreProperties {
+
+    // How the statistics of the window are computed
+    private AggregationMode aggregation = AggregationMode.SCAN;
+
+    // The size of a bucket in ms, the statistics window must consist of whole buckets
+    private long bucketSizeMs = 1000;
+
+    // The length of the statistics window in seconds
+    private int windowSeconds = 60;
+
+    // Further windows like '10s', '5m' or '1h', which can be requested in addition to the statistics window
+    private List<String> windows = new ArrayList<>();
+
+    // Whether the statistics include the p50, p95, p99 and p999 of the amounts
+    private boolean quantiles = false;
+
+    // Whether the statistics include the rates of transactions and amount per second and their moving averages
+    private boolean rates = false;
+
+    // How the amounts of the buckets are stored
+    private AmountMode amounts = AmountMode.DOUBLE;
+
+    // The number of decimal places kept with fixed point amounts, e.g. 2 for cents
+    private int amountDecimals = 2;
+
+    // Dimensions of the transactions like 'merchant' or 'country', for which statistics are kept per key
+    private List<String> dimensions = new ArrayList<>();
+
+    // The memory of each dimension for tracking keys exactly, further keys are only tracked approximately
+    private long dimensionMemoryMb = 16;
+
+    // The number of further keys of each dimension, which are monitored once the memory is used up
+    private int dimensionOverflowKeys = 64;
+
+    // The number of idempotency keys per bucket, which duplicates are detected for, 0 to ignore the keys
+    private int idempotencyKeysPerBucket = 0;
+
+    // Tiers of the history like '1m:1d' for minutes kept for a day, which answer /statistics?from=&to=
+    private List<String> history = new ArrayList<>(Arrays.asList("1m:1d", "1h:30d"));
+
+    // How often a background thread reads the system clock for the store, 0 reads it for every transaction
+    private long clockResolutionMs = 0;
+
+    // The minimum time between two log entries about rejected transactions
+    private long rejectionLogIntervalMs = 1000;
+}
@@ -0,0 +1,23 @@
+package n26.config;
+
+import java.time.Clock;
+import n26.service.StatisticsPublisher;
+import n26.service.TransactionStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(StreamProperties.class)
+@ConditionalOnProperty(name = "n26.stream.enabled", havingValue = "true")
+public class StreamConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public StatisticsPublisher statisticsPublisher(StreamProperties properties, TransactionStore transactionStore) {
+        final StatisticsPublisher publisher = new StatisticsPublisher(transactionStore, Clock.systemUTC(),
+                properties.getSenderThreads());
+        publisher.start(properties.getEveryTransactions());
+        return publisher;
+    }
+}
@@ -0,0 +1,20 @@
+package n26.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "n26.stream")
+public class StreamProperties {
+
+    // Whether /statistics/stream is served, which starts the dispatcher and sender threads
+    private boolean enabled = false;
+
+    // Pushes the statistics after every given number of accepted transactions as well, 0 only pushes every bucket
+    private int everyTransactions = 0;
+
+    // The number of threads sending to the subscribers
+    private int senderThreads = 2;
+}
@@ -0,0 +1,39 @@
+package n26.config;
+
+import java.time.Clock;
+import n26.service.CoarseClock;
+import n26.service.StoreProbe;
+import n26.service.StoreSettings;
+import n26.service.TenantRegistry;
+import n26.service.TransactionStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(TenantProperties.class)
+@ConditionalOnProperty(name = "n26.tenants.enabled", havingValue = "true")
+public class TenantConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public TenantRegistry tenantRegistry(TenantProperties properties, StoreProperties storeProperties,
+            ObjectProvider<CoarseClock> coarseClock) {
+        final StoreSettings settings = StoreSettings.builder()
+                .bucketSizeMs(properties.getBucketSizeMs())
+                .windowSeconds(properties.getWindowSeconds())
+                // The tenant stores read the same coarse clock as the main store
+                .futureToleranceMs(Long.max(0, storeProperties.getClockResolutionMs()))
+                // The metrics describe the main store, whose series the tenants' transactions and commits would skew
+                .probe(StoreProbe.NONE)
+                .build();
+
+        final Clock available = coarseClock.getIfAvailable();
+        final Clock clock = available != null ? available : Clock.systemUTC();
+        final TenantRegistry registry = new TenantRegistry(() -> new TransactionStore(clock, settings), clock,
+                properties.getMaxTenants());
+        registry.start(properties.getEvictionIntervalMs());
+        return registry;
+    }
+}
@@ -0,0 +1,26 @@
+package n26.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "n26.tenants")
+public class TenantProperties {
+
+    // Whether /tenants/{id}/transactions and /tenants/{id}/statistics are served
+    private boolean enabled = false;
+
+    // The maximum number of tenants with transactions in their window at the same time
+    private int maxTenants = 100_000;
+
+    // The size of a bucket of the tenant stores, larger buckets make every tenant smaller
+    private long bucketSizeMs = 1000;
+
+    // The length of the statistics window of the tenant stores in seconds
+    private int windowSeconds = 60;
+
+    // How often the stores of tenants without transactions in their window are dropped
+    private long evictionIntervalMs = 10_000;
+}
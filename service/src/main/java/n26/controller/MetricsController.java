@@ -1,8 +1,7 @@
 package n26.controller;
 
 import java.time.Instant;
-import n26.model.NoStatisticsException;
-import n26.model.Statistics;
+import n26.service.StoreMetrics;
 import n26.service.TransactionStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -13,20 +12,23 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
-public class StatisticsController {
+public class MetricsController {
+
+    // The content type of the Prometheus text format
+    static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
 
     @Autowired
     TransactionStore transactionStore;
 
-    @RequestMapping(path = "/statistics", method = RequestMethod.GET)
-    @ResponseStatus(HttpStatus.OK)
-    public @ResponseBody Statistics getStatistics() {
-        Statistics result = transactionStore.getStatistics(Instant.now());
-
-        if (result.getCount() == 0) {
-            throw new NoStatisticsException("No transactions recorded for the last 60 seconds.");
-        }
+    @Autowired
+    StoreMetrics storeMetrics;
 
-        return result;
+    /**
+     * Gets the metrics of the store for a Prometheus scrape
+     */
+    @RequestMapping(path = "/metrics", method = RequestMethod.GET, produces = PROMETHEUS_CONTENT_TYPE)
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody String getMetrics() {
+        return storeMetrics.scrape(transactionStore, Instant.now());
     }
-}
\ No newline at end of file
+}
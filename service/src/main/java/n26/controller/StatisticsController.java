@@ -0,0 +1,188 @@
+package n26.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import n26.model.BucketSnapshot;
+import n26.model.ClusterStatistics;
+import n26.model.EncodedStatistics;
+import n26.model.KeyStatistics;
+import n26.model.NoStatisticsException;
+import n26.model.Statistics;
+import n26.service.ClusterAggregator;
+import n26.service.IngestQueue;
+import n26.service.StatisticsCache;
+import n26.service.StoreProbe;
+import n26.service.TransactionStore;
+import n26.service.Windows;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+public class StatisticsController {
+
+    // The number of nodes merged into the statistics and the number of all nodes, like '2/3'
+    static final String CLUSTER_NODES_HEADER = "X-Cluster-Nodes";
+
+    @Autowired
+    TransactionStore transactionStore;
+
+    // Merges the statistics of all nodes for /statistics, only present if nodes are configured
+    @Autowired(required = false)
+    ClusterAggregator clusterAggregator;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // Queues plain transactions for a single writer, only present with n26.ingest.mode=queued
+    @Autowired(required = false)
+    IngestQueue ingestQueue;
+
+    // Measures how long answering requests for statistics takes
+    @Autowired(required = false)
+    StoreProbe storeProbe = StoreProbe.NONE;
+
+    // The encoded statistics of the statistics window, shared by all requests until they change
+    private StatisticsCache statisticsCache;
+
+    @PostConstruct
+    public void init() {
+        statisticsCache = new StatisticsCache(transactionStore, this::encode);
+    }
+
+    /**
+     * Gets the statistics of the statistics window
+     * The statistics are only encoded once per version, which is also their ETag, so polling unchanged statistics
+     * with If-None-Match is answered with 304
+     */
+    @RequestMapping(path = "/statistics", method = RequestMethod.GET, params = "!window")
+    public ResponseEntity<byte[]> getStatistics(WebRequest request) {
+        final long startNanos = System.nanoTime();
+        try {
+            return statistics(request);
+        } finally {
+            storeProbe.queried(System.nanoTime() - startNanos);
+        }
+    }
+
+    private ResponseEntity<byte[]> statistics(final WebRequest request) {
+        awaitQueued();
+        if (clusterAggregator != null) {
+            final ClusterStatistics clusterStatistics = clusterAggregator.getStatistics(Instant.now());
+            checkCount(clusterStatistics.getStatistics().getCount(), null);
+            final String nodes = clusterStatistics.getMergedNodes() + "/" + clusterStatistics.getNodes();
+            return ResponseEntity.ok()
+                    .header(CLUSTER_NODES_HEADER, nodes)
+                    .contentType(MediaType.APPLICATION_JSON_UTF8)
+                    .body(encode(clusterStatistics.getStatistics()));
+        }
+
+        final EncodedStatistics statistics = statisticsCache.get(Instant.now());
+        checkCount(statistics.getCount(), null);
+        if (request.checkNotModified(statistics.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(statistics.getEtag())
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .body(statistics.getBody());
+    }
+
+    @RequestMapping(path = "/statistics", method = RequestMethod.GET, params = "window")
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody Statistics getWindowStatistics(@RequestParam(name = "window") String window) {
+        final long startNanos = System.nanoTime();
+        try {
+            awaitQueued();
+            final Statistics result = transactionStore.getStatistics(Instant.now(), Windows.parse(window));
+            checkCount(result.getCount(), window);
+            return result;
+        } finally {
+            storeProbe.queried(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Gets the statistics of a time range, which reaches back as far as the history is kept
+     * @param from the start of the range in epoch millis or ISO-8601
+     * @param to the end of the range (exclusive) in epoch millis or ISO-8601
+     */
+    @RequestMapping(path = "/statistics", method = RequestMethod.GET, params = {"from", "to", "!window"})
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody Statistics getRangeStatistics(@RequestParam(name = "from") String from,
+            @RequestParam(name = "to") String to) {
+        final long startNanos = System.nanoTime();
+        try {
+            awaitQueued();
+            final Statistics result = transactionStore.getStatistics(Instant.now(), Windows.parseTime(from),
+                    Windows.parseTime(to));
+            if (result.getCount() == 0) {
+                throw new NoStatisticsException("No transactions recorded from " + from + " to " + to + ".");
+            }
+            return result;
+        } finally {
+            storeProbe.queried(System.nanoTime() - startNanos);
+        }
+    }
+
+    @RequestMapping(path = "/statistics/buckets", method = RequestMethod.GET)
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody BucketSnapshot getSnapshot() {
+        return transactionStore.getSnapshot(Instant.now());
+    }
+
+    @RequestMapping(path = "/statistics/{dimension}/top", method = RequestMethod.GET)
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody List<KeyStatistics> getTopKeys(@PathVariable String dimension,
+            @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return transactionStore.getTopKeys(Instant.now(), dimension, limit);
+    }
+
+    @RequestMapping(path = "/statistics/{dimension}/{key:.+}", method = RequestMethod.GET)
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody Statistics getKeyStatistics(@PathVariable String dimension, @PathVariable String key) {
+        final Statistics result = transactionStore.getStatistics(Instant.now(), dimension, key);
+
+        if (result.getCount() == 0) {
+            throw new NoStatisticsException("No transactions recorded for " + dimension + " '" + key
+                    + "' for the last " + transactionStore.getStatisticsWindowSeconds() + " seconds.");
+        }
+
+        return result;
+    }
+
+    // Waits for the queued transactions, if the statistics should include them
+    private void awaitQueued() {
+        if (ingestQueue != null) {
+            ingestQueue.awaitQueued();
+        }
+    }
+
+    private byte[] encode(final Statistics statistics) {
+        try {
+            return objectMapper.writeValueAsBytes(statistics);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkCount(final long count, final String window) {
+        if (count == 0) {
+            throw new NoStatisticsException("No transactions recorded for the last "
+                    + (window == null ? transactionStore.getStatisticsWindowSeconds() + " seconds." : window + "."));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package n26.controller;
+
+import n26.model.InvalidDimensionException;
+import n26.model.InvalidRuleException;
+import n26.model.InvalidTenantException;
+import n26.model.InvalidWindowException;
+import n26.model.NoStatisticsException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class StatisticsControllerAdvice {
+
+    @ExceptionHandler(NoStatisticsException.class)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public String handleNoStatisticsException(NoStatisticsException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(InvalidWindowException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidWindowException(InvalidWindowException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(InvalidDimensionException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidDimensionException(InvalidDimensionException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(InvalidRuleException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidRuleException(InvalidRuleException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(InvalidTenantException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidTenantException(InvalidTenantException ex) {
+        return ex.getMessage();
+    }
+
+}
@@ -0,0 +1,49 @@
+package n26.controller;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import n26.model.ThresholdRule;
+import n26.service.StatisticsPublisher;
+import n26.service.StatisticsPublisher.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@ConditionalOnProperty(name = "n26.stream.enabled", havingValue = "true")
+public class StatisticsStreamController {
+
+    @Autowired
+    StatisticsPublisher statisticsPublisher;
+
+    // How long a stream stays open, clients reconnect afterwards
+    @Value("${n26.stream.timeout-ms:1800000}")
+    long timeoutMs;
+
+    /**
+     * Streams the statistics as server-sent events: a 'statistics' event whenever the statistics window moved on, and
+     * a 'threshold' event whenever one of the given rules like 'sum>1000' starts or stops to hold
+     * Every 'statistics' event carries the whole window and the current bucket instead of a delta, so a subscriber
+     * which skipped updates is still up to date with the next one
+     */
+    @RequestMapping(path = "/statistics/stream", method = RequestMethod.GET,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStatistics(@RequestParam(name = "rule", required = false) List<String> rules) {
+        final List<ThresholdRule> thresholdRules = rules == null ? Collections.emptyList()
+                : rules.stream().map(ThresholdRule::parse).collect(Collectors.toList());
+
+        final SseEmitter emitter = new SseEmitter(timeoutMs);
+        final Subscription subscription = statisticsPublisher.subscribe(thresholdRules,
+                (event, data) -> emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON)));
+        emitter.onCompletion(() -> statisticsPublisher.unsubscribe(subscription));
+        emitter.onTimeout(() -> statisticsPublisher.unsubscribe(subscription));
+        return emitter;
+    }
+}
@@ -0,0 +1,94 @@
+package n26.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import javax.annotation.PostConstruct;
+import n26.model.NoStatisticsException;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import n26.model.TransactionDecoder;
+import n26.service.TenantRegistry;
+import n26.service.TransactionStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Serves the transactions and statistics of many tenants, each with a store of its own
+ */
+@RestController
+@ConditionalOnProperty(name = "n26.tenants.enabled", havingValue = "true")
+public class TenantController {
+
+    @Autowired
+    TenantRegistry tenantRegistry;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // The largest body of a transaction, larger ones are answered with 413
+    @Value("${n26.ingest.max-request-bytes:65536}")
+    int maxRequestBytes;
+
+    // Decoders of plain transactions, reused by every request thread
+    private ThreadLocal<TransactionDecoder> decoders;
+
+    @PostConstruct
+    public void init() {
+        decoders = ThreadLocal.withInitial(() -> new TransactionDecoder(maxRequestBytes));
+    }
+
+    /**
+     * Adds a transaction of a tenant, the store of the tenant is created with its first transaction
+     * @param tenantId the tenant
+     * @param body the JSON body, dimensions are ignored
+     * @return 201 if the transaction got accepted, 204 if it is from the future or too old, 413 if the body is too large
+     */
+    @RequestMapping(path = "/tenants/{tenantId}/transactions", method = RequestMethod.POST,
+            consumes = {MediaType.APPLICATION_JSON_VALUE, "application/*+json"})
+    public ResponseEntity<Void> postTransaction(@PathVariable String tenantId, InputStream body) throws IOException {
+        final TransactionDecoder decoder = decoders.get();
+        final int result;
+        try {
+            if (decoder.decode(body)) {
+                result = tenantRegistry.addTransaction(tenantId, decoder.getTimestamp(), decoder.getAmount());
+            } else {
+                final Transaction transaction;
+                try {
+                    transaction = objectMapper.readValue(decoder.getBuffer(), 0, decoder.getLength(),
+                            Transaction.class);
+                } catch (JsonProcessingException e) {
+                    throw new HttpMessageNotReadableException("Could not read transaction: " + e.getOriginalMessage(),
+                            e);
+                }
+                result = tenantRegistry.addTransaction(tenantId, transaction);
+            }
+        } finally {
+            decoder.release();
+        }
+        return new ResponseEntity<>(result == TransactionStore.ACCEPTED ? HttpStatus.CREATED : HttpStatus.NO_CONTENT);
+    }
+
+    @RequestMapping(path = "/tenants/{tenantId}/statistics", method = RequestMethod.GET)
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody Statistics getStatistics(@PathVariable String tenantId) {
+        final Statistics result = tenantRegistry.getStatistics(tenantId, Instant.now());
+        if (result.getCount() == 0) {
+            throw new NoStatisticsException("No transactions recorded for tenant '" + tenantId + "' in its window.");
+        }
+        return result;
+    }
+}
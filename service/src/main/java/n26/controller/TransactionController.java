@@ -0,0 +1,344 @@
+package n26.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import n26.model.BatchResult;
+import n26.model.Transaction;
+import n26.model.TransactionDecoder;
+import n26.service.AdmissionControl;
+import n26.service.IngestQueue;
+import n26.service.StoreProbe;
+import n26.service.TransactionStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@Slf4j
+public class TransactionController {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    // Number of transactions which are parsed before they get added to the store at once
+    private static final int BATCH_CHUNK_SIZE = 1000;
+
+    @Autowired
+    TransactionStore transactionStore;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // Queues transactions without dimensions or idempotency key for a single writer, only with n26.ingest.mode=queued
+    @Autowired(required = false)
+    IngestQueue ingestQueue;
+
+    // Measures how long adding transactions takes
+    @Autowired(required = false)
+    StoreProbe storeProbe = StoreProbe.NONE;
+
+    // Turns ingest requests away before they reach the store, only present with n26.admission.enabled=true
+    @Autowired(required = false)
+    AdmissionControl admissionControl;
+
+    // The header identifying the client to admission control, empty to identify clients by their address, since
+    // clients could escape their limit by changing the header unless a trusted gateway sets it
+    @Value("${n26.admission.client-header:}")
+    String clientHeader;
+
+    // How long producers should back off while they aren't admitted
+    @Value("${n26.ingest.retry-after-seconds:1}")
+    int retryAfterSeconds;
+
+    // The largest body of a single transaction, larger ones are answered with 413
+    @Value("${n26.ingest.max-request-bytes:65536}")
+    int maxRequestBytes;
+
+    // Decoders of plain transactions, reused by every request thread
+    private ThreadLocal<TransactionDecoder> decoders;
+
+    // The result of a transaction, which the ingest queue didn't take
+    private static final int NOT_QUEUED = -1;
+
+    // The responses to an accepted and a rejected transaction, which don't carry anything else
+    private static final ResponseEntity<Void> CREATED = new ResponseEntity<>(HttpStatus.CREATED);
+    private static final ResponseEntity<Void> NO_CONTENT = new ResponseEntity<>(HttpStatus.NO_CONTENT);
+
+    // The response to a transaction while the ingest queue is shut down
+    private static final ResponseEntity<Void> UNAVAILABLE = new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+
+    // The responses to a transaction and a batch which aren't admitted or don't fit into the ingest queue, built once
+    // so rejecting stays cheap
+    private HttpHeaders retryAfter;
+    private ResponseEntity<Void> tooManyTransactions;
+    private ResponseEntity<BatchResult> tooManyBatches;
+
+    @PostConstruct
+    public void init() {
+        decoders = ThreadLocal.withInitial(() -> new TransactionDecoder(maxRequestBytes));
+        retryAfter = new HttpHeaders();
+        retryAfter.set(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfterSeconds));
+        tooManyTransactions = new ResponseEntity<>(retryAfter, HttpStatus.TOO_MANY_REQUESTS);
+        tooManyBatches = new ResponseEntity<>(retryAfter, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * Adds a transaction
+     * Plain transactions are decoded straight into primitives, only transactions with dimensions or any unusual
+     * content go through the regular JSON binding
+     * A transaction with an invalid timestamp is answered with 204 without any exception being thrown
+     * With an ingest queue, transactions without dimensions or idempotency key are queued however they are written,
+     * the others are added right away, since the queue only carries timestamps and amounts
+     * @param body the JSON body
+     * @param request the request, which identifies the client to admission control
+     * @return 201 if the transaction got accepted or is a retry of an accepted one, 204 if it is from the future or
+     *         too old, 413 if the body is too large, 429 if it isn't admitted or the ingest queue is full, 503 if the
+     *         ingest queue is shut down
+     */
+    @RequestMapping(path = "/transactions", method = RequestMethod.POST,
+            consumes = {MediaType.APPLICATION_JSON_VALUE, "application/*+json"})
+    public ResponseEntity<Void> postTransaction(InputStream body, HttpServletRequest request) throws IOException {
+        final long startNanos = System.nanoTime();
+        if (!admit(client(request), startNanos)) {
+            return tooManyTransactions;
+        }
+        final TimedBody timedBody = admissionControl != null ? new TimedBody(body) : null;
+        try {
+            final int result = addTransaction(timedBody != null ? timedBody : body);
+            if (result == NOT_QUEUED) {
+                return ingestQueue.isRunning() ? tooManyTransactions : UNAVAILABLE;
+            }
+            return result == TransactionStore.ACCEPTED || result == TransactionStore.DUPLICATE ? CREATED : NO_CONTENT;
+        } finally {
+            release(startNanos, timedBody);
+        }
+    }
+
+    // Adds or queues the transaction and returns the result code of the store, or NOT_QUEUED
+    private int addTransaction(final InputStream body) throws IOException {
+        final TransactionDecoder decoder = decoders.get();
+        final Transaction transaction;
+        try {
+            if (decoder.decode(body)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Adding transaction of {} at {}", decoder.getAmount(), decoder.getTimestamp());
+                }
+                return ingestQueue != null
+                        ? queueTransaction(decoder.getTimestamp(), decoder.getAmount())
+                        : transactionStore.tryAddTransaction(decoder.getTimestamp(), decoder.getAmount());
+            }
+            transaction = objectMapper.readValue(decoder.getBuffer(), 0, decoder.getLength(), Transaction.class);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("Could not read transaction: " + e.getOriginalMessage(), e);
+        } finally {
+            decoder.release();
+        }
+        log.debug("Adding transaction {}", transaction);
+        if (ingestQueue != null && transaction.getDimensions() == null && transaction.getIdempotencyKey() == null) {
+            return queueTransaction(transaction.getTimestamp(), transaction.getAmount());
+        }
+        return transactionStore.tryAddTransaction(transaction);
+    }
+
+    // Checks the timestamp right away, so invalid transactions are still answered with 204, and queues the transaction
+    private int queueTransaction(final long timestamp, final double amount) {
+        final int result = transactionStore.checkTimestamp(timestamp);
+        if (result != TransactionStore.ACCEPTED) {
+            return result;
+        }
+        return ingestQueue.offer(timestamp, amount) ? result : NOT_QUEUED;
+    }
+
+    /**
+     * Adds a batch of transactions, given as one JSON object per line
+     * The body is parsed while it is streamed in, invalid lines and transactions with an invalid timestamp are
+     * counted as rejected instead of failing the whole batch, retries of accepted transactions count as accepted
+     * just like a single transaction is answered with 201
+     * Batches are added to the store directly even with an ingest queue, they already update every bucket once per
+     * chunk of transactions, which is what the queue does for single transactions
+     * With admission control every transaction of a batch is charged to its client before its chunk is added, once the
+     * client runs out of tokens the rest of the batch is left unread, and the non-empty lines counted as accepted or
+     * rejected are the ones before it
+     * @param body the newline delimited JSON body
+     * @param request the request, which identifies the client to admission control
+     * @return the number of accepted and rejected transactions, or 429 if the batch isn't admitted, with the numbers of
+     *         the transactions added so far if the client ran out of tokens, so it can resume after them
+     */
+    @RequestMapping(path = "/transactions/batch", method = RequestMethod.POST, consumes = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BatchResult> postTransactions(InputStream body, HttpServletRequest request)
+            throws IOException {
+        final long startNanos = System.nanoTime();
+        final String client = client(request);
+        if (!admit(client, startNanos)) {
+            return tooManyBatches;
+        }
+        final TimedBody timedBody = admissionControl != null ? new TimedBody(body) : null;
+        try {
+            final Batch batch = new Batch(client);
+            batch.add(timedBody != null ? timedBody : body);
+            log.debug("Added batch with {} accepted and {} rejected transactions", batch.accepted, batch.rejected);
+            final BatchResult result = new BatchResult(batch.accepted, batch.rejected);
+            return batch.limited ? new ResponseEntity<>(result, retryAfter, HttpStatus.TOO_MANY_REQUESTS)
+                    : ResponseEntity.ok(result);
+        } finally {
+            release(startNanos, timedBody);
+        }
+    }
+
+    // Names the client by the configured header if a trusted gateway sets it, otherwise by its address
+    private String client(final HttpServletRequest request) {
+        if (admissionControl == null) {
+            return null;
+        }
+        final String header = clientHeader.isEmpty() ? null : request.getHeader(clientHeader);
+        return header != null ? header : request.getRemoteAddr();
+    }
+
+    // Whether the request of the client is admitted
+    private boolean admit(final String client, final long nowNanos) {
+        return admissionControl == null || admissionControl.tryAdmit(client, nowNanos) == AdmissionControl.ADMITTED;
+    }
+
+    // Ends an admitted request, whose latency from the end of its body adapts the admission of the next ones
+    private void release(final long startNanos, final TimedBody timedBody) {
+        final long endNanos = System.nanoTime();
+        if (admissionControl != null) {
+            if (timedBody.isRead()) {
+                admissionControl.release(endNanos - timedBody.getReadNanos(), endNanos);
+            } else {
+                admissionControl.cancel();
+            }
+        }
+        storeProbe.ingested(endNanos - startNanos);
+    }
+
+    /**
+     * The transactions of a batch added so far
+     */
+    private final class Batch {
+
+        // The client the transactions are charged to, null without admission control
+        private final String client;
+
+        private final List<Transaction> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+        private long accepted;
+        private long rejected;
+
+        // The invalid lines among the transactions of the chunk, which count once the chunk got added
+        private int invalid;
+
+        // Whether the client ran out of tokens before the end of the batch
+        private boolean limited;
+
+        private Batch(final String client) {
+            this.client = client;
+        }
+
+        private void add(final InputStream body) throws IOException {
+            final ObjectReader transactionReader = objectMapper.readerFor(Transaction.class);
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                try {
+                    chunk.add(transactionReader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    invalid++;
+                    continue;
+                }
+
+                if (chunk.size() == BATCH_CHUNK_SIZE && !addChunk()) {
+                    return;
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                addChunk();
+            } else {
+                rejected += invalid;
+            }
+        }
+
+        // Adds the chunk if its transactions can be charged to the client
+        private boolean addChunk() {
+            if (client != null && !admissionControl.tryCharge(client, chunk.size(), System.nanoTime())) {
+                limited = true;
+                return false;
+            }
+            final int chunkAccepted = transactionStore.addTransactions(chunk);
+            accepted += chunkAccepted;
+            rejected += chunk.size() - chunkAccepted + invalid;
+            chunk.clear();
+            invalid = 0;
+            return true;
+        }
+    }
+
+    /**
+     * A request body, which notes when its end got read
+     */
+    private static final class TimedBody extends FilterInputStream {
+
+        private boolean read;
+        private long readNanos;
+
+        private TimedBody(final InputStream body) {
+            super(body);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b < 0) {
+                ended();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int count = super.read(buffer, offset, length);
+            if (count < 0) {
+                ended();
+            }
+            return count;
+        }
+
+        private void ended() {
+            if (!read) {
+                read = true;
+                readNanos = System.nanoTime();
+            }
+        }
+
+        boolean isRead() {
+            return read;
+        }
+
+        long getReadNanos() {
+            return readNanos;
+        }
+    }
+}
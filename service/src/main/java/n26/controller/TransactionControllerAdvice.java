@@ -0,0 +1,43 @@
+package n26.controller;
+
+import n26.model.IngestUnavailableException;
+import n26.model.InvalidTimestampException;
+import n26.model.PayloadTooLargeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class TransactionControllerAdvice {
+
+    // How long producers should back off while no further tenant fits
+    @Value("${n26.ingest.retry-after-seconds:1}")
+    int retryAfterSeconds;
+
+    @ExceptionHandler(InvalidTimestampException.class)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public String handleNotFoundException(InvalidTimestampException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(PayloadTooLargeException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public String handlePayloadTooLargeException(PayloadTooLargeException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(IngestUnavailableException.class)
+    public ResponseEntity<String> handleIngestUnavailableException(IngestUnavailableException ex) {
+        if (!ex.isFull()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfterSeconds))
+                .body(ex.getMessage());
+    }
+
+}
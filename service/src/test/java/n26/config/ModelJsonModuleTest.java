@@ -0,0 +1,48 @@
+package n26.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import n26.model.Rates;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import n26.server.SimpleJsonCodec;
+import org.junit.Test;
+
+public class ModelJsonModuleTest {
+
+    final ObjectMapper mapper = new ObjectMapper().registerModule(new ModelJsonModule());
+
+    final SimpleJsonCodec codec = new SimpleJsonCodec();
+
+    @Test
+    public void testWriteStatistics_sameAsSimpleJsonCodec() throws IOException {
+        final Statistics statistics = new Statistics();
+        statistics.addTransaction(1478192204000L, 12.3);
+        statistics.addTransaction(1478192205000L, 1e-7);
+        assertThat(mapper.writeValueAsString(statistics))
+                .isEqualTo(new String(codec.writeStatistics(statistics), StandardCharsets.UTF_8));
+
+        final Statistics withQuantiles = Statistics.withSketch();
+        withQuantiles.addTransaction(1478192204000L, 1.5);
+        withQuantiles.addTransaction(1478192204000L, 2.5e12);
+        assertThat(mapper.writeValueAsString(withQuantiles))
+                .isEqualTo(new String(codec.writeStatistics(withQuantiles), StandardCharsets.UTF_8))
+                .contains("\"quantiles\":{\"p50\":");
+
+        final Statistics withRates = withQuantiles.withRates(new Rates(2, 3.5, 1.9, 1.2, 0.25, 3.25, 2.5, 1e-9));
+        assertThat(mapper.writeValueAsString(withRates))
+                .isEqualTo(new String(codec.writeStatistics(withRates), StandardCharsets.UTF_8))
+                .contains("\"rates\":{\"countPerSecond\":2.0,");
+    }
+
+    @Test
+    public void testWriteTransaction_withoutIdempotencyKey() throws IOException {
+        assertThat(mapper.writeValueAsString(new Transaction(1478192204000L, 12.3)))
+                .isEqualTo("{\"timestamp\":1478192204000,\"amount\":12.3,\"dimensions\":null}");
+        assertThat(mapper.readValue("{\"timestamp\":1,\"amount\":2.0,\"idempotencyKey\":\"a\"}", Transaction.class)
+                .getIdempotencyKey()).isEqualTo("a");
+    }
+}
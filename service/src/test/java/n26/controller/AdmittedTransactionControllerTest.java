@@ -0,0 +1,115 @@
+package n26.controller;
+
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import n26.model.Transaction;
+import n26.service.AdmissionControl;
+import n26.service.TransactionStore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(TransactionController.class)
+@TestPropertySource(properties = "n26.admission.client-header=X-Client-Id")
+public class AdmittedTransactionControllerTest {
+
+    private static final String TRANSACTION = "{\"timestamp\":1478192204000,\"amount\":12.3}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TransactionStore transactionStore;
+
+    @MockBean
+    private AdmissionControl admissionControl;
+
+    @Test
+    public void addTransactionTest_admittedAndReleased() throws Exception {
+        when(admissionControl.tryAdmit(anyString(), anyLong())).thenReturn(AdmissionControl.ADMITTED);
+
+        mockMvc.perform(post("/transactions").header("X-Client-Id", "producer-1").content(TRANSACTION)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isCreated());
+
+        verify(admissionControl).tryAdmit(eq("producer-1"), anyLong());
+        verify(admissionControl).release(anyLong(), anyLong());
+        verify(transactionStore).tryAddTransaction(1478192204000L, 12.3);
+    }
+
+    @Test
+    public void addTransactionTest_rateLimited() throws Exception {
+        when(admissionControl.tryAdmit(anyString(), anyLong())).thenReturn(AdmissionControl.RATE_LIMITED);
+
+        mockMvc.perform(post("/transactions").content(TRANSACTION).contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(content().string(""));
+
+        // Without the header the client is named by its address
+        verify(admissionControl).tryAdmit(eq("127.0.0.1"), anyLong());
+        verify(admissionControl, never()).release(anyLong(), anyLong());
+        verify(transactionStore, never()).tryAddTransaction(anyLong(), anyDouble());
+    }
+
+    @Test
+    public void addTransactionsTest_overloaded() throws Exception {
+        when(admissionControl.tryAdmit(anyString(), anyLong())).thenReturn(AdmissionControl.OVERLOADED);
+
+        mockMvc.perform(post("/transactions/batch").content(TRANSACTION)
+                .contentType(TransactionController.APPLICATION_NDJSON_VALUE))
+                .andExpect(status().isTooManyRequests());
+
+        verify(admissionControl, never()).release(anyLong(), anyLong());
+    }
+
+    @Test
+    public void addTransactionsTest_chargedPerTransaction() throws Exception {
+        when(admissionControl.tryAdmit(anyString(), anyLong())).thenReturn(AdmissionControl.ADMITTED);
+        when(admissionControl.tryCharge(anyString(), anyInt(), anyLong())).thenReturn(true);
+        when(transactionStore.addTransactions(anyListOf(Transaction.class))).thenReturn(2);
+
+        mockMvc.perform(post("/transactions/batch").header("X-Client-Id", "producer-1")
+                .content(TRANSACTION + "\n{\"timestamp\":\n" + TRANSACTION)
+                .contentType(TransactionController.APPLICATION_NDJSON_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1));
+
+        verify(admissionControl).tryCharge(eq("producer-1"), eq(2), anyLong());
+    }
+
+    @Test
+    public void addTransactionsTest_outOfTokens() throws Exception {
+        when(admissionControl.tryAdmit(anyString(), anyLong())).thenReturn(AdmissionControl.ADMITTED);
+        when(admissionControl.tryCharge(anyString(), anyInt(), anyLong())).thenReturn(false);
+
+        mockMvc.perform(post("/transactions/batch").content(TRANSACTION + "\n{\"timestamp\":\n" + TRANSACTION)
+                .contentType(TransactionController.APPLICATION_NDJSON_VALUE))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.accepted").value(0))
+                .andExpect(jsonPath("$.rejected").value(0));
+
+        verify(transactionStore, never()).addTransactions(anyListOf(Transaction.class));
+    }
+}
@@ -0,0 +1,40 @@
+package n26.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import n26.config.StoreConfiguration;
+import n26.config.TenantConfiguration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(TenantController.class)
+@Import({StoreConfiguration.class, TenantConfiguration.class})
+@TestPropertySource(properties = {"n26.tenants.enabled=true", "n26.store.clock-resolution-ms=10"})
+public class CoarseClockTenantControllerTest {
+
+    private static final int TRANSACTIONS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void addTransactionTest_timestampOfNow() throws Exception {
+        // The coarse clock lags behind the system clock, which the tenant stores have to tolerate
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            mockMvc.perform(post("/tenants/acme/transactions")
+                    .content("{\"timestamp\":" + System.currentTimeMillis() + ",\"amount\":1.0}")
+                    .contentType(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isCreated());
+            Thread.sleep(1);
+        }
+    }
+}
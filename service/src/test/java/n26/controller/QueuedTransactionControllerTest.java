@@ -0,0 +1,99 @@
+package n26.controller;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import n26.model.Transaction;
+import n26.service.IngestQueue;
+import n26.service.TransactionStore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(TransactionController.class)
+public class QueuedTransactionControllerTest {
+
+    private static final String TRANSACTION = "{\"timestamp\":1478192204000,\"amount\":12.3}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TransactionStore transactionStore;
+
+    @MockBean
+    private IngestQueue ingestQueue;
+
+    @Test
+    public void addTransactionTest_queued() throws Exception {
+        when(ingestQueue.offer(anyLong(), anyDouble())).thenReturn(true);
+
+        mockMvc.perform(post("/transactions").content(TRANSACTION).contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated());
+
+        verify(transactionStore).checkTimestamp(1478192204000L);
+        verify(ingestQueue).offer(1478192204000L, 12.3);
+        verify(transactionStore, never()).tryAddTransaction(anyLong(), anyDouble());
+    }
+
+    @Test
+    public void addTransactionTest_unusualJsonQueued() throws Exception {
+        when(ingestQueue.offer(anyLong(), anyDouble())).thenReturn(true);
+
+        mockMvc.perform(post("/transactions").content("{\"timest\\u0061mp\":1478192204000,\"amount\":12.3}")
+                .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated());
+
+        verify(ingestQueue).offer(1478192204000L, 12.3);
+        verify(transactionStore, never()).tryAddTransaction(any(Transaction.class));
+    }
+
+    @Test
+    public void addTransactionTest_idempotencyKeyAddedDirectly() throws Exception {
+        mockMvc.perform(post("/transactions")
+                .content("{\"timestamp\":1478192204000,\"amount\":12.3,\"idempotencyKey\":\"a\"}")
+                .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated());
+
+        verify(transactionStore).tryAddTransaction(any(Transaction.class));
+        verify(ingestQueue, never()).offer(anyLong(), anyDouble());
+    }
+
+    @Test
+    public void addTransactionTest_invalidTimestampNotQueued() throws Exception {
+        when(transactionStore.checkTimestamp(anyLong())).thenReturn(TransactionStore.REJECTED_FUTURE);
+
+        mockMvc.perform(post("/transactions").content(TRANSACTION).contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isNoContent());
+
+        verify(ingestQueue, never()).offer(anyLong(), anyDouble());
+    }
+
+    @Test
+    public void addTransactionTest_queueFull() throws Exception {
+        when(ingestQueue.isRunning()).thenReturn(true);
+
+        mockMvc.perform(post("/transactions").content(TRANSACTION).contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    public void addTransactionTest_queueShutDown() throws Exception {
+        mockMvc.perform(post("/transactions").content(TRANSACTION).contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
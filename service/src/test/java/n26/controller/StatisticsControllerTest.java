@@ -0,0 +1,173 @@
+package n26.controller;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import n26.model.BucketSnapshot;
+import n26.model.InvalidDimensionException;
+import n26.model.KeyStatistics;
+import n26.model.Statistics;
+import n26.model.Transaction;
+import n26.service.TransactionStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(StatisticsController.class)
+public class StatisticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TransactionStore transactionStore;
+
+    // The controller outlives the tests, so every test needs newer versions than the one before
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Before
+    public void setup() {
+        when(transactionStore.getStatisticsVersion(any())).thenAnswer(invocation -> VERSIONS.incrementAndGet());
+    }
+
+    @Test
+    public void getStatisticsTest_oneTransaction() throws Exception {
+        Statistics statistics = new Statistics();
+        statistics.addTransaction(new Transaction(0, 1.0));
+
+        when(transactionStore.getStatistics(any())).thenReturn(statistics);
+        mockMvc.perform(get("/statistics")).andExpect(status().isOk())
+                .andExpect(content().string(equalTo(mapper.writeValueAsString(statistics))));
+    }
+
+    @Test
+    public void getStatisticsTest_notModified() throws Exception {
+        Statistics statistics = new Statistics();
+        statistics.addTransaction(new Transaction(0, 1.0));
+
+        when(transactionStore.getStatisticsVersion(any())).thenReturn(VERSIONS.incrementAndGet());
+        when(transactionStore.getStatistics(any())).thenReturn(statistics);
+        String etag = mockMvc.perform(get("/statistics")).andExpect(status().isOk())
+                .andExpect(header().string("ETag", notNullValue()))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/statistics").header("If-None-Match", etag)).andExpect(status().isNotModified());
+        mockMvc.perform(get("/statistics")).andExpect(status().isOk())
+                .andExpect(content().string(equalTo(mapper.writeValueAsString(statistics))));
+        verify(transactionStore, times(1)).getStatistics(any());
+    }
+
+    @Test
+    public void getStatisticsTest_noTransactions() throws Exception {
+        Statistics statistics = new Statistics();
+
+        when(transactionStore.getStatistics(any())).thenReturn(statistics);
+        mockMvc.perform(get("/statistics")).andExpect(status().isNoContent());
+    }
+
+    @Test
+    public void getStatisticsTest_furtherWindow() throws Exception {
+        Statistics statistics = new Statistics();
+        statistics.addTransaction(new Transaction(0, 1.0));
+
+        when(transactionStore.getStatistics(any(), eq(Duration.ofMinutes(5)))).thenReturn(statistics);
+        mockMvc.perform(get("/statistics").param("window", "5m")).andExpect(status().isOk())
+                .andExpect(content().string(equalTo(mapper.writeValueAsString(statistics))));
+    }
+
+    @Test
+    public void getStatisticsTest_range() throws Exception {
+        Statistics statistics = new Statistics();
+        statistics.addTransaction(new Transaction(0, 1.0));
+
+        when(transactionStore.getStatistics(any(), eq(Instant.parse("2018-03-01T14:00:00Z")),
+                eq(Instant.ofEpochMilli(1519913100000L)))).thenReturn(statistics);
+        mockMvc.perform(get("/statistics").param("from", "2018-03-01T14:00:00Z").param("to", "1519913100000"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo(mapper.writeValueAsString(statistics))));
+
+        mockMvc.perform(get("/statistics").param("from", "yesterday").param("to", "1519913100000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getStatisticsTest_quantiles() throws Exception {
+        Statistics statistics = Statistics.withSketch();
+        statistics.addTransaction(new Transaction(0, 1.0));
+
+        when(transactionStore.getStatistics(any())).thenReturn(statistics);
+        mockMvc.perform(get("/statistics")).andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantiles.p99").value(closeTo(1.0, 0.01)))
+                .andExpect(jsonPath("$.sketch").doesNotExist());
+    }
+
+    @Test
+    public void getStatisticsTest_dimensionKey() throws Exception {
+        Statistics statistics = new Statistics();
+        statistics.addTransaction(new Transaction(0, 1.0));
+
+        when(transactionStore.getStatistics(any(), eq("merchant"), eq("m.42"))).thenReturn(statistics);
+        mockMvc.perform(get("/statistics/merchant/m.42")).andExpect(status().isOk())
+                .andExpect(content().string(equalTo(mapper.writeValueAsString(statistics))));
+    }
+
+    @Test
+    public void getStatisticsTest_topKeys() throws Exception {
+        when(transactionStore.getTopKeys(any(), eq("merchant"), eq(2))).thenReturn(Arrays.asList(
+                new KeyStatistics("m-1", 5, 10.0, true), new KeyStatistics("m-2", 3, 6.0, false)));
+
+        mockMvc.perform(get("/statistics/merchant/top").param("limit", "2")).andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].key").value("m-1"))
+                .andExpect(jsonPath("$[1].exact").value(false));
+    }
+
+    @Test
+    public void getStatisticsTest_unknownDimension() throws Exception {
+        when(transactionStore.getStatistics(any(), eq("merchant"), eq("m-1")))
+                .thenThrow(new InvalidDimensionException("Unknown"));
+        mockMvc.perform(get("/statistics/merchant/m-1")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getStatisticsTest_invalidWindow() throws Exception {
+        mockMvc.perform(get("/statistics").param("window", "five minutes")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getSnapshotTest() throws Exception {
+        when(transactionStore.getSnapshot(any())).thenReturn(new BucketSnapshot(5_000, 1000, new long[] {3, 4},
+                new long[] {2, 1}, new double[] {3.0, 1.0}, new double[] {1.0, 1.0}, new double[] {2.0, 1.0},
+                new long[] {3_500, 4_000}));
+
+        mockMvc.perform(get("/statistics/buckets")).andExpect(status().isOk())
+                .andExpect(jsonPath("$.takenAt").value(5_000))
+                .andExpect(jsonPath("$.buckets[1]").value(4))
+                .andExpect(jsonPath("$.sums[0]").value(3.0));
+    }
+
+}
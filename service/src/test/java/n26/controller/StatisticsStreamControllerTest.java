@@ -0,0 +1,49 @@
+package n26.controller;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+import n26.model.ThresholdRule;
+import n26.service.StatisticsPublisher;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(StatisticsStreamController.class)
+@TestPropertySource(properties = "n26.stream.enabled=true")
+public class StatisticsStreamControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private StatisticsPublisher statisticsPublisher;
+
+    @Test
+    public void streamStatisticsTest_subscribedWithRules() throws Exception {
+        mockMvc.perform(get("/statistics/stream").param("rule", "sum>100", "max>=5"))
+                .andExpect(request().asyncStarted());
+
+        verify(statisticsPublisher).subscribe(eq(Arrays.asList(ThresholdRule.parse("sum>100"),
+                ThresholdRule.parse("max>=5"))), any());
+    }
+
+    @Test
+    public void streamStatisticsTest_invalidRule() throws Exception {
+        mockMvc.perform(get("/statistics/stream").param("rule", "median>1")).andExpect(status().isBadRequest());
+
+        verify(statisticsPublisher, never()).subscribe(any(), any());
+    }
+}
@@ -0,0 +1,77 @@
+package n26.controller;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import n26.model.InvalidTenantException;
+import n26.model.Statistics;
+import n26.service.TenantRegistry;
+import n26.service.TransactionStore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(TenantController.class)
+@TestPropertySource(properties = "n26.tenants.enabled=true")
+public class TenantControllerTest {
+
+    private static final String TRANSACTION = "{\"timestamp\":1478192204000,\"amount\":12.3}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TenantRegistry tenantRegistry;
+
+    @Test
+    public void addTransactionTest() throws Exception {
+        when(tenantRegistry.addTransaction(anyString(), anyLong(), anyDouble())).thenReturn(TransactionStore.ACCEPTED);
+
+        mockMvc.perform(post("/tenants/acme/transactions").content(TRANSACTION)
+                .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated());
+
+        verify(tenantRegistry).addTransaction("acme", 1478192204000L, 12.3);
+    }
+
+    @Test
+    public void addTransactionTest_invalidTenant() throws Exception {
+        when(tenantRegistry.addTransaction(anyString(), anyLong(), anyDouble()))
+                .thenThrow(new InvalidTenantException("invalid"));
+
+        mockMvc.perform(post("/tenants/a*b/transactions").content(TRANSACTION)
+                .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getStatisticsTest() throws Exception {
+        when(tenantRegistry.getStatistics(eq("acme"), any(Instant.class)))
+                .thenReturn(new Statistics(20.0, 10.0, 30.0, 2, 1478192204000L, null));
+        when(tenantRegistry.getStatistics(eq("other"), any(Instant.class))).thenReturn(new Statistics());
+
+        mockMvc.perform(get("/tenants/acme/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sum").value(30.0))
+                .andExpect(jsonPath("$.count").value(2));
+        mockMvc.perform(get("/tenants/other/statistics"))
+                .andExpect(status().isNoContent());
+    }
+}
@@ -0,0 +1,134 @@
+package n26.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import n26.model.Transaction;
+import n26.service.TransactionStore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(TransactionController.class)
+public class TransactionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TransactionStore transactionStore;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Test
+    public void addTransactionTest_validTransaction() throws Exception {
+        Transaction transaction = new Transaction(0, 1.0);
+
+        mockMvc.perform(post("/transactions").content(mapper.writeValueAsString(transaction))
+                .contentType(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isCreated());
+    }
+
+    @Test
+    public void addTransactionTest_plainTransactionDecodedToPrimitives() throws Exception {
+        mockMvc.perform(post("/transactions").content("{\"timestamp\":1478192204000,\"amount\":12.3}")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isCreated());
+
+        verify(transactionStore).tryAddTransaction(1478192204000L, 12.3);
+    }
+
+    @Test
+    public void addTransactionTest_unreadable() throws Exception {
+        mockMvc.perform(post("/transactions").content("{\"timestamp\":")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void addTransactionTest_withDimensions() throws Exception {
+        mockMvc.perform(post("/transactions")
+                .content("{\"timestamp\":1,\"amount\":2.0,\"dimensions\":{\"merchant\":\"m-42\"}}")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isCreated());
+
+        ArgumentCaptor<Transaction> transaction = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionStore).tryAddTransaction(transaction.capture());
+        assertThat(transaction.getValue().getDimensions()).containsEntry("merchant", "m-42");
+    }
+
+    @Test
+    public void addTransactionTest_retriedWithIdempotencyKey() throws Exception {
+        when(transactionStore.tryAddTransaction(any(Transaction.class)))
+                .thenReturn(TransactionStore.DUPLICATE);
+
+        mockMvc.perform(post("/transactions").content("{\"timestamp\":1,\"amount\":2.0,\"idempotencyKey\":\"tx-1\"}")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isCreated());
+
+        ArgumentCaptor<Transaction> transaction = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionStore).tryAddTransaction(transaction.capture());
+        assertThat(transaction.getValue().getIdempotencyKey()).isEqualTo("tx-1");
+    }
+
+    @Test
+    public void addTransactionTest_bodyTooLarge() throws Exception {
+        final StringBuilder body = new StringBuilder("{\"timestamp\":1,\"amount\":2.0,\"note\":\"");
+        while (body.length() <= 64 * 1024) {
+            body.append("0123456789");
+        }
+        body.append("\"}");
+
+        mockMvc.perform(post("/transactions").content(body.toString())
+                .contentType(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    public void addTransactionTest_invalidTransaction() throws Exception {
+        Transaction transaction = new Transaction(0, 1.0);
+
+        when(transactionStore.tryAddTransaction(anyLong(), anyDouble())).thenReturn(TransactionStore.REJECTED_STALE);
+
+        mockMvc.perform(post("/transactions").content(mapper.writeValueAsString(transaction))
+                .contentType(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isNoContent());
+    }
+
+    @Test
+    public void addTransactionsTest_validAndInvalidLines() throws Exception {
+        String body = mapper.writeValueAsString(new Transaction(0, 1.0)) + "\n"
+                + "{not json\n"
+                + "\n"
+                + mapper.writeValueAsString(new Transaction(1, 2.0)) + "\n"
+                + mapper.writeValueAsString(new Transaction(2, 3.0));
+
+        when(transactionStore.addTransactions(anyListOf(Transaction.class))).thenAnswer(
+                invocation -> ((List<?>) invocation.getArguments()[0]).size() - 1);
+
+        mockMvc.perform(post("/transactions/batch").content(body)
+                .contentType(TransactionController.APPLICATION_NDJSON_VALUE)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(2));
+    }
+
+    @Test
+    public void addTransactionsTest_emptyBody() throws Exception {
+        mockMvc.perform(post("/transactions/batch").content("")
+                .contentType(TransactionController.APPLICATION_NDJSON_VALUE)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(0))
+                .andExpect(jsonPath("$.rejected").value(0));
+    }
+
+}
@@ -1,8 +0,0 @@
-package n26.model;
-
-public class InvalidTimestampException extends RuntimeException {
-
-    public InvalidTimestampException(String message) {
-        super(message);
-    }
-}
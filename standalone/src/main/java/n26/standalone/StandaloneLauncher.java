@@ -0,0 +1,140 @@
+package n26.standalone;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.LogManager;
+import java.util.stream.Collectors;
+import n26.server.EventLoopServer;
+import n26.server.SimpleJsonCodec;
+import n26.server.StoreRequestHandler;
+import n26.service.AggregationMode;
+import n26.service.AmountMode;
+import n26.service.CoarseClock;
+import n26.service.RetentionTier;
+import n26.service.StoreSettings;
+import n26.service.TransactionStore;
+import n26.service.Windows;
+
+/**
+ * Serves /transactions and /statistics from the event loop server, without Spring
+ *
+ * The settings are read from the system properties and an optional properties file given as the only argument, with
+ * the keys of the service: 'server.port', 'n26.event-loop.threads', 'n26.event-loop.max-request-bytes' and the
+ * 'n26.store.*' settings of the store besides dimensions. Missing settings have the defaults of the service.
+ */
+public class StandaloneLauncher implements AutoCloseable {
+
+    private final CoarseClock clock;
+
+    private final TransactionStore transactionStore;
+
+    private final EventLoopServer server;
+
+    private StandaloneLauncher(CoarseClock clock, TransactionStore transactionStore, EventLoopServer server) {
+        this.clock = clock;
+        this.transactionStore = transactionStore;
+        this.server = server;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final Properties properties = new Properties();
+        if (args.length > 0) {
+            try (InputStream in = Files.newInputStream(Paths.get(args[0]))) {
+                properties.load(in);
+            }
+        }
+        properties.putAll(System.getProperties());
+
+        // The core logs to java.util.logging, which stays quiet unless a logging config file is given
+        if (System.getProperty("java.util.logging.config.file") == null) {
+            LogManager.getLogManager().reset();
+        }
+        final StandaloneLauncher launcher = start(properties);
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            launcher.close();
+            stopped.countDown();
+        }, "standalone-shutdown"));
+        // Logging is off to start fast, so the only output goes straight to the console
+        System.out.println("Started on port " + launcher.getPort() + " in "
+                + (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()) + " ms");
+
+        // The server threads are daemons, so the main thread keeps the JVM running until it is shut down
+        stopped.await();
+    }
+
+    /**
+     * Creates the store and starts the server
+     * @param properties the settings
+     * @return the running launcher
+     * @throws IOException if the port can't be bound
+     */
+    public static StandaloneLauncher start(Properties properties) throws IOException {
+        final long clockResolutionMs = Long.parseLong(get(properties, "n26.store.clock-resolution-ms", "0"));
+        final StoreSettings settings = StoreSettings.builder()
+                .aggregation(AggregationMode.valueOf(get(properties, "n26.store.aggregation", "SCAN").toUpperCase()))
+                .bucketSizeMs(Long.parseLong(get(properties, "n26.store.bucket-size-ms", "1000")))
+                .windowSeconds(Integer.parseInt(get(properties, "n26.store.window-seconds", "60")))
+                .windows(getList(properties, "n26.store.windows", "").stream().map(Windows::parse)
+                        .collect(Collectors.toList()))
+                .quantiles(Boolean.parseBoolean(get(properties, "n26.store.quantiles", "false")))
+                .rates(Boolean.parseBoolean(get(properties, "n26.store.rates", "false")))
+                .idempotencyKeysPerBucket(
+                        Integer.parseInt(get(properties, "n26.store.idempotency-keys-per-bucket", "0")))
+                .amounts(AmountMode.valueOf(get(properties, "n26.store.amounts", "DOUBLE").toUpperCase()))
+                .amountDecimals(Integer.parseInt(get(properties, "n26.store.amount-decimals", "2")))
+                .history(getList(properties, "n26.store.history", "1m:1d,1h:30d").stream().map(RetentionTier::parse)
+                        .collect(Collectors.toList()))
+                .rejectionLogIntervalMs(Long.parseLong(get(properties, "n26.store.rejection-log-interval-ms", "1000")))
+                .futureToleranceMs(Long.max(0, clockResolutionMs))
+                .build();
+
+        final CoarseClock clock = clockResolutionMs > 0 ? new CoarseClock(Clock.systemUTC(), clockResolutionMs) : null;
+        final TransactionStore transactionStore = new TransactionStore(clock != null ? clock : Clock.systemUTC(),
+                settings);
+
+        final EventLoopServer server = new EventLoopServer(
+                new InetSocketAddress(Integer.parseInt(get(properties, "server.port", "8080"))),
+                Integer.parseInt(get(properties, "n26.event-loop.threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Integer.parseInt(get(properties, "n26.event-loop.max-request-bytes", String.valueOf(64 * 1024))),
+                new StoreRequestHandler(transactionStore, null, new SimpleJsonCodec()));
+        return new StandaloneLauncher(clock, transactionStore, server);
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    public TransactionStore getTransactionStore() {
+        return transactionStore;
+    }
+
+    @Override
+    public void close() {
+        server.close();
+        if (clock != null) {
+            clock.close();
+        }
+    }
+
+    private static String get(final Properties properties, final String key, final String defaultValue) {
+        return properties.getProperty(key, defaultValue).trim();
+    }
+
+    private static List<String> getList(final Properties properties, final String key, final String defaultValue) {
+        return Arrays.stream(get(properties, key, defaultValue).split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,73 @@
+package n26.standalone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.Scanner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StandaloneLauncherTest {
+
+    StandaloneLauncher launcher;
+
+    @Before
+    public void setUp() throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("server.port", "0");
+        properties.setProperty("n26.event-loop.threads", "1");
+        properties.setProperty("n26.store.window-seconds", "30");
+        properties.setProperty("n26.store.windows", "10s, 20s");
+        launcher = StandaloneLauncher.start(properties);
+    }
+
+    @After
+    public void tearDown() {
+        launcher.close();
+    }
+
+    @Test
+    public void testTransactionsAndStatistics() throws IOException {
+        final long now = System.currentTimeMillis() - 2_000;
+        assertThat(post("{\"timestamp\":" + now + ",\"amount\":12.5}")).isEqualTo(201);
+        assertThat(post("{\"timestamp\":" + now + ",\"amount\":\"7.5\",\"comment\":[1,{}]}")).isEqualTo(201);
+        assertThat(post("{\"timestamp\":" + (now - 29_000) + ",\"amount\":1}")).isEqualTo(204);
+        assertThat(post("{\"timestamp\":")).isEqualTo(400);
+
+        final HttpURLConnection connection = open("/statistics?window=10s");
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        try (Scanner body = new Scanner(connection.getInputStream(), "UTF-8")) {
+            assertThat(body.useDelimiter("\\A").next()).isEqualTo("{\"max\":12.5,\"min\":7.5,\"avg\":10.0,"
+                    + "\"sum\":20.0,\"count\":2,\"lastTimestamp\":" + now + "}");
+        }
+        assertThat(launcher.getTransactionStore().getStatistics(Instant.now()).getCount()).isEqualTo(2);
+    }
+
+    private int post(final String body) throws IOException {
+        final HttpURLConnection connection = open("/transactions");
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        final int status = connection.getResponseCode();
+        final InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in != null) {
+            in.close();
+        }
+        return status;
+    }
+
+    private HttpURLConnection open(final String path) throws IOException {
+        return (HttpURLConnection) new URL("http://localhost:" + launcher.getPort() + path).openConnection();
+    }
+}